@@ -0,0 +1,51 @@
+package com.example.cameraxlib;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import com.example.cameraxlib.dedup.FrameFingerprinter;
+import com.example.cameraxlib.dedup.FrameHasher;
+import com.example.cameraxlib.frame.CapturedFrame;
+
+import java.io.IOException;
+
+// 以 1/8 取樣解碼 JPEG（解碼器直接在 DCT 階段縮小），重複使用同一張 Bitmap 與像素陣列計算雜湊
+// 只在去重管線的單一執行緒上使用
+public class BitmapFrameFingerprinter implements FrameFingerprinter {
+    private static final int SAMPLE_SIZE = 8;
+
+    private final FrameHasher hasher = new FrameHasher();
+    private final BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
+    private final BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+    private int[] pixels = new int[0];
+
+    public BitmapFrameFingerprinter() {
+        boundsOptions.inJustDecodeBounds = true;
+        decodeOptions.inSampleSize = SAMPLE_SIZE;
+        decodeOptions.inMutable = true; // inBitmap 重複使用的前提
+    }
+
+    @Override
+    public long fingerprint(CapturedFrame frame) throws IOException {
+        BitmapFactory.decodeStream(frame.openStream(), null, boundsOptions);
+        int width = (boundsOptions.outWidth + SAMPLE_SIZE - 1) / SAMPLE_SIZE;
+        int height = (boundsOptions.outHeight + SAMPLE_SIZE - 1) / SAMPLE_SIZE;
+        Bitmap reusable = decodeOptions.inBitmap;
+        if (reusable == null || reusable.getAllocationByteCount() < width * height * 4) {
+            if (reusable != null) {
+                reusable.recycle();
+            }
+            decodeOptions.inBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        Bitmap bitmap = BitmapFactory.decodeStream(frame.openStream(), null, decodeOptions);
+        if (bitmap == null) {
+            throw new IOException("無法解碼：" + frame.getName());
+        }
+        int count = bitmap.getWidth() * bitmap.getHeight();
+        if (pixels.length < count) {
+            pixels = new int[count];
+        }
+        bitmap.getPixels(pixels, 0, bitmap.getWidth(), 0, 0, bitmap.getWidth(), bitmap.getHeight());
+        return hasher.hashArgb(pixels, bitmap.getWidth(), bitmap.getHeight());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cameraxlib;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.example.cameraxlib.frame.ByteBufferOutputStream;
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.FrameTranscoder;
+
+// 依幀的 CaptureProfile 縮放或重新壓縮；設定檔為直傳時不解碼，輸出直接寫回池化緩衝
+public class BitmapFrameTranscoder implements FrameTranscoder {
+    private static final String TAG = "BitmapFrameTranscoder";
+    private static final int DEFAULT_QUALITY = 95; // 只縮放、未指定品質時使用
+    private final FrameBufferPool pool;
+
+    public BitmapFrameTranscoder(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public CapturedFrame transcode(CapturedFrame frame) {
+        CaptureProfile profile = frame.getProfile();
+        if (profile == null || profile.isPassThrough()) {
+            return frame;
+        }
+        int maxWidth = profile.getMaxWidth();
+        int maxHeight = profile.getMaxHeight();
+        int jpegQuality = profile.getJpegQuality() > 0 ? profile.getJpegQuality() : DEFAULT_QUALITY;
+
+        // 先只讀取尺寸，判斷是否需要縮放
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeStream(frame.openStream(), null, bounds);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight, maxWidth, maxHeight);
+        Bitmap bitmap = BitmapFactory.decodeStream(frame.openStream(), null, options);
+        if (bitmap == null) {
+            Log.e(TAG, "解碼失敗，保留原始 JPEG：" + frame.getName());
+            return frame;
+        }
+        Bitmap scaled = scaleToFit(bitmap, maxWidth, maxHeight);
+
+        ByteBufferOutputStream out = new ByteBufferOutputStream(pool, frame.getLength());
+        scaled.compress(Bitmap.CompressFormat.JPEG, jpegQuality, out); // 依設定品質重新壓縮
+        if (scaled != bitmap) {
+            scaled.recycle();
+        }
+        bitmap.recycle();
+
+        CapturedFrame result = out.toFrame(frame.getName(), frame.getTimestampMillis());
+        result.setTag(frame.getTag());
+        result.setUnchanged(frame.isUnchanged());
+        result.setProfile(profile);
+        frame.release(); // 原始幀已不再需要
+        return result;
+    }
+
+    // 以 2 的冪次取樣，在解碼階段就縮小到接近目標尺寸
+    private static int sampleSizeFor(int width, int height, int maxWidth, int maxHeight) {
+        int sampleSize = 1;
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= maxWidth && height / (sampleSize * 2) >= maxHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static Bitmap scaleToFit(Bitmap bitmap, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0
+                || (bitmap.getWidth() <= maxWidth && bitmap.getHeight() <= maxHeight)) {
+            return bitmap;
+        }
+        float scale = Math.min((float) maxWidth / bitmap.getWidth(), (float) maxHeight / bitmap.getHeight());
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+}
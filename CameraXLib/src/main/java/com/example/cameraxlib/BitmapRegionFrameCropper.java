@@ -0,0 +1,76 @@
+package com.example.cameraxlib;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.RegionFrameCropper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// 以 BitmapRegionDecoder 只解碼需要的區域，不先解出整張 1920x1080 的 Bitmap
+// 同一幀的多個區域共用一個解碼器，解碼後的 Bitmap 記憶體可重複使用
+public class BitmapRegionFrameCropper extends RegionFrameCropper<BitmapRegionDecoder> {
+    private Bitmap reusable; // 只在 encode 執行緒上使用
+
+    public BitmapRegionFrameCropper(FrameBufferPool pool) {
+        super(pool);
+    }
+
+    @Override
+    protected BitmapRegionDecoder open(CapturedFrame frame) throws IOException {
+        return BitmapRegionDecoder.newInstance(frame.openStream(), false);
+    }
+
+    @Override
+    protected int getWidth(BitmapRegionDecoder decoder) {
+        return decoder.getWidth();
+    }
+
+    @Override
+    protected int getHeight(BitmapRegionDecoder decoder) {
+        return decoder.getHeight();
+    }
+
+    @Override
+    protected void encodeRegion(BitmapRegionDecoder decoder, int[] rect, int sampleSize, int quality,
+                                OutputStream out) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        int width = (rect[2] - rect[0] + sampleSize - 1) / sampleSize;
+        int height = (rect[3] - rect[1] + sampleSize - 1) / sampleSize;
+        if (reusable != null && reusable.getAllocationByteCount() >= width * height * 4) {
+            // decodeRegion 不會調整 inBitmap 的尺寸，只畫在左上角；先改成這個區域的大小，避免壓縮到前一個區域殘留的像素
+            if (reusable.getWidth() != width || reusable.getHeight() != height) {
+                reusable.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            }
+            options.inBitmap = reusable;
+        }
+        Bitmap bitmap = decoder.decodeRegion(new Rect(rect[0], rect[1], rect[2], rect[3]), options);
+        if (bitmap == null) {
+            throw new IOException("區域解碼失敗");
+        }
+        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+        if (bitmap != reusable) {
+            // 保留較大的一張供之後的區域重複使用
+            if (reusable == null || bitmap.getAllocationByteCount() > reusable.getAllocationByteCount()) {
+                if (reusable != null) {
+                    reusable.recycle();
+                }
+                reusable = bitmap;
+            } else {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    @Override
+    protected void close(BitmapRegionDecoder decoder) {
+        decoder.recycle();
+    }
+}
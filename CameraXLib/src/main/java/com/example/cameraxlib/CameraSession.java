@@ -0,0 +1,211 @@
+package com.example.cameraxlib;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.camera.core.Camera;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.CameraState;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageCapture;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.core.content.ContextCompat;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.cameraxlib.metrics.Counter;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.metrics.MetricsRegistry;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+// 相機工作階段：快取 ProcessCameraProvider 與 ImageCapture，只綁定一次
+// 綁定在 LifecycleOwner 上，畫面暫停時 CameraX 自行關閉相機、恢復時重新開啟，不需要解除綁定與重建
+// open() 可重複呼叫；相機實際開啟或關閉時通知 Listener，並記錄冷啟動與熱啟動所花的時間
+// 可另外綁定低解析度的 ImageAnalysis 串流，供動態偵測等分析使用；未設定分析器時不綁定，不佔用相機頻寬
+// 除了 getImageCapture 與 isReady 之外，所有方法須在主執行緒呼叫
+public class CameraSession {
+    private static final String TAG = "CameraSession";
+    private static final Size ANALYSIS_RESOLUTION = new Size(640, 480); // 分析只需要低解析度的亮度
+
+    public interface Listener {
+        void onReadyChanged(boolean ready); // 相機開啟後才能拍照
+    }
+
+    private final Context context;
+    private final LifecycleOwner lifecycleOwner;
+    private final Listener listener;
+    private final LatencyHistogram coldStart = MetricsRegistry.getDefault().histogram("camera.cold_start"); // 第一次 open 到相機開啟
+    private final LatencyHistogram warmStart = MetricsRegistry.getDefault().histogram("camera.warm_start"); // 已綁定時 open 到相機開啟
+    private final Counter bindErrors = MetricsRegistry.getDefault().counter("camera.bind.errors");
+
+    private ListenableFuture<ProcessCameraProvider> providerFuture; // 取得中或已取得的提供者
+    private ProcessCameraProvider cameraProvider;
+    private volatile ImageCapture imageCapture;
+    private ImageAnalysis imageAnalysis; // 第一次設定分析器時建立
+    private boolean analysisEnabled;
+    private Camera camera;
+    private volatile boolean ready; // 拍照可能在相機回呼執行緒上發起
+    private long openRequestedNanos; // 0 表示沒有等待中的開啟
+    private boolean coldOpen;
+
+    public CameraSession(Context context, Listener listener) {
+        this.context = context;
+        this.lifecycleOwner = (LifecycleOwner) context;
+        this.listener = listener;
+    }
+
+    // 確保相機已綁定；已綁定或綁定中時只記錄開始時間，不重複初始化
+    public void open() {
+        if (openRequestedNanos == 0 && !ready) {
+            openRequestedNanos = System.nanoTime();
+            coldOpen = camera == null;
+        }
+        if (camera != null) {
+            return; // 已綁定，CameraX 會隨 Lifecycle 恢復重新開啟相機
+        }
+        if (cameraProvider != null) {
+            bind();
+            return;
+        }
+        if (providerFuture != null) {
+            return; // 提供者取得中，完成後會綁定
+        }
+        providerFuture = ProcessCameraProvider.getInstance(context);
+        providerFuture.addListener(() -> {
+            try {
+                cameraProvider = providerFuture.get(); // 獲取相機提供者
+                bind();
+            } catch (ExecutionException | InterruptedException e) {
+                providerFuture = null; // 下次 open 重試
+                openRequestedNanos = 0;
+                bindErrors.increment();
+                Log.e(TAG, "無法取得相機提供者: " + e.getMessage());
+            }
+        }, ContextCompat.getMainExecutor(context)); // 使用主執行緒
+    }
+
+    private void bind() {
+        if (camera != null) {
+            return;
+        }
+        CameraSelector cameraSelector = new CameraSelector.Builder()
+                .requireLensFacing(CameraSelector.LENS_FACING_BACK) // 使用後鏡頭
+                .build();
+        if (imageCapture == null) {
+            imageCapture = new ImageCapture.Builder()
+                    .setTargetResolution(new Size(1920, 1080)) // 設定捕捉圖像的解析度
+                    .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY) // 最小化延遲
+                    .build();
+        }
+        try {
+            if (analysisEnabled) {
+                camera = cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector, imageCapture, imageAnalysis);
+            } else {
+                camera = cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector, imageCapture); // 綁定到生命週期
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            openRequestedNanos = 0;
+            bindErrors.increment();
+            Log.e(TAG, "相機綁定失敗: " + e.getMessage());
+            return;
+        }
+        camera.getCameraInfo().getCameraState().observe(lifecycleOwner, this::onCameraState);
+        Log.d(TAG, "相機已綁定");
+    }
+
+    private void onCameraState(CameraState state) {
+        boolean open = state.getType() == CameraState.Type.OPEN;
+        if (open && openRequestedNanos != 0) {
+            (coldOpen ? coldStart : warmStart).recordNanos(System.nanoTime() - openRequestedNanos);
+            openRequestedNanos = 0;
+        }
+        if (state.getError() != null) {
+            Log.e(TAG, "相機錯誤: " + state.getError().getCode());
+        }
+        if (open != ready) {
+            ready = open;
+            Log.d(TAG, open ? "相機已開啟" : "相機已關閉");
+            listener.onReadyChanged(open);
+        }
+    }
+
+    // 開始分析串流：只保留最新一幀（分析跟不上時丟掉舊幀，不排隊），輸出 YUV_420_888
+    // 相機已綁定時直接加入這個用途，不必解除拍照用途；否則在下次綁定時一起綁定
+    public void setAnalyzer(Executor executor, ImageAnalysis.Analyzer analyzer) {
+        if (imageAnalysis == null) {
+            imageAnalysis = new ImageAnalysis.Builder()
+                    .setTargetResolution(ANALYSIS_RESOLUTION)
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .build();
+        }
+        imageAnalysis.setAnalyzer(executor, analyzer);
+        analysisEnabled = true;
+        if (camera == null || cameraProvider.isBound(imageAnalysis)) {
+            return;
+        }
+        try {
+            cameraProvider.bindToLifecycle(lifecycleOwner, camera.getCameraInfo().getCameraSelector(), imageAnalysis);
+            Log.d(TAG, "分析串流已綁定");
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            analysisEnabled = false; // 裝置無法同時支援拍照與分析時只保留拍照
+            imageAnalysis.clearAnalyzer();
+            bindErrors.increment();
+            Log.e(TAG, "分析串流綁定失敗: " + e.getMessage());
+        }
+    }
+
+    // 停止分析串流並解除綁定，拍照不受影響
+    public void clearAnalyzer() {
+        if (imageAnalysis == null || !analysisEnabled) {
+            return;
+        }
+        analysisEnabled = false;
+        imageAnalysis.clearAnalyzer();
+        if (cameraProvider != null && cameraProvider.isBound(imageAnalysis)) {
+            cameraProvider.unbind(imageAnalysis);
+        }
+        Log.d(TAG, "分析串流已停止");
+    }
+
+    public boolean isAnalysisEnabled() {
+        return analysisEnabled;
+    }
+
+    // 完全釋放相機；之後再 open 會重新綁定，但沿用已取得的提供者、ImageCapture 與分析器
+    public void close() {
+        if (camera != null) {
+            camera.getCameraInfo().getCameraState().removeObservers(lifecycleOwner);
+            camera = null;
+        }
+        if (cameraProvider != null) {
+            cameraProvider.unbindAll(); // 停止相機，釋放資源
+        }
+        openRequestedNanos = 0;
+        if (ready) {
+            ready = false;
+            listener.onReadyChanged(false);
+        }
+        Log.d(TAG, "相機已停止");
+    }
+
+    // 相機開啟時才可使用；其餘時間為 null
+    public ImageCapture getImageCapture() {
+        return ready ? imageCapture : null;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public LatencyHistogram getColdStart() {
+        return coldStart;
+    }
+
+    public LatencyHistogram getWarmStart() {
+        return warmStart;
+    }
+}
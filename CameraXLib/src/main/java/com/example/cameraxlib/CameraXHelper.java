@@ -1,132 +1,380 @@
 package com.example.cameraxlib;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
-import android.util.Size;
 
 import androidx.annotation.NonNull;
-import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
-import androidx.camera.lifecycle.ProcessCameraProvider;
-import androidx.core.content.ContextCompat;
-import androidx.lifecycle.LifecycleOwner;
 
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.example.cameraxlib.analysis.AnalysisEvent;
+import com.example.cameraxlib.analysis.AnalyzerChain;
+import com.example.cameraxlib.analysis.BrightnessAnalyzer;
+import com.example.cameraxlib.analysis.FrameAnalyzer;
+import com.example.cameraxlib.analysis.MotionAnalyzer;
+import com.example.cameraxlib.dedup.ChangeDetector;
+import com.example.cameraxlib.dedup.DedupFilter;
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.FrameSink;
+import com.example.cameraxlib.frame.FrameTranscoder;
+import com.example.cameraxlib.frame.RoiTable;
+import com.example.cameraxlib.metrics.Counter;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.metrics.MetricsRegistry;
+import com.example.cameraxlib.pipeline.AdaptiveProfilePolicy;
+import com.example.cameraxlib.pipeline.CapturePipeline;
+import com.example.cameraxlib.pipeline.PipelineStage;
+import com.example.cameraxlib.schedule.CaptureBurst;
+import com.example.cameraxlib.schedule.CapturePriority;
+import com.example.cameraxlib.schedule.CaptureScheduler;
+import com.example.cameraxlib.store.FrameStore;
+import com.example.cameraxlib.store.FrameStoreSink;
+import com.example.cameraxlib.util.Clock;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.ByteBuffer;
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CameraXHelper {
+    private static final int FRAME_BUFFER_CAPACITY = 2 * 1024 * 1024; // 1920x1080 JPEG 通常小於 2MB
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final long PIPELINE_SHUTDOWN_TIMEOUT_MS = 2000;
+    // 上傳佇列積壓門檻（項目數）與最低可接受頻寬，超過時自動降低設定檔
+    private static final int BACKLOG_LOW = 8;
+    private static final int BACKLOG_HIGH = 32;
+    private static final int BACKLOG_CRITICAL = 128;
+    private static final long MIN_UPLOAD_BYTES_PER_SECOND = 64 * 1024;
+    private static final long CAPTURE_COALESCE_WINDOW_MS = 2000; // 這段時間內拍過照，定時拍照就不再重拍
+    private static final long CAPTURE_MAX_WAIT_MS = 10000; // 相機啟動中最多等這麼久，之後的請求以錯誤結束
+    private static final int CAPTURE_MAX_IN_FLIGHT = 2; // 交給 CameraX 的張數上限：前一張處理時下一張可以曝光
+    // 本地照片庫：8MB 一個區段，總量超過 256MB 時淘汰最舊的區段
+    private static final String STORE_DIR = "frame_store";
+    private static final long STORE_SEGMENT_BYTES = 8L * 1024 * 1024;
+    private static final long STORE_MAX_BYTES = 256L * 1024 * 1024;
+    private static final long ANALYSIS_EVENT_COOLDOWN_MS = 3000; // 持續的動態只觸發一張，之後每隔這麼久最多再拍一張
+
     private Context context;
-    private ProcessCameraProvider cameraProvider; // 相機處理提供者
-    private ImageCapture imageCapture; // 圖像捕捉功能
+    private final CameraSession cameraSession; // 快取提供者與 ImageCapture，暫停恢復不重建
+    private final FrameBufferPool bufferPool = new FrameBufferPool(FRAME_BUFFER_CAPACITY, MAX_POOLED_BUFFERS);
+    private final ExecutorService captureExecutor = Executors.newSingleThreadExecutor(); // 相機回呼不佔用主執行緒
+    private final CapturePipeline capturePipeline;
+    private final ChangeDetector changeDetector = new ChangeDetector(); // 同一地點同一方向的畫面沒變就不上傳
+    private final FrameUploadService uploadService; // 可為 null（佇列無法開啟時）
+    private final AdaptiveProfilePolicy adaptivePolicy =
+            new AdaptiveProfilePolicy(BACKLOG_LOW, BACKLOG_HIGH, BACKLOG_CRITICAL, MIN_UPLOAD_BYTES_PER_SECOND);
+    private volatile CaptureProfile captureProfile = CaptureProfile.PATROL_SWEEP; // 未指定時使用的設定檔
+    private final CaptureScheduler captureScheduler; // 所有拍照請求都經過這裡，限制同時進行的張數
+    private final Handler expiryHandler = new Handler(Looper.getMainLooper()); // 相機一直沒開啟時，到期結束等待中的請求
+    // 熱路徑上的指標：初始化時取得物件，記錄時不查表、不配置
+    private final LatencyHistogram copyLatency = MetricsRegistry.getDefault().histogram("capture.copy"); // 回呼到取得 JPEG 位元組
+    private final Counter captureErrors = MetricsRegistry.getDefault().counter("capture.errors");
+    private final FrameStore frameStore; // 可為 null（照片庫無法開啟時）
+    private final AtomicLong imageSequence = new AtomicLong(); // 同一毫秒內拍的照片也不會同名
+    private final BitmapRegionFrameCropper roiCropper = new BitmapRegionFrameCropper(bufferPool); // 未設定區域前不裁切
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor(); // 分析串流的每一幀在這裡處理
+    private final AnalyzerChain analyzerChain = new AnalyzerChain(Clock.SYSTEM, ANALYSIS_EVENT_COOLDOWN_MS);
+    private volatile AnalyzerChain.Listener analysisListener; // 事件的額外通知，可為 null
 
     public CameraXHelper(Context context) {
         this.context = context;
+        this.uploadService = FrameUploadService.getInstance(context);
+        // 佇列無法開啟時退回直接上傳；轉碼依每一幀的設定檔決定，直傳的設定檔不解碼
+        FrameSink frameSink = uploadService != null ? uploadService.getFrameSink() : new FirebaseFrameSink();
+        this.frameStore = openFrameStore(context);
+        if (frameStore != null) {
+            FrameStoreSink storeSink = new FrameStoreSink(frameStore, frameSink); // 先留存在本機再上傳
+            roiCropper.setArchive(storeSink); // 裁切時留存整張，只上傳裁切
+            frameSink = storeSink;
+        }
+        this.capturePipeline = new CapturePipeline(new BitmapFrameTranscoder(bufferPool), frameSink);
+        this.capturePipeline.setCropper(roiCropper);
+        this.capturePipeline.setFilter(new DedupFilter(new BitmapFrameFingerprinter(), changeDetector, DedupFilter.Mode.DROP));
+        this.captureScheduler = new CaptureScheduler(this::takePicture, Clock.SYSTEM, CAPTURE_COALESCE_WINDOW_MS,
+                CAPTURE_MAX_WAIT_MS, CAPTURE_MAX_IN_FLIGHT);
+        this.captureScheduler.setTimer(expiryHandler::postDelayed);
+        this.captureScheduler.setCameraReady(false); // 相機開啟前的請求先排隊
+        this.cameraSession = new CameraSession(context, captureScheduler::setCameraReady);
+        this.analyzerChain.setListener(this::onAnalysisEvent);
+        registerMetrics(MetricsRegistry.getDefault());
     }
 
-    // 啟動相機
-    public void startCamera() {
-        ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(context);
-        cameraProviderFuture.addListener(() -> {
-            try {
-                cameraProvider = cameraProviderFuture.get(); // 獲取相機提供者
-                bindCameraUseCases(); // 綁定相機使用案例
-            } catch (ExecutionException | InterruptedException e) {
-                e.printStackTrace(); // 錯誤處理
-            }
-        }, ContextCompat.getMainExecutor(context)); // 使用主執行緒
+    private static FrameStore openFrameStore(Context context) {
+        try {
+            return FrameStore.open(new File(context.getFilesDir(), STORE_DIR), STORE_SEGMENT_BYTES, STORE_MAX_BYTES, false);
+        } catch (IOException e) {
+            Log.e("CameraXHelper", "無法開啟照片庫: " + e.getMessage());
+            return null;
+        }
     }
 
-    // 綁定相機使用案例
-    private void bindCameraUseCases() {
-        CameraSelector cameraSelector = new CameraSelector.Builder()
-                .requireLensFacing(CameraSelector.LENS_FACING_BACK) // 使用後鏡頭
-                .build();
+    // 登記各元件自己持有的直方圖與可讀取的狀態；重新建立時取代舊的登記
+    private void registerMetrics(MetricsRegistry registry) {
+        registry.register("capture.shutter", capturePipeline.getCaptureLatency()); // takePicture 到回呼
+        registry.register("capture.queue_wait", captureScheduler.getQueueWait());
+        registry.register("capture.shutter_lag", captureScheduler.getShutterLatency()); // takePicture 到曝光開始
+        registry.register("capture.in_flight", captureScheduler::getInFlightCount);
+        registry.register("capture.requested", captureScheduler::getRequestedCount);
+        registry.register("capture.coalesced", captureScheduler::getCoalescedCount);
+        registry.register("capture.executed", captureScheduler::getExecutedCount);
+        registry.register("capture.expired", captureScheduler::getExpiredCount);
+        registry.register("pool.free", bufferPool::getFreeCount);
+        if (frameStore != null) {
+            registry.register("store.count", frameStore::getCount);
+            registry.register("store.bytes", frameStore::getTotalBytes);
+        }
+        registry.register("crop.frames", roiCropper::getCroppedFrames);
+        registry.register("crop.count", roiCropper::getCropCount);
+        registry.register("crop.input_bytes", roiCropper::getInputBytes); // 裁切前整張的大小
+        registry.register("crop.output_bytes", roiCropper::getOutputBytes); // 實際上傳的裁切大小
+        registry.register("crop.failures", roiCropper::getFailures);
+        registry.register("analysis.frames", analyzerChain::getFrameCount);
+        registry.register("analysis.fps", () -> Math.round(analyzerChain.getFramesPerSecond()));
+        registry.register("analysis.frame", analyzerChain.getFrameCost()); // 一幀經過整個分析鏈的時間
+        registry.register("analysis.events", analyzerChain::getEventCount);
+        registry.register("analysis.triggered", analyzerChain::getTriggeredCount); // 實際觸發拍照的事件
+        registry.register("analysis.suppressed", analyzerChain::getSuppressedCount); // 冷卻時間內的事件
+        registry.register("analysis.skipped", analyzerChain::getSkippedCount); // 機器人移動中略過的幀
+        registerStage(registry, capturePipeline.getDedupStage());
+        registerStage(registry, capturePipeline.getEncodeStage());
+        registerStage(registry, capturePipeline.getPersistStage());
+    }
 
-        imageCapture = new ImageCapture.Builder()
-                .setTargetResolution(new Size(1920, 1080)) // 設定捕捉圖像的解析度
-                .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY) // 最小化延遲
-                .build();
+    private static void registerStage(MetricsRegistry registry, final PipelineStage<?, ?> stage) {
+        String prefix = "pipeline." + stage.getName();
+        registry.register(prefix + ".wait", stage.getQueueWaitHistogram());
+        registry.register(prefix + ".service", stage.getServiceTimeHistogram());
+        registry.register(prefix + ".queue", stage::getQueueDepth);
+        registry.register(prefix + ".dropped", stage::getDroppedCount);
+    }
 
-        cameraProvider.unbindAll(); // 解除綁定所有相機使用案例
-        cameraProvider.bindToLifecycle((LifecycleOwner) context, cameraSelector, imageCapture); // 綁定到生命週期
-        Log.d("CameraXHelper", "相機已啟動並綁定");
+    // 啟動相機；可重複呼叫，已綁定時不會重新初始化
+    public void startCamera() {
+        cameraSession.open();
     }
 
-    // 停止相機
+    // 完全停止相機並解除綁定；只是畫面暫停時不需要呼叫，CameraX 會隨生命週期自行關閉與恢復
     public void stopCamera() {
-        if (cameraProvider != null) {
-            cameraProvider.unbindAll(); // 停止相機，釋放資源
-            Log.d("CameraXHelper", "相機已停止");
-        }
+        cameraSession.close();
     }
 
     // 釋放相機和其他資源
     public void releaseResources() {
+        captureScheduler.shutdown(); // 等待中的請求以錯誤結束
+        expiryHandler.removeCallbacksAndMessages(null);
         stopCamera(); // 停止相機
+        captureExecutor.shutdown();
+        analysisExecutor.shutdown();
+        try {
+            capturePipeline.shutdown(PIPELINE_SHUTDOWN_TIMEOUT_MS); // 讓已拍攝的幀寫入佇列
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.d("CameraXHelper", "拍照排程統計: " + captureScheduler.describe());
+        Log.d("CameraXHelper", "管線統計: " + capturePipeline.describe());
+        Log.d("CameraXHelper", "分析統計: " + analyzerChain.describe());
+        if (frameStore != null) {
+            try {
+                frameStore.close();
+            } catch (IOException e) {
+                Log.e("CameraXHelper", "照片庫關閉失敗: " + e.getMessage());
+            }
+        }
+    }
+
+    // 開始分析串流：低解析度的預覽幀逐幀交給分析鏈，有事件時才拍一張高解析度照片
+    // 沒有加入任何分析器時使用動態與亮度偵測；須在主執行緒呼叫，可在相機啟動前呼叫
+    public void startAnalysis() {
+        if (analyzerChain.isEmpty()) {
+            addAnalyzer(new MotionAnalyzer());
+            addAnalyzer(new BrightnessAnalyzer());
+        }
+        cameraSession.setAnalyzer(analysisExecutor, new LumaImageAnalyzer(analyzerChain));
+    }
+
+    // 停止分析串流，拍照不受影響；須在主執行緒呼叫
+    public void stopAnalysis() {
+        cameraSession.clearAnalyzer();
+        if (!analysisExecutor.isShutdown()) {
+            analysisExecutor.execute(analyzerChain::resetRate); // 排在最後一幀之後，fps 歸零
+        }
+    }
+
+    // 機器人移動（導航、轉身）時暫停：畫面整體在動，動態偵測每幀都會誤報；恢復後重新建立基準
+    public void setAnalysisPaused(boolean paused) {
+        analyzerChain.setPaused(paused);
+    }
+
+    // 加入自訂分析器；每個分析器每幀的成本登記為 analysis.<名稱>
+    public void addAnalyzer(FrameAnalyzer analyzer) {
+        analyzerChain.add(analyzer);
+        MetricsRegistry.getDefault().register("analysis." + analyzer.getName(),
+                analyzerChain.getAnalyzerCost(analyzer.getName()));
+    }
+
+    // 事件發生時（觸發拍照之後）通知，在分析執行緒上呼叫；null 表示不通知
+    public void setAnalysisListener(AnalyzerChain.Listener listener) {
+        this.analysisListener = listener;
+    }
+
+    public AnalyzerChain getAnalyzerChain() {
+        return analyzerChain;
+    }
+
+    // 分析事件以告警優先順序拍一張完整解析度的照片，不標記地點；冷卻時間由分析鏈控制
+    private void onAnalysisEvent(AnalysisEvent event) {
+        Log.d("CameraXHelper", "分析事件: " + event);
+        capturePhoto(CapturePriority.ALERT, CaptureProfile.ALERT, null, null);
+        AnalyzerChain.Listener listener = analysisListener;
+        if (listener != null) {
+            listener.onEvent(event);
+        }
+    }
+
+    // 設定幀的接收端
+    public void setFrameSink(FrameSink frameSink) {
+        capturePipeline.setSink(frameSink);
+    }
+
+    // 設定縮放或重新壓縮步驟，傳入 null 則直接傳遞原始 JPEG
+    public void setFrameTranscoder(FrameTranscoder frameTranscoder) {
+        capturePipeline.setTranscoder(frameTranscoder);
+    }
+
+    // 設定各（地點, 方向）要裁切上傳的區域；有設定的定點照片只上傳裁切，null 則全部上傳整張
+    public void setRoiTable(RoiTable table) {
+        roiCropper.setTable(table);
+    }
+
+    public CameraSession getCameraSession() {
+        return cameraSession;
+    }
+
+    public CaptureScheduler getCaptureScheduler() {
+        return captureScheduler;
+    }
+
+    public CapturePipeline getCapturePipeline() {
+        return capturePipeline;
+    }
+
+    // 切換預設設定檔，立即生效，不重新綁定相機
+    public void setCaptureProfile(CaptureProfile profile) {
+        this.captureProfile = profile;
+    }
+
+    public CaptureProfile getCaptureProfile() {
+        return captureProfile;
+    }
+
+    // 去重的門檻與接受/略過計數
+    public ChangeDetector getChangeDetector() {
+        return changeDetector;
+    }
+
+    // 本地照片庫，可查詢某地點某方向最新的一張；無法開啟時為 null
+    public FrameStore getFrameStore() {
+        return frameStore;
+    }
+
+    public FrameBufferPool getBufferPool() {
+        return bufferPool;
     }
 
     // 拍照並上傳到 Firebase
     public void capturePhoto() {
-        if (imageCapture != null) {
+        capturePhoto(null);
+    }
+
+    public void capturePhoto(CaptureCallback callback) {
+        capturePhoto(null, callback);
+    }
+
+    public void capturePhoto(CaptureTag tag, CaptureCallback callback) {
+        capturePhoto(null, tag, callback);
+    }
+
+    // 拍照並上傳，影像取得後（不等處理與上傳）通知 callback
+    // profile 為 null 時使用預設設定檔；tag 標記拍攝的地點與方向；三者都可為 null
+    // 優先順序依設定檔與標記推定：告警最高，有標記的巡邏照片其次，定時拍照最低
+    public void capturePhoto(CaptureProfile profile, CaptureTag tag, CaptureCallback callback) {
+        CapturePriority priority = profile == CaptureProfile.ALERT ? CapturePriority.ALERT
+                : tag != null ? CapturePriority.SWEEP : CapturePriority.PERIODIC;
+        capturePhoto(priority, profile, tag, callback);
+    }
+
+    // 交給拍照排程：與其他呼叫端的請求依優先順序排隊，時間相近的請求會合併成一張
+    public void capturePhoto(CapturePriority priority, CaptureProfile profile, CaptureTag tag, CaptureCallback callback) {
+        captureScheduler.submit(priority, profile, tag, callback);
+    }
+
+    // 開始一個地點的環拍：每個方向依序編號，快門一響就回報，呼叫端可以在前一張處理時轉身
+    public CaptureBurst beginBurst(String waypoint, CaptureProfile profile) {
+        return new CaptureBurst(captureScheduler, Clock.SYSTEM, waypoint, profile);
+    }
+
+    // 實際呼叫相機，只由拍照排程呼叫，同時最多 CAPTURE_MAX_IN_FLIGHT 張
+    private void takePicture(CaptureProfile profile, final CaptureTag tag, final CaptureScheduler.ShutterCallback callback) {
+        final CaptureProfile effectiveProfile = adaptivePolicy.adjust(profile != null ? profile : captureProfile,
+                uploadService != null ? uploadService.getStats() : null);
+        ImageCapture imageCapture = cameraSession.getImageCapture();
+        if (imageCapture == null) {
+            callback.onError(new IllegalStateException("相機尚未啟動"));
+        } else {
             Log.d("CameraXHelper", "正在進行拍照...");
-            imageCapture.takePicture(ContextCompat.getMainExecutor(context), new ImageCapture.OnImageCapturedCallback() {
+            final long requestedAtNanos = System.nanoTime();
+            imageCapture.takePicture(captureExecutor, new ImageCapture.OnImageCapturedCallback() {
+                // 曝光開始，之後移動相機不影響這張照片
+                @Override
+                public void onCaptureStarted() {
+                    callback.onShutter();
+                }
+
                 @Override
                 public void onCaptureSuccess(@NonNull ImageProxy image) {
+                    final long callbackNanos = System.nanoTime();
                     Log.d("CameraXHelper", "拍照成功，開始處理圖片");
-                    Bitmap bitmap = imageProxyToBitmap(image); // 將 ImageProxy 轉為 Bitmap
-                    String fileName = generateImageName();  // 使用自訂命名方法
-                    uploadImageToFirebase(bitmap, fileName);  // 上傳圖片
-                    image.close(); // 關閉 ImageProxy 以釋放資源
+                    CapturedFrame frame;
+                    try {
+                        frame = imageProxyToFrame(image, generateImageName()); // 使用自訂命名方法
+                        frame.setTag(tag);
+                        frame.setProfile(effectiveProfile);
+                    } finally {
+                        image.close(); // 關閉 ImageProxy 以釋放資源
+                    }
+                    copyLatency.recordNanos(System.nanoTime() - callbackNanos);
+                    capturePipeline.submit(frame, callbackNanos - requestedAtNanos); // 交給背景管線處理與上傳
+                    callback.onCaptured();
                 }
 
                 @Override
                 public void onError(@NonNull ImageCaptureException exception) {
+                    captureErrors.increment();
                     Log.e("CameraXHelper", "拍照失敗: " + exception.getMessage()); // 錯誤處理
+                    callback.onError(exception);
                 }
             });
         }
     }
 
-    // 自訂命名方法
+    // 自訂命名方法：毫秒時間加上流水號，巡邏時同一秒內連拍的照片不會互相覆蓋
     public String generateImageName() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault());
-        return "IMG_" + sdf.format(new Date()) + ".jpg";  // 生成類似 "IMG_20241004_112030.jpg" 這樣的名稱
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.US);
+        return "IMG_" + sdf.format(new Date()) + "_" + imageSequence.incrementAndGet() + ".jpg";  // 生成類似 "IMG_20241004_112030_123_42.jpg" 這樣的名稱
     }
 
-    // 將 ImageProxy 轉為 Bitmap
-    private Bitmap imageProxyToBitmap(ImageProxy image) {
-        ByteBuffer buffer = image.getPlanes()[0].getBuffer(); // 獲取圖像數據
-        byte[] bytes = new byte[buffer.remaining()];
-        buffer.get(bytes); // 將數據讀入 byte 陣列
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length); // 解碼為 Bitmap
-    }
-
-    // 上傳圖片到 Firebase
-    private void uploadImageToFirebase(Bitmap bitmap, String fileName) {
-        FirebaseStorage storage = FirebaseStorage.getInstance(); // 獲取 Firebase 存儲實例
-        StorageReference storageRef = storage.getReference().child(fileName); // 獲取儲存參考
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, 100, baos); // 將 Bitmap 壓縮為 JPEG 格式
-        byte[] data = baos.toByteArray(); // 轉換為 byte 陣列
-
-        UploadTask uploadTask = storageRef.putBytes(data); // 上傳數據
-        uploadTask.addOnSuccessListener(taskSnapshot -> Log.d("CameraXHelper", "圖片上傳成功")) // 成功回調
-                .addOnFailureListener(e -> Log.e("CameraXHelper", "圖片上傳失敗: " + e.getMessage())); // 失敗回調
+    // 將 ImageProxy 的 JPEG 平面複製到池化緩衝，不解碼成 Bitmap
+    private CapturedFrame imageProxyToFrame(ImageProxy image, String fileName) {
+        return CapturedFrame.copyOf(image.getPlanes()[0].getBuffer(), bufferPool, fileName, System.currentTimeMillis());
     }
 }
-
-
@@ -0,0 +1,12 @@
+package com.example.cameraxlib;
+
+import com.example.cameraxlib.schedule.CaptureScheduler;
+
+// 拍照完成通知；在相機回呼執行緒上呼叫，需要更新 UI 或狀態時請自行切換執行緒
+public interface CaptureCallback extends CaptureScheduler.Callback {
+    @Override
+    void onCaptured(); // 影像已取得，後續處理與上傳在背景進行
+
+    @Override
+    void onError(Exception e);
+}
@@ -0,0 +1,25 @@
+package com.example.cameraxlib;
+
+import android.util.Log;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameSink;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+// 將幀以串流方式上傳到 Firebase Storage，上傳結束後歸還緩衝
+public class FirebaseFrameSink implements FrameSink {
+    private static final String TAG = "FirebaseFrameSink";
+
+    @Override
+    public void accept(CapturedFrame frame) {
+        FirebaseStorage storage = FirebaseStorage.getInstance(); // 獲取 Firebase 存儲實例
+        StorageReference storageRef = storage.getReference().child(frame.getName()); // 獲取儲存參考
+
+        UploadTask uploadTask = storageRef.putStream(frame.openStream()); // 直接讀取池化緩衝，不再轉成 byte[]
+        uploadTask.addOnSuccessListener(taskSnapshot -> Log.d(TAG, "圖片上傳成功")) // 成功回調
+                .addOnFailureListener(e -> Log.e(TAG, "圖片上傳失敗: " + e.getMessage())) // 失敗回調
+                .addOnCompleteListener(task -> frame.release()); // 不論成功與否都釋放緩衝
+    }
+}
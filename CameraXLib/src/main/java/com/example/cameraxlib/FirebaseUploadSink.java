@@ -0,0 +1,19 @@
+package com.example.cameraxlib;
+
+import com.example.cameraxlib.frame.ByteBufferInputStream;
+import com.example.cameraxlib.upload.UploadSink;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.nio.ByteBuffer;
+
+// UploadSink 的 Firebase Storage 實作
+public class FirebaseUploadSink implements UploadSink {
+    @Override
+    public void upload(String key, ByteBuffer data, final Callback callback) {
+        StorageReference storageRef = FirebaseStorage.getInstance().getReference().child(key); // 獲取儲存參考
+        storageRef.putStream(new ByteBufferInputStream(data)) // 直接讀取緩衝，不轉成 byte[]
+                .addOnSuccessListener(taskSnapshot -> callback.onSuccess())
+                .addOnFailureListener(callback::onFailure);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.cameraxlib;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.FrameSink;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.metrics.MetricsRegistry;
+import com.example.cameraxlib.upload.ByteRateLimiter;
+import com.example.cameraxlib.upload.FrameSpool;
+import com.example.cameraxlib.upload.SpoolFrameSink;
+import com.example.cameraxlib.upload.SpoolUploader;
+import com.example.cameraxlib.upload.UploadQueueStats;
+import com.example.cameraxlib.util.Clock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// 全程式共用的上傳佇列：同一個佇列目錄只能由一個 FrameSpool 開啟，所以以單例管理
+public class FrameUploadService {
+    private static final String TAG = "FrameUploadService";
+    private static final String SPOOL_DIR = "upload_spool";
+    private static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final int BUFFER_CAPACITY = 2 * 1024 * 1024;
+    private static final int MAX_IN_FLIGHT = 2; // 弱訊號下同時上傳太多只會互相搶頻寬
+    private static final int BATCH_SIZE = 4;
+    private static final long BASE_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final long POLL_INTERVAL_MS = 5000;
+    private static final long DEFAULT_BYTES_PER_SECOND = 512 * 1024;
+
+    private static FrameUploadService instance;
+
+    private final FrameSpool spool;
+    private final SpoolUploader uploader;
+    private final FrameSink frameSink;
+
+    private FrameUploadService(Context context) throws IOException {
+        spool = FrameSpool.open(new File(context.getFilesDir(), SPOOL_DIR), SEGMENT_BYTES, true);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        uploader = new SpoolUploader(spool, new FirebaseUploadSink(), new FrameBufferPool(BUFFER_CAPACITY, MAX_IN_FLIGHT),
+                executor, Clock.SYSTEM, MAX_IN_FLIGHT, BATCH_SIZE, BASE_BACKOFF_MS, MAX_BACKOFF_MS);
+        setBytesPerSecond(DEFAULT_BYTES_PER_SECOND);
+        frameSink = new SpoolFrameSink(spool, uploader);
+        uploader.start(POLL_INTERVAL_MS);
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.register("upload.duration", uploader.getUploadLatency()); // 送出到成功回呼
+        registry.register("upload.depth", spool::getDepth);
+        registry.register("upload.pending_bytes", spool::getPendingBytes);
+        registry.register("upload.oldest_age_ms", () -> uploader.getStats().oldestAgeMillis); // 最舊項目等了多久
+        registry.register("upload.drain_rate", () -> Math.round(uploader.getStats().drainRatePerSecond * 60)); // 每分鐘完成數，每秒取整太粗
+        Log.d(TAG, "上傳佇列已開啟，待上傳：" + spool.getDepth());
+    }
+
+    // 取得共用實例；佇列無法開啟時回傳 null
+    public static synchronized FrameUploadService getInstance(Context context) {
+        if (instance == null) {
+            try {
+                instance = new FrameUploadService(context.getApplicationContext());
+            } catch (IOException e) {
+                Log.e(TAG, "無法開啟上傳佇列: " + e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    public FrameSink getFrameSink() {
+        return frameSink;
+    }
+
+    // 將非影像資料（例如遙測批次）寫入同一個上傳佇列；data 的 position 不會被改變
+    public void enqueue(String name, long timestampMillis, ByteBuffer data) throws IOException {
+        spool.append(name, timestampMillis, data);
+        uploader.wakeUp();
+    }
+
+    // 調整上傳頻寬上限，突發量為兩秒的額度
+    public void setBytesPerSecond(long bytesPerSecond) {
+        uploader.setRateLimiter(new ByteRateLimiter(Clock.SYSTEM, bytesPerSecond, bytesPerSecond * 2));
+    }
+
+    // 每次上傳結束時通知（例如寫入事件記錄）；傳入 null 取消
+    public void setUploadListener(SpoolUploader.Listener listener) {
+        uploader.setListener(listener);
+    }
+
+    public LatencyHistogram getUploadLatency() {
+        return uploader.getUploadLatency();
+    }
+
+    public UploadQueueStats getStats() {
+        return uploader.getStats();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.cameraxlib;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import com.example.cameraxlib.analysis.AnalyzerChain;
+import com.example.cameraxlib.analysis.LumaFrame;
+
+// 把 ImageAnalysis 串流的 YUV_420_888 幀交給分析鏈：只讀 Y 平面，直接指向相機緩衝，不複製也不轉成 Bitmap
+// Y 平面的 pixelStride 固定為 1，只需要 rowStride；分析完立即關閉，相機才能送下一幀
+class LumaImageAnalyzer implements ImageAnalysis.Analyzer {
+    private final AnalyzerChain chain;
+    private final LumaFrame frame = new LumaFrame(); // 只在分析執行緒上使用，每幀重設
+
+    LumaImageAnalyzer(AnalyzerChain chain) {
+        this.chain = chain;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            ImageProxy.PlaneProxy luma = image.getPlanes()[0];
+            frame.set(luma.getBuffer(), image.getWidth(), image.getHeight(), luma.getRowStride(),
+                    System.currentTimeMillis());
+            chain.process(frame);
+        } finally {
+            image.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.cameraxlib.analysis;
+
+import java.util.Locale;
+
+// 分析器偵測到的事件，例如畫面中有物體移動或燈光突然改變
+public class AnalysisEvent {
+    private final String type;
+    private final double score; // 各分析器自訂的強度，例如變動面積比例
+    private final long timestampMillis;
+
+    public AnalysisEvent(String type, double score, long timestampMillis) {
+        this.type = type;
+        this.score = score;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return type + String.format(Locale.US, "(%.3f)", score);
+    }
+}
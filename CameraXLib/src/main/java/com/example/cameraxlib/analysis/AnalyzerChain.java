@@ -0,0 +1,200 @@
+package com.example.cameraxlib.analysis;
+
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.Clock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 依序以每個分析器處理串流中的每一幀，並統計吞吐量（fps）與每幀、每個分析器的成本
+// 有分析器回報事件時通知 Listener（通常是拍一張高解析度照片）；冷卻時間內的事件只計數不通知
+// 相機本身在移動時（導航、轉身）整個畫面都在變，setPaused 暫停分析，恢復後每個分析器重新建立基準
+// process 只在分析執行緒上呼叫；add、setPaused 與統計可在其他執行緒呼叫
+public class AnalyzerChain {
+    private static final long FPS_WINDOW_NANOS = 1000000000L; // 每秒更新一次 fps
+
+    public interface Listener {
+        void onEvent(AnalysisEvent event); // 在分析執行緒上呼叫，不可阻塞
+    }
+
+    private static class Entry {
+        final FrameAnalyzer analyzer;
+        final LatencyHistogram cost = new LatencyHistogram();
+
+        Entry(FrameAnalyzer analyzer) {
+            this.analyzer = analyzer;
+        }
+    }
+
+    private final Clock clock;
+    private final long cooldownMillis;
+    private volatile Entry[] entries = new Entry[0]; // 新增時整個替換，process 不必加鎖
+    private volatile Listener listener;
+    private final LatencyHistogram frameCost = new LatencyHistogram(); // 一幀經過所有分析器的時間
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong triggered = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong(); // 暫停期間略過的幀
+    private volatile boolean paused;
+    private boolean resetPending; // 暫停過，下一幀分析前先 reset；只在分析執行緒上使用
+    private long lastTriggerMillis = Long.MIN_VALUE;
+    private boolean windowStarted;
+    private long windowStartNanos;
+    private int windowFrames;
+    private volatile double framesPerSecond;
+
+    public AnalyzerChain(Clock clock, long cooldownMillis) {
+        this.clock = clock;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    public synchronized void add(FrameAnalyzer analyzer) {
+        Entry[] next = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, next, 0, entries.length);
+        next[entries.length] = new Entry(analyzer);
+        entries = next;
+    }
+
+    public boolean isEmpty() {
+        return entries.length == 0;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // 所有分析器都會處理這一幀（各自更新狀態）；回傳第一個事件，沒有則為 null；暫停時不分析
+    public AnalysisEvent process(LumaFrame frame) {
+        if (paused) {
+            skipped.incrementAndGet();
+            resetPending = true;
+            return null;
+        }
+        if (resetPending) {
+            resetPending = false;
+            for (Entry entry : entries) {
+                entry.analyzer.reset(); // 不拿移動前的畫面與現在比較
+            }
+        }
+        long start = clock.nanoTime();
+        AnalysisEvent first = null;
+        long before = start;
+        for (Entry entry : entries) {
+            AnalysisEvent event = entry.analyzer.analyze(frame);
+            long after = clock.nanoTime();
+            entry.cost.recordNanos(after - before);
+            before = after;
+            if (event != null) {
+                events.incrementAndGet();
+                if (first == null) {
+                    first = event;
+                }
+            }
+        }
+        frameCost.recordNanos(before - start);
+        frames.incrementAndGet();
+        updateFps(before);
+        if (first != null && !paused) { // 分析期間開始移動的事件也不觸發
+            trigger(first);
+        }
+        return first;
+    }
+
+    private void trigger(AnalysisEvent event) {
+        long now = clock.currentTimeMillis();
+        if (lastTriggerMillis != Long.MIN_VALUE && now - lastTriggerMillis < cooldownMillis) {
+            suppressed.incrementAndGet();
+            return;
+        }
+        lastTriggerMillis = now;
+        triggered.incrementAndGet();
+        Listener current = listener;
+        if (current != null) {
+            current.onEvent(event);
+        }
+    }
+
+    private void updateFps(long nowNanos) {
+        if (!windowStarted) {
+            windowStarted = true;
+            windowStartNanos = nowNanos;
+            windowFrames = 0;
+            return; // 第一幀只作為起點
+        }
+        windowFrames++;
+        long elapsed = nowNanos - windowStartNanos;
+        if (elapsed >= FPS_WINDOW_NANOS) {
+            framesPerSecond = windowFrames * 1e9 / elapsed;
+            windowStartNanos = nowNanos;
+            windowFrames = 0;
+        }
+    }
+
+    // 串流停止時呼叫，fps 歸零，下次開始重新計算；須在分析執行緒已不再呼叫 process 時使用
+    public void resetRate() {
+        windowStarted = false;
+        framesPerSecond = 0;
+    }
+
+    // 最近一個完整視窗實際分析的幀數（背壓丟掉的幀不算）
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    public LatencyHistogram getFrameCost() {
+        return frameCost;
+    }
+
+    // 指定分析器每幀的成本；沒有這個名稱時為 null
+    public LatencyHistogram getAnalyzerCost(String name) {
+        for (Entry entry : entries) {
+            if (entry.analyzer.getName().equals(name)) {
+                return entry.cost;
+            }
+        }
+        return null;
+    }
+
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    public long getEventCount() {
+        return events.get();
+    }
+
+    public long getTriggeredCount() {
+        return triggered.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("frames=").append(frames.get())
+                .append(" fps=").append(Math.round(framesPerSecond * 10) / 10.0)
+                .append(" events=").append(events.get())
+                .append(" triggered=").append(triggered.get())
+                .append(" suppressed=").append(suppressed.get())
+                .append(" skipped=").append(skipped.get())
+                .append(" frame ").append(frameCost.snapshot());
+        for (Entry entry : entries) {
+            sb.append(' ').append(entry.analyzer.getName()).append(' ').append(entry.cost.snapshot());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.cameraxlib.analysis;
+
+// 亮度偵測：整幀平均亮度與緩慢追隨的基準相差超過門檻即為事件（例如有人開關燈、遮住鏡頭）
+// 日照等緩慢變化會被基準吸收；事件後以新的亮度為基準，同一次改變只回報一次
+public class BrightnessAnalyzer implements FrameAnalyzer {
+    public static final String NAME = "brightness";
+    public static final int DEFAULT_STEP = 8;
+    public static final int DEFAULT_DELTA = 40; // 0 到 255 的平均亮度差
+    private static final double ADAPT_RATE = 0.05; // 每幀基準往目前亮度移動的比例
+
+    private final int step;
+    private final int delta;
+    private double baseline = -1; // 負數表示還沒有基準
+    private volatile int lastMean;
+
+    public BrightnessAnalyzer() {
+        this(DEFAULT_STEP, DEFAULT_DELTA);
+    }
+
+    public BrightnessAnalyzer(int step, int delta) {
+        this.step = Math.max(1, step);
+        this.delta = delta;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public AnalysisEvent analyze(LumaFrame frame) {
+        long sum = 0;
+        int count = 0;
+        for (int y = 0; y < frame.getHeight(); y += step) {
+            for (int x = 0; x < frame.getWidth(); x += step) {
+                sum += frame.getLuma(x, y);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        int mean = (int) (sum / count);
+        lastMean = mean;
+        if (baseline < 0) {
+            baseline = mean;
+            return null;
+        }
+        double difference = mean - baseline;
+        if (Math.abs(difference) > delta) {
+            baseline = mean;
+            return new AnalysisEvent(NAME, difference / 255, frame.getTimestampMillis()); // 負值表示變暗
+        }
+        baseline += difference * ADAPT_RATE;
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        baseline = -1;
+    }
+
+    // 最近一幀的平均亮度（0 到 255）
+    public long getMeanLuma() {
+        return lastMean;
+    }
+}
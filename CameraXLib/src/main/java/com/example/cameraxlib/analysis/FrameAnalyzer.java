@@ -0,0 +1,11 @@
+package com.example.cameraxlib.analysis;
+
+// 分析串流中的一幀；每幀都會呼叫，不可配置物件或阻塞，只有發生事件時才建立 AnalysisEvent
+// 實作可保留前幾幀的狀態，但不可保留 LumaFrame 本身
+public interface FrameAnalyzer {
+    String getName(); // 用於指標名稱與事件類型
+
+    AnalysisEvent analyze(LumaFrame frame); // 沒有事件時回傳 null
+
+    void reset(); // 丟掉前幾幀的狀態，下一幀重新建立基準（例如相機移動過後）；只在分析執行緒上呼叫
+}
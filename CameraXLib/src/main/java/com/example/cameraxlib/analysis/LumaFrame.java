@@ -0,0 +1,41 @@
+package com.example.cameraxlib.analysis;
+
+import java.nio.ByteBuffer;
+
+// 一幀的亮度平面（YUV 的 Y 平面），直接指向相機緩衝，不複製
+// 同一個實例在每一幀重新設定，只在分析執行緒上使用；分析結束後緩衝即歸還相機，不可保留
+public class LumaFrame {
+    private ByteBuffer buffer;
+    private int base; // 平面起點在緩衝中的位置
+    private int width;
+    private int height;
+    private int rowStride;
+    private long timestampMillis;
+
+    public LumaFrame set(ByteBuffer buffer, int width, int height, int rowStride, long timestampMillis) {
+        this.buffer = buffer;
+        this.base = buffer.position();
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.timestampMillis = timestampMillis;
+        return this;
+    }
+
+    // 0 到 255
+    public int getLuma(int x, int y) {
+        return buffer.get(base + y * rowStride + x) & 0xFF;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+}
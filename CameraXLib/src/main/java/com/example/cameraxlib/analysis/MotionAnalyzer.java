@@ -0,0 +1,108 @@
+package com.example.cameraxlib.analysis;
+
+// 動態偵測：把畫面縮成 32x24 的亮度格，與上一幀逐格比較，變動的格子超過一定比例即為事件
+// 先扣掉所有格子的平均變化，自動曝光或整體燈光改變不會被當成移動（交給 BrightnessAnalyzer）
+// 暫存陣列在建構時配置，分析過程不配置物件；只在分析執行緒上使用
+public class MotionAnalyzer implements FrameAnalyzer {
+    public static final String NAME = "motion";
+    public static final int DEFAULT_STEP = 4; // 640x480 時每格約取樣 25 個像素
+    public static final int DEFAULT_CELL_THRESHOLD = 20; // 一格平均亮度變化超過這麼多才算有變動
+    public static final double DEFAULT_AREA_THRESHOLD = 0.02; // 約 15 格
+
+    private static final int GRID_WIDTH = 32;
+    private static final int GRID_HEIGHT = 24;
+    private static final int CELLS = GRID_WIDTH * GRID_HEIGHT;
+
+    private final int step;
+    private final int cellThreshold;
+    private final double areaThreshold;
+    private final int[] sums = new int[CELLS];
+    private final int[] counts = new int[CELLS];
+    private int[] current = new int[CELLS];
+    private int[] previous = new int[CELLS];
+    private boolean primed; // 已有上一幀可比較
+    private int lastWidth;
+    private int lastHeight;
+    private volatile double lastScore;
+
+    public MotionAnalyzer() {
+        this(DEFAULT_STEP, DEFAULT_CELL_THRESHOLD, DEFAULT_AREA_THRESHOLD);
+    }
+
+    public MotionAnalyzer(int step, int cellThreshold, double areaThreshold) {
+        this.step = Math.max(1, step);
+        this.cellThreshold = cellThreshold;
+        this.areaThreshold = areaThreshold;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public AnalysisEvent analyze(LumaFrame frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (width != lastWidth || height != lastHeight) {
+            primed = false; // 解析度改變（重新綁定）時重新開始
+            lastWidth = width;
+            lastHeight = height;
+        }
+        averageCells(frame, width, height);
+        if (!primed) {
+            swap();
+            primed = true;
+            return null;
+        }
+        long shift = 0;
+        for (int i = 0; i < CELLS; i++) {
+            shift += current[i] - previous[i];
+        }
+        int meanShift = (int) (shift / CELLS);
+        int changed = 0;
+        for (int i = 0; i < CELLS; i++) {
+            if (Math.abs(current[i] - previous[i] - meanShift) > cellThreshold) {
+                changed++;
+            }
+        }
+        swap();
+        double score = (double) changed / CELLS;
+        lastScore = score;
+        return score >= areaThreshold ? new AnalysisEvent(NAME, score, frame.getTimestampMillis()) : null;
+    }
+
+    @Override
+    public void reset() {
+        primed = false;
+    }
+
+    // 最近一幀變動格子的比例，供除錯與調整門檻
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    private void averageCells(LumaFrame frame, int width, int height) {
+        for (int i = 0; i < CELLS; i++) {
+            sums[i] = 0;
+            counts[i] = 0;
+        }
+        for (int y = 0; y < height; y += step) {
+            int rowBase = (y * GRID_HEIGHT / height) * GRID_WIDTH;
+            for (int x = 0; x < width; x += step) {
+                int cell = rowBase + x * GRID_WIDTH / width;
+                sums[cell] += frame.getLuma(x, y);
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < CELLS; i++) {
+            current[i] = counts[i] > 0 ? sums[i] / counts[i] : 0;
+        }
+    }
+
+    private void swap() {
+        int[] tmp = previous;
+        previous = current;
+        current = tmp;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cameraxlib.dedup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 依 (地點, 方向) 記住上一張被接受的畫面雜湊，判斷新畫面是否有變化
+public class ChangeDetector {
+    public static final int DEFAULT_THRESHOLD = 5; // 64 位元中差異不超過 5 位元視為相同
+
+    // 每次判定的結果，例如讓巡邏依各方向最近的變化調整環拍；在處理管線的執行緒上呼叫，不可阻塞
+    // first：該位置第一次拍攝，沒有比較基準，changed 一定為 true，不代表畫面真的有變化
+    public interface Listener {
+        void onResult(String waypoint, int headingDegrees, boolean changed, boolean first);
+    }
+
+    private static final int SAME = 0;
+    private static final int CHANGED = 1;
+    private static final int FIRST = 2;
+
+    // 每個地點一組以角度為索引的陣列，查詢時不配置物件
+    private static class WaypointSlots {
+        final long[] hashes = new long[360];
+        final boolean[] present = new boolean[360];
+    }
+
+    private final Map<String, WaypointSlots> slots = new HashMap<>();
+    private volatile int threshold = DEFAULT_THRESHOLD;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile Listener listener;
+
+    // 回傳 true 表示畫面有變化（或該位置第一次拍攝），並記住它作為下次比較基準
+    public boolean isChanged(String waypoint, int headingDegrees, long hash) {
+        int result = compare(waypoint, headingDegrees, hash);
+        Listener current = listener;
+        if (current != null) {
+            current.onResult(waypoint, headingDegrees, result != SAME, result == FIRST); // 不在鎖內通知
+        }
+        return result != SAME;
+    }
+
+    private synchronized int compare(String waypoint, int headingDegrees, long hash) {
+        WaypointSlots waypointSlots = slots.get(waypoint);
+        if (waypointSlots == null) {
+            waypointSlots = new WaypointSlots();
+            slots.put(waypoint, waypointSlots);
+        }
+        int heading = ((headingDegrees % 360) + 360) % 360;
+        boolean first = !waypointSlots.present[heading];
+        if (!first && FrameHasher.distance(waypointSlots.hashes[heading], hash) <= threshold) {
+            skipped.incrementAndGet();
+            return SAME;
+        }
+        waypointSlots.hashes[heading] = hash;
+        waypointSlots.present[heading] = true;
+        accepted.incrementAndGet();
+        return first ? FIRST : CHANGED;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 相同的判定門檻（位元數，0 表示只有完全相同才略過）
+    public void setThreshold(int threshold) {
+        this.threshold = Math.max(0, Math.min(64, threshold));
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public synchronized void reset() {
+        slots.clear();
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.cameraxlib.dedup;
+
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameFilter;
+
+// 上傳前的去重步驟：同一位置與上一張幾乎相同的畫面會被丟棄或標記
+public class DedupFilter implements FrameFilter {
+    public enum Mode {
+        DROP, // 不上傳
+        MARK // 照常上傳，但標記為未變化
+    }
+
+    private final FrameFingerprinter fingerprinter;
+    private final ChangeDetector detector;
+    private volatile Mode mode;
+
+    public DedupFilter(FrameFingerprinter fingerprinter, ChangeDetector detector, Mode mode) {
+        this.fingerprinter = fingerprinter;
+        this.detector = detector;
+        this.mode = mode;
+    }
+
+    @Override
+    public boolean accept(CapturedFrame frame) {
+        CaptureTag tag = frame.getTag();
+        if (tag == null) {
+            return true; // 沒有位置標記的畫面無從比較
+        }
+        long hash;
+        try {
+            hash = fingerprinter.fingerprint(frame);
+        } catch (Exception e) {
+            return true; // 無法判斷時寧可上傳
+        }
+        if (detector.isChanged(tag.getWaypoint(), tag.getHeadingDegrees(), hash)) {
+            return true;
+        }
+        frame.setUnchanged(true);
+        return mode == Mode.MARK;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public ChangeDetector getDetector() {
+        return detector;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.cameraxlib.dedup;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+
+// 由 JPEG 幀算出感知雜湊；Android 上以低解析度解碼實作
+public interface FrameFingerprinter {
+    long fingerprint(CapturedFrame frame) throws Exception;
+}
@@ -0,0 +1,72 @@
+package com.example.cameraxlib.dedup;
+
+import java.nio.ByteBuffer;
+
+// 計算 64 位元的差異雜湊（dHash）：縮成 9x8 亮度格，比較左右相鄰格的明暗
+// 暫存陣列在建構時配置，計算過程不配置物件；同一實例不可跨執行緒同時使用
+public class FrameHasher {
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    private final long[] sums = new long[GRID_WIDTH * GRID_HEIGHT];
+    private final int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+
+    // ARGB 像素（例如 Bitmap.getPixels 的輸出）
+    public long hashArgb(int[] pixels, int width, int height) {
+        clear();
+        for (int y = 0; y < height; y++) {
+            int rowBase = (y * GRID_HEIGHT / height) * GRID_WIDTH;
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[offset + x];
+                int luma = (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150 + (pixel & 0xFF) * 29) >> 8;
+                int cell = rowBase + x * GRID_WIDTH / width;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+        return differenceHash();
+    }
+
+    // YUV 的 Y 平面，直接從相機緩衝讀取，不複製；step 為取樣間隔（1 表示每個像素都讀）
+    public long hashLuma(ByteBuffer yPlane, int width, int height, int rowStride, int step) {
+        clear();
+        int base = yPlane.position();
+        for (int y = 0; y < height; y += step) {
+            int rowBase = (y * GRID_HEIGHT / height) * GRID_WIDTH;
+            int offset = base + y * rowStride;
+            for (int x = 0; x < width; x += step) {
+                int cell = rowBase + x * GRID_WIDTH / width;
+                sums[cell] += yPlane.get(offset + x) & 0xFF;
+                counts[cell]++;
+            }
+        }
+        return differenceHash();
+    }
+
+    private void clear() {
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = 0;
+            counts[i] = 0;
+        }
+    }
+
+    private long differenceHash() {
+        long hash = 0;
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            for (int col = 0; col < GRID_WIDTH - 1; col++) {
+                int left = row * GRID_WIDTH + col;
+                // 以交叉相乘比較平均值，避免除法；空格視為 0
+                long leftAverage = sums[left] * Math.max(1, counts[left + 1]);
+                long rightAverage = sums[left + 1] * Math.max(1, counts[left]);
+                hash = (hash << 1) | (leftAverage < rightAverage ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    // 兩個雜湊之間不同的位元數，0 ~ 64
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.cameraxlib.frame;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// 寫入池化緩衝的 OutputStream，供重新編碼時直接輸出到 direct buffer
+public class ByteBufferOutputStream extends OutputStream {
+    private final FrameBufferPool pool;
+    private ByteBuffer buffer;
+
+    public ByteBufferOutputStream(FrameBufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        buffer.put(b, off, len);
+    }
+
+    // 空間不足時換成兩倍大小的緩衝，舊緩衝歸還池
+    private void ensureCapacity(int extra) {
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+        int required = buffer.position() + extra;
+        ByteBuffer bigger = pool.acquire(Math.max(required, buffer.capacity() * 2));
+        buffer.flip();
+        bigger.put(buffer);
+        pool.release(buffer);
+        buffer = bigger;
+    }
+
+    // 將寫入內容包成 CapturedFrame，緩衝所有權轉移給該幀
+    public CapturedFrame toFrame(String name, long timestampMillis) {
+        buffer.flip();
+        CapturedFrame frame = new CapturedFrame(name, timestampMillis, buffer, pool);
+        buffer = null;
+        return frame;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.cameraxlib.frame;
+
+// 拍攝設定檔：決定上傳前要縮到多大、以什麼品質重新壓縮
+// 相機只以最高解析度綁定一次，切換設定檔只影響後續轉碼，不需要重新綁定相機
+public class CaptureProfile {
+    // 告警：原始解析度、不重新壓縮
+    public static final CaptureProfile ALERT = new CaptureProfile("alert", 0, 0, 0);
+    // 定點巡視：720p、品質 80
+    public static final CaptureProfile PATROL_SWEEP = new CaptureProfile("patrol-sweep", 1280, 720, 80);
+    // 定時拍照：縮圖
+    public static final CaptureProfile PERIODIC = new CaptureProfile("periodic", 480, 270, 70);
+
+    // 自動降級時依序往後退
+    private static final CaptureProfile[] LADDER = {PATROL_SWEEP, PERIODIC};
+
+    private final String name;
+    private final int maxWidth; // 0 表示不縮放
+    private final int maxHeight;
+    private final int jpegQuality; // 0 表示不重新壓縮
+
+    public CaptureProfile(String name, int maxWidth, int maxHeight, int jpegQuality) {
+        this.name = name;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public int getJpegQuality() {
+        return jpegQuality;
+    }
+
+    // 不需要解碼，直接上傳相機的 JPEG
+    public boolean isPassThrough() {
+        return maxWidth <= 0 && maxHeight <= 0 && jpegQuality <= 0;
+    }
+
+    // 往下降 steps 級；不在降級序列中的設定檔（例如告警）維持不變
+    public CaptureProfile stepDown(int steps) {
+        for (int i = 0; i < LADDER.length; i++) {
+            if (LADDER[i] == this) {
+                return LADDER[Math.min(LADDER.length - 1, i + Math.max(0, steps))];
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
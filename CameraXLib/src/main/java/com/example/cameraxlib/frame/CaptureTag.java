@@ -0,0 +1,56 @@
+package com.example.cameraxlib.frame;
+
+// 拍攝位置標記：在哪個地點、朝哪個方向拍的，以及拍攝時的地圖座標（未知時為 NaN）
+// sequence 是同一次環拍中的第幾張（從 0 開始），單張拍照為 -1
+public class CaptureTag {
+    private final String waypoint;
+    private final int headingDegrees; // 0 ~ 359
+    private final float x;
+    private final float y;
+    private final int sequence;
+
+    public CaptureTag(String waypoint, int headingDegrees) {
+        this(waypoint, headingDegrees, Float.NaN, Float.NaN);
+    }
+
+    public CaptureTag(String waypoint, int headingDegrees, float x, float y) {
+        this(waypoint, headingDegrees, x, y, -1);
+    }
+
+    public CaptureTag(String waypoint, int headingDegrees, float x, float y, int sequence) {
+        this.waypoint = waypoint;
+        this.headingDegrees = ((headingDegrees % 360) + 360) % 360;
+        this.x = x;
+        this.y = y;
+        this.sequence = sequence;
+    }
+
+    public String getWaypoint() {
+        return waypoint;
+    }
+
+    public int getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public boolean hasPose() {
+        return !Float.isNaN(x) && !Float.isNaN(y);
+    }
+
+    @Override
+    public String toString() {
+        return waypoint + "@" + headingDegrees + (sequence >= 0 ? "#" + sequence : "");
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cameraxlib.frame;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 一張已拍攝的 JPEG 幀，資料存放在池化的 direct buffer 中，用完必須呼叫 release()
+public class CapturedFrame {
+    private final String name;
+    private final long timestampMillis;
+    private final ByteBuffer data; // position 0，limit 為 JPEG 長度
+    private final FrameBufferPool pool; // 可為 null，表示不歸還任何池
+    private final AtomicBoolean released = new AtomicBoolean(false);
+    private volatile CaptureTag tag; // 可為 null，表示不是定點拍攝
+    private volatile boolean unchanged; // 與同位置上一張幾乎相同
+    private volatile CaptureProfile profile; // 上傳前要套用的設定檔，null 表示不轉碼
+    private volatile String region; // 裁切出的區域名稱，整張時為 null
+
+    public CapturedFrame(String name, long timestampMillis, ByteBuffer data, FrameBufferPool pool) {
+        this.name = name;
+        this.timestampMillis = timestampMillis;
+        this.data = data;
+        this.pool = pool;
+    }
+
+    // 將相機的 JPEG 平面複製一次到池化緩衝（相機緩衝在 ImageProxy 關閉後即失效，所以這是唯一的一次複製）
+    public static CapturedFrame copyOf(ByteBuffer source, FrameBufferPool pool, String name, long timestampMillis) {
+        ByteBuffer src = source.duplicate();
+        ByteBuffer target = pool.acquire(src.remaining());
+        target.put(src);
+        target.flip();
+        return new CapturedFrame(name, timestampMillis, target, pool);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public CaptureTag getTag() {
+        return tag;
+    }
+
+    public void setTag(CaptureTag tag) {
+        this.tag = tag;
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(boolean unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public CaptureProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(CaptureProfile profile) {
+        this.profile = profile;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public int getLength() {
+        return data.limit();
+    }
+
+    // 回傳唯讀視圖，呼叫端讀取不會影響其他讀取者的位置
+    public ByteBuffer getData() {
+        if (released.get()) {
+            throw new IllegalStateException("幀已釋放：" + name);
+        }
+        return data.asReadOnlyBuffer();
+    }
+
+    // 以串流方式讀取 JPEG 內容，不需要先複製成 byte[]
+    public InputStream openStream() {
+        return new ByteBufferInputStream(getData());
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    // 歸還緩衝到池中，重複呼叫無副作用
+    public void release() {
+        if (released.compareAndSet(false, true) && pool != null) {
+            pool.release(data);
+        }
+    }
+}
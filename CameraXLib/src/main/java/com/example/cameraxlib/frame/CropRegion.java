@@ -0,0 +1,85 @@
+package com.example.cameraxlib.frame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// 要裁切上傳的區域（門、貨架、儀表），以畫面寬高的比例表示，與解析度無關
+public class CropRegion {
+    private final String name;
+    private final float left;
+    private final float top;
+    private final float right;
+    private final float bottom;
+
+    public CropRegion(String name, float left, float top, float right, float bottom) {
+        if (!(left >= 0 && top >= 0 && right <= 1 && bottom <= 1 && left < right && top < bottom)) {
+            throw new IllegalArgumentException("區域需在 0 ~ 1 之間且不可為空：" + name);
+        }
+        this.name = name;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    // 切成 columns x rows 格，名稱為 name_列_欄
+    public List<CropRegion> tile(int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("columns 與 rows 必須大於 0");
+        }
+        List<CropRegion> tiles = new ArrayList<>(columns * rows);
+        float width = (right - left) / columns;
+        float height = (bottom - top) / rows;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                tiles.add(new CropRegion(name + "_" + row + "_" + column,
+                        left + column * width, top + row * height,
+                        column == columns - 1 ? right : left + (column + 1) * width,
+                        row == rows - 1 ? bottom : top + (row + 1) * height));
+            }
+        }
+        return tiles;
+    }
+
+    // 換算成像素矩形 {left, top, right, bottom}，向外對齊到 alignment 的倍數並限制在畫面內
+    // JPEG 以 16x16 區塊壓縮，對齊後區域解碼不需要多解半個區塊，裁切邊緣也不會切過壓縮區塊
+    public int[] toPixels(int width, int height, int alignment) {
+        int a = Math.max(1, alignment);
+        int x0 = (int) Math.floor(left * width) / a * a;
+        int y0 = (int) Math.floor(top * height) / a * a;
+        int x1 = Math.min(width, ((int) Math.ceil(right * width) + a - 1) / a * a);
+        int y1 = Math.min(height, ((int) Math.ceil(bottom * height) + a - 1) / a * a);
+        return new int[]{x0, y0, x1, y1};
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getRight() {
+        return right;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+
+    // 佔畫面面積的比例
+    public float getArea() {
+        return (right - left) * (bottom - top);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s[%.3f,%.3f,%.3f,%.3f]", name, left, top, right, bottom);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.cameraxlib.frame;
+
+// 裁切前保留完整的幀（例如本地照片庫）；只讀取內容，不可釋放或保留幀
+public interface FrameArchive {
+    void archive(CapturedFrame frame);
+}
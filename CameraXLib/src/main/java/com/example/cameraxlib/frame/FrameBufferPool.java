@@ -0,0 +1,56 @@
+package com.example.cameraxlib.frame;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 直接記憶體緩衝池，重複使用 JPEG 幀的 direct ByteBuffer，避免每次拍照都配置新陣列
+public class FrameBufferPool {
+    private final int bufferCapacity; // 每個池內緩衝的容量
+    private final int maxPooled; // 池內最多保留的閒置緩衝數
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    public FrameBufferPool(int bufferCapacity, int maxPooled) {
+        if (bufferCapacity <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("bufferCapacity 必須大於 0，maxPooled 不可為負數");
+        }
+        this.bufferCapacity = bufferCapacity;
+        this.maxPooled = maxPooled;
+    }
+
+    // 取得至少 minCapacity 大小的緩衝；超過池容量的幀會配置一次性緩衝
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > bufferCapacity) {
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        freeCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    // 歸還緩衝；非池內尺寸或池已滿時直接丟棄交給 GC
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferCapacity || !buffer.isDirect()) {
+            return;
+        }
+        if (freeCount.incrementAndGet() <= maxPooled) {
+            freeBuffers.offer(buffer);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    // 目前池內閒置的緩衝數量
+    public int getFreeCount() {
+        return freeCount.get();
+    }
+}
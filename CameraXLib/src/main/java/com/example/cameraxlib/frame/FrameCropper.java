@@ -0,0 +1,9 @@
+package com.example.cameraxlib.frame;
+
+import java.util.List;
+
+// 依拍攝位置把一幀裁成多張；回傳 null 表示不裁切（照常轉碼整張），
+// 否則回傳的裁切取代原幀往下傳，實作者需釋放原幀
+public interface FrameCropper {
+    List<CapturedFrame> crop(CapturedFrame frame);
+}
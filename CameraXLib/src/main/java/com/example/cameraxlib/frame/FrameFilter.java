@@ -0,0 +1,6 @@
+package com.example.cameraxlib.frame;
+
+// 決定幀是否繼續往下處理；回傳 false 時由呼叫端釋放幀
+public interface FrameFilter {
+    boolean accept(CapturedFrame frame);
+}
@@ -0,0 +1,6 @@
+package com.example.cameraxlib.frame;
+
+// 接收拍攝完成的幀；實作者負責在處理完畢後呼叫 frame.release()
+public interface FrameSink {
+    void accept(CapturedFrame frame);
+}
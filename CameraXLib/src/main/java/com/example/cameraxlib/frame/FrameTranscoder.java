@@ -0,0 +1,7 @@
+package com.example.cameraxlib.frame;
+
+// 可選的轉碼步驟（縮放或重新壓縮）；不需要處理時直接回傳原幀
+public interface FrameTranscoder {
+    // 回傳新幀時，實作者需釋放傳入的原幀
+    CapturedFrame transcode(CapturedFrame frame);
+}
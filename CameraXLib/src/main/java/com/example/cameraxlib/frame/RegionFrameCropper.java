@@ -0,0 +1,155 @@
+package com.example.cameraxlib.frame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 依 RoiTable 裁切定點拍攝的幀：只解碼需要的區域，每個區域各自壓縮成一張 JPEG 寫入池化緩衝
+// 裁切以原始解析度輸出，只在超過設定檔的尺寸上限時以 2 的冪次取樣縮小；品質沿用設定檔
+// 解碼方式由子類別提供（Android 為 BitmapRegionDecoder）；任何一個區域失敗就放棄裁切，整張照常轉碼上傳
+// 裁切成功時整張先交給 FrameArchive 留存（只上傳裁切），裁切標記區域名稱，照片庫不會把它當成該方向的最新一張
+public abstract class RegionFrameCropper<D> implements FrameCropper {
+    private static final int DEFAULT_QUALITY = 95;
+    private static final int ALIGNMENT = 16; // JPEG 的 MCU 大小
+
+    private final FrameBufferPool pool;
+    private volatile RoiTable table; // null 表示不裁切
+    private volatile FrameArchive archive; // 可為 null
+    private final AtomicLong croppedFrames = new AtomicLong();
+    private final AtomicLong cropCount = new AtomicLong();
+    private final AtomicLong inputBytes = new AtomicLong(); // 被裁切的原始幀大小總和
+    private final AtomicLong outputBytes = new AtomicLong(); // 裁切結果大小總和
+    private final AtomicLong failures = new AtomicLong();
+
+    protected RegionFrameCropper(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    // 開啟區域解碼器（只讀取檔頭，尚未解碼像素）
+    protected abstract D open(CapturedFrame frame) throws IOException;
+
+    protected abstract int getWidth(D decoder);
+
+    protected abstract int getHeight(D decoder);
+
+    // 解碼 rect（{left, top, right, bottom} 像素）並以 quality 壓縮成 JPEG 寫入 out
+    protected abstract void encodeRegion(D decoder, int[] rect, int sampleSize, int quality, OutputStream out)
+            throws IOException;
+
+    protected abstract void close(D decoder);
+
+    public void setTable(RoiTable table) {
+        this.table = table;
+    }
+
+    public RoiTable getTable() {
+        return table;
+    }
+
+    public void setArchive(FrameArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public List<CapturedFrame> crop(CapturedFrame frame) {
+        RoiTable current = table;
+        if (current == null) {
+            return null;
+        }
+        List<CropRegion> regions = current.regionsFor(frame.getTag());
+        if (regions.isEmpty()) {
+            return null;
+        }
+        CaptureProfile profile = frame.getProfile();
+        int quality = profile != null && profile.getJpegQuality() > 0 ? profile.getJpegQuality() : DEFAULT_QUALITY;
+        List<CapturedFrame> crops = new ArrayList<>(regions.size());
+        D decoder = null;
+        try {
+            decoder = open(frame);
+            int width = getWidth(decoder);
+            int height = getHeight(decoder);
+            for (CropRegion region : regions) {
+                int[] rect = region.toPixels(width, height, ALIGNMENT);
+                int sampleSize = profile != null
+                        ? sampleSizeFor(rect[2] - rect[0], rect[3] - rect[1], profile.getMaxWidth(), profile.getMaxHeight())
+                        : 1;
+                ByteBufferOutputStream out = new ByteBufferOutputStream(pool, frame.getLength());
+                CapturedFrame crop;
+                try {
+                    encodeRegion(decoder, rect, sampleSize, quality, out);
+                } finally {
+                    crop = out.toFrame(cropName(frame.getName(), region.getName()), frame.getTimestampMillis());
+                    crops.add(crop); // 失敗時一起釋放
+                }
+                crop.setTag(frame.getTag());
+                crop.setUnchanged(frame.isUnchanged());
+                crop.setProfile(profile);
+                crop.setRegion(region.getName());
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            for (CapturedFrame crop : crops) {
+                crop.release();
+            }
+            return null;
+        } finally {
+            if (decoder != null) {
+                close(decoder);
+            }
+        }
+        long total = 0;
+        for (CapturedFrame crop : crops) {
+            total += crop.getLength();
+        }
+        croppedFrames.incrementAndGet();
+        cropCount.addAndGet(crops.size());
+        inputBytes.addAndGet(frame.getLength());
+        outputBytes.addAndGet(total);
+        FrameArchive currentArchive = archive;
+        if (currentArchive != null) {
+            currentArchive.archive(frame);
+        }
+        frame.release();
+        return crops;
+    }
+
+    // IMG_20240101_120000_000_5.jpg + 儀表 → IMG_20240101_120000_000_5_儀表.jpg
+    static String cropName(String name, String region) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) + "_" + region + name.substring(dot) : name + "_" + region;
+    }
+
+    // 與 BitmapFrameTranscoder 相同：以 2 的冪次取樣到接近設定檔尺寸上限
+    static int sampleSizeFor(int width, int height, int maxWidth, int maxHeight) {
+        int sampleSize = 1;
+        if (maxWidth <= 0 || maxHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= maxWidth && height / (sampleSize * 2) >= maxHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    public long getCroppedFrames() {
+        return croppedFrames.get();
+    }
+
+    public long getCropCount() {
+        return cropCount.get();
+    }
+
+    public long getInputBytes() {
+        return inputBytes.get();
+    }
+
+    public long getOutputBytes() {
+        return outputBytes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cameraxlib.frame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 每個（地點, 方向）要裁切的區域；方向取容許誤差內最接近的設定，地點為 * 的設定適用於所有沒有個別設定的地點
+// 設定檔一行一個區域，以逗號分隔：地點, 方向, 名稱, 左, 上, 右, 下[, 欄x列]
+// 例如「倉庫, 90, 儀表, 0.40, 0.10, 0.70, 0.45」或「倉庫, 180, 貨架, 0, 0.2, 1, 0.9, 3x2」；# 之後為註解
+public class RoiTable {
+    public static final String ANY_WAYPOINT = "*";
+
+    private final int headingToleranceDegrees;
+    // 地點（小寫）→ 方向 → 區域
+    private final Map<String, Map<Integer, List<CropRegion>>> regions = new HashMap<>();
+
+    public RoiTable(int headingToleranceDegrees) {
+        this.headingToleranceDegrees = headingToleranceDegrees;
+    }
+
+    public synchronized void put(String waypoint, int headingDegrees, CropRegion region) {
+        String key = waypoint.toLowerCase(Locale.ROOT);
+        Map<Integer, List<CropRegion>> byHeading = regions.get(key);
+        if (byHeading == null) {
+            byHeading = new HashMap<>();
+            regions.put(key, byHeading);
+        }
+        int heading = normalize(headingDegrees);
+        List<CropRegion> list = byHeading.get(heading);
+        if (list == null) {
+            list = new ArrayList<>();
+            byHeading.put(heading, list);
+        }
+        list.add(region);
+    }
+
+    public List<CropRegion> regionsFor(CaptureTag tag) {
+        return tag == null ? Collections.<CropRegion>emptyList() : regionsFor(tag.getWaypoint(), tag.getHeadingDegrees());
+    }
+
+    // 沒有設定時回傳空列表（上傳整張）
+    public synchronized List<CropRegion> regionsFor(String waypoint, int headingDegrees) {
+        if (waypoint != null) {
+            List<CropRegion> found = nearest(regions.get(waypoint.toLowerCase(Locale.ROOT)), normalize(headingDegrees));
+            if (found != null) {
+                return found;
+            }
+        }
+        List<CropRegion> fallback = nearest(regions.get(ANY_WAYPOINT), normalize(headingDegrees));
+        return fallback != null ? fallback : Collections.<CropRegion>emptyList();
+    }
+
+    private List<CropRegion> nearest(Map<Integer, List<CropRegion>> byHeading, int heading) {
+        if (byHeading == null) {
+            return null;
+        }
+        List<CropRegion> best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, List<CropRegion>> entry : byHeading.entrySet()) {
+            int distance = Math.abs(entry.getKey() - heading);
+            distance = Math.min(distance, 360 - distance);
+            if (distance <= headingToleranceDegrees && distance < bestDistance) {
+                bestDistance = distance;
+                best = entry.getValue();
+            }
+        }
+        return best == null ? null : Collections.unmodifiableList(new ArrayList<>(best));
+    }
+
+    public synchronized int size() {
+        int count = 0;
+        for (Map<Integer, List<CropRegion>> byHeading : regions.values()) {
+            for (List<CropRegion> list : byHeading.values()) {
+                count += list.size();
+            }
+        }
+        return count;
+    }
+
+    public static RoiTable parse(Reader source, int headingToleranceDegrees) throws IOException {
+        RoiTable table = new RoiTable(headingToleranceDegrees);
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 7 && fields.length != 8) {
+                throw new IOException("第 " + lineNumber + " 行欄位數錯誤：" + line);
+            }
+            try {
+                String waypoint = fields[0].trim();
+                int heading = Integer.parseInt(fields[1].trim());
+                CropRegion region = new CropRegion(fields[2].trim(), Float.parseFloat(fields[3].trim()),
+                        Float.parseFloat(fields[4].trim()), Float.parseFloat(fields[5].trim()),
+                        Float.parseFloat(fields[6].trim()));
+                if (fields.length == 8) {
+                    String[] grid = fields[7].trim().toLowerCase(Locale.ROOT).split("x");
+                    if (grid.length != 2) {
+                        throw new IOException("第 " + lineNumber + " 行切格格式應為 欄x列：" + fields[7]);
+                    }
+                    for (CropRegion tile : region.tile(Integer.parseInt(grid[0]), Integer.parseInt(grid[1]))) {
+                        table.put(waypoint, heading, tile);
+                    }
+                } else {
+                    table.put(waypoint, heading, region);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("第 " + lineNumber + " 行格式錯誤：" + e.getMessage(), e);
+            }
+        }
+        return table;
+    }
+
+    private static int normalize(int degrees) {
+        return ((degrees % 360) + 360) % 360;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cameraxlib.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 單調遞增的計數器，只做原子加法，可在熱路徑上使用
+public class Counter {
+    private final AtomicLong value = new AtomicLong();
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
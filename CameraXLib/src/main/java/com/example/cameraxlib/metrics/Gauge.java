@@ -0,0 +1,6 @@
+package com.example.cameraxlib.metrics;
+
+// 取樣時才讀取的瞬時值（例如佇列深度）；只在快照時呼叫，實作不必考慮熱路徑
+public interface Gauge {
+    long getValue();
+}
@@ -0,0 +1,104 @@
+package com.example.cameraxlib.metrics;
+
+import com.example.cameraxlib.util.Clock;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// 定期把指標快照以單行精簡格式附加到本地檔案；檔案超過上限時改名為 .1 並重新開始，最多保留兩個檔案
+public class MetricsDumper {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MetricsRegistry registry;
+    private final File file;
+    private final Clock clock;
+    private final long maxFileBytes;
+    private ScheduledExecutorService executor;
+    private volatile IOException lastError;
+
+    public MetricsDumper(MetricsRegistry registry, File file, Clock clock, long maxFileBytes) {
+        this.registry = registry;
+        this.file = file;
+        this.clock = clock;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    // 在背景執行緒上每 intervalMillis 寫一行
+    public synchronized void start(long intervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "metrics-dump");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                dumpQuietly();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 停止定期寫入，並寫入最後一行
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            dumpQuietly();
+        }
+    }
+
+    // 立即寫入一行，回傳寫入的內容
+    public synchronized String dump() throws IOException {
+        String line = registry.snapshot(clock.currentTimeMillis()).toCompactString();
+        if (file.length() + line.length() + 1 > maxFileBytes) {
+            rotate();
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+        return line;
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            lastError = e; // 寫不進去就放棄這一行，不影響主流程
+        }
+    }
+
+    private void rotate() throws IOException {
+        File previous = new File(file.getPath() + ".1");
+        if (previous.exists() && !previous.delete()) {
+            throw new IOException("無法刪除舊的指標檔：" + previous);
+        }
+        if (file.exists() && !file.renameTo(previous)) {
+            throw new IOException("無法輪替指標檔：" + file);
+        }
+    }
+
+    // 最近一次寫入失敗的原因，沒有失敗時為 null
+    public IOException getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cameraxlib.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// 以名稱登記計數器、量測值與延遲直方圖；登記只在初始化時進行，記錄直接操作取得的物件，不經過查表
+// 名稱以點分隔，例如 capture.shutter、patrol.travel
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // 全程式共用的登記表
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    // 取得（或建立）指定名稱的計數器
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    // 取得（或建立）指定名稱的直方圖
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    // 登記元件自己持有的直方圖；同名時取代舊的（例如元件重新建立）
+    public void register(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+    }
+
+    public void register(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public void unregister(String name) {
+        counters.remove(name);
+        gauges.remove(name);
+        histograms.remove(name);
+    }
+
+    // 讀取所有登記項目的目前值（會配置物件，不要在熱路徑上呼叫）
+    public MetricsSnapshot snapshot(long timestampMillis) {
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().get());
+        }
+        Map<String, Long> gaugeValues = new TreeMap<>();
+        for (Map.Entry<String, Gauge> entry : gauges.entrySet()) {
+            gaugeValues.put(entry.getKey(), entry.getValue().getValue());
+        }
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            histogramValues.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return new MetricsSnapshot(timestampMillis, counterValues, gaugeValues, histogramValues);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.cameraxlib.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+// 某一時間點所有指標的值，依名稱排序
+public class MetricsSnapshot {
+    private final long timestampMillis;
+    private final Map<String, Long> counters;
+    private final Map<String, Long> gauges;
+    private final Map<String, LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(long timestampMillis, Map<String, Long> counters, Map<String, Long> gauges,
+                    Map<String, LatencyHistogram.Snapshot> histograms) {
+        this.timestampMillis = timestampMillis;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.gauges = Collections.unmodifiableMap(gauges);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    // 沒有登記時回傳 0
+    public long getCounter(String name) {
+        Long value = counters.get(name);
+        return value != null ? value : 0;
+    }
+
+    public long getGauge(String name) {
+        Long value = gauges.get(name);
+        return value != null ? value : 0;
+    }
+
+    public LatencyHistogram.Snapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    // 單行精簡格式：時間 名稱=值 … 名稱=筆數/p50/p90/p99/max（微秒），沒有資料的直方圖略過
+    public String toCompactString() {
+        StringBuilder line = new StringBuilder(256);
+        line.append(timestampMillis);
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : gauges.entrySet()) {
+            line.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : histograms.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            line.append(' ').append(entry.getKey()).append('=').append(snapshot.getCount())
+                    .append('/').append(snapshot.getPercentileMicros(50))
+                    .append('/').append(snapshot.getPercentileMicros(90))
+                    .append('/').append(snapshot.getPercentileMicros(99))
+                    .append('/').append(snapshot.getMaxMicros());
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCompactString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.cameraxlib.pipeline;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.upload.UploadQueueStats;
+
+// 依上傳佇列積壓與實測頻寬自動降低拍攝設定檔，恢復時逐級回升（有遲滯，避免來回切換）
+public class AdaptiveProfilePolicy {
+    private final int backlogHigh; // 佇列項目數超過此值降一級
+    private final int backlogCritical; // 超過此值降兩級
+    private final int backlogLow; // 低於此值才允許回升
+    private final long minBytesPerSecond; // 有積壓且實測頻寬低於此值時降一級
+
+    private int level; // 目前降級的級數
+
+    public AdaptiveProfilePolicy(int backlogLow, int backlogHigh, int backlogCritical, long minBytesPerSecond) {
+        this.backlogLow = backlogLow;
+        this.backlogHigh = backlogHigh;
+        this.backlogCritical = backlogCritical;
+        this.minBytesPerSecond = minBytesPerSecond;
+    }
+
+    // 回傳依目前狀況調整後的設定檔；stats 為 null 時不調整
+    public synchronized CaptureProfile adjust(CaptureProfile requested, UploadQueueStats stats) {
+        if (stats != null) {
+            update(stats);
+        }
+        return requested.stepDown(level);
+    }
+
+    private void update(UploadQueueStats stats) {
+        boolean slowLink = stats.depth > backlogLow && stats.bytesPerSecond > 0
+                && stats.bytesPerSecond < minBytesPerSecond;
+        int target;
+        if (stats.depth >= backlogCritical) {
+            target = 2;
+        } else if (stats.depth >= backlogHigh || slowLink) {
+            target = 1;
+        } else {
+            target = 0;
+        }
+        if (target > level) {
+            level = target;
+        } else if (target < level && stats.depth <= backlogLow) {
+            level--; // 積壓消化後一次只回升一級
+        }
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+}
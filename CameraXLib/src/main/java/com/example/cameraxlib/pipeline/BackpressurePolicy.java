@@ -0,0 +1,8 @@
+package com.example.cameraxlib.pipeline;
+
+// 階段佇列滿時的處理方式
+public enum BackpressurePolicy {
+    BLOCK, // 阻塞提交者直到有空位（不可用在相機或 UI 執行緒上）
+    DROP_OLDEST, // 丟棄佇列中最舊的項目，保留最新的畫面
+    DROP_NEWEST // 丟棄新提交的項目
+}
@@ -0,0 +1,141 @@
+package com.example.cameraxlib.pipeline;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameCropper;
+import com.example.cameraxlib.frame.FrameFilter;
+import com.example.cameraxlib.frame.FrameSink;
+import com.example.cameraxlib.frame.FrameTranscoder;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 拍照後處理管線：capture（相機回呼）→ dedup（略過未變化畫面）→ encode（裁切或縮放/重新壓縮）→ persist（寫入上傳佇列）
+// encode 階段有設定裁切時，一幀可能變成多張裁切，各自交給 persist
+// 上傳階段由 SpoolUploader 負責，它以 maxInFlight 限制並發、以佇列檔作為緩衝
+public class CapturePipeline {
+    private static final int DEDUP_QUEUE_CAPACITY = 4;
+    private static final int ENCODE_QUEUE_CAPACITY = 4;
+    private static final int PERSIST_QUEUE_CAPACITY = 8;
+
+    private final LatencyHistogram captureLatency = new LatencyHistogram(); // takePicture 到回呼
+    private final PipelineStage<CapturedFrame, CapturedFrame> dedupStage;
+    private final PipelineStage<CapturedFrame, CapturedFrame> encodeStage;
+    private final PipelineStage<CapturedFrame, CapturedFrame> persistStage;
+    private volatile FrameFilter filter; // null 表示全部通過
+    private volatile FrameTranscoder transcoder; // null 表示直接傳遞
+    private volatile FrameCropper cropper; // null 表示不裁切
+    private volatile FrameSink sink;
+
+    public CapturePipeline(FrameTranscoder transcoder, FrameSink sink) {
+        this.transcoder = transcoder;
+        this.sink = sink;
+        PipelineStage.DropHandler<CapturedFrame> release = new PipelineStage.DropHandler<CapturedFrame>() {
+            @Override
+            public void onDropped(CapturedFrame frame) {
+                frame.release();
+            }
+        };
+        // 去重跟不上時保留最新畫面；之後的階段阻塞上一階段的執行緒，不丟已通過的幀
+        dedupStage = new PipelineStage<>("dedup", 1, DEDUP_QUEUE_CAPACITY, BackpressurePolicy.DROP_OLDEST,
+                new PipelineStage.Processor<CapturedFrame, CapturedFrame>() {
+                    @Override
+                    public CapturedFrame process(CapturedFrame frame) {
+                        FrameFilter current = CapturePipeline.this.filter;
+                        if (current == null || current.accept(frame)) {
+                            return frame;
+                        }
+                        frame.release();
+                        return null;
+                    }
+                }, release);
+        encodeStage = new PipelineStage<>("encode", 1, ENCODE_QUEUE_CAPACITY, BackpressurePolicy.BLOCK,
+                new PipelineStage.Processor<CapturedFrame, CapturedFrame>() {
+                    @Override
+                    public CapturedFrame process(CapturedFrame frame) {
+                        FrameCropper currentCropper = CapturePipeline.this.cropper;
+                        if (currentCropper != null) {
+                            List<CapturedFrame> crops = currentCropper.crop(frame);
+                            if (crops != null) {
+                                for (CapturedFrame crop : crops) {
+                                    persistStage.submit(crop);
+                                }
+                                return null;
+                            }
+                        }
+                        FrameTranscoder current = CapturePipeline.this.transcoder;
+                        return current != null ? current.transcode(frame) : frame;
+                    }
+                }, release);
+        persistStage = new PipelineStage<>("persist", 1, PERSIST_QUEUE_CAPACITY, BackpressurePolicy.BLOCK,
+                new PipelineStage.Processor<CapturedFrame, CapturedFrame>() {
+                    @Override
+                    public CapturedFrame process(CapturedFrame frame) {
+                        CapturePipeline.this.sink.accept(frame); // sink 負責釋放幀
+                        return null;
+                    }
+                }, release);
+        dedupStage.then(encodeStage).then(persistStage);
+    }
+
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    public void setTranscoder(FrameTranscoder transcoder) {
+        this.transcoder = transcoder;
+    }
+
+    public void setCropper(FrameCropper cropper) {
+        this.cropper = cropper;
+    }
+
+    public void setSink(FrameSink sink) {
+        this.sink = sink;
+    }
+
+    // 相機回呼取得幀後呼叫，不會阻塞呼叫端
+    public void submit(CapturedFrame frame, long captureLatencyNanos) {
+        captureLatency.recordNanos(captureLatencyNanos);
+        dedupStage.submit(frame);
+    }
+
+    public LatencyHistogram getCaptureLatency() {
+        return captureLatency;
+    }
+
+    public PipelineStage<CapturedFrame, CapturedFrame> getDedupStage() {
+        return dedupStage;
+    }
+
+    public PipelineStage<CapturedFrame, CapturedFrame> getEncodeStage() {
+        return encodeStage;
+    }
+
+    public PipelineStage<CapturedFrame, CapturedFrame> getPersistStage() {
+        return persistStage;
+    }
+
+    // 依序關閉各階段，等待已排入的幀處理完畢
+    public void shutdown(long timeoutMillis) throws InterruptedException {
+        dedupStage.shutdown();
+        dedupStage.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        encodeStage.shutdown();
+        encodeStage.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        persistStage.shutdown();
+        persistStage.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 各階段延遲摘要，供記錄檔使用
+    public String describe() {
+        return "capture[" + captureLatency.snapshot() + "] "
+                + describe(dedupStage) + " " + describe(encodeStage) + " " + describe(persistStage);
+    }
+
+    private static String describe(PipelineStage<?, ?> stage) {
+        return stage.getName() + "[queue=" + stage.getQueueDepth() + " done=" + stage.getProcessedCount()
+                + " dropped=" + stage.getDroppedCount() + " failed=" + stage.getFailedCount()
+                + " wait " + stage.getQueueWaitHistogram().snapshot()
+                + " service " + stage.getServiceTimeHistogram().snapshot() + "]";
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.cameraxlib.pipeline;
+
+import com.example.cameraxlib.metrics.LatencyHistogram;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 管線中的一個階段：有自己的有界佇列與執行緒，處理結果交給下一階段
+public class PipelineStage<I, O> {
+    // 階段的處理邏輯；回傳 null 表示項目在此結束，不再往下傳
+    public interface Processor<I, O> {
+        O process(I item) throws Exception;
+    }
+
+    // 項目被丟棄或處理失敗時呼叫，用於釋放資源（例如歸還幀緩衝）
+    public interface DropHandler<I> {
+        void onDropped(I item);
+    }
+
+    private final String name;
+    private final Processor<I, O> processor;
+    private final DropHandler<? super I> dropHandler;
+    private final BackpressurePolicy policy;
+    private final ThreadPoolExecutor executor;
+    private volatile PipelineStage<? super O, ?> next;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public PipelineStage(final String name, int workers, int queueCapacity, BackpressurePolicy policy,
+                         Processor<I, O> processor, DropHandler<? super I> dropHandler) {
+        this.name = name;
+        this.processor = processor;
+        this.dropHandler = dropHandler;
+        this.policy = policy;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "pipeline-" + name + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new BackpressureHandler());
+    }
+
+    // 串接下一階段
+    public <N> PipelineStage<O, N> then(PipelineStage<O, N> nextStage) {
+        this.next = nextStage;
+        return nextStage;
+    }
+
+    // 提交項目，佇列滿時依 BackpressurePolicy 處理
+    public void submit(I item) {
+        try {
+            executor.execute(new StageTask(item, System.nanoTime()));
+        } catch (RejectedExecutionException e) {
+            drop(item); // 階段已關閉
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // 項目在佇列中等待的時間
+    public LatencyHistogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    // 項目實際處理的時間
+    public LatencyHistogram getServiceTimeHistogram() {
+        return serviceTime;
+    }
+
+    private void drop(I item) {
+        dropped.incrementAndGet();
+        if (dropHandler != null) {
+            dropHandler.onDropped(item);
+        }
+    }
+
+    private class StageTask implements Runnable {
+        final I item;
+        final long enqueuedAtNanos;
+
+        StageTask(I item, long enqueuedAtNanos) {
+            this.item = item;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queueWait.recordNanos(start - enqueuedAtNanos);
+            O output;
+            try {
+                output = processor.process(item);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                if (dropHandler != null) {
+                    dropHandler.onDropped(item);
+                }
+                return;
+            } finally {
+                serviceTime.recordNanos(System.nanoTime() - start);
+            }
+            processed.incrementAndGet();
+            PipelineStage<? super O, ?> nextStage = next;
+            if (output != null && nextStage != null) {
+                nextStage.submit(output);
+            }
+        }
+    }
+
+    private class BackpressureHandler implements RejectedExecutionHandler {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            StageTask task = (StageTask) r;
+            if (pool.isShutdown()) {
+                drop(task.item);
+                return;
+            }
+            BlockingQueue<Runnable> queue = pool.getQueue();
+            switch (policy) {
+                case BLOCK:
+                    try {
+                        queue.put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        drop(task.item);
+                    }
+                    break;
+                case DROP_OLDEST:
+                    Runnable oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(((StageTask) oldest).item);
+                    }
+                    if (!queue.offer(task)) {
+                        drop(task.item); // 其他提交者搶先佔用了空位
+                    }
+                    break;
+                case DROP_NEWEST:
+                default:
+                    drop(task.item);
+                    break;
+            }
+        }
+    }
+}
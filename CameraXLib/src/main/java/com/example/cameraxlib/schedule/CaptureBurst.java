@@ -0,0 +1,151 @@
+package com.example.cameraxlib.schedule;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.util.Clock;
+
+// 同一個地點的一次環拍：每個方向一張，依序編號，前一張快門響了就可以轉向下一個方向
+// 不等前一張處理完，同時進行的張數由呼叫端控制（拍照排程另有相機端的上限）
+// 回呼在相機回呼執行緒上呼叫
+public class CaptureBurst {
+    public interface Listener {
+        // 曝光已開始，機器人可以轉身
+        void onShutter(int sequence, int headingDegrees);
+
+        void onCaptured(int sequence, int headingDegrees);
+
+        void onError(int sequence, int headingDegrees, Exception e);
+    }
+
+    // 一次環拍的結果；sweepMillis 從第一張送出到最後一張完成
+    public static final class Report {
+        private final String waypoint;
+        private final int shots;
+        private final int captured;
+        private final int failed;
+        private final long sweepMillis;
+
+        Report(String waypoint, int shots, int captured, int failed, long sweepMillis) {
+            this.waypoint = waypoint;
+            this.shots = shots;
+            this.captured = captured;
+            this.failed = failed;
+            this.sweepMillis = sweepMillis;
+        }
+
+        public String getWaypoint() {
+            return waypoint;
+        }
+
+        public int getShots() {
+            return shots;
+        }
+
+        public int getCaptured() {
+            return captured;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // 還沒完成的張數（結束時仍在進行中）
+        public int getOutstanding() {
+            return shots - captured - failed;
+        }
+
+        public long getSweepMillis() {
+            return sweepMillis;
+        }
+
+        @Override
+        public String toString() {
+            return waypoint + " shots=" + shots + " captured=" + captured + " failed=" + failed
+                    + " sweep=" + sweepMillis + "ms";
+        }
+    }
+
+    private final CaptureScheduler scheduler;
+    private final Clock clock;
+    private final String waypoint;
+    private final CaptureProfile profile;
+    private int shots;
+    private int captured;
+    private int failed;
+    private long firstRequestNanos;
+    private long lastDoneNanos;
+    private boolean finished;
+
+    public CaptureBurst(CaptureScheduler scheduler, Clock clock, String waypoint, CaptureProfile profile) {
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.waypoint = waypoint;
+        this.profile = profile;
+    }
+
+    // 送出下一個方向的拍照，回傳這張的編號；x, y 為拍攝時的地圖座標（未知時為 NaN）
+    public int capture(final int headingDegrees, float x, float y, final Listener listener) {
+        final int sequence;
+        synchronized (this) {
+            if (finished) {
+                throw new IllegalStateException("環拍已結束");
+            }
+            sequence = shots++;
+            if (sequence == 0) {
+                firstRequestNanos = clock.nanoTime();
+            }
+        }
+        CaptureTag tag = new CaptureTag(waypoint, headingDegrees, x, y, sequence);
+        scheduler.submit(CapturePriority.SWEEP, profile, tag, new CaptureScheduler.ShutterCallback() {
+            @Override
+            public void onShutter() {
+                if (listener != null) {
+                    listener.onShutter(sequence, headingDegrees);
+                }
+            }
+
+            @Override
+            public void onCaptured() {
+                done(true);
+                if (listener != null) {
+                    listener.onCaptured(sequence, headingDegrees);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                done(false);
+                if (listener != null) {
+                    listener.onError(sequence, headingDegrees, e);
+                }
+            }
+        });
+        return sequence;
+    }
+
+    private synchronized void done(boolean success) {
+        if (success) {
+            captured++;
+        } else {
+            failed++;
+        }
+        lastDoneNanos = clock.nanoTime();
+    }
+
+    // 已送出但還沒完成或失敗的張數
+    public synchronized int getInFlightCount() {
+        return shots - captured - failed;
+    }
+
+    public String getWaypoint() {
+        return waypoint;
+    }
+
+    // 結束環拍並回傳統計；之後不能再送出，仍在進行中的張數會照常回呼
+    public synchronized Report finish() {
+        finished = true;
+        long end = getInFlightCount() > 0 || shots == 0 ? clock.nanoTime() : lastDoneNanos;
+        long sweepMillis = shots == 0 ? 0 : (end - firstRequestNanos) / 1000000;
+        return new Report(waypoint, shots, captured, failed, sweepMillis);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.cameraxlib.schedule;
+
+// 拍照請求的優先順序：多個請求同時等待時先拍優先順序高的，同順序先到先拍
+public enum CapturePriority {
+    PERIODIC, // 定時拍照
+    SWEEP, // 巡邏定點轉身拍照
+    ALERT // 告警
+}
@@ -0,0 +1,471 @@
+package com.example.cameraxlib.schedule;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 所有拍照請求的單一入口：只有一台相機，重疊的 takePicture 會互相搶用
+// 依優先順序排隊、合併時間相近的請求，並限制同時進行中的張數（預設一張）
+// 未標記地點的請求（定時拍照）只需要「最近有一張」：併入進行中或等待中的請求，或在合併視窗內直接視為完成
+// 有標記的請求（巡邏轉身）各自需要一張，只與同地點同方向的請求合併
+// 告警要的是事件發生之後的畫面：不併入進行中或其他優先順序的請求，最多與等待中的告警合併
+// 相機尚未就緒（啟動或恢復中）時請求留在佇列，就緒後依序執行；等待超過上限的請求以錯誤結束
+// 設定計時器後，相機一直沒有就緒也會在期限到時結束等待中的請求，不必等下一個請求或相機事件
+public class CaptureScheduler {
+    // 實際拍照；曝光開始時呼叫 done.onShutter（可省略），完成或失敗時呼叫 onCaptured / onError 其中之一一次
+    public interface Camera {
+        void capture(CaptureProfile profile, CaptureTag tag, ShutterCallback done);
+    }
+
+    public interface Callback {
+        void onCaptured();
+
+        void onError(Exception e);
+    }
+
+    // 需要快門時間點的呼叫端（例如連拍時快門一響就開始轉身）實作這個介面
+    // onShutter 一定在 onCaptured 之前；相機沒有回報快門時，在 onCaptured 之前補發
+    public interface ShutterCallback extends Callback {
+        void onShutter();
+    }
+
+    // 延遲執行一次工作；工作可能在任何執行緒上執行
+    public interface Timer {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private static final class Request {
+        CapturePriority priority;
+        CaptureProfile profile; // null 表示使用相機端的預設設定檔
+        CaptureTag tag;
+        final long requestedAtNanos;
+        final long sequence;
+        final List<Callback> callbacks = new ArrayList<>(1);
+        boolean shutter; // 快門已響，之後併入的呼叫端立即收到 onShutter
+
+        Request(CapturePriority priority, CaptureProfile profile, CaptureTag tag, long requestedAtNanos, long sequence) {
+            this.priority = priority;
+            this.profile = profile;
+            this.tag = tag;
+            this.requestedAtNanos = requestedAtNanos;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Camera camera;
+    private final Clock clock;
+    private final long coalesceWindowMillis;
+    private final long maxWaitMillis; // 等待相機就緒的上限
+    private final int maxInFlight;
+    private Timer timer; // 可為 null：只在 dispatch 時檢查逾時
+    private boolean expiryArmed; // 已排定一次逾時檢查
+    private final List<Request> pending = new ArrayList<>();
+    private final List<Request> inFlight = new ArrayList<>();
+    private final LatencyHistogram queueWait = new LatencyHistogram(); // 請求到開始拍照
+    private final LatencyHistogram shutterLatency = new LatencyHistogram(); // 開始拍照到快門
+    private long lastCapturedAtMillis = Long.MIN_VALUE;
+    private long sequence;
+    private boolean shutdown;
+    private boolean cameraReady = true;
+    private long requestedCount;
+    private long coalescedCount;
+    private long executedCount;
+    private long failedCount;
+    private long expiredCount;
+
+    public CaptureScheduler(Camera camera, Clock clock, long coalesceWindowMillis) {
+        this(camera, clock, coalesceWindowMillis, Long.MAX_VALUE, 1);
+    }
+
+    // maxInFlight：同時交給相機的張數；相機端（例如 CameraX）會自行排隊，大於 1 時曝光與影像處理可以重疊
+    public CaptureScheduler(Camera camera, Clock clock, long coalesceWindowMillis, long maxWaitMillis, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight 必須大於 0");
+        }
+        this.camera = camera;
+        this.clock = clock;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public synchronized void setTimer(Timer timer) {
+        this.timer = timer;
+    }
+
+    // 相機就緒狀態改變時由相機端呼叫；未就緒期間不呼叫 Camera.capture
+    public void setCameraReady(boolean ready) {
+        synchronized (this) {
+            cameraReady = ready;
+        }
+        if (ready) {
+            dispatch();
+        } else {
+            armExpiry();
+        }
+    }
+
+    // 排入一個拍照請求；callback 可為 null，可能在呼叫端執行緒上立即被呼叫（合併到剛拍好的照片時）
+    public void submit(CapturePriority priority, CaptureProfile profile, CaptureTag tag, Callback callback) {
+        boolean satisfied = false;
+        ShutterCallback lateShutter = null;
+        synchronized (this) {
+            requestedCount++;
+            if (shutdown) {
+                failedCount++;
+            } else {
+                Request target = priority == CapturePriority.ALERT ? findPendingAlert(tag) : findCoalesceTarget(tag);
+                if (target != null) {
+                    coalescedCount++;
+                    if (!inFlight.contains(target)) {
+                        merge(target, priority, profile, tag);
+                    }
+                    if (callback != null) {
+                        target.callbacks.add(callback);
+                        if (target.shutter && callback instanceof ShutterCallback) {
+                            lateShutter = (ShutterCallback) callback;
+                        }
+                    }
+                    callback = null;
+                } else if (tag == null && priority != CapturePriority.ALERT && lastCapturedAtMillis != Long.MIN_VALUE
+                        && clock.currentTimeMillis() - lastCapturedAtMillis <= coalesceWindowMillis) {
+                    coalescedCount++; // 剛拍過一張，定時拍照不必再拍；告警要的是事件發生之後的畫面，一定重拍
+                    satisfied = true;
+                } else {
+                    Request request = new Request(priority, profile, tag, clock.nanoTime(), sequence++);
+                    if (callback != null) {
+                        request.callbacks.add(callback);
+                    }
+                    callback = null;
+                    pending.add(request);
+                }
+            }
+        }
+        if (lateShutter != null) {
+            lateShutter.onShutter();
+        }
+        if (callback != null) {
+            if (satisfied) {
+                if (callback instanceof ShutterCallback) {
+                    ((ShutterCallback) callback).onShutter();
+                }
+                callback.onCaptured();
+            } else {
+                callback.onError(new IllegalStateException("拍照排程已關閉"));
+            }
+        }
+        dispatch();
+        armExpiry();
+    }
+
+    // 找可以合併的請求；未標記的請求優先併入最近開始的那張
+    private Request findCoalesceTarget(CaptureTag tag) {
+        if (tag == null) {
+            if (!inFlight.isEmpty()) {
+                return inFlight.get(inFlight.size() - 1);
+            }
+            Request best = null;
+            for (Request request : pending) {
+                if (best == null || isBefore(request, best)) {
+                    best = request;
+                }
+            }
+            return best;
+        }
+        Request untagged = null;
+        for (Request request : pending) {
+            if (request.tag == null) {
+                if (untagged == null) {
+                    untagged = request;
+                }
+            } else if (sameSlot(request.tag, tag)) {
+                return request;
+            }
+        }
+        return untagged; // 等待中的定時拍照改由這張有標記的照片滿足
+    }
+
+    // 告警只與等待中（尚未曝光）的同一處告警合併
+    private Request findPendingAlert(CaptureTag tag) {
+        for (Request request : pending) {
+            if (request.priority == CapturePriority.ALERT
+                    && (tag == null || request.tag == null || sameSlot(request.tag, tag))) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private static void merge(Request target, CapturePriority priority, CaptureProfile profile, CaptureTag tag) {
+        if (priority.compareTo(target.priority) > 0) {
+            target.priority = priority;
+        }
+        target.profile = richer(target.profile, profile);
+        if (target.tag == null) {
+            target.tag = tag;
+        }
+    }
+
+    // 合併後取細節較多的設定檔：直傳最優先，其次比較解析度與品質
+    static CaptureProfile richer(CaptureProfile a, CaptureProfile b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null || a.isPassThrough()) {
+            return a;
+        }
+        if (b.isPassThrough()) {
+            return b;
+        }
+        long areaA = (long) a.getMaxWidth() * a.getMaxHeight();
+        long areaB = (long) b.getMaxWidth() * b.getMaxHeight();
+        if (areaA != areaB) {
+            return areaA > areaB ? a : b;
+        }
+        return a.getJpegQuality() >= b.getJpegQuality() ? a : b;
+    }
+
+    private static boolean sameSlot(CaptureTag a, CaptureTag b) {
+        return a.getHeadingDegrees() == b.getHeadingDegrees()
+                && (a.getWaypoint() == null ? b.getWaypoint() == null : a.getWaypoint().equals(b.getWaypoint()));
+    }
+
+    private static boolean isBefore(Request a, Request b) {
+        int byPriority = a.priority.compareTo(b.priority);
+        return byPriority != 0 ? byPriority > 0 : a.sequence < b.sequence;
+    }
+
+    // 相機有空位時依序取出請求；相機的呼叫不在鎖內進行
+    private void dispatch() {
+        failExpired();
+        while (true) {
+            Request next;
+            synchronized (this) {
+                if (shutdown || !cameraReady || inFlight.size() >= maxInFlight || pending.isEmpty()) {
+                    return;
+                }
+                next = pending.get(0);
+                for (int i = 1; i < pending.size(); i++) {
+                    if (isBefore(pending.get(i), next)) {
+                        next = pending.get(i);
+                    }
+                }
+                pending.remove(next);
+                inFlight.add(next);
+                executedCount++;
+                queueWait.recordNanos(clock.nanoTime() - next.requestedAtNanos);
+            }
+            camera.capture(next.profile, next.tag, new Attempt(next, clock.nanoTime()));
+        }
+    }
+
+    // 一次拍照的回報；重複或過期的回報會被忽略
+    private final class Attempt implements ShutterCallback {
+        private final Request request;
+        private final long startedAtNanos;
+        private boolean done;
+
+        Attempt(Request request, long startedAtNanos) {
+            this.request = request;
+            this.startedAtNanos = startedAtNanos;
+        }
+
+        @Override
+        public void onShutter() {
+            List<Callback> callbacks;
+            synchronized (CaptureScheduler.this) {
+                if (request.shutter || done) {
+                    return;
+                }
+                request.shutter = true;
+                shutterLatency.recordNanos(clock.nanoTime() - startedAtNanos);
+                callbacks = new ArrayList<>(request.callbacks);
+            }
+            for (Callback callback : callbacks) {
+                if (callback instanceof ShutterCallback) {
+                    ((ShutterCallback) callback).onShutter();
+                }
+            }
+        }
+
+        @Override
+        public void onCaptured() {
+            onShutter(); // 相機沒有回報快門時補發
+            if (finish()) {
+                complete(request, null);
+            }
+        }
+
+        @Override
+        public void onError(Exception e) {
+            if (finish()) {
+                complete(request, e);
+            }
+        }
+
+        private boolean finish() {
+            synchronized (CaptureScheduler.this) {
+                if (done) {
+                    return false;
+                }
+                done = true;
+                return true;
+            }
+        }
+    }
+
+    // 移除等待過久的請求並通知失敗
+    private void failExpired() {
+        List<Request> expired = null;
+        synchronized (this) {
+            if (maxWaitMillis == Long.MAX_VALUE || pending.isEmpty()) {
+                return;
+            }
+            long maxWaitNanos = maxWaitMillis * 1000000;
+            long now = clock.nanoTime();
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                if (now - pending.get(i).requestedAtNanos > maxWaitNanos) {
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add(pending.remove(i));
+                    expiredCount++;
+                    failedCount++;
+                }
+            }
+        }
+        if (expired != null) {
+            for (Request request : expired) {
+                for (Callback callback : request.callbacks) {
+                    callback.onError(new IllegalStateException("等待相機就緒逾時"));
+                }
+            }
+        }
+    }
+
+    // 相機未就緒且有請求在等時，在最舊的請求到期後檢查一次；同時只排定一次
+    private void armExpiry() {
+        Timer target;
+        long delayMillis;
+        synchronized (this) {
+            if (timer == null || expiryArmed || shutdown || cameraReady || pending.isEmpty()
+                    || maxWaitMillis == Long.MAX_VALUE) {
+                return;
+            }
+            long oldest = pending.get(0).requestedAtNanos;
+            for (Request request : pending) {
+                if (request.requestedAtNanos - oldest < 0) {
+                    oldest = request.requestedAtNanos;
+                }
+            }
+            long remainingNanos = oldest + maxWaitMillis * 1000000 - clock.nanoTime();
+            delayMillis = Math.max(0, remainingNanos / 1000000) + 1; // 逾時的判斷是超過上限，多等 1 ms
+            expiryArmed = true;
+            target = timer;
+        }
+        target.schedule(this::onExpiryTimer, delayMillis);
+    }
+
+    private void onExpiryTimer() {
+        synchronized (this) {
+            expiryArmed = false;
+        }
+        failExpired();
+        armExpiry(); // 還有請求在等就排定下一次
+    }
+
+    private void complete(Request request, Exception error) {
+        List<Callback> callbacks;
+        synchronized (this) {
+            inFlight.remove(request);
+            if (error == null) {
+                lastCapturedAtMillis = clock.currentTimeMillis();
+            } else {
+                failedCount++;
+            }
+            callbacks = new ArrayList<>(request.callbacks);
+        }
+        for (Callback callback : callbacks) {
+            if (error == null) {
+                callback.onCaptured();
+            } else {
+                callback.onError(error);
+            }
+        }
+        dispatch();
+    }
+
+    // 停止接受請求，等待中的請求以錯誤結束；進行中的仍會通知
+    public void shutdown() {
+        List<Request> dropped;
+        synchronized (this) {
+            shutdown = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Request request : dropped) {
+            for (Callback callback : request.callbacks) {
+                callback.onError(new IllegalStateException("拍照排程已關閉"));
+            }
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized boolean isCameraReady() {
+        return cameraReady;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public synchronized boolean isCapturing() {
+        return !inFlight.isEmpty();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public synchronized long getRequestedCount() {
+        return requestedCount;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized long getExecutedCount() {
+        return executedCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getShutterLatency() {
+        return shutterLatency;
+    }
+
+    // 計數摘要，供記錄檔使用
+    public synchronized String describe() {
+        return "requested=" + requestedCount + " coalesced=" + coalescedCount + " executed=" + executedCount
+                + " failed=" + failedCount + " expired=" + expiredCount + " pending=" + pending.size()
+                + " wait " + queueWait.snapshot() + " shutter " + shutterLatency.snapshot();
+    }
+}
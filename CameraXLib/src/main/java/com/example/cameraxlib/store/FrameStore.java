@@ -0,0 +1,432 @@
+package com.example.cameraxlib.store;
+
+import com.example.cameraxlib.frame.CaptureTag;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// 本地照片庫：幀內容只追加到區段檔，另以固定長度的二進位索引記錄 id、時間、地點、方向、座標、大小與雜湊
+// 開啟時只讀索引就能還原；「某地點某方向的最新一張」與依 id 查詢都是 O(1)
+// 總大小超過上限時整個刪除最舊的區段，並重寫索引
+public class FrameStore implements Closeable {
+    private static final int RECORD_SIZE = 56;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+    private static final int NO_WAYPOINT = -1;
+    private static final String SEGMENT_PREFIX = "frames-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String INDEX_FILE = "index.bin";
+    private static final String WAYPOINT_FILE = "waypoints.bin";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final long maxTotalBytes;
+    private final boolean syncOnAppend;
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final LinkedHashMap<Long, StoredFrame> frames = new LinkedHashMap<>(); // 依 id（也就是寫入順序）排列
+    private final Map<Long, StoredFrame> latestBySlot = new HashMap<>(); // 鍵為地點編號與方向
+    private final List<String> waypoints = new ArrayList<>();
+    private final Map<String, Integer> waypointIds = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel indexChannel;
+    private FileChannel waypointChannel;
+    private Segment activeSegment;
+    private long nextId = 1;
+    private long totalBytes;
+    private long evictedCount;
+
+    private static class Segment {
+        final int id;
+        final File file;
+        final FileChannel channel;
+        long size;
+
+        Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private FrameStore(File directory, long maxSegmentBytes, long maxTotalBytes, boolean syncOnAppend) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    // 開啟（或建立）照片庫並從索引還原
+    public static FrameStore open(File directory, long maxSegmentBytes, long maxTotalBytes, boolean syncOnAppend)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("無法建立照片庫目錄：" + directory);
+        }
+        FrameStore store = new FrameStore(directory, maxSegmentBytes, maxTotalBytes, syncOnAppend);
+        store.recover();
+        return store;
+    }
+
+    private void recover() throws IOException {
+        waypointChannel = new RandomAccessFile(new File(directory, WAYPOINT_FILE), "rw").getChannel();
+        readWaypoints();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        int id = Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+                        Segment segment = openSegment(id, file);
+                        segment.size = segment.channel.size();
+                    } catch (NumberFormatException ignored) {
+                        // 不是照片庫產生的檔案，略過
+                    }
+                }
+            }
+        }
+        indexChannel = new RandomAccessFile(new File(directory, INDEX_FILE), "rw").getChannel();
+        boolean stale = readIndex();
+        activeSegment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (activeSegment != null) {
+            // 截掉內容已寫入但索引未寫入的部分
+            long end = 0;
+            for (StoredFrame frame : frames.values()) {
+                if (frame.segmentId == activeSegment.id) {
+                    end = Math.max(end, frame.offset + frame.getLength());
+                }
+            }
+            activeSegment.channel.truncate(end);
+            activeSegment.size = end;
+        }
+        if (stale) {
+            rewriteIndex();
+        }
+        evictIfNeeded();
+    }
+
+    private void readWaypoints() throws IOException {
+        long size = waypointChannel.size();
+        long position = 0;
+        ByteBuffer length = ByteBuffer.allocate(2);
+        while (position + 2 <= size) {
+            length.clear();
+            readFully(waypointChannel, length, position);
+            int nameLength = length.getShort(0) & 0xFFFF;
+            if (position + 2 + nameLength > size) {
+                break;
+            }
+            ByteBuffer name = ByteBuffer.allocate(nameLength);
+            readFully(waypointChannel, name, position + 2);
+            addWaypoint(new String(name.array(), UTF_8));
+            position += 2 + nameLength;
+        }
+        waypointChannel.truncate(position); // 截掉寫到一半的名稱
+        waypointChannel.position(position);
+    }
+
+    // 讀取索引；回傳是否有指向已刪除區段的記錄（需要重寫索引）
+    private boolean readIndex() throws IOException {
+        long size = indexChannel.size();
+        long position = 0;
+        boolean stale = false;
+        while (position + RECORD_SIZE <= size) {
+            record.clear();
+            readFully(indexChannel, record, position);
+            crc.reset();
+            crc.update(record.array(), 0, CRC_OFFSET);
+            if ((int) crc.getValue() != record.getInt(CRC_OFFSET)) {
+                break;
+            }
+            StoredFrame frame = decode(record);
+            nextId = Math.max(nextId, frame.getId() + 1);
+            Segment segment = segments.get(frame.segmentId);
+            if (segment == null || frame.offset + frame.getLength() > segment.size) {
+                stale = true;
+            } else {
+                addFrame(frame);
+            }
+            position += RECORD_SIZE;
+        }
+        if (position < size) {
+            indexChannel.truncate(position); // 截掉當機時寫到一半的索引
+        }
+        indexChannel.position(position);
+        return stale;
+    }
+
+    // 寫入一幀並回傳索引資料；tag 可為 null，payload 的 position 不會被改變
+    public synchronized StoredFrame put(long timestampMillis, CaptureTag tag, ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        if (activeSegment == null || (activeSegment.size > 0 && activeSegment.size + length > maxSegmentBytes)) {
+            rollSegment();
+        }
+        long hash = hash(payload);
+        long offset = activeSegment.size;
+        writeFully(activeSegment.channel, payload.duplicate(), offset);
+        if (syncOnAppend) {
+            activeSegment.channel.force(false);
+        }
+        activeSegment.size += length;
+
+        String waypoint = tag != null ? tag.getWaypoint() : null;
+        StoredFrame frame = new StoredFrame(nextId++, timestampMillis, waypoint,
+                tag != null ? tag.getHeadingDegrees() : -1, tag != null ? tag.getSequence() : -1,
+                tag != null ? tag.getX() : Float.NaN, tag != null ? tag.getY() : Float.NaN,
+                length, hash, activeSegment.id, offset);
+        encode(frame, waypointId(waypoint));
+        writeFully(indexChannel, record, indexChannel.size());
+        if (syncOnAppend) {
+            indexChannel.force(false);
+        }
+        addFrame(frame);
+        evictIfNeeded();
+        return frame;
+    }
+
+    // 某地點某方向最新的一張，沒有時回傳 null
+    public synchronized StoredFrame latest(String waypoint, int headingDegrees) {
+        Integer id = waypointIds.get(waypoint);
+        if (id == null) {
+            return null;
+        }
+        return latestBySlot.get(slotKey(id, ((headingDegrees % 360) + 360) % 360));
+    }
+
+    public synchronized StoredFrame get(long id) {
+        return frames.get(id);
+    }
+
+    // 讀出內容到 target 並驗證雜湊，target 需有足夠空間
+    public void read(StoredFrame frame, ByteBuffer target) throws IOException {
+        Segment segment;
+        synchronized (this) {
+            segment = frames.containsKey(frame.getId()) ? segments.get(frame.segmentId) : null;
+        }
+        if (segment == null) {
+            throw new IOException("照片已被淘汰：" + frame);
+        }
+        int start = target.position();
+        target.limit(start + frame.getLength());
+        readFully(segment.channel, target, frame.offset);
+        ByteBuffer content = target.duplicate();
+        content.flip();
+        content.position(start);
+        if (hash(content) != frame.getHash()) {
+            throw new IOException("照片內容損毀：" + frame);
+        }
+    }
+
+    // 依寫入順序列出目前保留的照片
+    public synchronized List<StoredFrame> list() {
+        return new ArrayList<>(frames.values());
+    }
+
+    public synchronized int getCount() {
+        return frames.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+        if (indexChannel != null) {
+            indexChannel.close();
+        }
+        if (waypointChannel != null) {
+            waypointChannel.close();
+        }
+    }
+
+    private void addFrame(StoredFrame frame) {
+        frames.put(frame.getId(), frame);
+        totalBytes += frame.getLength();
+        if (frame.getWaypoint() != null) {
+            latestBySlot.put(slotKey(waypointIds.get(frame.getWaypoint()), frame.getHeadingDegrees()), frame);
+        }
+    }
+
+    // 刪除最舊的區段直到總大小低於上限；至少保留正在寫入的區段
+    private void evictIfNeeded() throws IOException {
+        boolean evicted = false;
+        while (totalBytes > maxTotalBytes && segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            Iterator<StoredFrame> iterator = frames.values().iterator();
+            while (iterator.hasNext()) {
+                StoredFrame frame = iterator.next();
+                if (frame.segmentId != oldest.id) {
+                    break; // 照片依寫入順序排列，最舊區段的照片都在最前面
+                }
+                iterator.remove();
+                totalBytes -= frame.getLength();
+                evictedCount++;
+                if (frame.getWaypoint() != null) {
+                    // 最新一張也在最舊區段時，代表這個方向已沒有其他照片
+                    long key = slotKey(waypointIds.get(frame.getWaypoint()), frame.getHeadingDegrees());
+                    if (latestBySlot.get(key) == frame) {
+                        latestBySlot.remove(key);
+                    }
+                }
+            }
+            segments.remove(oldest.id);
+            oldest.channel.close();
+            if (!oldest.file.delete()) {
+                throw new IOException("無法刪除區段：" + oldest.file);
+            }
+            evicted = true;
+        }
+        if (evicted) {
+            rewriteIndex();
+        }
+    }
+
+    // 只保留現存照片的索引；先寫暫存檔再改名，避免當機時遺失索引
+    private void rewriteIndex() throws IOException {
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (FileChannel out = new RandomAccessFile(temp, "rw").getChannel()) {
+            out.truncate(0);
+            long position = 0;
+            for (StoredFrame frame : frames.values()) {
+                encode(frame, waypointId(frame.getWaypoint()));
+                writeFully(out, record, position);
+                position += RECORD_SIZE;
+            }
+            out.force(false);
+        }
+        indexChannel.close();
+        File index = new File(directory, INDEX_FILE);
+        if (!temp.renameTo(index)) {
+            throw new IOException("無法更新索引：" + index);
+        }
+        indexChannel = new RandomAccessFile(index, "rw").getChannel();
+        indexChannel.position(indexChannel.size());
+    }
+
+    private void rollSegment() throws IOException {
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        File file = new File(directory, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        activeSegment = openSegment(id, file);
+    }
+
+    private Segment openSegment(int id, File file) throws IOException {
+        Segment segment = new Segment(id, file, new RandomAccessFile(file, "rw").getChannel());
+        segments.put(id, segment);
+        return segment;
+    }
+
+    // 取得地點編號，新的地點追加到名稱表
+    private int waypointId(String waypoint) throws IOException {
+        if (waypoint == null) {
+            return NO_WAYPOINT;
+        }
+        Integer id = waypointIds.get(waypoint);
+        if (id != null) {
+            return id;
+        }
+        byte[] name = waypoint.getBytes(UTF_8);
+        ByteBuffer entry = ByteBuffer.allocate(2 + name.length);
+        entry.putShort((short) name.length).put(name).flip();
+        writeFully(waypointChannel, entry, waypointChannel.size());
+        if (syncOnAppend) {
+            waypointChannel.force(false);
+        }
+        return addWaypoint(waypoint);
+    }
+
+    private int addWaypoint(String waypoint) {
+        int id = waypoints.size();
+        waypoints.add(waypoint);
+        waypointIds.put(waypoint, id);
+        return id;
+    }
+
+    private static long slotKey(int waypointId, int headingDegrees) {
+        return ((long) waypointId << 32) | headingDegrees;
+    }
+
+    // 索引記錄：id, timestamp, hash, segment, offset, length, waypoint, heading, sequence + 1, x, y, crc
+    // sequence 存成加一後的值，舊版寫入的 0 讀回來即為「沒有」
+    private void encode(StoredFrame frame, int waypointId) {
+        record.clear();
+        record.putLong(frame.getId()).putLong(frame.getTimestampMillis()).putLong(frame.getHash())
+                .putInt(frame.segmentId).putInt((int) frame.offset).putInt(frame.getLength())
+                .putInt(waypointId).putShort((short) frame.getHeadingDegrees())
+                .putShort((short) (frame.getSequence() + 1))
+                .putFloat(frame.getX()).putFloat(frame.getY());
+        crc.reset();
+        crc.update(record.array(), 0, CRC_OFFSET);
+        record.putInt((int) crc.getValue());
+        record.flip();
+    }
+
+    private StoredFrame decode(ByteBuffer buffer) {
+        buffer.flip();
+        long id = buffer.getLong();
+        long timestamp = buffer.getLong();
+        long hash = buffer.getLong();
+        int segmentId = buffer.getInt();
+        long offset = buffer.getInt() & 0xFFFFFFFFL;
+        int length = buffer.getInt();
+        int waypointId = buffer.getInt();
+        int heading = buffer.getShort();
+        int sequence = (buffer.getShort() & 0xFFFF) - 1;
+        float x = buffer.getFloat();
+        float y = buffer.getFloat();
+        String waypoint = waypointId >= 0 && waypointId < waypoints.size() ? waypoints.get(waypointId) : null;
+        return new StoredFrame(id, timestamp, waypoint, waypoint != null ? heading : -1, sequence, x, y, length, hash, segmentId, offset);
+    }
+
+    // 64 位元 FNV-1a，只用來偵測損毀與比對相同內容，不是密碼學雜湊
+    static long hash(ByteBuffer data) {
+        long hash = FNV_OFFSET;
+        for (int i = data.position(); i < data.limit(); i++) {
+            hash ^= data.get(i) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("檔案提前結束");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+}
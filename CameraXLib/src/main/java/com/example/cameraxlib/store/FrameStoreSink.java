@@ -0,0 +1,43 @@
+package com.example.cameraxlib.store;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameArchive;
+import com.example.cameraxlib.frame.FrameSink;
+
+import java.io.IOException;
+
+// 先把幀存進本地照片庫，再交給下一個接收端（通常是上傳佇列）；照片庫寫入失敗不影響上傳
+// 裁切出的區域只上傳不留存：照片庫保留的是裁切前由 archive 存入的整張，同一方向的最新一張才不會變成某個區域
+public class FrameStoreSink implements FrameSink, FrameArchive {
+    private final FrameStore store;
+    private final FrameSink next;
+    private volatile IOException lastError;
+
+    public FrameStoreSink(FrameStore store, FrameSink next) {
+        this.store = store;
+        this.next = next;
+    }
+
+    @Override
+    public void accept(CapturedFrame frame) {
+        if (frame.getRegion() == null) {
+            archive(frame);
+        }
+        next.accept(frame); // 由下一個接收端釋放幀
+    }
+
+    // 只存進照片庫，不往下傳也不釋放
+    @Override
+    public void archive(CapturedFrame frame) {
+        try {
+            store.put(frame.getTimestampMillis(), frame.getTag(), frame.getData());
+        } catch (IOException e) {
+            lastError = e; // 例如空間不足，這一幀只上傳不留存
+        }
+    }
+
+    // 最近一次寫入失敗的原因，沒有失敗時為 null
+    public IOException getLastError() {
+        return lastError;
+    }
+}
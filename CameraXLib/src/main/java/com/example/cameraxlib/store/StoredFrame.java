@@ -0,0 +1,72 @@
+package com.example.cameraxlib.store;
+
+// FrameStore 中一幀的索引資料；id 在同一個儲存目錄中唯一且遞增，可作為穩定的鍵
+public class StoredFrame {
+    private final long id;
+    private final long timestampMillis;
+    private final String waypoint; // 沒有標記時為 null
+    private final int headingDegrees; // 沒有標記時為 -1
+    private final int sequence; // 同一次環拍中的第幾張，沒有時為 -1
+    private final float x;
+    private final float y;
+    private final int length;
+    private final long hash; // 內容的 64 位元 FNV-1a
+    final int segmentId;
+    final long offset;
+
+    StoredFrame(long id, long timestampMillis, String waypoint, int headingDegrees, int sequence, float x, float y,
+                int length, long hash, int segmentId, long offset) {
+        this.id = id;
+        this.timestampMillis = timestampMillis;
+        this.waypoint = waypoint;
+        this.headingDegrees = headingDegrees;
+        this.sequence = sequence;
+        this.x = x;
+        this.y = y;
+        this.length = length;
+        this.hash = hash;
+        this.segmentId = segmentId;
+        this.offset = offset;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getWaypoint() {
+        return waypoint;
+    }
+
+    public int getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + id + (waypoint != null ? " " + waypoint + "@" + headingDegrees : "") + " " + length + "B";
+    }
+}
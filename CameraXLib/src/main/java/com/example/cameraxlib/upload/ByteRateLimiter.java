@@ -0,0 +1,39 @@
+package com.example.cameraxlib.upload;
+
+import com.example.cameraxlib.util.Clock;
+
+// 以位元組為單位的 token bucket，限制上傳頻寬
+public class ByteRateLimiter {
+    private final Clock clock;
+    private final long bytesPerSecond;
+    private final long burstBytes;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public ByteRateLimiter(Clock clock, long bytesPerSecond, long burstBytes) {
+        if (bytesPerSecond <= 0 || burstBytes <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond 與 burstBytes 必須大於 0");
+        }
+        this.clock = clock;
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = burstBytes;
+        this.tokens = burstBytes;
+        this.lastRefillNanos = clock.nanoTime();
+    }
+
+    // 額度足夠時扣除並回傳 true；比 burst 大的項目在桶滿時放行，之後以負額度償還
+    public synchronized boolean tryAcquire(long bytes) {
+        refill();
+        if (tokens >= bytes || tokens >= burstBytes) {
+            tokens -= bytes;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = clock.nanoTime();
+        tokens = Math.min(burstBytes, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+        lastRefillNanos = now;
+    }
+}
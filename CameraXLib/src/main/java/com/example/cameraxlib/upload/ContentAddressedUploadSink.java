@@ -0,0 +1,160 @@
+package com.example.cameraxlib.upload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 以內容雜湊去重、分段續傳的 UploadSink：
+// 1. 計算 SHA-256，遠端已有相同內容（例如重試時前一次其實已成功，或這一圈拍到與上一圈相同的畫面）就只建立連結
+// 2. 否則從遠端已收到的位移起，以 chunkSize 分段送出，每段成功後記入 UploadJournal；
+//    中途失敗時回報失敗，由 SpoolUploader 退避後重試，重試只補送剩下的分段
+// ObjectStore 的呼叫會阻塞，全部在 executor 上執行；同一內容不會同時上傳（SpoolUploader 每項只會有一個進行中的嘗試）
+public class ContentAddressedUploadSink implements UploadSink {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ObjectStore store;
+    private final UploadJournal journal; // null 表示不保存進度，每次都向遠端查詢
+    private final Executor executor;
+    private final int chunkSize;
+
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong dedupHits = new AtomicLong();
+    private final AtomicLong dedupBytes = new AtomicLong(); // 因遠端已有內容而省下的位元組
+    private final AtomicLong resumedBytes = new AtomicLong(); // 續傳時不必重送的位元組
+    private final AtomicLong sentBytes = new AtomicLong(); // 實際送出的位元組，含失敗的分段
+    private final AtomicLong retryBytes = new AtomicLong(); // 失敗而需要重送的位元組
+    private final AtomicLong chunkFailures = new AtomicLong();
+
+    public ContentAddressedUploadSink(ObjectStore store, UploadJournal journal, Executor executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize 必須大於 0");
+        }
+        this.store = store;
+        this.journal = journal;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    // callback 一定會被呼叫一次：ObjectStore 或記錄拋出的執行期例外、executor 拒絕執行都回報為失敗
+    @Override
+    public void upload(final String key, final ByteBuffer data, final Callback callback) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        uploadBlocking(key, data);
+                    } catch (IOException | RuntimeException e) {
+                        callback.onFailure(e);
+                        return;
+                    }
+                    callback.onSuccess();
+                }
+            });
+        } catch (RuntimeException e) {
+            callback.onFailure(e); // 例如 executor 已關閉時的 RejectedExecutionException
+        }
+    }
+
+    void uploadBlocking(String key, ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        String hash = sha256(data);
+        uploads.incrementAndGet();
+        long offset = journal != null && journal.isComplete(hash) ? ObjectStore.COMPLETE : store.getCommittedLength(hash);
+        if (offset == ObjectStore.COMPLETE) {
+            store.link(key, hash);
+            dedupHits.incrementAndGet();
+            dedupBytes.addAndGet(length);
+            recordProgress(hash, UploadJournal.COMPLETE);
+            return;
+        }
+        if (journal != null && journal.get(hash) > offset) {
+            retryBytes.addAndGet(journal.get(hash) - offset); // 伺服器已丟棄上傳階段，這些位元組要重送
+        }
+        resumedBytes.addAndGet(offset);
+        ByteBuffer chunk = data.duplicate();
+        while (offset < length) {
+            int end = (int) Math.min(length, offset + chunkSize);
+            chunk.limit(data.position() + end).position(data.position() + (int) offset);
+            int size = chunk.remaining();
+            sentBytes.addAndGet(size);
+            try {
+                store.writeChunk(hash, length, offset, chunk);
+            } catch (IOException | RuntimeException e) {
+                chunkFailures.incrementAndGet();
+                retryBytes.addAndGet(size);
+                throw e;
+            }
+            offset = end;
+            recordProgress(hash, offset < length ? offset : UploadJournal.COMPLETE);
+        }
+        store.link(key, hash);
+    }
+
+    private void recordProgress(String hash, long committed) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.put(hash, committed);
+        } catch (IOException e) {
+            // 記錄寫入失敗只會讓之後多問一次遠端，不影響這次上傳
+        }
+    }
+
+    static String sha256(ByteBuffer data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(data.duplicate());
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    public long getUploads() {
+        return uploads.get();
+    }
+
+    public long getDedupHits() {
+        return dedupHits.get();
+    }
+
+    // 去重與續傳合計省下的位元組
+    public long getSavedBytes() {
+        return dedupBytes.get() + resumedBytes.get();
+    }
+
+    public long getDedupBytes() {
+        return dedupBytes.get();
+    }
+
+    public long getResumedBytes() {
+        return resumedBytes.get();
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    // 重試的額外負擔：送出後失敗、之後必須重送的位元組
+    public long getRetryBytes() {
+        return retryBytes.get();
+    }
+
+    public long getChunkFailures() {
+        return chunkFailures.get();
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.cameraxlib.upload;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// 只追加的本地上傳佇列：幀寫入區段檔，上傳成功後把序號寫入 ack 記錄
+// 每筆記錄都有 CRC，重新開啟時會截掉當機留下的半筆記錄，並還原尚未 ack 的項目
+public class FrameSpool implements Closeable {
+    private static final int MAGIC = 0x53504F4C; // "SPOL"
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 2 + 4; // magic, seq, timestamp, nameLen, payloadLen
+    private static final int CRC_SIZE = 4;
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String ACK_FILE = "acks.log";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // 開啟區段檔的通道；測試可替換成會在寫入中途失敗的通道
+    interface ChannelOpener {
+        FileChannel open(File file) throws IOException;
+    }
+
+    private static final ChannelOpener FILE_CHANNELS = file -> new RandomAccessFile(file, "rw").getChannel();
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final ChannelOpener channels;
+    private final boolean syncOnAppend; // 每次追加後 fsync，確保斷電後資料仍在
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final LinkedHashMap<Long, SpoolEntry> pending = new LinkedHashMap<>(); // 依序號排列
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final ByteBuffer crcBuffer = ByteBuffer.allocate(CRC_SIZE);
+    private final ByteBuffer ackBuffer = ByteBuffer.allocate(8);
+    private final byte[] crcChunk = new byte[8192];
+    private final CRC32 crc = new CRC32();
+
+    private Segment activeSegment;
+    private FileChannel ackChannel;
+    private long nextSeq = 1;
+    private long pendingBytes;
+
+    private static class Segment {
+        final int id;
+        final File file;
+        final FileChannel channel;
+        int liveCount; // 尚未 ack 的記錄數
+        long firstSeq = Long.MAX_VALUE; // 區段內最小的序號（含已 ack）
+
+        Segment(int id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private FrameSpool(File directory, long maxSegmentBytes, boolean syncOnAppend, ChannelOpener channels) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.channels = channels;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    // 開啟（或建立）佇列目錄並從磁碟還原未上傳的項目
+    public static FrameSpool open(File directory, long maxSegmentBytes, boolean syncOnAppend) throws IOException {
+        return open(directory, maxSegmentBytes, syncOnAppend, FILE_CHANNELS);
+    }
+
+    static FrameSpool open(File directory, long maxSegmentBytes, boolean syncOnAppend, ChannelOpener channels)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("無法建立佇列目錄：" + directory);
+        }
+        FrameSpool spool = new FrameSpool(directory, maxSegmentBytes, syncOnAppend, channels);
+        spool.recover();
+        return spool;
+    }
+
+    private void recover() throws IOException {
+        Set<Long> acked = readAcks();
+        File[] files = directory.listFiles();
+        TreeMap<Integer, File> segmentFiles = new TreeMap<>();
+        if (files != null) {
+            for (File file : files) {
+                String fileName = file.getName();
+                if (fileName.startsWith(SEGMENT_PREFIX) && fileName.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        int id = Integer.parseInt(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+                        segmentFiles.put(id, file);
+                    } catch (NumberFormatException ignored) {
+                        // 不是佇列產生的檔案，略過
+                    }
+                }
+            }
+        }
+        boolean deleted = false;
+        for (Map.Entry<Integer, File> entry : segmentFiles.entrySet()) {
+            Segment segment = openSegment(entry.getKey(), entry.getValue());
+            scanSegment(segment, acked);
+            if (segment.liveCount == 0 && !entry.getKey().equals(segmentFiles.lastKey())) {
+                deleteSegment(segment);
+                deleted = true;
+            }
+        }
+        activeSegment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        ackChannel = new RandomAccessFile(new File(directory, ACK_FILE), "rw").getChannel();
+        ackChannel.truncate(ackChannel.size() - ackChannel.size() % 8); // 丟棄寫到一半的 ack
+        ackChannel.position(ackChannel.size());
+        if (deleted) {
+            compactAcks();
+        }
+    }
+
+    private Set<Long> readAcks() throws IOException {
+        Set<Long> acked = new HashSet<>();
+        File file = new File(directory, ACK_FILE);
+        if (!file.exists()) {
+            return acked;
+        }
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.remaining() >= 8) {
+                    acked.add(buffer.getLong());
+                }
+                buffer.compact();
+            }
+        }
+        return acked;
+    }
+
+    // 逐筆驗證記錄；遇到損毀或不完整的記錄時截斷區段
+    private void scanSegment(Segment segment, Set<Long> acked) throws IOException {
+        FileChannel channel = segment.channel;
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE + CRC_SIZE <= size) {
+            head.clear();
+            readFully(channel, head, position);
+            head.flip();
+            if (head.getInt() != MAGIC) {
+                break;
+            }
+            long seq = head.getLong();
+            long timestamp = head.getLong();
+            int nameLength = head.getShort() & 0xFFFF;
+            int payloadLength = head.getInt();
+            long recordEnd = position + HEADER_SIZE + nameLength + payloadLength + CRC_SIZE;
+            if (payloadLength < 0 || recordEnd > size) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(nameLength + payloadLength + CRC_SIZE);
+            readFully(channel, body, position + HEADER_SIZE);
+            body.flip();
+            crc.reset();
+            crc.update(head.array(), 4, HEADER_SIZE - 4);
+            crc.update(body.array(), 0, nameLength + payloadLength);
+            body.position(nameLength + payloadLength);
+            if ((int) crc.getValue() != body.getInt()) {
+                break;
+            }
+            String name = new String(body.array(), 0, nameLength, UTF_8);
+            nextSeq = Math.max(nextSeq, seq + 1);
+            segment.firstSeq = Math.min(segment.firstSeq, seq);
+            if (!acked.contains(seq)) {
+                addPending(new SpoolEntry(seq, name, timestamp, segment.id, position + HEADER_SIZE + nameLength, payloadLength), segment);
+            }
+            position = recordEnd;
+        }
+        if (position < size) {
+            channel.truncate(position); // 截掉當機時寫到一半的記錄
+        }
+        channel.position(position);
+    }
+
+    // 追加一幀到佇列並回傳序號；payload 的 position 不會被改變
+    public synchronized long append(String name, long timestampMillis, ByteBuffer payload) throws IOException {
+        byte[] nameBytes = name.getBytes(UTF_8);
+        int payloadLength = payload.remaining();
+        long recordSize = HEADER_SIZE + nameBytes.length + payloadLength + CRC_SIZE;
+        if (activeSegment == null || (activeSegment.channel.position() > 0
+                && activeSegment.channel.position() + recordSize > maxSegmentBytes)) {
+            rollSegment();
+        }
+        long seq = nextSeq++;
+        header.clear();
+        header.putInt(MAGIC).putLong(seq).putLong(timestampMillis).putShort((short) nameBytes.length).putInt(payloadLength);
+        header.flip();
+
+        crc.reset();
+        crc.update(header.array(), 4, HEADER_SIZE - 4);
+        crc.update(nameBytes, 0, nameBytes.length);
+        updateCrc(payload.duplicate());
+        crcBuffer.clear();
+        crcBuffer.putInt((int) crc.getValue()).flip();
+
+        FileChannel channel = activeSegment.channel;
+        long start = channel.position();
+        try {
+            writeFully(channel, header);
+            writeFully(channel, ByteBuffer.wrap(nameBytes));
+            writeFully(channel, payload.duplicate());
+            writeFully(channel, crcBuffer);
+            if (syncOnAppend) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            discardTornRecord(channel, start, e);
+            nextSeq = seq;
+            throw e;
+        }
+        activeSegment.firstSeq = Math.min(activeSegment.firstSeq, seq);
+        addPending(new SpoolEntry(seq, name, timestampMillis, activeSegment.id, start + HEADER_SIZE + nameBytes.length, payloadLength), activeSegment);
+        return seq;
+    }
+
+    // 寫到一半失敗（例如磁碟已滿）：截掉這半筆記錄，之後的記錄才不會接在損毀的資料後面
+    // （重新開啟時掃描會在損毀處截斷，連同之後已確認寫入的記錄一起丟掉）；截斷也失敗時改寫新的區段
+    private void discardTornRecord(FileChannel channel, long start, IOException cause) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            activeSegment = null; // 下次追加時開新區段，損毀的尾端留給重新開啟時截掉
+        }
+    }
+
+    // 取出最多 maxCount 筆可上傳（未在上傳中且已過退避時間）的項目，並標記為上傳中
+    public synchronized List<SpoolEntry> claimReady(long nowMillis, int maxCount) {
+        List<SpoolEntry> ready = new ArrayList<>();
+        for (SpoolEntry entry : pending.values()) {
+            if (ready.size() >= maxCount) {
+                break;
+            }
+            if (!entry.inFlight && entry.nextAttemptAtMillis <= nowMillis) {
+                entry.inFlight = true;
+                ready.add(entry);
+            }
+        }
+        return ready;
+    }
+
+    // 讀出項目的 JPEG 內容到 target，target 需有足夠空間
+    public void read(SpoolEntry entry, ByteBuffer target) throws IOException {
+        Segment segment;
+        synchronized (this) {
+            segment = segments.get(entry.getSegmentId());
+        }
+        if (segment == null) {
+            throw new IOException("區段已刪除：" + entry.getSeq());
+        }
+        target.limit(target.position() + entry.getPayloadLength());
+        readFully(segment.channel, target, entry.getPayloadOffset());
+    }
+
+    // 上傳成功：寫入 ack，整個區段都完成時刪除區段檔
+    public synchronized void ack(SpoolEntry entry) throws IOException {
+        if (pending.remove(entry.getSeq()) == null) {
+            return;
+        }
+        pendingBytes -= entry.getPayloadLength();
+        ackBuffer.clear();
+        ackBuffer.putLong(entry.getSeq()).flip();
+        writeFully(ackChannel, ackBuffer);
+        if (syncOnAppend) {
+            ackChannel.force(false);
+        }
+        Segment segment = segments.get(entry.getSegmentId());
+        if (segment != null && --segment.liveCount == 0 && segment != activeSegment) {
+            deleteSegment(segment);
+            compactAcks();
+        }
+    }
+
+    // 上傳失敗：放回佇列，等到 retryAtMillis 之後再試
+    public synchronized void retryLater(SpoolEntry entry, long retryAtMillis) {
+        entry.inFlight = false;
+        entry.attempts++;
+        entry.nextAttemptAtMillis = retryAtMillis;
+    }
+
+    // 放回佇列但不計為失敗（例如頻寬額度不足而未送出）
+    public synchronized void unclaim(SpoolEntry entry) {
+        entry.inFlight = false;
+    }
+
+    // 佇列中尚未 ack 的項目數（含上傳中）
+    public synchronized int getDepth() {
+        return pending.size();
+    }
+
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    // 最舊項目的拍攝時間，佇列為空時回傳 -1
+    public synchronized long getOldestTimestampMillis() {
+        Iterator<SpoolEntry> iterator = pending.values().iterator();
+        return iterator.hasNext() ? iterator.next().getTimestampMillis() : -1;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+        if (ackChannel != null) {
+            ackChannel.close();
+        }
+    }
+
+    private void addPending(SpoolEntry entry, Segment segment) {
+        pending.put(entry.getSeq(), entry);
+        pendingBytes += entry.getPayloadLength();
+        segment.liveCount++;
+    }
+
+    private void rollSegment() throws IOException {
+        Segment previous = activeSegment;
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        File file = new File(directory, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+        activeSegment = openSegment(id, file);
+        if (previous != null && previous.liveCount == 0) {
+            deleteSegment(previous);
+            compactAcks();
+        }
+    }
+
+    private Segment openSegment(int id, File file) throws IOException {
+        Segment segment = new Segment(id, file, channels.open(file));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        segment.channel.close();
+        if (!segment.file.delete()) {
+            throw new IOException("無法刪除區段：" + segment.file);
+        }
+    }
+
+    // 只保留仍存在區段中的 ack；先寫暫存檔再改名，避免當機時遺失 ack
+    private void compactAcks() throws IOException {
+        long floor = Long.MAX_VALUE; // 區段依序號遞增，小於最舊區段起點的 ack 已無用
+        for (Segment segment : segments.values()) {
+            floor = Math.min(floor, segment.firstSeq);
+        }
+        List<Long> keep = new ArrayList<>();
+        for (Long seq : readAcks()) {
+            if (seq >= floor) {
+                keep.add(seq);
+            }
+        }
+        File tmp = new File(directory, ACK_FILE + ".tmp");
+        try (FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+            out.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(8 * keep.size());
+            for (Long seq : keep) {
+                buffer.putLong(seq);
+            }
+            buffer.flip();
+            writeFully(out, buffer);
+            out.force(false);
+        }
+        ackChannel.close();
+        File ackFile = new File(directory, ACK_FILE);
+        if (!tmp.renameTo(ackFile)) {
+            throw new IOException("無法更新 ack 記錄");
+        }
+        ackChannel = new RandomAccessFile(ackFile, "rw").getChannel();
+        ackChannel.position(ackChannel.size());
+    }
+
+    private void updateCrc(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            int count = Math.min(crcChunk.length, data.remaining());
+            data.get(crcChunk, 0, count);
+            crc.update(crcChunk, 0, count);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("區段檔提前結束");
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.cameraxlib.upload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// 存在記憶體中的假伺服器，可模擬斷線與分段失敗，用於測試與基準測試
+public class InMemoryObjectStore implements ObjectStore {
+    private static class Session {
+        byte[] data;
+        int committed;
+    }
+
+    private final Map<String, byte[]> objects = new HashMap<>(); // 雜湊 → 內容
+    private final Map<String, Session> sessions = new HashMap<>(); // 雜湊 → 進行中的上傳
+    private final Map<String, String> links = new HashMap<>(); // 檔名 → 雜湊
+    private int failuresRemaining;
+    private double failuresPerMegabyte; // 隨機斷線的機率與分段大小成正比
+    private Random random;
+    private boolean offline;
+    private long requests;
+    private long receivedBytes;
+
+    @Override
+    public synchronized long getCommittedLength(String hash) throws IOException {
+        checkOnline("getCommittedLength");
+        if (objects.containsKey(hash)) {
+            return COMPLETE;
+        }
+        Session session = sessions.get(hash);
+        return session == null ? 0 : session.committed;
+    }
+
+    @Override
+    public synchronized void writeChunk(String hash, long totalLength, long offset, ByteBuffer chunk)
+            throws IOException {
+        checkOnline("writeChunk");
+        int length = chunk.remaining();
+        receivedBytes += length;
+        boolean lost = random != null && random.nextDouble() < failuresPerMegabyte * length / (1024 * 1024);
+        if (failuresRemaining > 0 || lost) {
+            // 連線中途中斷：收到的位元組不算數
+            failuresRemaining = Math.max(0, failuresRemaining - 1);
+            throw new IOException("模擬分段上傳失敗：" + hash + " @" + offset);
+        }
+        Session session = sessions.get(hash);
+        if (session == null) {
+            session = new Session();
+            session.data = new byte[(int) totalLength];
+            sessions.put(hash, session);
+        }
+        if (offset != session.committed || offset + length > session.data.length) {
+            throw new IOException("位移不符：遠端已收到 " + session.committed + "，送出 " + offset);
+        }
+        chunk.duplicate().get(session.data, (int) offset, length);
+        session.committed += length;
+        if (session.committed == session.data.length) {
+            sessions.remove(hash);
+            if (!hash.equals(sha256(session.data))) {
+                throw new IOException("內容雜湊不符：" + hash);
+            }
+            objects.put(hash, session.data);
+        }
+    }
+
+    @Override
+    public synchronized void link(String key, String hash) throws IOException {
+        checkOnline("link");
+        if (!objects.containsKey(hash)) {
+            throw new IOException("內容不存在：" + hash);
+        }
+        links.put(key, hash);
+    }
+
+    private void checkOnline(String operation) throws IOException {
+        requests++;
+        if (offline) {
+            throw new IOException("模擬離線：" + operation);
+        }
+    }
+
+    public synchronized void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    // 接下來的 count 次分段寫入都會失敗
+    public synchronized void failNextChunks(int count) {
+        failuresRemaining = count;
+    }
+
+    // 模擬不穩定的連線：每送出 1 MiB 平均斷線 failuresPerMegabyte 次
+    public synchronized void failRandomly(double failuresPerMegabyte, long seed) {
+        this.failuresPerMegabyte = failuresPerMegabyte;
+        this.random = failuresPerMegabyte > 0 ? new Random(seed) : null;
+    }
+
+    // 模擬伺服器清掉逾時的上傳階段，已收到的分段作廢
+    public synchronized void expireSessions() {
+        sessions.clear();
+    }
+
+    // 檔名對應的內容；不存在時回傳 null
+    public synchronized byte[] get(String key) {
+        String hash = links.get(key);
+        return hash == null ? null : Arrays.copyOf(objects.get(hash), objects.get(hash).length);
+    }
+
+    public synchronized int getObjectCount() {
+        return objects.size();
+    }
+
+    public synchronized int getLinkCount() {
+        return links.size();
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    // 收到的位元組，含中途失敗的分段
+    public synchronized long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return ContentAddressedUploadSink.toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
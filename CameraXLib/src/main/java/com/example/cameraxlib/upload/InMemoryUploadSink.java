@@ -0,0 +1,80 @@
+package com.example.cameraxlib.upload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 存在記憶體中的假上傳端，可模擬斷線與失敗，用於測試與基準測試
+public class InMemoryUploadSink implements UploadSink {
+    private final ConcurrentHashMap<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Executor completionExecutor; // null 表示同步完成
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger peakConcurrent = new AtomicInteger();
+    private volatile boolean offline;
+
+    public InMemoryUploadSink() {
+        this(null);
+    }
+
+    public InMemoryUploadSink(Executor completionExecutor) {
+        this.completionExecutor = completionExecutor;
+    }
+
+    @Override
+    public void upload(final String key, ByteBuffer data, final Callback callback) {
+        attempts.incrementAndGet();
+        int now = concurrent.incrementAndGet();
+        int peak;
+        while (now > (peak = peakConcurrent.get()) && !peakConcurrent.compareAndSet(peak, now)) {
+            // 重試直到更新成功
+        }
+        final byte[] copy = new byte[data.remaining()];
+        data.duplicate().get(copy);
+        Runnable completion = new Runnable() {
+            @Override
+            public void run() {
+                concurrent.decrementAndGet();
+                if (offline || failuresRemaining.getAndDecrement() > 0) {
+                    callback.onFailure(new IOException("模擬上傳失敗：" + key));
+                } else {
+                    objects.put(key, copy);
+                    callback.onSuccess();
+                }
+            }
+        };
+        if (completionExecutor == null) {
+            completion.run();
+        } else {
+            completionExecutor.execute(completion);
+        }
+    }
+
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    // 接下來的 count 次上傳都會失敗
+    public void failNext(int count) {
+        failuresRemaining.set(count);
+    }
+
+    public byte[] get(String key) {
+        return objects.get(key);
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    public int getPeakConcurrent() {
+        return peakConcurrent.get();
+    }
+}
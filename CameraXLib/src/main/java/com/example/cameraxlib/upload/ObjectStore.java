@@ -0,0 +1,19 @@
+package com.example.cameraxlib.upload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// 以內容雜湊定址的遠端儲存，支援分段續傳；ContentAddressedUploadSink 在背景執行緒上同步呼叫
+// 內容以 SHA-256（十六進位小寫）識別，所有位元組送達後遠端驗證雜湊才保存，之後以 link 讓檔名指向內容
+public interface ObjectStore {
+    long COMPLETE = -1;
+
+    // 遠端已有完整內容時回傳 COMPLETE，否則回傳進行中的上傳已收到的位元組數（沒有時為 0）
+    long getCommittedLength(String hash) throws IOException;
+
+    // 從 offset 續寫一段；offset 必須等於遠端已收到的長度，最後一段送達時遠端驗證並保存內容
+    void writeChunk(String hash, long totalLength, long offset, ByteBuffer chunk) throws IOException;
+
+    // 讓 key 指向已保存的內容
+    void link(String key, String hash) throws IOException;
+}
@@ -0,0 +1,53 @@
+package com.example.cameraxlib.upload;
+
+// 佇列中的一筆待上傳記錄，只保存位置資訊，內容在上傳時才從區段檔讀出
+public class SpoolEntry {
+    private final long seq;
+    private final String name;
+    private final long timestampMillis;
+    private final int segmentId;
+    private final long payloadOffset;
+    private final int payloadLength;
+
+    // 以下狀態由 FrameSpool 在鎖內維護
+    int attempts;
+    long nextAttemptAtMillis;
+    boolean inFlight;
+
+    SpoolEntry(long seq, String name, long timestampMillis, int segmentId, long payloadOffset, int payloadLength) {
+        this.seq = seq;
+        this.name = name;
+        this.timestampMillis = timestampMillis;
+        this.segmentId = segmentId;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = payloadLength;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    int getSegmentId() {
+        return segmentId;
+    }
+
+    long getPayloadOffset() {
+        return payloadOffset;
+    }
+}
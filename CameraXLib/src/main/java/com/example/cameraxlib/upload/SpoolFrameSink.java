@@ -0,0 +1,37 @@
+package com.example.cameraxlib.upload;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameSink;
+
+import java.io.IOException;
+
+// 拍照回呼只把幀追加到本地佇列，實際上傳交給 SpoolUploader
+public class SpoolFrameSink implements FrameSink {
+    private static final String UNCHANGED_PREFIX = "unchanged/"; // 去重標記為未變化的畫面另存一處
+    private final FrameSpool spool;
+    private final SpoolUploader uploader;
+    private volatile IOException lastError;
+
+    public SpoolFrameSink(FrameSpool spool, SpoolUploader uploader) {
+        this.spool = spool;
+        this.uploader = uploader;
+    }
+
+    @Override
+    public void accept(CapturedFrame frame) {
+        try {
+            String name = frame.isUnchanged() ? UNCHANGED_PREFIX + frame.getName() : frame.getName();
+            spool.append(name, frame.getTimestampMillis(), frame.getData());
+            uploader.wakeUp();
+        } catch (IOException e) {
+            lastError = e; // 磁碟寫入失敗（例如空間不足），這一幀無法保存
+        } finally {
+            frame.release();
+        }
+    }
+
+    // 最近一次寫入失敗的原因，沒有失敗時為 null
+    public IOException getLastError() {
+        return lastError;
+    }
+}
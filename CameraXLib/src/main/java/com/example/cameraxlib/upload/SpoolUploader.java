@@ -0,0 +1,240 @@
+package com.example.cameraxlib.upload;
+
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.Clock;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 背景上傳器：從 FrameSpool 取出項目，限制同時上傳數與頻寬，失敗時以指數退避重試
+// 所有佇列操作都在單一 executor 執行緒上進行
+public class SpoolUploader {
+    // 每次上傳嘗試結束時呼叫（成功或失敗），在上傳回呼的執行緒上
+    public interface Listener {
+        void onUploadFinished(String name, int bytes, long durationNanos, boolean success);
+    }
+
+    private final FrameSpool spool;
+    private final UploadSink sink;
+    private final FrameBufferPool bufferPool;
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+    private final int maxInFlight;
+    private final int batchSize; // 每輪最多送出的項目數
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private ByteRateLimiter rateLimiter; // null 表示不限速
+    private volatile Listener listener;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong uploadedCount = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final LatencyHistogram uploadLatency = new LatencyHistogram(); // 送出到成功回呼
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainOnce();
+        }
+    };
+
+    // 完成速率以指數移動平均估計
+    private long rateWindowStartNanos;
+    private long rateWindowStartCount;
+    private long rateWindowStartBytes;
+    private volatile double drainRatePerSecond;
+    private volatile double bytesPerSecond;
+    private ScheduledFuture<?> pollFuture;
+
+    public SpoolUploader(FrameSpool spool, UploadSink sink, FrameBufferPool bufferPool,
+                         ScheduledExecutorService executor, Clock clock,
+                         int maxInFlight, int batchSize, long baseBackoffMillis, long maxBackoffMillis) {
+        if (maxInFlight <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("maxInFlight 與 batchSize 必須大於 0");
+        }
+        this.spool = spool;
+        this.sink = sink;
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+        this.clock = clock;
+        this.maxInFlight = maxInFlight;
+        this.batchSize = batchSize;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.rateWindowStartNanos = clock.nanoTime();
+    }
+
+    public void setRateLimiter(ByteRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 定期輪詢，讓退避到期的項目與網路恢復後的項目能被送出
+    public synchronized void start(long pollIntervalMillis) {
+        if (pollFuture == null) {
+            pollFuture = executor.scheduleWithFixedDelay(drainTask, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (pollFuture != null) {
+            pollFuture.cancel(false);
+            pollFuture = null;
+        }
+    }
+
+    // 有新項目加入時呼叫，立即嘗試送出
+    public void wakeUp() {
+        executor.execute(drainTask);
+    }
+
+    // 送出一批可上傳的項目，回傳本輪送出的數量
+    public int drainOnce() {
+        int free = maxInFlight - inFlight.get();
+        if (free <= 0) {
+            return 0;
+        }
+        List<SpoolEntry> batch = spool.claimReady(clock.currentTimeMillis(), Math.min(free, batchSize));
+        int dispatched = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            SpoolEntry entry = batch.get(i);
+            if (rateLimiter != null && !rateLimiter.tryAcquire(entry.getPayloadLength())) {
+                // 頻寬額度用完，剩下的項目留待下一輪
+                for (int j = i; j < batch.size(); j++) {
+                    spool.unclaim(batch.get(j));
+                }
+                break;
+            }
+            dispatch(entry);
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    private void dispatch(final SpoolEntry entry) {
+        final ByteBuffer buffer = bufferPool.acquire(entry.getPayloadLength());
+        try {
+            spool.read(entry, buffer);
+        } catch (IOException e) {
+            bufferPool.release(buffer);
+            onUploadFailed(entry);
+            return;
+        }
+        buffer.flip();
+        inFlight.incrementAndGet();
+        final long startNanos = clock.nanoTime();
+        final AtomicBoolean finished = new AtomicBoolean(); // 回呼與同步拋出的例外只處理其中一個
+        try {
+            sink.upload(entry.getName(), buffer.asReadOnlyBuffer(), new UploadSink.Callback() {
+                @Override
+                public void onSuccess() {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    long durationNanos = clock.nanoTime() - startNanos;
+                    uploadLatency.recordNanos(durationNanos);
+                    notifyListener(entry, durationNanos, true);
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            bufferPool.release(buffer);
+                            inFlight.decrementAndGet();
+                            onUploadSucceeded(entry);
+                            drainOnce();
+                        }
+                    });
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    if (!finished.compareAndSet(false, true)) {
+                        return;
+                    }
+                    notifyListener(entry, clock.nanoTime() - startNanos, false);
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            bufferPool.release(buffer);
+                            inFlight.decrementAndGet();
+                            onUploadFailed(entry);
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            // 接收端同步失敗且不會回呼，立即歸還名額，否則這個位置永遠被佔住
+            if (finished.compareAndSet(false, true)) {
+                notifyListener(entry, clock.nanoTime() - startNanos, false);
+                bufferPool.release(buffer);
+                inFlight.decrementAndGet();
+                onUploadFailed(entry);
+            }
+        }
+    }
+
+    private void notifyListener(SpoolEntry entry, long durationNanos, boolean success) {
+        Listener current = listener;
+        if (current != null) {
+            current.onUploadFinished(entry.getName(), entry.getPayloadLength(), durationNanos, success);
+        }
+    }
+
+    private void onUploadSucceeded(SpoolEntry entry) {
+        try {
+            spool.ack(entry);
+        } catch (IOException e) {
+            // ack 寫入失敗時項目仍視為已上傳；重啟後可能重傳一次，遠端以相同檔名覆蓋
+            failedAttempts.incrementAndGet();
+        }
+        uploadedCount.incrementAndGet();
+        uploadedBytes.addAndGet(entry.getPayloadLength());
+    }
+
+    private void onUploadFailed(SpoolEntry entry) {
+        failedAttempts.incrementAndGet();
+        spool.retryLater(entry, clock.currentTimeMillis() + backoffMillis(entry.getAttempts()));
+    }
+
+    // 指數退避：base * 2^attempts，上限為 maxBackoffMillis
+    long backoffMillis(int attempts) {
+        long delay = baseBackoffMillis << Math.min(attempts, 20);
+        return Math.min(delay, maxBackoffMillis);
+    }
+
+    public LatencyHistogram getUploadLatency() {
+        return uploadLatency;
+    }
+
+    public UploadQueueStats getStats() {
+        long nowNanos = clock.nanoTime();
+        long count = uploadedCount.get();
+        long bytes = uploadedBytes.get();
+        synchronized (this) {
+            long elapsed = nowNanos - rateWindowStartNanos;
+            if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+                double rate = (count - rateWindowStartCount) * 1e9 / elapsed;
+                double byteRate = (bytes - rateWindowStartBytes) * 1e9 / elapsed;
+                drainRatePerSecond = drainRatePerSecond == 0 ? rate : drainRatePerSecond * 0.7 + rate * 0.3;
+                bytesPerSecond = bytesPerSecond == 0 ? byteRate : bytesPerSecond * 0.7 + byteRate * 0.3;
+                rateWindowStartNanos = nowNanos;
+                rateWindowStartCount = count;
+                rateWindowStartBytes = bytes;
+            }
+        }
+        long oldest = spool.getOldestTimestampMillis();
+        long oldestAge = oldest < 0 ? 0 : Math.max(0, clock.currentTimeMillis() - oldest);
+        return new UploadQueueStats(spool.getDepth(), spool.getPendingBytes(), inFlight.get(), oldestAge,
+                drainRatePerSecond, bytesPerSecond, count, bytes, failedAttempts.get());
+    }
+}
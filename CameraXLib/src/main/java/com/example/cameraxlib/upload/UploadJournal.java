@@ -0,0 +1,146 @@
+package com.example.cameraxlib.upload;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 本地的上傳進度記錄：每筆為（內容雜湊, 已送達位元組數），-1 表示遠端已有完整內容
+// 已知在遠端的內容不必再詢問（例如上傳成功後、寫入 ack 前當機，重啟後重送同一幀）；
+// 進行中的位移以遠端為準，本地記錄用來發現伺服器已丟棄的上傳階段；只追加，筆數過多時壓縮
+// 只保留最近使用的 maxEntries 筆，超過的項目退回向遠端查詢
+public class UploadJournal implements Closeable {
+    public static final long COMPLETE = ObjectStore.COMPLETE;
+
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_SIZE = HASH_BYTES + 8;
+
+    private final File file;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Long> progress; // 依最近使用排序
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel channel;
+    private long records; // 檔案中的記錄數，含已被覆蓋的舊記錄
+
+    private UploadJournal(File file, final int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.progress = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // 開啟（或建立）記錄檔並讀回進度
+    public static UploadJournal open(File file, int maxEntries) throws IOException {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries 必須大於 0");
+        }
+        UploadJournal journal = new UploadJournal(file, maxEntries);
+        journal.recover();
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.truncate(channel.size() - channel.size() % RECORD_SIZE); // 丟棄寫到一半的記錄
+        records = channel.size() / RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 64 * RECORD_SIZE));
+        long position = 0;
+        byte[] hash = new byte[HASH_BYTES];
+        while (position < channel.size()) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read - read % RECORD_SIZE;
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                buffer.get(hash);
+                progress.put(ContentAddressedUploadSink.toHex(hash), buffer.getLong());
+            }
+        }
+        if (records > 2L * maxEntries) {
+            compact();
+        }
+        channel.position(channel.size());
+    }
+
+    // 已送達的位元組數；COMPLETE 表示遠端已有完整內容，沒有記錄時回傳 0
+    public synchronized long get(String hash) {
+        Long value = progress.get(hash);
+        return value == null ? 0 : value;
+    }
+
+    public synchronized boolean isComplete(String hash) {
+        Long value = progress.get(hash);
+        return value != null && value == COMPLETE;
+    }
+
+    // 記錄進度；不強制寫入磁碟，當機時最多少記幾段
+    public synchronized void put(String hash, long committed) throws IOException {
+        progress.put(hash, committed);
+        record.clear();
+        record.put(fromHex(hash)).putLong(committed).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        records++;
+        if (records > 2L * maxEntries) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return progress.size();
+    }
+
+    // 只保留目前的項目；先寫暫存檔再改名，避免當機時遺失記錄
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = new RandomAccessFile(tmp, "rw").getChannel()) {
+            out.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * progress.size());
+            for (Iterator<Map.Entry<String, Long>> it = progress.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> entry = it.next();
+                buffer.put(fromHex(entry.getKey())).putLong(entry.getValue());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(false);
+        }
+        channel.close();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("無法更新上傳進度記錄");
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        records = progress.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static byte[] fromHex(String hash) {
+        if (hash.length() != HASH_BYTES * 2) {
+            throw new IllegalArgumentException("不是 SHA-256 雜湊：" + hash);
+        }
+        byte[] bytes = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            bytes[i] = (byte) Integer.parseInt(hash.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.cameraxlib.upload;
+
+import java.util.Locale;
+
+// 上傳佇列的指標快照
+public class UploadQueueStats {
+    public final int depth; // 尚未上傳完成的項目數
+    public final long pendingBytes;
+    public final int inFlight;
+    public final long oldestAgeMillis; // 最舊項目等待時間，佇列為空時為 0
+    public final double drainRatePerSecond; // 近期每秒完成上傳數
+    public final double bytesPerSecond; // 近期實測上傳頻寬
+    public final long uploadedCount;
+    public final long uploadedBytes;
+    public final long failedAttempts;
+
+    public UploadQueueStats(int depth, long pendingBytes, int inFlight, long oldestAgeMillis,
+                            double drainRatePerSecond, double bytesPerSecond, long uploadedCount, long uploadedBytes, long failedAttempts) {
+        this.depth = depth;
+        this.pendingBytes = pendingBytes;
+        this.inFlight = inFlight;
+        this.oldestAgeMillis = oldestAgeMillis;
+        this.drainRatePerSecond = drainRatePerSecond;
+        this.bytesPerSecond = bytesPerSecond;
+        this.uploadedCount = uploadedCount;
+        this.uploadedBytes = uploadedBytes;
+        this.failedAttempts = failedAttempts;
+    }
+
+    @Override
+    public String toString() {
+        return "depth=" + depth + " pendingBytes=" + pendingBytes + " inFlight=" + inFlight
+                + " oldestAgeMs=" + oldestAgeMillis + " drainRate=" + String.format(Locale.US, "%.2f", drainRatePerSecond)
+                + " bytesPerSec=" + Math.round(bytesPerSecond)
+                + " uploaded=" + uploadedCount + " failed=" + failedAttempts;
+    }
+}
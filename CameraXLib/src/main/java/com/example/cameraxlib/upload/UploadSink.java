@@ -0,0 +1,15 @@
+package com.example.cameraxlib.upload;
+
+import java.nio.ByteBuffer;
+
+// 上傳目的地的抽象，正式環境為 Firebase Storage，測試時可換成本地假實作
+public interface UploadSink {
+    // data 在 callback 被呼叫前保持有效；callback 可在任意執行緒呼叫
+    void upload(String key, ByteBuffer data, Callback callback);
+
+    interface Callback {
+        void onSuccess();
+
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cameraxlib.util;
+
+// 時間來源，讓排程與退避邏輯可以在測試中以假時鐘驅動
+public interface Clock {
+    long currentTimeMillis(); // 牆上時間，用於記錄與檔名
+
+    long nanoTime(); // 單調時間，用於量測間隔
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+}
@@ -0,0 +1,31 @@
+package com.example.cameraxlib.util;
+
+import java.util.concurrent.TimeUnit;
+
+// 手動推進的假時鐘，供單元測試與模擬使用
+public class ManualClock implements Clock {
+    private volatile long nanos;
+    private final long epochMillis;
+
+    public ManualClock(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    public synchronized void advanceMillis(long millis) {
+        nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public synchronized void advanceNanos(long delta) {
+        nanos += delta;
+    }
+}
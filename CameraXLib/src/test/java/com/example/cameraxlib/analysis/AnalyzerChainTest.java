@@ -0,0 +1,118 @@
+package com.example.cameraxlib.analysis;
+
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AnalyzerChainTest {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROW_STRIDE = 704; // 相機緩衝每列常有填充
+
+    // 漸層背景加上一個亮方塊；blockX 為負數時沒有方塊
+    private static ByteBuffer frame(int brightness, int blockX) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int v = (x + y) / 8 + brightness;
+                if (blockX >= 0 && x >= blockX && x < blockX + 120 && y >= 180 && y < 300) {
+                    v = 250;
+                }
+                buffer.put(y * ROW_STRIDE + x, (byte) Math.max(0, Math.min(255, v)));
+            }
+        }
+        return buffer;
+    }
+
+    @Test
+    public void motionIgnoresGlobalShiftButSeesMovingObject() {
+        MotionAnalyzer motion = new MotionAnalyzer();
+        LumaFrame luma = new LumaFrame();
+        assertNull(motion.analyze(luma.set(frame(40, -1), WIDTH, HEIGHT, ROW_STRIDE, 0))); // 第一幀只建立基準
+        assertNull(motion.analyze(luma.set(frame(40, -1), WIDTH, HEIGHT, ROW_STRIDE, 33)));
+        assertNull(motion.analyze(luma.set(frame(70, -1), WIDTH, HEIGHT, ROW_STRIDE, 66))); // 自動曝光整體變亮
+        AnalysisEvent event = motion.analyze(luma.set(frame(70, 100), WIDTH, HEIGHT, ROW_STRIDE, 99));
+        assertNotNull(event);
+        assertEquals(MotionAnalyzer.NAME, event.getType());
+        assertEquals(99, event.getTimestampMillis());
+        assertTrue(event.getScore() > 0.02 && event.getScore() < 0.2);
+        assertNull(motion.analyze(luma.set(frame(70, 100), WIDTH, HEIGHT, ROW_STRIDE, 132))); // 停下來後沒有事件
+    }
+
+    @Test
+    public void brightnessReportsSuddenChangeOnce() {
+        BrightnessAnalyzer brightness = new BrightnessAnalyzer();
+        LumaFrame luma = new LumaFrame();
+        ByteBuffer lit = frame(80, -1);
+        ByteBuffer dark = frame(0, -1);
+        assertNull(brightness.analyze(luma.set(lit, WIDTH, HEIGHT, ROW_STRIDE, 0)));
+        assertNull(brightness.analyze(luma.set(lit, WIDTH, HEIGHT, ROW_STRIDE, 1)));
+        AnalysisEvent event = brightness.analyze(luma.set(dark, WIDTH, HEIGHT, ROW_STRIDE, 2)); // 關燈
+        assertNotNull(event);
+        assertTrue(event.getScore() < 0);
+        assertNull(brightness.analyze(luma.set(dark, WIDTH, HEIGHT, ROW_STRIDE, 3)));
+    }
+
+    @Test
+    public void pausedChainSkipsFramesAndRebuildsBaselineOnResume() {
+        AnalyzerChain chain = new AnalyzerChain(new ManualClock(0), 0);
+        final List<AnalysisEvent> triggered = new ArrayList<>();
+        chain.setListener(triggered::add);
+        chain.add(new MotionAnalyzer());
+        chain.add(new BrightnessAnalyzer());
+        LumaFrame luma = new LumaFrame();
+        chain.process(luma.set(frame(40, -1), WIDTH, HEIGHT, ROW_STRIDE, 0));
+
+        chain.setPaused(true); // 轉身中，畫面一直在變
+        assertNull(chain.process(luma.set(frame(40, 100), WIDTH, HEIGHT, ROW_STRIDE, 33)));
+        assertNull(chain.process(luma.set(frame(120, 300), WIDTH, HEIGHT, ROW_STRIDE, 66)));
+        assertEquals(2, chain.getSkippedCount());
+
+        chain.setPaused(false); // 停下來的新畫面只建立基準，不和轉身前比較
+        assertNull(chain.process(luma.set(frame(120, 300), WIDTH, HEIGHT, ROW_STRIDE, 99)));
+        assertNull(chain.process(luma.set(frame(120, 300), WIDTH, HEIGHT, ROW_STRIDE, 132)));
+        assertTrue(triggered.isEmpty());
+        assertNotNull(chain.process(luma.set(frame(120, 0), WIDTH, HEIGHT, ROW_STRIDE, 165))); // 之後的移動照常偵測
+        assertEquals(1, triggered.size());
+    }
+
+    @Test
+    public void chainCoolsDownAndReportsRateAndCost() {
+        ManualClock clock = new ManualClock(0);
+        AnalyzerChain chain = new AnalyzerChain(clock, 3000);
+        final List<AnalysisEvent> triggered = new ArrayList<>();
+        chain.setListener(triggered::add);
+        chain.add(new MotionAnalyzer());
+        chain.add(new BrightnessAnalyzer());
+        LumaFrame luma = new LumaFrame();
+        ByteBuffer[] moving = new ByteBuffer[4];
+        for (int i = 0; i < moving.length; i++) {
+            moving[i] = frame(40, i * 150);
+        }
+        for (int i = 0; i <= 30; i++) { // 15fps 跑 2 秒，物體一直在動
+            chain.process(luma.set(moving[i % moving.length], WIDTH, HEIGHT, ROW_STRIDE, clock.currentTimeMillis()));
+            clock.advanceNanos(66666667);
+        }
+        assertEquals(31, chain.getFrameCount());
+        assertEquals(30, chain.getEventCount()); // 第一幀沒有上一幀可比較
+        assertEquals(1, chain.getTriggeredCount()); // 冷卻時間內只拍一張
+        assertEquals(29, chain.getSuppressedCount());
+        assertEquals(1, triggered.size());
+        assertEquals(15, chain.getFramesPerSecond(), 0.5);
+        assertEquals(31, chain.getFrameCost().getCount());
+        assertEquals(31, chain.getAnalyzerCost(MotionAnalyzer.NAME).getCount());
+        assertNull(chain.getAnalyzerCost("missing"));
+
+        clock.advanceMillis(1000);
+        chain.process(luma.set(moving[1], WIDTH, HEIGHT, ROW_STRIDE, clock.currentTimeMillis()));
+        assertEquals(2, chain.getTriggeredCount()); // 冷卻結束後再觸發
+        chain.resetRate();
+        assertEquals(0, chain.getFramesPerSecond(), 0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cameraxlib.dedup;
+
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.frame.CapturedFrame;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChangeDetectorTest {
+    private static int[] gradient(int width, int height, int offset) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int v = ((x * 7 + y * 3 + offset) % 256);
+                pixels[y * width + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    public void hash_isStableUnderNoiseAndDiffersOnChange() {
+        FrameHasher hasher = new FrameHasher();
+        int[] base = gradient(240, 135, 0);
+        long baseHash = hasher.hashArgb(base, 240, 135);
+
+        int[] noisy = base.clone();
+        Random random = new Random(1);
+        for (int i = 0; i < noisy.length; i++) {
+            int v = Math.max(0, Math.min(255, (noisy[i] & 0xFF) + random.nextInt(5) - 2));
+            noisy[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        assertTrue(FrameHasher.distance(baseHash, hasher.hashArgb(noisy, 240, 135)) <= ChangeDetector.DEFAULT_THRESHOLD);
+
+        int[] changed = base.clone();
+        for (int y = 0; y < 135; y++) {
+            for (int x = 0; x < 120; x++) {
+                changed[y * 240 + x] = 0xFFFFFFFF; // 左半邊出現一個大物體
+            }
+        }
+        assertTrue(FrameHasher.distance(baseHash, hasher.hashArgb(changed, 240, 135)) > ChangeDetector.DEFAULT_THRESHOLD);
+    }
+
+    @Test
+    public void hashLuma_matchesArgbForGray() {
+        FrameHasher hasher = new FrameHasher();
+        int[] argb = gradient(64, 48, 5);
+        ByteBuffer luma = ByteBuffer.allocateDirect(80 * 48); // rowStride 大於寬度
+        for (int y = 0; y < 48; y++) {
+            for (int x = 0; x < 64; x++) {
+                luma.put(y * 80 + x, (byte) (argb[y * 64 + x] & 0xFF));
+            }
+        }
+        long fromArgb = hasher.hashArgb(argb, 64, 48);
+        assertTrue(FrameHasher.distance(fromArgb, hasher.hashLuma(luma, 64, 48, 80, 1)) <= 2);
+    }
+
+    @Test
+    public void detector_comparesPerSlot() {
+        ChangeDetector detector = new ChangeDetector();
+        assertTrue(detector.isChanged("A", 0, 0x0FL));
+        assertFalse(detector.isChanged("A", 360, 0x0EL)); // 360 度與 0 度是同一格
+        assertTrue(detector.isChanged("A", 45, 0x0FL));
+        assertTrue(detector.isChanged("B", 0, 0x0FL));
+        detector.setThreshold(0);
+        assertTrue(detector.isChanged("A", 0, 0x0EL));
+        assertEquals(4, detector.getAcceptedCount());
+        assertEquals(1, detector.getSkippedCount());
+    }
+
+    @Test
+    public void filter_dropsOrMarksUnchangedTaggedFrames() {
+        FrameFingerprinter constant = frame -> 42L;
+        DedupFilter filter = new DedupFilter(constant, new ChangeDetector(), DedupFilter.Mode.DROP);
+        assertTrue(filter.accept(tagged("A", 0)));
+        assertFalse(filter.accept(tagged("A", 0)));
+        assertTrue(filter.accept(new CapturedFrame("x.jpg", 0, ByteBuffer.allocate(1), null))); // 無標記
+
+        filter.setMode(DedupFilter.Mode.MARK);
+        CapturedFrame marked = tagged("A", 0);
+        assertTrue(filter.accept(marked));
+        assertTrue(marked.isUnchanged());
+    }
+
+    private static CapturedFrame tagged(String waypoint, int heading) {
+        CapturedFrame frame = new CapturedFrame("f.jpg", 0, ByteBuffer.allocate(1), null);
+        frame.setTag(new CaptureTag(waypoint, heading));
+        return frame;
+    }
+}
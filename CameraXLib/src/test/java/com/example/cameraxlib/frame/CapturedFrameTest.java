@@ -0,0 +1,50 @@
+package com.example.cameraxlib.frame;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class CapturedFrameTest {
+    @Test
+    public void copyOf_readsBackSameBytes() throws IOException {
+        FrameBufferPool pool = new FrameBufferPool(64, 2);
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+        CapturedFrame frame = CapturedFrame.copyOf(ByteBuffer.wrap(jpeg), pool, "IMG.jpg", 1L);
+
+        byte[] read = new byte[frame.getLength()];
+        try (InputStream in = frame.openStream()) {
+            assertEquals(jpeg.length, in.read(read));
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(jpeg, read);
+    }
+
+    @Test
+    public void release_returnsBufferToPoolOnce() {
+        FrameBufferPool pool = new FrameBufferPool(64, 2);
+        CapturedFrame frame = CapturedFrame.copyOf(ByteBuffer.wrap(new byte[10]), pool, "IMG.jpg", 1L);
+        frame.release();
+        frame.release();
+        assertEquals(1, pool.getFreeCount());
+
+        CapturedFrame reused = CapturedFrame.copyOf(ByteBuffer.wrap(new byte[5]), pool, "IMG2.jpg", 2L);
+        assertEquals(0, pool.getFreeCount());
+        assertEquals(5, reused.getLength());
+    }
+
+    @Test
+    public void outputStream_growsBeyondInitialBuffer() {
+        FrameBufferPool pool = new FrameBufferPool(8, 2);
+        ByteBufferOutputStream out = new ByteBufferOutputStream(pool, 4);
+        for (int i = 0; i < 20; i++) {
+            out.write(i);
+        }
+        CapturedFrame frame = out.toFrame("IMG.jpg", 0L);
+        assertEquals(20, frame.getLength());
+        assertEquals(19, frame.getData().get(19));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.cameraxlib.frame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegionFrameCropperTest {
+    private FrameBufferPool pool;
+    private FakeCropper cropper;
+
+    // 假裝畫面為 1920x1080，每個區域輸出「寬x高/取樣」的文字，記下解碼過的矩形
+    static class FakeCropper extends RegionFrameCropper<String> {
+        final List<String> decoded = new ArrayList<>();
+        boolean failOnSecond;
+
+        FakeCropper(FrameBufferPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected String open(CapturedFrame frame) {
+            return frame.getName();
+        }
+
+        @Override
+        protected int getWidth(String decoder) {
+            return 1920;
+        }
+
+        @Override
+        protected int getHeight(String decoder) {
+            return 1080;
+        }
+
+        @Override
+        protected void encodeRegion(String decoder, int[] rect, int sampleSize, int quality, OutputStream out)
+                throws IOException {
+            if (failOnSecond && decoded.size() == 1) {
+                throw new IOException("decode failed");
+            }
+            decoded.add(Arrays.toString(rect));
+            out.write(((rect[2] - rect[0]) + "x" + (rect[3] - rect[1]) + "/" + sampleSize + "@" + quality).getBytes());
+        }
+
+        @Override
+        protected void close(String decoder) {
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new FrameBufferPool(4096, 8);
+        cropper = new FakeCropper(pool);
+        cropper.setTable(RoiTable.parse(new StringReader(
+                "# 倉庫的儀表與貨架\n"
+                        + "倉庫, 90, gauge, 0.40, 0.10, 0.70, 0.45\n"
+                        + "倉庫, 180, shelf, 0, 0, 1, 1, 2x1\n"
+                        + "*, 0, door, 0.25, 0, 0.75, 1\n"), 20));
+    }
+
+    private CapturedFrame frame(String waypoint, int heading) {
+        CapturedFrame frame = CapturedFrame.copyOf(ByteBuffer.wrap(new byte[1000]), pool, "IMG_1.jpg", 5L);
+        frame.setTag(waypoint == null ? null : new CaptureTag(waypoint, heading));
+        frame.setProfile(CaptureProfile.PATROL_SWEEP);
+        return frame;
+    }
+
+    private static String text(CapturedFrame frame) {
+        ByteBuffer data = frame.getData();
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new String(bytes);
+    }
+
+    @Test
+    public void cropsConfiguredRegionsAlignedToJpegBlocks() {
+        CapturedFrame original = frame("倉庫", 95); // 轉身誤差 5 度
+        final List<String> archived = new ArrayList<>();
+        cropper.setArchive(frame -> archived.add(frame.getName() + (frame.isReleased() ? " released" : "")));
+        List<CapturedFrame> crops = cropper.crop(original);
+        assertTrue(original.isReleased());
+        assertEquals(Collections.singletonList("IMG_1.jpg"), archived); // 釋放前先留存整張
+        assertEquals(1, crops.size());
+        CapturedFrame crop = crops.get(0);
+        assertEquals("IMG_1_gauge.jpg", crop.getName());
+        assertEquals("gauge", crop.getRegion());
+        assertEquals(5L, crop.getTimestampMillis());
+        assertEquals("倉庫@95", crop.getTag().toString());
+        assertEquals("[768, 96, 1344, 496]", cropper.decoded.get(0)); // 0.4*1920=768, 0.1*1080=108→96, 0.45*1080=486→496
+        assertEquals("576x400/1@80", text(crop));
+        assertEquals(1000, cropper.getInputBytes());
+        assertEquals(crop.getLength(), cropper.getOutputBytes());
+        crop.release();
+    }
+
+    @Test
+    public void tilesAndWildcardWaypoint() {
+        List<CapturedFrame> tiles = cropper.crop(frame("倉庫", 180));
+        assertEquals(2, tiles.size());
+        assertEquals("IMG_1_shelf_0_0.jpg", tiles.get(0).getName());
+        assertEquals("960x1080/1@80", text(tiles.get(0))); // 未超過 1280x720 的兩倍，不取樣
+        assertEquals("IMG_1_shelf_0_1.jpg", tiles.get(1).getName());
+
+        List<CapturedFrame> doors = cropper.crop(frame("走廊", 350));
+        assertEquals("IMG_1_door.jpg", doors.get(0).getName());
+    }
+
+    @Test
+    public void unconfiguredOrFailedFramesAreLeftWhole() {
+        CapturedFrame untagged = frame(null, 0);
+        assertNull(cropper.crop(untagged));
+        assertFalse(untagged.isReleased());
+        CapturedFrame otherHeading = frame("倉庫", 270);
+        assertNull(cropper.crop(otherHeading));
+
+        cropper.failOnSecond = true;
+        CapturedFrame shelf = frame("倉庫", 180);
+        int free = pool.getFreeCount();
+        assertNull(cropper.crop(shelf));
+        assertFalse(shelf.isReleased()); // 交回管線照常轉碼整張
+        assertEquals(free + 2, pool.getFreeCount()); // 已輸出的裁切與失敗的緩衝都歸還
+        assertEquals(1, cropper.getFailures());
+    }
+
+    @Test
+    public void parseRejectsBadLines() {
+        try {
+            RoiTable.parse(new StringReader("倉庫, 90, gauge, 0.7, 0.1, 0.4, 0.45\n"), 20);
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("第 1 行"));
+        }
+    }
+}
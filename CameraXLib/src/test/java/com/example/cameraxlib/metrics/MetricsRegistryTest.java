@@ -0,0 +1,68 @@
+package com.example.cameraxlib.metrics;
+
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+    @Test
+    public void snapshotCollectsAllKinds() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter errors = registry.counter("capture.errors");
+        assertSame(errors, registry.counter("capture.errors"));
+        errors.increment();
+        errors.add(2);
+
+        final int[] depth = {7};
+        registry.register("upload.depth", () -> depth[0]);
+        LatencyHistogram shutter = new LatencyHistogram();
+        registry.register("capture.shutter", shutter);
+        shutter.recordMicros(100);
+        registry.histogram("camera.bind"); // 沒有資料，精簡格式中略過
+
+        MetricsSnapshot snapshot = registry.snapshot(1234);
+        assertEquals(3, snapshot.getCounter("capture.errors"));
+        assertEquals(7, snapshot.getGauge("upload.depth"));
+        assertEquals(0, snapshot.getCounter("missing"));
+        assertEquals(1, snapshot.getHistogram("capture.shutter").getCount());
+        assertEquals("1234 capture.errors=3 upload.depth=7 capture.shutter=1/100/100/100/100",
+                snapshot.toCompactString());
+
+        depth[0] = 3;
+        assertEquals(3, registry.snapshot(0).getGauge("upload.depth"));
+        registry.unregister("upload.depth");
+        assertFalse(registry.snapshot(0).getGauges().containsKey("upload.depth"));
+    }
+
+    @Test
+    public void dumperAppendsAndRotates() throws IOException {
+        File directory = Files.createTempDirectory("metrics").toFile();
+        File file = new File(directory, "metrics.log");
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("laps").increment();
+        ManualClock clock = new ManualClock(1000);
+        MetricsDumper dumper = new MetricsDumper(registry, file, clock, 40);
+
+        assertEquals("1000 laps=1", dumper.dump());
+        clock.advanceMillis(1000);
+        dumper.dump();
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(2, lines.size());
+        assertEquals("2000 laps=1", lines.get(1));
+
+        for (int i = 0; i < 3; i++) {
+            clock.advanceMillis(1000);
+            dumper.dump(); // 超過 40 位元組時輪替
+        }
+        assertTrue(new File(directory, "metrics.log.1").exists());
+        assertTrue(file.length() <= 40);
+        assertNull(dumper.getLastError());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.cameraxlib.pipeline;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.upload.UploadQueueStats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveProfilePolicyTest {
+    private static UploadQueueStats stats(int depth, double bytesPerSecond) {
+        return new UploadQueueStats(depth, 0, 0, 0, 0, bytesPerSecond, 0, 0, 0);
+    }
+
+    @Test
+    public void stepsDownOnBacklogAndRecoversOneLevelAtATime() {
+        AdaptiveProfilePolicy policy = new AdaptiveProfilePolicy(2, 10, 50, 1000);
+        assertSame(CaptureProfile.PATROL_SWEEP, policy.adjust(CaptureProfile.PATROL_SWEEP, stats(0, 0)));
+        assertSame(CaptureProfile.PERIODIC, policy.adjust(CaptureProfile.PATROL_SWEEP, stats(10, 0)));
+        assertSame(CaptureProfile.PERIODIC, policy.adjust(CaptureProfile.PATROL_SWEEP, stats(60, 0)));
+        assertEquals(2, policy.getLevel());
+        policy.adjust(CaptureProfile.PATROL_SWEEP, stats(5, 0)); // 尚未低於回升門檻
+        assertEquals(2, policy.getLevel());
+        policy.adjust(CaptureProfile.PATROL_SWEEP, stats(1, 0));
+        assertEquals(1, policy.getLevel());
+        policy.adjust(CaptureProfile.PATROL_SWEEP, stats(1, 0));
+        assertEquals(0, policy.getLevel());
+    }
+
+    @Test
+    public void slowLinkStepsDownButAlertIsKept() {
+        AdaptiveProfilePolicy policy = new AdaptiveProfilePolicy(2, 10, 50, 1000);
+        assertSame(CaptureProfile.PERIODIC, policy.adjust(CaptureProfile.PATROL_SWEEP, stats(3, 500)));
+        assertSame(CaptureProfile.ALERT, policy.adjust(CaptureProfile.ALERT, stats(100, 500)));
+        assertTrue(CaptureProfile.ALERT.isPassThrough());
+        assertFalse(CaptureProfile.PERIODIC.isPassThrough());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.cameraxlib.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PipelineStageTest {
+    @Test
+    public void dropOldest_keepsNewestItems() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final List<Integer> done = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Integer> dropped = Collections.synchronizedList(new ArrayList<Integer>());
+        PipelineStage<Integer, Integer> stage = new PipelineStage<>("test", 1, 2, BackpressurePolicy.DROP_OLDEST,
+                item -> {
+                    gate.await();
+                    done.add(item);
+                    return null;
+                }, dropped::add);
+
+        stage.submit(0); // 由工作執行緒取走並卡在 gate
+        Thread.sleep(50);
+        for (int i = 1; i <= 5; i++) {
+            stage.submit(i);
+        }
+        gate.countDown();
+        stage.shutdown();
+        assertTrue(stage.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(0, 4, 5), done);
+        assertEquals(Arrays.asList(1, 2, 3), dropped);
+        assertEquals(3, stage.getDroppedCount());
+        assertEquals(3, stage.getServiceTimeHistogram().getCount());
+    }
+
+    @Test
+    public void stages_chainOutputsAndReleaseFailures() throws Exception {
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final List<Integer> dropped = Collections.synchronizedList(new ArrayList<Integer>());
+        PipelineStage<Integer, String> first = new PipelineStage<>("first", 1, 8, BackpressurePolicy.BLOCK,
+                item -> {
+                    if (item == 2) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return "v" + item;
+                }, dropped::add);
+        PipelineStage<String, String> second = new PipelineStage<>("second", 1, 8, BackpressurePolicy.BLOCK,
+                item -> {
+                    results.add(item);
+                    return null;
+                }, null);
+        first.then(second);
+        for (int i = 1; i <= 3; i++) {
+            first.submit(i);
+        }
+        first.shutdown();
+        assertTrue(first.awaitTermination(1, TimeUnit.SECONDS));
+        second.shutdown();
+        assertTrue(second.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("v1", "v3"), results);
+        assertEquals(Collections.singletonList(2), dropped);
+        assertEquals(1, first.getFailedCount());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cameraxlib.schedule;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureBurstTest {
+    private static class RecordingListener implements CaptureBurst.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onShutter(int sequence, int headingDegrees) {
+            events.add("shutter " + sequence + "@" + headingDegrees);
+        }
+
+        @Override
+        public void onCaptured(int sequence, int headingDegrees) {
+            events.add("captured " + sequence + "@" + headingDegrees);
+        }
+
+        @Override
+        public void onError(int sequence, int headingDegrees, Exception e) {
+            events.add("error " + sequence + "@" + headingDegrees);
+        }
+    }
+
+    @Test
+    public void numbersShotsAndReportsSweepTiming() {
+        CaptureSchedulerTest.FakeCamera camera = new CaptureSchedulerTest.FakeCamera(2);
+        ManualClock clock = new ManualClock(0);
+        CaptureScheduler scheduler = new CaptureScheduler(camera, clock, 0, Long.MAX_VALUE, 2);
+        CaptureBurst burst = new CaptureBurst(scheduler, clock, "A", CaptureProfile.PATROL_SWEEP);
+        RecordingListener listener = new RecordingListener();
+
+        assertEquals(0, burst.capture(0, 1f, 2f, listener));
+        camera.shutter(0);
+        clock.advanceMillis(300);
+        assertEquals(1, burst.capture(90, 1f, 2f, listener)); // 前一張還在處理
+        assertEquals(2, burst.getInFlightCount());
+        assertEquals(0, camera.tags.get(0).getSequence());
+        assertEquals(1, camera.tags.get(1).getSequence());
+        assertEquals(90, camera.tags.get(1).getHeadingDegrees());
+
+        clock.advanceMillis(200);
+        camera.finish();
+        clock.advanceMillis(400);
+        camera.finish();
+        clock.advanceMillis(1000); // 結束前的空檔不算在環拍時間內
+
+        CaptureBurst.Report report = burst.finish();
+        assertEquals(2, report.getShots());
+        assertEquals(2, report.getCaptured());
+        assertEquals(0, report.getOutstanding());
+        assertEquals(900, report.getSweepMillis());
+        assertEquals(0, burst.getInFlightCount());
+        assertEquals("[shutter 0@0, captured 0@0, shutter 1@90, captured 1@90]", listener.events.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void finishedBurstRejectsCaptures() {
+        CaptureScheduler scheduler = new CaptureScheduler(new CaptureSchedulerTest.FakeCamera(), new ManualClock(0), 0);
+        CaptureBurst burst = new CaptureBurst(scheduler, new ManualClock(0), "A", null);
+        burst.finish();
+        burst.capture(0, Float.NaN, Float.NaN, null);
+    }
+}
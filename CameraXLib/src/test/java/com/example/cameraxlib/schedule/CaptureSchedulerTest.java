@@ -0,0 +1,304 @@
+package com.example.cameraxlib.schedule;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureSchedulerTest {
+    // 記錄每次拍照，由測試決定何時完成
+    static class FakeCamera implements CaptureScheduler.Camera {
+        final List<CaptureTag> tags = new ArrayList<>();
+        final List<CaptureProfile> profiles = new ArrayList<>();
+        final List<CaptureScheduler.ShutterCallback> pending = new ArrayList<>();
+        final int maxInFlight;
+
+        FakeCamera() {
+            this(1);
+        }
+
+        FakeCamera(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        @Override
+        public void capture(CaptureProfile profile, CaptureTag tag, CaptureScheduler.ShutterCallback done) {
+            assertTrue("進行中的張數超過上限", pending.size() < maxInFlight);
+            profiles.add(profile);
+            tags.add(tag);
+            pending.add(done);
+        }
+
+        void shutter(int index) {
+            pending.get(index).onShutter();
+        }
+
+        void finish() {
+            pending.remove(0).onCaptured();
+        }
+    }
+
+    private static class CountingCallback implements CaptureScheduler.ShutterCallback {
+        int shutters;
+        int captured;
+        int failed;
+
+        @Override
+        public void onShutter() {
+            shutters++;
+        }
+
+        @Override
+        public void onCaptured() {
+            captured++;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            failed++;
+        }
+    }
+
+    @Test
+    public void runsOneAtATimeByPriority() {
+        FakeCamera camera = new FakeCamera();
+        CaptureScheduler scheduler = new CaptureScheduler(camera, new ManualClock(0), 1000);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), null);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), null);
+        scheduler.submit(CapturePriority.ALERT, CaptureProfile.ALERT, new CaptureTag("A", 90), null);
+        assertEquals(1, camera.tags.size());
+        assertEquals(2, scheduler.getPendingCount());
+
+        camera.finish();
+        assertEquals(90, camera.tags.get(1).getHeadingDegrees()); // 告警插隊
+        camera.finish();
+        assertEquals(45, camera.tags.get(2).getHeadingDegrees());
+        camera.finish();
+        assertEquals(3, scheduler.getExecutedCount());
+        assertEquals(0, scheduler.getCoalescedCount());
+        assertFalse(scheduler.isCapturing());
+    }
+
+    @Test
+    public void periodicRequestsCoalesceWithNearbyCaptures() {
+        FakeCamera camera = new FakeCamera();
+        ManualClock clock = new ManualClock(0);
+        CaptureScheduler scheduler = new CaptureScheduler(camera, clock, 1000);
+        CountingCallback periodic = new CountingCallback();
+
+        scheduler.submit(CapturePriority.SWEEP, CaptureProfile.PATROL_SWEEP, new CaptureTag("A", 0), null);
+        scheduler.submit(CapturePriority.PERIODIC, CaptureProfile.PERIODIC, null, periodic); // 併入進行中的那張
+        camera.finish();
+        assertEquals(1, periodic.captured);
+
+        clock.advanceMillis(500);
+        scheduler.submit(CapturePriority.PERIODIC, null, null, periodic); // 視窗內剛拍過
+        assertEquals(2, periodic.captured);
+
+        clock.advanceMillis(1000);
+        scheduler.submit(CapturePriority.PERIODIC, null, null, periodic); // 超過視窗，真的拍
+        assertEquals(2, camera.tags.size());
+        assertNull(camera.tags.get(1));
+        camera.finish();
+
+        assertEquals(3, periodic.captured);
+        assertEquals(4, scheduler.getRequestedCount());
+        assertEquals(2, scheduler.getCoalescedCount());
+        assertEquals(2, scheduler.getExecutedCount());
+
+        clock.advanceMillis(200);
+        scheduler.submit(CapturePriority.ALERT, CaptureProfile.ALERT, null, null); // 告警不沿用剛拍好的照片
+        assertEquals(3, camera.tags.size());
+        assertEquals(2, scheduler.getCoalescedCount());
+    }
+
+    @Test
+    public void alertNeverJoinsInFlightCaptureButMergesWithPendingAlert() {
+        FakeCamera camera = new FakeCamera();
+        CaptureScheduler scheduler = new CaptureScheduler(camera, new ManualClock(0), 1000);
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+
+        scheduler.submit(CapturePriority.PERIODIC, CaptureProfile.PERIODIC, null, null);
+        scheduler.submit(CapturePriority.ALERT, CaptureProfile.ALERT, null, first); // 進行中的那張在事件之前曝光
+        scheduler.submit(CapturePriority.ALERT, CaptureProfile.ALERT, null, second); // 與等待中的告警合併
+        assertEquals(1, camera.tags.size());
+        assertEquals(1, scheduler.getPendingCount());
+        assertEquals(1, scheduler.getCoalescedCount());
+
+        camera.finish();
+        assertEquals(0, first.captured);
+        assertEquals(2, camera.profiles.size());
+        assertSame(CaptureProfile.ALERT, camera.profiles.get(1));
+        camera.finish();
+        assertEquals(1, first.captured);
+        assertEquals(1, second.captured);
+    }
+
+    @Test
+    public void pendingPeriodicIsTakenOverByTaggedRequestWithRicherProfile() {
+        FakeCamera camera = new FakeCamera();
+        CaptureScheduler scheduler = new CaptureScheduler(camera, new ManualClock(0), 0);
+        CountingCallback periodic = new CountingCallback();
+        CountingCallback sweep = new CountingCallback();
+
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), null);
+        scheduler.submit(CapturePriority.PERIODIC, CaptureProfile.PERIODIC, null, periodic);
+        // 等待中的定時拍照被新的轉身拍照取代，兩者共用一張
+        scheduler.submit(CapturePriority.SWEEP, CaptureProfile.PATROL_SWEEP, new CaptureTag("A", 45), sweep);
+        scheduler.submit(CapturePriority.SWEEP, CaptureProfile.PATROL_SWEEP, new CaptureTag("A", 45), sweep); // 重複
+        assertEquals(1, scheduler.getPendingCount());
+
+        camera.finish();
+        camera.finish();
+        assertEquals(2, camera.tags.size());
+        assertEquals(45, camera.tags.get(1).getHeadingDegrees());
+        assertSame(CaptureProfile.PATROL_SWEEP, camera.profiles.get(1));
+        assertEquals(1, periodic.captured);
+        assertEquals(2, sweep.captured);
+    }
+
+    @Test
+    public void failureMovesOnAndShutdownFailsPending() {
+        CaptureScheduler.Camera failing = new CaptureScheduler.Camera() {
+            @Override
+            public void capture(CaptureProfile profile, CaptureTag tag, CaptureScheduler.ShutterCallback done) {
+                done.onError(new IllegalStateException("相機尚未啟動"));
+            }
+        };
+        CaptureScheduler scheduler = new CaptureScheduler(failing, new ManualClock(0), 1000);
+        CountingCallback callback = new CountingCallback();
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), callback);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), callback);
+        assertEquals(2, callback.failed);
+        assertEquals(2, scheduler.getFailedCount());
+
+        FakeCamera camera = new FakeCamera();
+        scheduler = new CaptureScheduler(camera, new ManualClock(0), 1000);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), null);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), callback);
+        scheduler.shutdown();
+        assertEquals(3, callback.failed);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 90), callback);
+        assertEquals(4, callback.failed);
+        assertEquals(1, camera.tags.size());
+    }
+
+    @Test
+    public void queuesWhileCameraWarmsUpAndExpiresStaleRequests() {
+        FakeCamera camera = new FakeCamera();
+        ManualClock clock = new ManualClock(0);
+        CaptureScheduler scheduler = new CaptureScheduler(camera, clock, 0, 5000, 1);
+        CountingCallback callback = new CountingCallback();
+        scheduler.setCameraReady(false);
+
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), callback);
+        clock.advanceMillis(3000);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), callback);
+        assertTrue(camera.tags.isEmpty());
+        assertEquals(2, scheduler.getPendingCount());
+
+        clock.advanceMillis(3000); // 第一個請求已等待 6 秒
+        scheduler.setCameraReady(true);
+        assertEquals(1, callback.failed);
+        assertEquals(1, scheduler.getExpiredCount());
+        assertEquals(1, camera.tags.size());
+        assertEquals(45, camera.tags.get(0).getHeadingDegrees());
+        camera.finish();
+        assertEquals(1, callback.captured);
+    }
+
+    // 依 ManualClock 的時間執行到期的工作
+    private static class ManualTimer implements CaptureScheduler.Timer {
+        final ManualClock clock;
+        final List<long[]> due = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+
+        ManualTimer(ManualClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            due.add(new long[]{clock.currentTimeMillis() + delayMillis});
+            tasks.add(task);
+        }
+
+        void advanceMillis(long millis) {
+            clock.advanceMillis(millis);
+            for (int i = 0; i < tasks.size(); i++) {
+                if (due.get(i)[0] <= clock.currentTimeMillis()) {
+                    due.remove(i);
+                    tasks.remove(i--).run();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void expiresQueuedRequestsOnTimerWhileCameraNeverOpens() {
+        FakeCamera camera = new FakeCamera();
+        ManualClock clock = new ManualClock(0);
+        ManualTimer timer = new ManualTimer(clock);
+        CaptureScheduler scheduler = new CaptureScheduler(camera, clock, 0, 5000, 1);
+        scheduler.setTimer(timer);
+        scheduler.setCameraReady(false);
+        assertTrue(timer.tasks.isEmpty()); // 沒有請求不排定
+
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), first);
+        clock.advanceMillis(3000);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), second);
+        assertEquals(1, timer.tasks.size()); // 同時只排定一次
+
+        timer.advanceMillis(2001); // 第一個請求到期，不需要其他請求或相機事件
+        assertEquals(1, first.failed);
+        assertEquals(0, second.failed);
+        assertEquals(1, timer.tasks.size()); // 為第二個請求排定下一次
+
+        timer.advanceMillis(3000);
+        assertEquals(1, second.failed);
+        assertEquals(0, scheduler.getPendingCount());
+        assertEquals(2, scheduler.getExpiredCount());
+        assertTrue(timer.tasks.isEmpty());
+        assertTrue(camera.tags.isEmpty());
+    }
+
+    @Test
+    public void keepsUpToMaxInFlightAndReportsShutter() {
+        FakeCamera camera = new FakeCamera(2);
+        CaptureScheduler scheduler = new CaptureScheduler(camera, new ManualClock(0), 1000, Long.MAX_VALUE, 2);
+        CountingCallback first = new CountingCallback();
+        CountingCallback second = new CountingCallback();
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 0), first);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 45), second);
+        scheduler.submit(CapturePriority.SWEEP, null, new CaptureTag("A", 90), null);
+        assertEquals(2, scheduler.getInFlightCount());
+        assertEquals(1, scheduler.getPendingCount());
+
+        camera.shutter(0);
+        camera.shutter(0); // 重複的快門事件只通知一次
+        assertEquals(1, first.shutters);
+        assertEquals(0, first.captured);
+
+        CountingCallback periodic = new CountingCallback();
+        scheduler.submit(CapturePriority.PERIODIC, null, null, periodic); // 併入最近開始的那張（45 度）
+        camera.finish();
+        assertEquals(1, first.captured);
+        assertEquals(3, camera.tags.size()); // 空出的位置立即補上
+
+        camera.finish(); // 相機沒回報快門，完成前補發
+        assertEquals(1, second.shutters);
+        assertEquals(1, second.captured);
+        assertEquals(1, periodic.shutters);
+        assertEquals(1, periodic.captured);
+        assertEquals(2, scheduler.getShutterLatency().snapshot().getCount());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.cameraxlib.store;
+
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameSink;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameStoreTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("store").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static ByteBuffer payload(int size, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) (seed + i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void sink_keepsWholeFrameAsLatestAndOnlyForwardsCrops() throws IOException {
+        FrameStore store = FrameStore.open(directory, 1 << 20, 1 << 20, false);
+        final List<String> forwarded = new ArrayList<>();
+        FrameStoreSink sink = new FrameStoreSink(store, new FrameSink() {
+            @Override
+            public void accept(CapturedFrame frame) {
+                forwarded.add(frame.getName());
+                frame.release();
+            }
+        });
+        CaptureTag tag = new CaptureTag("A", 90);
+        CapturedFrame whole = new CapturedFrame("IMG_1.jpg", 1000, payload(300, 1), null);
+        whole.setTag(tag);
+        sink.archive(whole); // 裁切前留存整張
+        assertFalse(whole.isReleased());
+        for (String region : new String[]{"gauge", "door"}) {
+            CapturedFrame crop = new CapturedFrame("IMG_1_" + region + ".jpg", 1000, payload(40, 2), null);
+            crop.setTag(tag);
+            crop.setRegion(region);
+            sink.accept(crop);
+        }
+
+        assertEquals(1, store.getCount());
+        assertEquals(300, store.latest("A", 90).getLength());
+        assertEquals(2, forwarded.size());
+        store.close();
+    }
+
+    @Test
+    public void latestPerSlotSurvivesReopen() throws IOException {
+        FrameStore store = FrameStore.open(directory, 1024, 1 << 20, false);
+        StoredFrame first = store.put(1000, new CaptureTag("A", 135, 1.5f, 2.5f), payload(100, 1));
+        StoredFrame second = store.put(1000, new CaptureTag("A", 135), payload(100, 2)); // 同一秒
+        StoredFrame third = store.put(1000, new CaptureTag("A", 180, 1.5f, 2.5f, 3), payload(100, 3));
+        store.put(1001, null, payload(50, 4));
+        assertNotEquals(first.getId(), second.getId());
+        assertSame(second, store.latest("A", 135));
+        assertSame(second, store.latest("A", -225));
+        assertNull(store.latest("B", 0));
+        assertEquals(350, store.getTotalBytes());
+        store.close();
+
+        store = FrameStore.open(directory, 1024, 1 << 20, false);
+        assertEquals(4, store.getCount());
+        StoredFrame latest = store.latest("A", 135);
+        assertEquals(second.getId(), latest.getId());
+        assertEquals(second.getHash(), latest.getHash());
+        StoredFrame withPose = store.get(first.getId());
+        assertEquals(1.5f, withPose.getX(), 0f);
+        assertEquals(2.5f, withPose.getY(), 0f);
+        assertEquals(-1, withPose.getSequence());
+        assertEquals(3, store.get(third.getId()).getSequence());
+        ByteBuffer target = ByteBuffer.allocate(200);
+        store.read(latest, target);
+        target.flip();
+        assertEquals(payload(100, 2), target);
+        assertTrue(store.put(2000, null, payload(10, 5)).getId() > second.getId());
+        store.close();
+    }
+
+    @Test
+    public void evictsOldestSegmentsBeyondSizeLimit() throws IOException {
+        FrameStore store = FrameStore.open(directory, 250, 600, false);
+        for (int i = 0; i < 10; i++) {
+            store.put(i, new CaptureTag("P" + (i % 3), 0), payload(100, i)); // 每個區段兩張
+        }
+        assertTrue(store.getTotalBytes() <= 600);
+        assertEquals(10 - store.getCount(), store.getEvictedCount());
+        assertEquals(4, store.getEvictedCount()); // 剩三個區段剛好 600 位元組
+        assertNull(store.get(1));
+        assertEquals(9, store.latest("P0", 0).getTimestampMillis());
+        store.close();
+
+        store = FrameStore.open(directory, 250, 600, false);
+        assertEquals(6, store.getCount());
+        assertEquals(5, store.list().get(0).getId());
+        store.close();
+    }
+
+    @Test
+    public void recoveryDropsTornIndexAndOrphanedContent() throws IOException {
+        FrameStore store = FrameStore.open(directory, 1 << 20, 1 << 20, true);
+        store.put(1, new CaptureTag("A", 0), payload(100, 1));
+        store.put(2, new CaptureTag("A", 0), payload(100, 2));
+        store.close();
+        try (RandomAccessFile index = new RandomAccessFile(new File(directory, "index.bin"), "rw")) {
+            index.setLength(index.length() - 10); // 第二筆索引寫到一半
+        }
+
+        store = FrameStore.open(directory, 1 << 20, 1 << 20, true);
+        assertEquals(1, store.getCount());
+        assertEquals(1, store.latest("A", 0).getTimestampMillis());
+        assertEquals(100, new File(directory, "frames-00000001.seg").length());
+        store.close();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.cameraxlib.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class ContentAddressedUploadSinkTest {
+    private static final int CHUNK = 1000;
+    private static final Executor DIRECT = Runnable::run;
+
+    private File dir;
+    private InMemoryObjectStore store;
+    private UploadJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("cas").toFile();
+        store = new InMemoryObjectStore();
+        journal = UploadJournal.open(new File(dir, "journal"), 16);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static byte[] payload(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    // 同步上傳，回傳是否成功
+    private static boolean upload(ContentAddressedUploadSink sink, String key, byte[] data) {
+        final boolean[] result = new boolean[2];
+        sink.upload(key, ByteBuffer.wrap(data), new UploadSink.Callback() {
+            @Override
+            public void onSuccess() {
+                result[0] = true;
+                result[1] = true;
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                result[1] = true;
+            }
+        });
+        assertTrue(result[1]);
+        return result[0];
+    }
+
+    @Test
+    public void identicalContent_isLinkedWithoutResending() {
+        ContentAddressedUploadSink sink = new ContentAddressedUploadSink(store, null, DIRECT, CHUNK);
+        byte[] data = payload(2500, 1);
+
+        assertTrue(upload(sink, "lap1/IMG_a.jpg", data));
+        assertTrue(upload(sink, "lap2/IMG_a.jpg", data.clone()));
+
+        assertEquals(1, store.getObjectCount());
+        assertEquals(2, store.getLinkCount());
+        assertArrayEquals(data, store.get("lap2/IMG_a.jpg"));
+        assertEquals(2500, sink.getSentBytes());
+        assertEquals(1, sink.getDedupHits());
+        assertEquals(2500, sink.getSavedBytes());
+    }
+
+    @Test
+    public void failureMidway_resumesFromCommittedOffset() {
+        byte[] data = payload(3500, 2);
+        // 前兩段成功、第三段失敗
+        ContentAddressedUploadSink flaky = new ContentAddressedUploadSink(new FailAfter(store, 2), journal, DIRECT, CHUNK);
+        assertFalse(upload(flaky, "IMG_b.jpg", data));
+        assertEquals(2000, journal.get(ContentAddressedUploadSink.sha256(ByteBuffer.wrap(data))));
+
+        assertTrue(upload(flaky, "IMG_b.jpg", data));
+        assertArrayEquals(data, store.get("IMG_b.jpg"));
+        assertEquals(2000, flaky.getResumedBytes());
+        assertEquals(1000, flaky.getRetryBytes()); // 只有失敗的那一段要重送
+        assertEquals(3500 + 1000, flaky.getSentBytes());
+    }
+
+    @Test
+    public void journal_skipsRemoteQueryAfterRestart() throws IOException {
+        byte[] data = payload(1500, 3);
+        assertTrue(upload(new ContentAddressedUploadSink(store, journal, DIRECT, CHUNK), "IMG_c.jpg", data));
+        journal.close();
+
+        // 重啟：上傳成功但 ack 沒寫入，同一幀再送一次
+        journal = UploadJournal.open(new File(dir, "journal"), 16);
+        ContentAddressedUploadSink sink = new ContentAddressedUploadSink(store, journal, DIRECT, CHUNK);
+        long requests = store.getRequests();
+        assertTrue(upload(sink, "IMG_c.jpg", data));
+
+        assertEquals(requests + 1, store.getRequests()); // 只有建立連結
+        assertEquals(0, sink.getSentBytes());
+        assertEquals(1500, sink.getDedupBytes());
+    }
+
+    @Test
+    public void expiredSession_countsLostBytesAsRetryOverhead() {
+        byte[] data = payload(2500, 4);
+        ContentAddressedUploadSink sink = new ContentAddressedUploadSink(new FailAfter(store, 1), journal, DIRECT, CHUNK);
+        assertFalse(upload(sink, "IMG_d.jpg", data));
+        store.expireSessions();
+
+        assertTrue(upload(sink, "IMG_d.jpg", data));
+        assertArrayEquals(data, store.get("IMG_d.jpg"));
+        assertEquals(0, sink.getResumedBytes());
+        assertEquals(1000 + 1000, sink.getRetryBytes()); // 失敗的一段加上伺服器丟棄的一段
+    }
+
+    @Test
+    public void runtimeFailuresAndRejectedExecutionAreReported() {
+        ContentAddressedUploadSink sink = new ContentAddressedUploadSink(new FailAfter(store, 0) {
+            @Override
+            public long getCommittedLength(String hash) {
+                throw new IllegalStateException("遠端回應格式錯誤");
+            }
+        }, journal, DIRECT, CHUNK);
+        assertFalse(upload(sink, "a.jpg", payload(100, 1)));
+
+        ContentAddressedUploadSink rejected = new ContentAddressedUploadSink(store, journal, command -> {
+            throw new RejectedExecutionException("已關閉");
+        }, CHUNK);
+        assertFalse(upload(rejected, "b.jpg", payload(100, 2)));
+        assertEquals(0, store.getObjectCount());
+    }
+
+    // 前 successes 段寫入成功，下一段失敗，之後恢復正常
+    private static class FailAfter implements ObjectStore {
+        private final ObjectStore delegate;
+        private int successes;
+        private boolean failed;
+
+        FailAfter(ObjectStore delegate, int successes) {
+            this.delegate = delegate;
+            this.successes = successes;
+        }
+
+        @Override
+        public long getCommittedLength(String hash) throws IOException {
+            return delegate.getCommittedLength(hash);
+        }
+
+        @Override
+        public void writeChunk(String hash, long totalLength, long offset, ByteBuffer chunk) throws IOException {
+            if (!failed && successes-- == 0) {
+                failed = true;
+                throw new IOException("中斷");
+            }
+            delegate.writeChunk(hash, totalLength, offset, chunk);
+        }
+
+        @Override
+        public void link(String key, String hash) throws IOException {
+            delegate.link(key, hash);
+        }
+    }
+}
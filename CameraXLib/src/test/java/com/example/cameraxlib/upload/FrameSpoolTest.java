@@ -0,0 +1,231 @@
+package com.example.cameraxlib.upload;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameSpoolTest {
+    private File dir;
+
+    // 轉交給真正的檔案通道；failWrites 設定後下一次寫入只寫一半就拋出例外（模擬磁碟已滿）
+    private static class FailingChannel extends FileChannel {
+        final FileChannel delegate;
+        boolean failWrites;
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failWrites && src.remaining() > 1) {
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                int written = delegate.write(half);
+                src.position(src.position() + written);
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("spool").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void reopen_restoresUnackedEntries() throws IOException {
+        FrameSpool spool = FrameSpool.open(dir, 1024 * 1024, false);
+        spool.append("a.jpg", 1L, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        spool.append("b.jpg", 2L, ByteBuffer.wrap(new byte[]{4, 5}));
+        List<SpoolEntry> claimed = spool.claimReady(0, 1);
+        spool.ack(claimed.get(0));
+        spool.close();
+
+        FrameSpool reopened = FrameSpool.open(dir, 1024 * 1024, false);
+        assertEquals(1, reopened.getDepth());
+        SpoolEntry entry = reopened.claimReady(0, 10).get(0);
+        assertEquals("b.jpg", entry.getName());
+        ByteBuffer data = ByteBuffer.allocate(entry.getPayloadLength());
+        reopened.read(entry, data);
+        assertArrayEquals(new byte[]{4, 5}, data.array());
+        assertEquals(3, reopened.append("c.jpg", 3L, ByteBuffer.wrap(new byte[1])));
+        reopened.close();
+    }
+
+    @Test
+    public void failedAppend_doesNotLeaveTornBytesBeforeLaterRecords() throws IOException {
+        final FailingChannel[] channel = new FailingChannel[1];
+        FrameSpool spool = FrameSpool.open(dir, 1024 * 1024, false,
+                file -> channel[0] = new FailingChannel(new RandomAccessFile(file, "rw").getChannel()));
+        spool.append("a.jpg", 1L, ByteBuffer.wrap(new byte[100]));
+        channel[0].failWrites = true;
+        try {
+            spool.append("b.jpg", 2L, ByteBuffer.wrap(new byte[100]));
+            fail("寫入失敗應拋出例外");
+        } catch (IOException expected) {
+            // 磁碟已滿
+        }
+        channel[0].failWrites = false;
+        assertEquals(2, spool.append("c.jpg", 3L, ByteBuffer.wrap(new byte[]{7})));
+        assertEquals(2, spool.getDepth());
+        spool.close();
+
+        FrameSpool reopened = FrameSpool.open(dir, 1024 * 1024, false);
+        assertEquals(2, reopened.getDepth()); // 失敗之後寫入的記錄沒有被截掉
+        List<SpoolEntry> entries = reopened.claimReady(0, 10);
+        assertEquals("c.jpg", entries.get(1).getName());
+        ByteBuffer data = ByteBuffer.allocate(1);
+        reopened.read(entries.get(1), data);
+        assertEquals(7, data.get(0));
+        reopened.close();
+    }
+
+    @Test
+    public void reopen_truncatesTornRecord() throws IOException {
+        FrameSpool spool = FrameSpool.open(dir, 1024 * 1024, false);
+        spool.append("a.jpg", 1L, ByteBuffer.wrap(new byte[100]));
+        spool.append("b.jpg", 2L, ByteBuffer.wrap(new byte[100]));
+        spool.close();
+        File segment = dir.listFiles((d, name) -> name.endsWith(".spool"))[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 10); // 模擬寫到一半時當機
+        }
+
+        FrameSpool reopened = FrameSpool.open(dir, 1024 * 1024, false);
+        assertEquals(1, reopened.getDepth());
+        reopened.append("c.jpg", 3L, ByteBuffer.wrap(new byte[]{9}));
+        reopened.close();
+
+        FrameSpool again = FrameSpool.open(dir, 1024 * 1024, false);
+        assertEquals(2, again.getDepth());
+        again.close();
+    }
+
+    @Test
+    public void ack_deletesFullyUploadedSegments() throws IOException {
+        FrameSpool spool = FrameSpool.open(dir, 200, false);
+        for (int i = 0; i < 5; i++) {
+            spool.append("f" + i + ".jpg", i, ByteBuffer.wrap(new byte[120]));
+        }
+        assertEquals(5, dir.listFiles((d, name) -> name.endsWith(".spool")).length);
+        for (SpoolEntry entry : spool.claimReady(0, 4)) {
+            spool.ack(entry);
+        }
+        assertEquals(1, dir.listFiles((d, name) -> name.endsWith(".spool")).length);
+        spool.close();
+
+        FrameSpool reopened = FrameSpool.open(dir, 200, false);
+        assertEquals(1, reopened.getDepth());
+        assertEquals("f4.jpg", reopened.claimReady(0, 10).get(0).getName());
+        reopened.close();
+    }
+}
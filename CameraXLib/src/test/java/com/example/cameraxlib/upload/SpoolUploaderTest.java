@@ -0,0 +1,153 @@
+package com.example.cameraxlib.upload;
+
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class SpoolUploaderTest {
+    private File dir;
+    private FrameSpool spool;
+    private ScheduledExecutorService executor;
+    private ManualClock clock;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("uploader").toFile();
+        spool = FrameSpool.open(dir, 1024 * 1024, false);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        clock = new ManualClock(1000L);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        spool.close();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private SpoolUploader newUploader(UploadSink sink, int maxInFlight) {
+        return new SpoolUploader(spool, sink, new FrameBufferPool(1024, 4), executor, clock,
+                maxInFlight, 8, 100, 1000);
+    }
+
+    // 在 executor 上執行一輪，並等待回呼觸發的後續批次處理完畢
+    private int drain(final SpoolUploader uploader) throws Exception {
+        int dispatched = executor.submit(uploader::drainOnce).get();
+        for (int i = 0; i < 10; i++) {
+            executor.submit(() -> { }).get();
+        }
+        return dispatched;
+    }
+
+    @Test
+    public void drain_uploadsAndAcksAll() throws Exception {
+        InMemoryUploadSink sink = new InMemoryUploadSink();
+        SpoolUploader uploader = newUploader(sink, 2);
+        spool.append("a.jpg", 1000L, ByteBuffer.wrap(new byte[]{1}));
+        spool.append("b.jpg", 1000L, ByteBuffer.wrap(new byte[]{2}));
+        spool.append("c.jpg", 1000L, ByteBuffer.wrap(new byte[]{3}));
+
+        drain(uploader);
+        assertEquals(3, sink.getObjectCount());
+        assertArrayEquals(new byte[]{3}, sink.get("c.jpg"));
+        assertEquals(0, spool.getDepth());
+        assertEquals(3, uploader.getStats().uploadedCount);
+    }
+
+    @Test
+    public void failure_backsOffExponentially() throws Exception {
+        InMemoryUploadSink sink = new InMemoryUploadSink();
+        sink.setOffline(true);
+        SpoolUploader uploader = newUploader(sink, 1);
+        spool.append("a.jpg", 1000L, ByteBuffer.wrap(new byte[]{1}));
+
+        drain(uploader);
+        assertEquals(1, sink.getAttempts());
+        assertEquals(0, drain(uploader)); // 退避期間不重試
+        clock.advanceMillis(100);
+        drain(uploader);
+        assertEquals(2, sink.getAttempts());
+        clock.advanceMillis(100);
+        assertEquals(0, drain(uploader)); // 第二次失敗後需等 200ms
+        sink.setOffline(false);
+        clock.advanceMillis(100);
+        drain(uploader);
+        assertEquals(1, sink.getObjectCount());
+        assertEquals(2, uploader.getStats().failedAttempts);
+        assertEquals(1000, uploader.backoffMillis(30));
+    }
+
+    @Test
+    public void synchronousSinkFailure_releasesSlotAndRetries() throws Exception {
+        final InMemoryUploadSink delegate = new InMemoryUploadSink();
+        final boolean[] broken = {true};
+        SpoolUploader uploader = newUploader((key, data, callback) -> {
+            if (broken[0]) {
+                throw new IllegalStateException("接收端已關閉"); // 不會回呼
+            }
+            delegate.upload(key, data, callback);
+        }, 1);
+        spool.append("a.jpg", 1000L, ByteBuffer.wrap(new byte[]{1}));
+
+        drain(uploader);
+        assertEquals(1, uploader.getStats().failedAttempts);
+        broken[0] = false;
+        clock.advanceMillis(100);
+        assertEquals(1, drain(uploader)); // 名額已歸還
+        assertEquals(1, delegate.getObjectCount());
+        assertEquals(0, spool.getDepth());
+    }
+
+    @Test
+    public void inFlight_isBounded() throws Exception {
+        // 完成回呼延後，確認同時上傳數不超過上限
+        ScheduledExecutorService completions = Executors.newSingleThreadScheduledExecutor();
+        InMemoryUploadSink sink = new InMemoryUploadSink(completions);
+        SpoolUploader uploader = newUploader(sink, 2);
+        for (int i = 0; i < 6; i++) {
+            spool.append("f" + i + ".jpg", 1000L, ByteBuffer.wrap(new byte[]{(byte) i}));
+        }
+        assertEquals(2, executor.submit(uploader::drainOnce).get().intValue());
+        for (int i = 0; i < 50 && spool.getDepth() > 0; i++) {
+            completions.submit(() -> { }).get();
+            executor.submit(() -> { }).get();
+        }
+        completions.shutdownNow();
+        assertEquals(6, sink.getObjectCount());
+        assertTrue(sink.getPeakConcurrent() <= 2);
+    }
+
+    @Test
+    public void rateLimiter_defersOverBudget() throws Exception {
+        InMemoryUploadSink sink = new InMemoryUploadSink();
+        SpoolUploader uploader = newUploader(sink, 4);
+        uploader.setRateLimiter(new ByteRateLimiter(clock, 100, 100));
+        spool.append("a.jpg", 1000L, ByteBuffer.wrap(new byte[80]));
+        spool.append("b.jpg", 1000L, ByteBuffer.wrap(new byte[80]));
+
+        assertEquals(1, executor.submit(uploader::drainOnce).get().intValue());
+        executor.submit(() -> { }).get();
+        assertEquals(1, sink.getObjectCount());
+        clock.advanceMillis(1000);
+        drain(uploader);
+        assertEquals(2, sink.getObjectCount());
+    }
+}
@@ -15,8 +15,15 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.cameraxlib.CameraXHelper;
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.metrics.MetricsDumper;
+import com.example.cameraxlib.metrics.MetricsRegistry;
+import com.example.cameraxlib.schedule.CapturePriority;
+import com.example.cameraxlib.util.Clock;
 import com.example.temilib.PatrolHelper;
 
+import java.io.File;
+
 
 public class MainActivity extends AppCompatActivity {
     private CameraXHelper cameraXHelper;
@@ -28,6 +35,10 @@ public class MainActivity extends AppCompatActivity {
     private boolean isPatrolStarted = false; // 追蹤巡邏狀態
     private Runnable photoCaptureRunnable;
     private static final int CAMERA_REQUEST_CODE = 100;
+    private static final long PERIODIC_CAPTURE_MS = 60000; // 動態由分析串流偵測，定時拍照只留存背景畫面
+    private static final long METRICS_DUMP_INTERVAL_MS = 60000; // 每分鐘寫一行指標
+    private static final long METRICS_FILE_BYTES = 1024 * 1024;
+    private MetricsDumper metricsDumper;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -36,9 +47,13 @@ public class MainActivity extends AppCompatActivity {
 
         // 初始化 CameraXHelper
         cameraXHelper = new CameraXHelper(this);
+        cameraXHelper.setCaptureProfile(CaptureProfile.PERIODIC); // 定時拍照只需縮圖
         // 初始化 patrolHelper
-        patrolHelper = new PatrolHelper(this);
+        patrolHelper = new PatrolHelper(this, cameraXHelper); // 巡邏與定時拍照共用同一台相機與拍照排程
         patrolHelper.initPatrol();
+        metricsDumper = new MetricsDumper(MetricsRegistry.getDefault(), new File(getFilesDir(), "metrics.log"),
+                Clock.SYSTEM, METRICS_FILE_BYTES);
+        metricsDumper.start(METRICS_DUMP_INTERVAL_MS);
         // 設定 Temi 頭部傾斜
 
         patrolHelper.tiltHead(20, 0.5f); // 將頭部傾斜到指定角度，轉動速度
@@ -56,9 +71,10 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void run() {
                 if (isRunning) {
-                    cameraXHelper.capturePhoto();
+                    // 最低優先順序；巡邏剛拍過照時會被合併，不會與轉身拍照搶相機
+                    cameraXHelper.capturePhoto(CapturePriority.PERIODIC, null, null, null);
+                    handler.postDelayed(this, PERIODIC_CAPTURE_MS);
                 }
-                handler.postDelayed(this, 5000); // 確保任務持續執行，短間隔檢查狀態
             }
         };
 
@@ -68,7 +84,8 @@ public class MainActivity extends AppCompatActivity {
                 patrolHelper.startPatrolling(); // 開始巡邏
                 isRunning = true;
                 isPatrolStarted = true; // 設定為巡邏已開始
-                handler.post(photoCaptureRunnable); // 啟動拍照任務
+                schedulePeriodicCapture(); // 啟動拍照任務
+                cameraXHelper.startAnalysis(); // 低解析度串流偵測動態與亮度變化，有事件才拍高解析度照片
                 Toast.makeText(this, "拍照已開始", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(this, "巡邏已經在進行中", Toast.LENGTH_SHORT).show(); // 用戶提示
@@ -123,9 +140,9 @@ public class MainActivity extends AppCompatActivity {
     protected void onResume() {
         super.onResume();
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
-            cameraXHelper.startCamera();  // 確保相機在 Activity 恢復時啟動
+            cameraXHelper.startCamera();  // 已綁定時只記錄熱啟動時間，不會重複初始化
             if (isRunning) {
-                handler.post(photoCaptureRunnable);  // 如果拍照正在進行，則恢復拍照任務
+                schedulePeriodicCapture();  // 如果拍照正在進行，則恢復拍照任務
             }
         }
     }
@@ -134,8 +151,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        pauseCapture();  // 暫停拍照
-        cameraXHelper.stopCamera();  // 暫停相機操作以釋放資源
+        handler.removeCallbacks(photoCaptureRunnable);  // 暫停定時拍照，回到畫面時恢復
+        // 不解除相機綁定：CameraX 隨生命週期關閉相機，恢復時直接重新開啟，不必重新初始化
     }
 
     // 在 onDestroy 中確保釋放所有資源
@@ -144,14 +161,22 @@ public class MainActivity extends AppCompatActivity {
         super.onDestroy();
         patrolHelper.destroyPatrol();
         cameraXHelper.releaseResources();  // 釋放相機等所有資源
+        metricsDumper.stop();  // 寫入最後一行指標
         handler.removeCallbacksAndMessages(null);  // 移除所有未執行的任務
     }
 
+    // 先移除已排入的任務再排入，重複呼叫（例如 onResume）不會讓拍照頻率加倍
+    private void schedulePeriodicCapture() {
+        handler.removeCallbacks(photoCaptureRunnable);
+        handler.post(photoCaptureRunnable);
+    }
+
     // 暫停拍照
     private void pauseCapture() {
         if (isRunning) {
             isRunning = false;
             handler.removeCallbacks(photoCaptureRunnable);
+            cameraXHelper.stopAnalysis();
             Toast.makeText(this, "拍照已暫停", Toast.LENGTH_SHORT).show();
         }
     }
@@ -0,0 +1,69 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.analysis.AnalysisEvent;
+import com.example.cameraxlib.analysis.AnalyzerChain;
+import com.example.cameraxlib.analysis.BrightnessAnalyzer;
+import com.example.cameraxlib.analysis.LumaFrame;
+import com.example.cameraxlib.analysis.MotionAnalyzer;
+import com.example.cameraxlib.util.Clock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 分析串流每一幀的成本：640x480 的 Y 平面（直接緩衝、有列填充）經過動態與亮度偵測
+// still 為靜止畫面，gc.alloc.rate.norm 應為 0；moving 每幀都有事件，只配置事件物件
+// 每幀成本的倒數就是單一分析執行緒能跟上的 fps 上限
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyzerChainBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROW_STRIDE = 704;
+
+    @Param({"still", "moving"})
+    public String scene;
+
+    private final LumaFrame frame = new LumaFrame();
+    private AnalyzerChain chain;
+    private ByteBuffer[] buffers;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chain = new AnalyzerChain(Clock.SYSTEM, 3000);
+        chain.add(new MotionAnalyzer());
+        chain.add(new BrightnessAnalyzer());
+        Random random = new Random(7);
+        buffers = new ByteBuffer[2];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int v = (x + y) / 8 + random.nextInt(6); // 漸層加上感光雜訊
+                    if ("moving".equals(scene) && x >= 100 + i * 200 && x < 220 + i * 200 && y >= 180 && y < 300) {
+                        v = 250;
+                    }
+                    buffers[i].put(y * ROW_STRIDE + x, (byte) v);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public AnalysisEvent process() {
+        index ^= 1;
+        return chain.process(frame.set(buffers[index], WIDTH, HEIGHT, ROW_STRIDE, 0));
+    }
+}
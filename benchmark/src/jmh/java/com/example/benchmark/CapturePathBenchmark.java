@@ -0,0 +1,148 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.upload.FrameSpool;
+import com.example.cameraxlib.upload.SpoolEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 拍照後處理的每一步：複製相機平面、依設定檔解碼與壓縮、命名、寫入本地上傳佇列
+// 以合成的 1920x1080 JPEG 模擬相機輸出
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CapturePathBenchmark {
+    private static final long SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    @Param({"alert", "patrol-sweep", "periodic"})
+    public String profileName;
+
+    private CaptureProfile profile;
+    private ByteBuffer cameraPlane;
+    private FrameBufferPool pool;
+    private ImageIoFrameTranscoder transcoder;
+    private File spoolDirectory;
+    private FrameSpool spool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        profile = profileFor(profileName);
+        byte[] jpeg = JpegPathBenchmark.encodeJpeg(JpegPathBenchmark.syntheticImage(), 0.9f);
+        cameraPlane = ByteBuffer.allocateDirect(jpeg.length);
+        cameraPlane.put(jpeg).flip();
+        pool = new FrameBufferPool(2 * 1024 * 1024, 4);
+        transcoder = new ImageIoFrameTranscoder(pool);
+        spoolDirectory = Files.createTempDirectory("spool-bench").toFile();
+        spool = FrameSpool.open(spoolDirectory, SEGMENT_BYTES, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        spool.close();
+        deleteRecursively(spoolDirectory);
+    }
+
+    static CaptureProfile profileFor(String name) {
+        if (CaptureProfile.ALERT.getName().equals(name)) {
+            return CaptureProfile.ALERT;
+        }
+        if (CaptureProfile.PERIODIC.getName().equals(name)) {
+            return CaptureProfile.PERIODIC;
+        }
+        return CaptureProfile.PATROL_SWEEP;
+    }
+
+    private static final AtomicLong IMAGE_SEQUENCE = new AtomicLong();
+
+    // 與 CameraXHelper.generateImageName 相同：每次建立新的 SimpleDateFormat，毫秒時間加流水號
+    static String generateImageName() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.US);
+        return "IMG_" + sdf.format(new Date()) + "_" + IMAGE_SEQUENCE.incrementAndGet() + ".jpg";
+    }
+
+    private CapturedFrame capture() {
+        CapturedFrame frame = CapturedFrame.copyOf(cameraPlane, pool, generateImageName(), System.currentTimeMillis());
+        frame.setProfile(profile);
+        return frame;
+    }
+
+    @Benchmark
+    public String naming() {
+        return generateImageName();
+    }
+
+    @Benchmark
+    public int transcode() {
+        CapturedFrame frame = transcoder.transcode(capture());
+        int length = frame.getLength();
+        frame.release();
+        return length;
+    }
+
+    // 寫入佇列後立即確認，佇列維持在一筆，量的是追加與確認本身
+    @Benchmark
+    public long enqueue() throws IOException {
+        CapturedFrame frame = capture();
+        long sequence;
+        try {
+            sequence = spool.append(frame.getName(), frame.getTimestampMillis(), frame.getData());
+        } finally {
+            frame.release();
+        }
+        drainSpool();
+        return sequence;
+    }
+
+    // 複製 → 轉碼 → 寫入佇列
+    @Benchmark
+    public long endToEnd() throws IOException {
+        CapturedFrame frame = transcoder.transcode(capture());
+        long sequence;
+        try {
+            sequence = spool.append(frame.getName(), frame.getTimestampMillis(), frame.getData());
+        } finally {
+            frame.release();
+        }
+        drainSpool();
+        return sequence;
+    }
+
+    private void drainSpool() throws IOException {
+        List<SpoolEntry> entries = spool.claimReady(Long.MAX_VALUE, Integer.MAX_VALUE);
+        for (SpoolEntry entry : entries) {
+            spool.ack(entry);
+        }
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.upload.ContentAddressedUploadSink;
+import com.example.cameraxlib.upload.InMemoryObjectStore;
+import com.example.cameraxlib.upload.UploadSink;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 弱訊號下每送出 1 MiB 平均斷線 failuresPerMegabyte 次，比較整檔重傳與分段續傳每幀實際送出的位元組
+// whole：分段大小等於整幀，失敗就從頭再送；chunked：256 KiB 分段，只補送失敗的一段
+// repeatPercent 為與上一圈內容相同的幀比例（例如無變化的畫面），以內容雜湊直接連結
+// 送出與省下的位元組以 AuxCounters 報告，除以 frames 即每幀
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkedUploadBenchmark {
+    private static final int FRAME_BYTES = 900 * 1024;
+    private static final int DISTINCT_FRAMES = 16;
+
+    @Param({"whole", "chunked"})
+    public String mode;
+
+    @Param({"0.3"})
+    public double failuresPerMegabyte;
+
+    @Param({"0", "30"})
+    public int repeatPercent;
+
+    private final byte[][] frames = new byte[DISTINCT_FRAMES][];
+    private final Random random = new Random(7);
+    private InMemoryObjectStore store;
+    private ContentAddressedUploadSink sink;
+    private int next;
+    private long sequence;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+        public long frames;
+        public long sentBytes;
+        public long savedBytes;
+        public long retryBytes;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new byte[FRAME_BYTES];
+            random.nextBytes(frames[i]);
+        }
+        store = new InMemoryObjectStore();
+        int chunkSize = "whole".equals(mode) ? FRAME_BYTES : 256 * 1024;
+        store.failRandomly(failuresPerMegabyte, 11);
+        sink = new ContentAddressedUploadSink(store, null, Runnable::run, chunkSize);
+    }
+
+    @Benchmark
+    public void uploadFrame(Traffic traffic) {
+        byte[] frame;
+        if (next > 0 && random.nextInt(100) < repeatPercent) {
+            frame = frames[(next - 1) % frames.length];
+        } else {
+            frame = frames[next++ % frames.length];
+            frame[0]++; // 每幀內容都不同，除非刻意重複
+        }
+        long sent = sink.getSentBytes();
+        long saved = sink.getSavedBytes();
+        long retried = sink.getRetryBytes();
+        final boolean[] done = new boolean[1];
+        String key = "IMG_" + (sequence++) + ".jpg";
+        while (!done[0]) {
+            // 模擬 SpoolUploader 的重試，不計退避時間
+            sink.upload(key, ByteBuffer.wrap(frame), new UploadSink.Callback() {
+                @Override
+                public void onSuccess() {
+                    done[0] = true;
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                }
+            });
+        }
+        traffic.frames++;
+        traffic.sentBytes += sink.getSentBytes() - sent;
+        traffic.savedBytes += sink.getSavedBytes() - saved;
+        traffic.retryBytes += sink.getRetryBytes() - retried;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.util.Clock;
+import com.example.temilib.eventlog.EventLogReader;
+import com.example.temilib.eventlog.EventLogWriter;
+import com.example.temilib.eventlog.PatrolEvents;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// 事件記錄的成本：位置回呼（最高頻）每筆寫入的時間，以及一圈記錄盡快重播的速度
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventLogBenchmark {
+    private static final int LAP_EVENTS = 20000; // 約 15 分鐘的位置回報加上導航與轉身事件
+
+    private File directory;
+    private EventLogWriter writer;
+    private File lapLog;
+    private float x;
+    private final PatrolEvents sink = new PatrolEvents() {
+        @Override
+        public void onGoToStatus(String location, String status, int id, String description) {
+        }
+
+        @Override
+        public void onPosition(float x, float y, float yaw, int tiltAngle) {
+        }
+
+        @Override
+        public void onMovementStatus(String type, String status) {
+        }
+
+        @Override
+        public void onRobotReady(boolean ready) {
+        }
+
+        @Override
+        public void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+        }
+
+        @Override
+        public void onUpload(String name, int bytes, long durationMillis, boolean success) {
+        }
+    };
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = File.createTempFile("eventlog", "");
+        directory.delete();
+        directory.mkdirs();
+        writer = EventLogWriter.open(new File(directory, "bench.bin"), Clock.SYSTEM, 64L * 1024 * 1024);
+        lapLog = new File(directory, "lap.bin");
+        EventLogWriter lap = EventLogWriter.open(lapLog, Clock.SYSTEM, 64L * 1024 * 1024);
+        for (int i = 0; i < LAP_EVENTS; i++) {
+            if (i % 100 == 0) {
+                lap.onGoToStatus("P" + (i / 100 % 12), "going", i, "");
+            } else if (i % 10 == 0) {
+                lap.onMovementStatus("turnBy", "complete");
+            } else {
+                lap.onPosition(i * 0.01f, i * 0.02f, 0.1f, 20);
+            }
+        }
+        lap.close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        writer.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void writePosition() {
+        x += 0.025f;
+        writer.onPosition(x, 1f, 0.5f, 20);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long replayLap() throws IOException {
+        EventLogReader reader = EventLogReader.open(lapLog);
+        long count = 0;
+        while (reader.next()) {
+            reader.dispatch(sink);
+            count++;
+        }
+        return count;
+    }
+}
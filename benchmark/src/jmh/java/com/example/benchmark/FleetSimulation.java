@@ -0,0 +1,196 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.coord.LoopbackTransport;
+import com.example.temilib.coord.PatrolCoordinator;
+import com.example.temilib.patrol.ManualScheduler;
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolStateMachine;
+import com.example.temilib.route.RoutePlanner;
+import com.example.temilib.route.Waypoint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 同一樓層多台機器人的巡邏模擬：共用假時鐘與排程器，各自一個 PatrolSimulation
+// lockstep：每台都巡全部地點（目前的行為）；coordinated：以 LoopbackTransport 上的租約分工
+// 以每個地點被巡的間隔評估：重複巡（上次巡完後 sweepWindow 內又有人巡完）次數、平均與最長間隔
+public class FleetSimulation {
+    private static final long TICK_MILLIS = 1000;
+    private static final long LEASE_MILLIS = 10L * 60 * 1000;
+    private static final long HEARTBEAT_TIMEOUT_MILLIS = 2L * 60 * 1000;
+    private static final long POSITION_MILLIS = 5000; // PatrolHelper 在位置更新時送心跳，靜止時約每 5 秒一筆
+
+    private final ManualScheduler scheduler = new ManualScheduler(new ManualClock(0));
+    private final LoopbackTransport transport = new LoopbackTransport(scheduler.getClock());
+    private final List<PatrolSimulation> robots = new ArrayList<>();
+    private final List<PatrolCoordinator> coordinators = new ArrayList<>();
+    private final long sweepWindowMillis;
+    // 每個地點的巡完記錄，兩種模式都以同樣方式統計
+    private final Map<String, Long> lastSwept = new HashMap<>();
+    private long sweeps;
+    private long duplicateSweeps;
+    private long maxGapMillis;
+    private long totalGapMillis;
+    private long gaps;
+    private boolean started;
+
+    public FleetSimulation(Map<String, Waypoint> layout, int robotCount, boolean coordinated, long sweepWindowMillis) {
+        this.sweepWindowMillis = sweepWindowMillis;
+        List<String> shared = sharedRoute(layout);
+        for (int i = 0; i < robotCount; i++) {
+            PatrolSimulation robot = new PatrolSimulation(scheduler, layout, new PatrolConfig().setBurstInFlight(2),
+                    0.5, 1500, 300, 0);
+            PatrolCoordinator coordinator = null;
+            if (coordinated) {
+                coordinator = new PatrolCoordinator("robot-" + i, transport, LEASE_MILLIS, sweepWindowMillis,
+                        3 * sweepWindowMillis, HEARTBEAT_TIMEOUT_MILLIS);
+                coordinator.setRoute(shared);
+                robot.enableCoordination(coordinator);
+                coordinators.add(coordinator);
+            }
+            robot.getPatrol().setWaypointGate(new RecordingGate(coordinator));
+            robots.add(robot);
+        }
+    }
+
+    // 所有機器人相同的分段順序：以直線距離規劃的環路，切成連續的幾段時每段的地點彼此相近
+    private static List<String> sharedRoute(Map<String, Waypoint> layout) {
+        return new RoutePlanner().plan(new ArrayList<>(layout.keySet()), layout, Waypoint::distanceTo);
+    }
+
+    public void run(long millis) {
+        if (!started) {
+            started = true;
+            for (PatrolSimulation robot : robots) {
+                robot.start();
+            }
+            scheduleHeartbeats();
+        }
+        long end = scheduler.getClock().currentTimeMillis() + millis;
+        while (scheduler.getClock().currentTimeMillis() < end) {
+            scheduler.advanceMillis(TICK_MILLIS);
+        }
+    }
+
+    private void scheduleHeartbeats() {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < coordinators.size(); i++) {
+                    if (robots.get(i).getPatrol().isPatrolling()) {
+                        coordinators.get(i).heartbeat();
+                    }
+                }
+                scheduleHeartbeats();
+            }
+        }, POSITION_MILLIS);
+    }
+
+    // 讓第 index 台停止巡邏（例如故障被拿走），其他機器人應分攤它的地點
+    public void stopRobot(int index) {
+        robots.get(index).getPatrol().stop();
+    }
+
+    public long getSimulatedMillis() {
+        return scheduler.getClock().currentTimeMillis();
+    }
+
+    private void onSwept(String location) {
+        long now = scheduler.getClock().currentTimeMillis();
+        Long previous = lastSwept.put(location, now);
+        sweeps++;
+        if (previous != null) {
+            long gap = now - previous;
+            if (gap < sweepWindowMillis) {
+                duplicateSweeps++;
+            }
+            maxGapMillis = Math.max(maxGapMillis, gap);
+            totalGapMillis += gap;
+            gaps++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("sweeps=").append(sweeps).append(" duplicates=").append(duplicateSweeps)
+                .append(" mean gap=").append(gaps == 0 ? 0 : totalGapMillis / gaps / 1000).append("s")
+                .append(" max gap=").append(maxGapMillis / 1000).append("s");
+        for (int i = 0; i < robots.size(); i++) {
+            PatrolStateMachine patrol = robots.get(i).getPatrol();
+            sb.append("\n  robot-").append(i).append(" ").append(patrol.getState())
+                    .append(" swept=").append(patrol.getNavigationSupervisor().getCompletedWaypoints())
+                    .append(" handed off=").append(patrol.getHandedOffWaypoints());
+            if (!coordinators.isEmpty()) {
+                PatrolCoordinator coordinator = coordinators.get(i);
+                sb.append(" taken over=").append(coordinator.getTakenOver())
+                        .append(" assigned=").append(coordinator.getAssignedWaypoints());
+            }
+        }
+        if (!coordinators.isEmpty()) {
+            sb.append("\n  leases claimed=").append(transport.getClaims()).append(" denied=").append(transport.getDenials());
+        }
+        return sb.toString();
+    }
+
+    // 記錄每次巡完，其餘交給分工（lockstep 模式下為 null，一律放行）
+    private class RecordingGate implements PatrolStateMachine.WaypointGate {
+        private final PatrolStateMachine.WaypointGate delegate;
+
+        RecordingGate(PatrolStateMachine.WaypointGate delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean tryAcquire(String location) {
+            return delegate == null || delegate.tryAcquire(location);
+        }
+
+        @Override
+        public void release(String location) {
+            if (delegate != null) {
+                delegate.release(location);
+            }
+        }
+
+        @Override
+        public void onCompleted(String location) {
+            onSwept(location);
+            if (delegate != null) {
+                delegate.onCompleted(location);
+            }
+        }
+
+        @Override
+        public long getRetryDelayMillis() {
+            return delegate == null ? TICK_MILLIS : delegate.getRetryDelayMillis();
+        }
+    }
+
+    // 用法：FleetSimulation [機器人數] [地點數] [模擬分鐘數] [同一地點最短間隔分鐘] [第幾分鐘讓 robot-0 停止，0 為不停止]
+    public static void main(String[] args) {
+        int robotCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int waypoints = args.length > 1 ? Integer.parseInt(args[1]) : 18;
+        long minutes = args.length > 2 ? Long.parseLong(args[2]) : 180;
+        long windowMinutes = args.length > 3 ? Long.parseLong(args[3]) : 10;
+        long stopAtMinutes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        Map<String, Waypoint> layout = PatrolSimulation.randomLayout(waypoints, 30, 20, 42);
+        for (boolean coordinated : new boolean[] {false, true}) {
+            FleetSimulation fleet = new FleetSimulation(layout, robotCount, coordinated, windowMinutes * 60 * 1000);
+            long startNanos = System.nanoTime();
+            if (stopAtMinutes > 0 && stopAtMinutes < minutes) {
+                fleet.run(stopAtMinutes * 60 * 1000);
+                fleet.stopRobot(0);
+                fleet.run((minutes - stopAtMinutes) * 60 * 1000);
+            } else {
+                fleet.run(minutes * 60 * 1000);
+            }
+            long wallMicros = (System.nanoTime() - startNanos) / 1000;
+            System.out.println((coordinated ? "coordinated " : "lockstep ") + fleet);
+            System.out.println("simulated " + fleet.getSimulatedMillis() / 1000 + "s in " + wallMicros + "us");
+        }
+    }
+}
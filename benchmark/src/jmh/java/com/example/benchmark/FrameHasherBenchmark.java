@@ -0,0 +1,45 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.dedup.ChangeDetector;
+import com.example.cameraxlib.dedup.FrameHasher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 去重熱路徑：1/8 取樣後（240x135）計算 dHash 並比對同一格；gc.alloc.rate.norm 應為 0
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameHasherBenchmark {
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 135;
+
+    private final FrameHasher hasher = new FrameHasher();
+    private final ChangeDetector detector = new ChangeDetector();
+    private int[] pixels;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pixels = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0xFFFFFF);
+        }
+        detector.isChanged("A", 0, 0L); // 預先建立地點的格子
+    }
+
+    @Benchmark
+    public boolean hashAndCompare() {
+        long hash = hasher.hashArgb(pixels, WIDTH, HEIGHT);
+        return detector.isChanged("A", 0, hash);
+    }
+}
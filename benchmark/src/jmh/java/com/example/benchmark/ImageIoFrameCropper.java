@@ -0,0 +1,82 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.RegionFrameCropper;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+// BitmapRegionFrameCropper 的 JVM 版本：以 ImageReadParam.setSourceRegion 只輸出需要的區域
+// ImageIO 仍要掃過整個 JPEG 串流，但不配置整張畫面的像素；與 BitmapRegionDecoder 一樣只用來比較相對差異
+public class ImageIoFrameCropper extends RegionFrameCropper<ImageIoFrameCropper.Decoder> {
+    // 每個區域重新開啟讀取器：ImageIO 的 JPEG 讀取器讀完一個區域後不能倒回串流開頭
+    static class Decoder {
+        final CapturedFrame frame;
+        final int width;
+        final int height;
+
+        Decoder(CapturedFrame frame, int width, int height) {
+            this.frame = frame;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public ImageIoFrameCropper(FrameBufferPool pool) {
+        super(pool);
+    }
+
+    @Override
+    protected Decoder open(CapturedFrame frame) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(frame.openStream())) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in);
+                return new Decoder(frame, reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    protected int getWidth(Decoder decoder) {
+        return decoder.width;
+    }
+
+    @Override
+    protected int getHeight(Decoder decoder) {
+        return decoder.height;
+    }
+
+    @Override
+    protected void encodeRegion(Decoder decoder, int[] rect, int sampleSize, int quality, OutputStream out)
+            throws IOException {
+        BufferedImage region;
+        try (ImageInputStream in = ImageIO.createImageInputStream(decoder.frame.openStream())) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(rect[0], rect[1], rect[2] - rect[0], rect[3] - rect[1]));
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                region = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        ImageIoFrameTranscoder.encode(region, quality / 100f, out);
+    }
+
+    @Override
+    protected void close(Decoder decoder) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.ByteBufferOutputStream;
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.FrameTranscoder;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+// BitmapFrameTranscoder 的 JVM 版本：同樣依設定檔先以取樣解碼、再縮放並重新壓縮到池化緩衝
+// ImageIO 的速度與 BitmapFactory 不同，只用來比較不同設定檔與版本之間的相對差異
+public class ImageIoFrameTranscoder implements FrameTranscoder {
+    private static final int DEFAULT_QUALITY = 95;
+    private final FrameBufferPool pool;
+
+    public ImageIoFrameTranscoder(FrameBufferPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public CapturedFrame transcode(CapturedFrame frame) {
+        CaptureProfile profile = frame.getProfile();
+        if (profile == null || profile.isPassThrough()) {
+            return frame;
+        }
+        int jpegQuality = profile.getJpegQuality() > 0 ? profile.getJpegQuality() : DEFAULT_QUALITY;
+        try {
+            BufferedImage image = decode(frame, profile.getMaxWidth(), profile.getMaxHeight());
+            image = scaleToFit(image, profile.getMaxWidth(), profile.getMaxHeight());
+            ByteBufferOutputStream out = new ByteBufferOutputStream(pool, frame.getLength());
+            encode(image, jpegQuality / 100f, out);
+            CapturedFrame result = out.toFrame(frame.getName(), frame.getTimestampMillis());
+            result.setTag(frame.getTag());
+            result.setUnchanged(frame.isUnchanged());
+            result.setProfile(profile);
+            frame.release();
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage decode(CapturedFrame frame, int maxWidth, int maxHeight) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(frame.openStream())) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            try {
+                reader.setInput(in);
+                int sampleSize = 1;
+                if (maxWidth > 0 && maxHeight > 0) {
+                    int width = reader.getWidth(0);
+                    int height = reader.getHeight(0);
+                    while (width / (sampleSize * 2) >= maxWidth && height / (sampleSize * 2) >= maxHeight) {
+                        sampleSize *= 2;
+                    }
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage image, int maxWidth, int maxHeight) {
+        if (maxWidth <= 0 || maxHeight <= 0 || (image.getWidth() <= maxWidth && image.getHeight() <= maxHeight)) {
+            return image;
+        }
+        float scale = Math.min((float) maxWidth / image.getWidth(), (float) maxHeight / image.getHeight());
+        int width = Math.max(1, Math.round(image.getWidth() * scale));
+        int height = Math.max(1, Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    // ImageIoFrameCropper 也以此壓縮裁切後的區域
+    static void encode(BufferedImage image, float quality, OutputStream target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+// 比較舊流程（複製成 byte[] → 解碼 → 品質 100 重新壓縮）與池化直傳流程的每幀延遲與配置量
+// JVM 上以 ImageIO 代替 BitmapFactory / Bitmap.compress
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JpegPathBenchmark {
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    private ByteBuffer cameraPlane; // 模擬 ImageProxy 的 JPEG 平面（direct buffer）
+    private FrameBufferPool pool;
+    private final byte[] readChunk = new byte[64 * 1024]; // 模擬上傳端的讀取緩衝
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] jpeg = encodeJpeg(syntheticImage(), 0.9f);
+        cameraPlane = ByteBuffer.allocateDirect(jpeg.length);
+        cameraPlane.put(jpeg).flip();
+        pool = new FrameBufferPool(2 * 1024 * 1024, 4);
+    }
+
+    @Benchmark
+    public void legacyDecodeReencode(Blackhole blackhole) throws IOException {
+        ByteBuffer buffer = cameraPlane.duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        BufferedImage bitmap = ImageIO.read(new ByteArrayInputStream(bytes));
+        blackhole.consume(encodeJpeg(bitmap, 1.0f));
+    }
+
+    @Benchmark
+    public void pooledPassThrough(Blackhole blackhole) throws IOException {
+        CapturedFrame frame = CapturedFrame.copyOf(cameraPlane, pool, "IMG_bench.jpg", 0L);
+        try (InputStream in = frame.openStream()) {
+            int read;
+            while ((read = in.read(readChunk)) > 0) {
+                blackhole.consume(read);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    // 帶雜訊的漸層，讓 JPEG 大小接近真實畫面
+    static BufferedImage syntheticImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = random.nextInt(32);
+                int r = (x * 255 / WIDTH + noise) & 0xFF;
+                int g = (y * 255 / HEIGHT + noise) & 0xFF;
+                int b = ((x + y) * 255 / (WIDTH + HEIGHT)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+}
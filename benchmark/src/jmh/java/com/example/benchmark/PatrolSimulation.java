@@ -0,0 +1,415 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.schedule.CaptureBurst;
+import com.example.cameraxlib.schedule.CapturePriority;
+import com.example.cameraxlib.schedule.CaptureScheduler;
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.coord.PatrolCoordinator;
+import com.example.temilib.patrol.ManualScheduler;
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolRobot;
+import com.example.temilib.patrol.PatrolStateMachine;
+import com.example.temilib.patrol.Scheduler;
+import com.example.temilib.power.BatteryModel;
+import com.example.temilib.power.ChargePlanner;
+import com.example.temilib.power.SimulatedBattery;
+import com.example.temilib.route.LapReport;
+import com.example.temilib.route.RouteTracker;
+import com.example.temilib.route.Waypoint;
+import com.example.temilib.sweep.AdaptiveSweepPolicy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// 以假時鐘與假機器人重現 PatrolHelper 的巡邏：狀態機、路線規劃、共用拍照排程、環拍與定時拍照
+// 全部在同一執行緒上依模擬時間推進，同樣的參數每次得到同樣的結果
+// 設定模擬電池時，由 ChargePlanner 依學到的耗電決定何時插入回充電座
+// 多台機器人共用同一個 ManualScheduler 時（見 FleetSimulation），由呼叫端推進時間
+// 啟用自適應環拍時，以各地點設定的變化機率模擬去重結果，回報給 AdaptiveSweepPolicy
+public class PatrolSimulation {
+    private static final long TICK_MILLIS = 1000;
+    private static final long MAX_SIMULATED_MILLIS = 24L * 60 * 60 * 1000; // 保底：避免參數錯誤時無限執行
+    private static final long EXPOSURE_MILLIS = 50; // takePicture 到快門；之後到完成是影像處理
+    private static final long BATTERY_READING_MILLIS = 10000; // 電池回報間隔
+
+    private final ManualScheduler scheduler;
+    private final Map<String, Waypoint> layout;
+    private final double speedMetersPerSecond;
+    private final long turnMillis;
+    private final long shutterMillis; // takePicture 到取得影像
+    private final long periodicMillis; // 0 表示不模擬定時拍照
+    private final RouteTracker routeTracker = new RouteTracker();
+    private final PatrolStateMachine patrol;
+    private final CaptureScheduler captureScheduler;
+    private final List<LapReport> laps = new ArrayList<>();
+    private CaptureBurst burst;
+    private int burstSweep; // burst 對應的環拍編號
+    private SimulatedBattery battery; // 可為 null（不模擬電池）
+    private BatteryModel batteryModel;
+    private final Set<String> blocked = new HashSet<>(); // 走到一半就回報中止的地點
+    private PatrolCoordinator coordinator; // 可為 null（單機）
+    private AdaptiveSweepPolicy sweepPolicy; // 可為 null（每站完整環拍）
+    private final Map<String, Double> changeProbability = new HashMap<>(); // 每張照片有變化的機率
+    private final Set<String> captured = new HashSet<>(); // 拍過的 (地點, 方向)，第一次一定算有變化
+    private final Random changeRandom = new Random(3);
+    private final List<Long> lapSavedMillis = new ArrayList<>();
+    private float x;
+    private float y;
+
+    public PatrolSimulation(Map<String, Waypoint> layout, PatrolConfig config, double speedMetersPerSecond,
+                            long turnMillis, long shutterMillis, long periodicMillis) {
+        this(new ManualScheduler(new ManualClock(0)), layout, config, speedMetersPerSecond, turnMillis, shutterMillis,
+                periodicMillis);
+    }
+
+    public PatrolSimulation(ManualScheduler scheduler, Map<String, Waypoint> layout, PatrolConfig config,
+                            double speedMetersPerSecond, long turnMillis, long shutterMillis, long periodicMillis) {
+        this.scheduler = scheduler;
+        this.layout = layout;
+        this.speedMetersPerSecond = speedMetersPerSecond;
+        this.turnMillis = turnMillis;
+        this.shutterMillis = shutterMillis;
+        this.periodicMillis = periodicMillis;
+        this.captureScheduler = new CaptureScheduler(new SimulatedCamera(), scheduler.getClock(), 2000,
+                Long.MAX_VALUE, config.getBurstInFlight());
+        this.patrol = new PatrolStateMachine(new SimulatedRobot(), scheduler, scheduler.getClock(), config);
+        this.patrol.setListener(new PatrolStateMachine.Listener() {
+            @Override
+            public void onStateChanged(PatrolStateMachine.State from, PatrolStateMachine.State to) {
+                if (coordinator != null) {
+                    coordinator.onStateChanged(to);
+                }
+            }
+
+            @Override
+            public void onWaypointCompleted(String location, long travelMillis, long sweepMillis) {
+                if (batteryModel != null) {
+                    batteryModel.onLeg(routeTracker.getLastLegMeters(), travelMillis);
+                    batteryModel.onWaypoint(sweepMillis);
+                }
+                if (burst != null) {
+                    burst.finish();
+                    burst = null;
+                }
+            }
+
+            @Override
+            public void onLapCompleted(long lap) {
+                laps.add(routeTracker.onLapCompleted(scheduler.getClock().currentTimeMillis()));
+                if (sweepPolicy != null) {
+                    lapSavedMillis.add(sweepPolicy.onLapCompleted());
+                }
+            }
+        });
+        this.patrol.setReplanner(new PatrolStateMachine.Replanner() {
+            @Override
+            public List<String> replan(String from, List<String> remaining) {
+                return routeTracker.planRemaining(from, remaining);
+            }
+        });
+        this.patrol.setRouteSource(new PatrolStateMachine.RouteSource() {
+            @Override
+            public List<String> nextLap() {
+                return planRoute();
+            }
+        });
+    }
+
+    // 在 width x height 公尺的範圍內隨機放置地點，外加原點的充電座
+    public static Map<String, Waypoint> randomLayout(int waypoints, float width, float height, long seed) {
+        Random random = new Random(seed);
+        Map<String, Waypoint> layout = new LinkedHashMap<>();
+        layout.put(PatrolConfig.HOME_BASE, new Waypoint(PatrolConfig.HOME_BASE, 0, 0));
+        for (int i = 0; i < waypoints; i++) {
+            String name = "P" + i;
+            layout.put(name, new Waypoint(name, random.nextFloat() * width, random.nextFloat() * height));
+        }
+        return layout;
+    }
+
+    // 以模擬電池與 PatrolHelper 相同的保留／目標電量啟用充電排程；模型從偏差的預設值開始學習
+    public void enableBattery(SimulatedBattery battery, int reservePercent, int targetPercent) {
+        this.battery = battery;
+        this.batteryModel = new BatteryModel(0.02, 0.005, 0.3, 30000, 0.01);
+        patrol.setDockPolicy(new ChargePlanner(battery, batteryModel, routeTracker, reservePercent, targetPercent));
+        battery.advanceTo(scheduler.getClock().currentTimeMillis());
+        scheduleBatteryReading();
+    }
+
+    private void scheduleBatteryReading() {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                long now = scheduler.getClock().currentTimeMillis();
+                battery.advanceTo(now);
+                batteryModel.onReading(now, battery.getBatteryPercent(), battery.isCharging(),
+                        routeTracker.getOdometerMeters());
+                scheduleBatteryReading();
+            }
+        }, BATTERY_READING_MILLIS);
+    }
+
+    // 與 PatrolHelper.enableCoordination 相同：狀態轉給分工，出發前取得地點
+    public void enableCoordination(PatrolCoordinator coordinator) {
+        this.coordinator = coordinator;
+        patrol.setWaypointGate(coordinator);
+    }
+
+    // 與 PatrolHelper 相同依變化調整環拍；busy 中的地點每張有 60% 機率有變化，其餘 2%
+    public void enableAdaptiveSweep(AdaptiveSweepPolicy policy, Set<String> busy) {
+        this.sweepPolicy = policy;
+        for (String name : layout.keySet()) {
+            changeProbability.put(name, busy.contains(name) ? 0.6 : 0.02);
+        }
+        patrol.setSweepPolicy(policy);
+    }
+
+    // 模擬被擋住的地點：每次前往都在半路中止
+    public void blockWaypoint(String location) {
+        blocked.add(location);
+    }
+
+    private List<String> planRoute() {
+        return routeTracker.planLap(new ArrayList<>(layout.keySet()), scheduler.getClock().currentTimeMillis());
+    }
+
+    // 從充電座出發；runLaps 會自動呼叫，共用排程器時由呼叫端呼叫後自行推進時間
+    public void start() {
+        if (!patrol.isPatrolling()) {
+            routeTracker.onPosition(x, y);
+            routeTracker.onArrived(PatrolConfig.HOME_BASE);
+            patrol.start(planRoute());
+            if (periodicMillis > 0) {
+                schedulePeriodicCapture();
+            }
+        }
+    }
+
+    // 跑完指定圈數，回傳每圈的統計
+    public List<LapReport> runLaps(int count) {
+        start();
+        int target = laps.size() + count;
+        long deadline = scheduler.getClock().currentTimeMillis() + MAX_SIMULATED_MILLIS;
+        while (laps.size() < target && scheduler.getClock().currentTimeMillis() < deadline) {
+            scheduler.advanceMillis(TICK_MILLIS);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(laps.subList(target - count, Math.min(target, laps.size()))));
+    }
+
+    private void schedulePeriodicCapture() {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                captureScheduler.submit(CapturePriority.PERIODIC, CaptureProfile.PERIODIC, null, null);
+                schedulePeriodicCapture();
+            }
+        }, periodicMillis);
+    }
+
+    public PatrolStateMachine getPatrol() {
+        return patrol;
+    }
+
+    public CaptureScheduler getCaptureScheduler() {
+        return captureScheduler;
+    }
+
+    public AdaptiveSweepPolicy getSweepPolicy() {
+        return sweepPolicy;
+    }
+
+    // 每圈估計節省的環拍時間；未啟用自適應環拍時為空
+    public List<Long> getLapSavedMillis() {
+        return Collections.unmodifiableList(lapSavedMillis);
+    }
+
+    public BatteryModel getBatteryModel() {
+        return batteryModel;
+    }
+
+    public long getSimulatedMillis() {
+        return scheduler.getClock().currentTimeMillis();
+    }
+
+    // 依直線距離與速度決定抵達時間；轉身固定耗時
+    private class SimulatedRobot implements PatrolRobot {
+        @Override
+        public void goTo(final String location) {
+            final Waypoint target = layout.get(location);
+            routeTracker.onLegStarted();
+            double dx = target.getX() - x;
+            double dy = target.getY() - y;
+            final double meters = Math.sqrt(dx * dx + dy * dy);
+            long travelMillis = (long) (meters / speedMetersPerSecond * 1000);
+            if (battery != null) {
+                battery.setCharging(scheduler.getClock().currentTimeMillis(), false);
+            }
+            if (blocked.contains(location)) {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        patrol.onGoToStatus(location, "abort");
+                    }
+                }, travelMillis / 2);
+                return;
+            }
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (battery != null) {
+                        battery.advanceTo(scheduler.getClock().currentTimeMillis());
+                        battery.onMoved(meters);
+                        if (PatrolConfig.isHomeBase(location)) {
+                            battery.setCharging(scheduler.getClock().currentTimeMillis(), true);
+                        }
+                    }
+                    x = target.getX();
+                    y = target.getY();
+                    routeTracker.onPosition(x, y);
+                    routeTracker.onArrived(location);
+                    patrol.onGoToStatus(location, "complete");
+                }
+            }, travelMillis);
+        }
+
+        @Override
+        public void turnBy(int degrees) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    patrol.onTurnCompleted();
+                }
+            }, turnMillis);
+        }
+
+        @Override
+        public void capturePhoto(String location, final int sweep, final int shot, int headingDegrees) {
+            if (burst == null || sweep != burstSweep) {
+                burst = new CaptureBurst(captureScheduler, scheduler.getClock(), location,
+                        patrol.getCurrentPlan().getProfile());
+                burstSweep = sweep;
+            }
+            burst.capture(headingDegrees, x, y, new CaptureBurst.Listener() {
+                @Override
+                public void onShutter(int sequence, int heading) {
+                    post(true, sweep, shot);
+                }
+
+                @Override
+                public void onCaptured(int sequence, int heading) {
+                    post(false, sweep, shot);
+                }
+
+                @Override
+                public void onError(int sequence, int heading, Exception e) {
+                    post(false, sweep, shot);
+                }
+            });
+        }
+
+        // 與 PatrolHelper 一樣切回狀態機的執行緒
+        private void post(final boolean shutter, final int sweep, final int shot) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (shutter) {
+                        patrol.onShutter(sweep, shot);
+                    } else {
+                        patrol.onCaptureCompleted(sweep, shot);
+                    }
+                }
+            }, 0);
+        }
+    }
+
+    // 曝光與影像處理各自固定耗時；多張同時進行時處理互相重疊
+    private class SimulatedCamera implements CaptureScheduler.Camera {
+        @Override
+        public void capture(CaptureProfile profile, final CaptureTag tag, final CaptureScheduler.ShutterCallback done) {
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    done.onShutter();
+                }
+            }, Math.min(EXPOSURE_MILLIS, shutterMillis));
+            scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (sweepPolicy != null && tag != null) {
+                        reportChange(tag.getWaypoint(), tag.getHeadingDegrees());
+                    }
+                    done.onCaptured();
+                }
+            }, shutterMillis);
+        }
+
+        // 相當於處理管線中 ChangeDetector 的判定
+        private void reportChange(String waypoint, int heading) {
+            Double probability = changeProbability.get(waypoint);
+            boolean first = captured.add(waypoint + "@" + heading);
+            boolean changed = first || changeRandom.nextDouble() < (probability != null ? probability : 0);
+            sweepPolicy.onChangeResult(waypoint, heading, changed, first);
+        }
+    }
+
+    // 用法：PatrolSimulation [地點數] [圈數] [環拍同時進行張數] [起始電量，0 為不模擬電池] [被擋住的地點數]
+    //       [常有變化的地點數，負數為每站完整環拍]
+    public static void main(String[] args) {
+        int waypoints = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        int lapCount = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int burstInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int initialPercent = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        int blockedCount = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        int busyCount = args.length > 5 ? Integer.parseInt(args[5]) : -1;
+        PatrolConfig config = new PatrolConfig().setBurstInFlight(burstInFlight);
+        PatrolSimulation simulation = new PatrolSimulation(randomLayout(waypoints, 30, 20, 42), config,
+                0.5, 1500, 300, 5000);
+        if (initialPercent > 0) {
+            // 每公尺 0.05%、待機每秒 0.01%，每秒回充 0.05%：一圈約用掉一成電量
+            simulation.enableBattery(new SimulatedBattery(initialPercent, 0.05, 0.01, 0.05), 20, 90);
+        }
+        for (int i = 0; i < blockedCount; i++) {
+            simulation.blockWaypoint("P" + i);
+        }
+        if (busyCount >= 0) {
+            Set<String> busy = new HashSet<>();
+            for (int i = 0; i < busyCount; i++) {
+                busy.add("P" + (waypoints - 1 - i)); // 從最後一個算起，不與被擋住的地點重疊
+            }
+            simulation.enableAdaptiveSweep(new AdaptiveSweepPolicy(2000, 0.3, 6), busy);
+        }
+        long startNanos = System.nanoTime();
+        List<LapReport> reports = simulation.runLaps(lapCount);
+        long wallMicros = (System.nanoTime() - startNanos) / 1000;
+        for (LapReport report : reports) {
+            System.out.println(report);
+        }
+        PatrolStateMachine patrol = simulation.getPatrol();
+        System.out.println("travel " + patrol.getTravelTime().snapshot());
+        System.out.println("waypoint " + patrol.getWaypointTime().snapshot());
+        System.out.println("sweep " + patrol.getSweepTime().snapshot());
+        System.out.println("capture " + simulation.getCaptureScheduler().describe());
+        System.out.println("timeouts turn=" + patrol.getTurnTimeouts() + " capture=" + patrol.getCaptureTimeouts());
+        System.out.println("navigation failures=" + patrol.getNavigationFailures() + " skipped=" + patrol.getSkippedWaypoints()
+                + " waypoints/h=" + patrol.getNavigationSupervisor().getWaypointsPerHour());
+        System.out.println("dock visits=" + patrol.getDockVisits() + " charge " + patrol.getChargeTime().snapshot()
+                + " timeouts=" + patrol.getChargeTimeouts());
+        if (simulation.getSweepPolicy() != null) {
+            System.out.println("sweep " + simulation.getSweepPolicy().describe() + " lapSaved(ms)="
+                    + simulation.getLapSavedMillis());
+        }
+        if (simulation.getBatteryModel() != null) {
+            System.out.println("battery model " + simulation.getBatteryModel());
+        }
+        System.out.println("simulated " + simulation.getSimulatedMillis() / 1000 + "s in " + wallMicros + "us");
+    }
+}
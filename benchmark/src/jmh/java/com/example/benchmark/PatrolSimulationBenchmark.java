@@ -0,0 +1,45 @@
+package com.example.benchmark;
+
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.route.LapReport;
+import com.example.temilib.route.Waypoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 模擬一圈巡邏的 CPU 成本與配置量（狀態機、路線規劃、拍照排程），與模擬出的圈時間無關
+// 圈時間本身請執行 PatrolSimulation.main 查看
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PatrolSimulationBenchmark {
+    @Param({"8", "24"})
+    public int waypoints;
+
+    @Param({"1", "2"})
+    public int burstInFlight; // 1：逐張拍完再轉身；2：快門後即轉身
+
+    private PatrolSimulation simulation;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Map<String, Waypoint> layout = PatrolSimulation.randomLayout(waypoints, 30, 20, 42);
+        simulation = new PatrolSimulation(layout, new PatrolConfig().setBurstInFlight(burstInFlight), 0.5, 1500, 300, 5000);
+    }
+
+    @Benchmark
+    public long lap() {
+        LapReport report = simulation.runLaps(1).get(0);
+        return report.lapMillis;
+    }
+}
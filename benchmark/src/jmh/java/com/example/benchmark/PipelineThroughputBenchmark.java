@@ -0,0 +1,106 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.FrameSink;
+import com.example.cameraxlib.pipeline.CapturePipeline;
+import com.example.cameraxlib.upload.FrameSpool;
+import com.example.cameraxlib.upload.SpoolEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// 整條 CapturePipeline（dedup → encode → persist）的吞吐量：每次送入一批幀，等全部寫入佇列或被丟棄
+// 送入速度超過處理速度時 dedup 階段會丟棄最舊的幀，丟棄數可從 describe() 看到
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineThroughputBenchmark {
+    private static final int BATCH = 16;
+    private static final long SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    @Param({"alert", "patrol-sweep", "periodic"})
+    public String profileName;
+
+    private CaptureProfile profile;
+    private ByteBuffer cameraPlane;
+    private FrameBufferPool pool;
+    private CapturePipeline pipeline;
+    private File spoolDirectory;
+    private FrameSpool spool;
+    private final AtomicLong persisted = new AtomicLong();
+    private long submitted;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        profile = CapturePathBenchmark.profileFor(profileName);
+        byte[] jpeg = JpegPathBenchmark.encodeJpeg(JpegPathBenchmark.syntheticImage(), 0.9f);
+        cameraPlane = ByteBuffer.allocateDirect(jpeg.length);
+        cameraPlane.put(jpeg).flip();
+        pool = new FrameBufferPool(2 * 1024 * 1024, 8);
+        spoolDirectory = Files.createTempDirectory("pipeline-bench").toFile();
+        spool = FrameSpool.open(spoolDirectory, SEGMENT_BYTES, false);
+        pipeline = new CapturePipeline(new ImageIoFrameTranscoder(pool), new FrameSink() {
+            @Override
+            public void accept(CapturedFrame frame) {
+                try {
+                    spool.append(frame.getName(), frame.getTimestampMillis(), frame.getData());
+                    List<SpoolEntry> entries = spool.claimReady(Long.MAX_VALUE, Integer.MAX_VALUE);
+                    for (SpoolEntry entry : entries) {
+                        spool.ack(entry); // 模擬上傳端立即取走，佇列不會無限成長
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    frame.release();
+                    persisted.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        pipeline.shutdown(5000);
+        System.out.println();
+        System.out.println(pipeline.describe());
+        spool.close();
+        CapturePathBenchmark.deleteRecursively(spoolDirectory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long submitBatch() {
+        for (int i = 0; i < BATCH; i++) {
+            CapturedFrame frame = CapturedFrame.copyOf(cameraPlane, pool, "IMG_" + submitted + ".jpg", submitted);
+            frame.setProfile(profile);
+            pipeline.submit(frame, 0);
+            submitted++;
+        }
+        // 等到每一幀都已寫入佇列、在 dedup 階段被丟棄，或處理失敗
+        while (persisted.get() + pipeline.getDedupStage().getDroppedCount()
+                + pipeline.getEncodeStage().getFailedCount() < submitted) {
+            LockSupport.parkNanos(50000);
+        }
+        return persisted.get();
+    }
+}
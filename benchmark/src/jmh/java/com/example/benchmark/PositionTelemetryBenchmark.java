@@ -0,0 +1,67 @@
+package com.example.benchmark;
+
+import com.example.temilib.telemetry.PositionTelemetry;
+import com.example.temilib.telemetry.TelemetrySink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// 位置回呼每筆樣本的成本：舊版的字串串接（Log.d 的參數）與新版降採樣＋環形緩衝
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PositionTelemetryBenchmark {
+    private static final int SAMPLES_PER_SECOND = 20; // 模擬 temi 的位置回報頻率
+
+    private PositionTelemetry telemetry;
+    private long timestamp;
+    private float x;
+    private float y;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        telemetry = new PositionTelemetry(4096, 0.2f, (float) Math.toRadians(10), 100, 5000, 64, 60000);
+        telemetry.setSink(new TelemetrySink() {
+            @Override
+            public void write(ByteBuffer batch, int sampleCount, long firstTimestampMillis) {
+                // 只量測遙測本身的成本
+            }
+        });
+    }
+
+    // 以 0.5 m/s 沿對角線移動
+    private void step() {
+        timestamp += 1000 / SAMPLES_PER_SECOND;
+        x += 0.5f / SAMPLES_PER_SECOND;
+        y += 0.25f / SAMPLES_PER_SECOND;
+    }
+
+    @Benchmark
+    public void legacyStringConcat(Blackhole blackhole) {
+        step();
+        blackhole.consume("當前位置：x=" + x + ", y=" + y);
+    }
+
+    @Benchmark
+    public boolean ringBufferSample() {
+        step();
+        return telemetry.onSample(timestamp, x, y, 0f);
+    }
+
+    @Benchmark
+    public float ringBufferSampleWithStallCheck() {
+        step();
+        telemetry.onSample(timestamp, x, y, 0f);
+        return telemetry.isStalled(timestamp, 30000, 0.3f) ? 0f : telemetry.getSpeed(timestamp, 5000);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.frame.CaptureTag;
+import com.example.cameraxlib.frame.CapturedFrame;
+import com.example.cameraxlib.frame.CropRegion;
+import com.example.cameraxlib.frame.FrameBufferPool;
+import com.example.cameraxlib.frame.RoiTable;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 比較整張轉碼（PATROL_SWEEP）與依 ROI 裁切的每幀 CPU 時間與上傳量
+// full：整張縮到 1280x720；crop：只取一個約 12% 面積的儀表區域；tiles：貨架區域切成 3x2 塊
+// 上傳量以 AuxCounters 的 uploadBytes 報告（每次呼叫的累計位元組，除以次數即每幀）
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoiCropBenchmark {
+    private static final String WAYPOINT = "倉庫";
+
+    @Param({"full", "crop", "tiles"})
+    public String mode;
+
+    private ByteBuffer cameraPlane;
+    private FrameBufferPool pool;
+    private ImageIoFrameTranscoder transcoder;
+    private ImageIoFrameCropper cropper;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Upload {
+        public long uploadBytes;
+        public long uploadFrames;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[] jpeg = JpegPathBenchmark.encodeJpeg(JpegPathBenchmark.syntheticImage(), 0.9f);
+        cameraPlane = ByteBuffer.allocateDirect(jpeg.length);
+        cameraPlane.put(jpeg).flip();
+        pool = new FrameBufferPool(2 * 1024 * 1024, 8);
+        transcoder = new ImageIoFrameTranscoder(pool);
+        RoiTable table = new RoiTable(20);
+        if ("crop".equals(mode)) {
+            table.put(WAYPOINT, 90, new CropRegion("gauge", 0.40f, 0.10f, 0.70f, 0.50f));
+        } else if ("tiles".equals(mode)) {
+            for (CropRegion tile : new CropRegion("shelf", 0f, 0.2f, 1f, 0.9f).tile(3, 2)) {
+                table.put(WAYPOINT, 90, tile);
+            }
+        }
+        cropper = new ImageIoFrameCropper(pool);
+        cropper.setTable(table);
+    }
+
+    @Benchmark
+    public void frame(Upload upload, Blackhole blackhole) {
+        CapturedFrame frame = CapturedFrame.copyOf(cameraPlane, pool, "IMG_bench.jpg", 0L);
+        frame.setTag(new CaptureTag(WAYPOINT, 90));
+        frame.setProfile(CaptureProfile.PATROL_SWEEP);
+        List<CapturedFrame> out = "full".equals(mode) ? null : cropper.crop(frame);
+        if (out == null) {
+            out = Collections.singletonList(transcoder.transcode(frame));
+        }
+        for (CapturedFrame result : out) {
+            upload.uploadBytes += result.getLength();
+            upload.uploadFrames++;
+            blackhole.consume(result.getName());
+            result.release();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.benchmark;
+
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.eventlog.EventLogReader;
+import com.example.temilib.eventlog.EventReplayer;
+import com.example.temilib.eventlog.PatrolEvents;
+import com.example.temilib.patrol.ManualScheduler;
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolRobot;
+import com.example.temilib.patrol.PatrolStateMachine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 在 JVM 上重播機器人記錄的 patrol_events.bin：以假時鐘依記錄時間把回呼送進 PatrolStateMachine，
+// 同時統計每段導航、拍照與上傳的時間，用來分析慢的一圈或比較狀態機參數在真實事件下的表現
+// 用法：TraceReplay <記錄檔> [環拍同時進行張數]
+public class TraceReplay implements PatrolEvents {
+    private static final String TURN_BY = "turnBy";
+
+    private final ManualScheduler scheduler = new ManualScheduler(new ManualClock(0));
+    private final PatrolStateMachine patrol;
+    private final Map<String, Long> legStartMillis = new HashMap<>();
+    private final LatencyHistogram legTime = new LatencyHistogram(); // going 到 complete
+    private final LatencyHistogram uploadTime = new LatencyHistogram();
+    private final List<String> route = new ArrayList<>();
+    private long positions;
+    private long captures;
+    private long failedCaptures;
+    private long uploads;
+    private long failedUploads;
+    private long aborts;
+
+    public TraceReplay(PatrolConfig config) {
+        // 機器人的指令在記錄裡已經發生過，這裡只讓狀態機接收事件
+        patrol = new PatrolStateMachine(new PatrolRobot() {
+            @Override
+            public void goTo(String location) {
+            }
+
+            @Override
+            public void turnBy(int degrees) {
+            }
+
+            @Override
+            public void capturePhoto(String location, int sweep, int shot, int headingDegrees) {
+            }
+        }, scheduler, scheduler.getClock(), config);
+    }
+
+    // 依記錄的時間間隔重播整個檔案，回傳送出的事件數
+    public long replay(File log) throws IOException {
+        route.clear();
+        route.addAll(firstLap(log));
+        EventReplayer replayer = new EventReplayer(EventLogReader.open(log), scheduler, scheduler.getClock(), 1.0);
+        replayer.start(this, null);
+        while (replayer.isRunning()) {
+            scheduler.advanceMillis(1000);
+        }
+        return replayer.getReplayedCount();
+    }
+
+    @Override
+    public void onGoToStatus(String location, String status, int id, String description) {
+        long now = scheduler.getClock().currentTimeMillis();
+        if ("going".equalsIgnoreCase(status)) {
+            legStartMillis.put(location, now);
+            if (!patrol.isPatrolling() && route.indexOf(location) >= 0) {
+                // 從記錄中第一個出發的地點開始，之後的抵達事件會對上狀態機的目前地點
+                List<String> rotated = new ArrayList<>(route.subList(route.indexOf(location), route.size()));
+                rotated.addAll(route.subList(0, route.indexOf(location)));
+                patrol.start(rotated);
+            }
+        } else if ("complete".equalsIgnoreCase(status)) {
+            Long start = legStartMillis.remove(location);
+            if (start != null) {
+                legTime.recordMicros((now - start) * 1000);
+            }
+        } else if ("abort".equalsIgnoreCase(status)) {
+            aborts++;
+        }
+        patrol.onGoToStatus(location, status);
+    }
+
+    @Override
+    public void onPosition(float x, float y, float yaw, int tiltAngle) {
+        positions++;
+    }
+
+    @Override
+    public void onMovementStatus(String type, String status) {
+        if (TURN_BY.equals(type) && ("complete".equals(status) || "abort".equals(status))) {
+            patrol.onTurnCompleted();
+        }
+    }
+
+    @Override
+    public void onRobotReady(boolean ready) {
+    }
+
+    @Override
+    public void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+        captures++;
+        if (!success) {
+            failedCaptures++;
+        }
+        patrol.onCaptureCompleted(patrol.getSweepId(), sequence); // 記錄裡的編號就是這個地點的第幾張
+    }
+
+    @Override
+    public void onUpload(String name, int bytes, long durationMillis, boolean success) {
+        uploads++;
+        if (success) {
+            uploadTime.recordMicros(durationMillis * 1000);
+        } else {
+            failedUploads++;
+        }
+    }
+
+    // 記錄中依序出發的地點，直到第一個重複的地點為止，視為一圈的路線
+    static List<String> firstLap(File log) throws IOException {
+        final List<String> lap = new ArrayList<>();
+        EventLogReader reader = EventLogReader.open(log);
+        final boolean[] done = new boolean[1];
+        PatrolEvents collector = new PatrolEvents() {
+            @Override
+            public void onGoToStatus(String location, String status, int id, String description) {
+                if ("going".equalsIgnoreCase(status)) {
+                    if (lap.contains(location)) {
+                        done[0] = true;
+                    } else {
+                        lap.add(location);
+                    }
+                }
+            }
+
+            @Override
+            public void onPosition(float x, float y, float yaw, int tiltAngle) {
+            }
+
+            @Override
+            public void onMovementStatus(String type, String status) {
+            }
+
+            @Override
+            public void onRobotReady(boolean ready) {
+            }
+
+            @Override
+            public void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+            }
+
+            @Override
+            public void onUpload(String name, int bytes, long durationMillis, boolean success) {
+            }
+        };
+        while (!done[0] && reader.next()) {
+            reader.dispatch(collector);
+        }
+        return lap;
+    }
+
+    public String describe() {
+        return "legs " + legTime.snapshot() + "\n"
+                + "uploads " + uploadTime.snapshot() + " failed=" + failedUploads + "/" + uploads + "\n"
+                + "captures=" + captures + " failed=" + failedCaptures + " positions=" + positions + " aborts=" + aborts + "\n"
+                + "state machine: travel " + patrol.getTravelTime().snapshot() + "\n"
+                + "state machine: waypoint " + patrol.getWaypointTime().snapshot() + "\n"
+                + "state machine: laps=" + patrol.getLapsCompleted() + " turn timeouts=" + patrol.getTurnTimeouts()
+                + " capture timeouts=" + patrol.getCaptureTimeouts() + "\n"
+                + "simulated " + scheduler.getClock().currentTimeMillis() / 1000 + "s";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("用法：TraceReplay <記錄檔> [環拍同時進行張數]");
+            return;
+        }
+        int burstInFlight = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        TraceReplay replay = new TraceReplay(new PatrolConfig().setBurstInFlight(burstInFlight));
+        long startNanos = System.nanoTime();
+        long events = replay.replay(new File(args[0]));
+        long wallMicros = (System.nanoTime() - startNanos) / 1000;
+        System.out.println(replay.describe());
+        System.out.println(events + " events in " + wallMicros + "us");
+    }
+}
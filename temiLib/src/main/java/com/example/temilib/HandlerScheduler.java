@@ -0,0 +1,25 @@
+package com.example.temilib;
+
+import android.os.Handler;
+
+import com.example.temilib.patrol.Scheduler;
+
+// 以 Handler 實作的 Scheduler，任務在 Handler 所屬的執行緒上執行
+public class HandlerScheduler implements Scheduler {
+    private final Handler handler;
+
+    public HandlerScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public Cancellable schedule(final Runnable task, long delayMillis) {
+        handler.postDelayed(task, delayMillis);
+        return new Cancellable() {
+            @Override
+            public void cancel() {
+                handler.removeCallbacks(task);
+            }
+        };
+    }
+}
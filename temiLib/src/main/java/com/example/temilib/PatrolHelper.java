@@ -4,15 +4,50 @@ import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
+import com.robotemi.sdk.BatteryData;
 import com.robotemi.sdk.Robot;
+import com.robotemi.sdk.listeners.OnBatteryStatusChangedListener;
+import com.robotemi.sdk.listeners.OnMovementStatusChangedListener;
 import com.robotemi.sdk.navigation.listener.OnCurrentPositionChangedListener;
 import com.robotemi.sdk.navigation.model.Position;
 import com.robotemi.sdk.listeners.OnGoToLocationStatusChangedListener;
+import com.robotemi.sdk.listeners.OnLocationsUpdatedListener;
 import com.robotemi.sdk.listeners.OnRobotReadyListener;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.example.cameraxlib.CameraXHelper;
+import com.example.cameraxlib.FrameUploadService;
+import com.example.cameraxlib.frame.RoiTable;
+import com.example.cameraxlib.metrics.MetricsRegistry;
+import com.example.cameraxlib.schedule.CaptureBurst;
+import com.example.cameraxlib.util.Clock;
+import com.example.temilib.coord.CoordinationTransport;
+import com.example.temilib.coord.PatrolCoordinator;
+import com.example.temilib.eventlog.EventLogReader;
+import com.example.temilib.eventlog.EventLogWriter;
+import com.example.temilib.eventlog.EventReplayer;
+import com.example.temilib.eventlog.PatrolEvents;
+import com.example.temilib.location.LocationRegistry;
+import com.example.temilib.location.LocationSnapshot;
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolRobot;
+import com.example.temilib.patrol.PatrolStateMachine;
+import com.example.temilib.power.BatteryModel;
+import com.example.temilib.power.ChargePlanner;
+import com.example.temilib.route.RouteTracker;
+import com.example.temilib.sweep.AdaptiveSweepPolicy;
+import com.example.temilib.telemetry.PositionTelemetry;
 import com.robotemi.sdk.navigation.model.SpeedLevel;
 
 import org.jetbrains.annotations.NotNull;
@@ -20,65 +55,382 @@ import org.jetbrains.annotations.NotNull;
 public class PatrolHelper implements
         OnRobotReadyListener,
         OnGoToLocationStatusChangedListener,
-        OnCurrentPositionChangedListener {
+        OnCurrentPositionChangedListener,
+        OnMovementStatusChangedListener,
+        OnBatteryStatusChangedListener,
+        OnLocationsUpdatedListener {
 
     private static final String TAG = "PatrolHelper";
+    // 位置遙測：移動 0.2 公尺或轉 10 度才記錄，靜止時每 5 秒一筆；每 64 筆或 60 秒寫入上傳佇列
+    private static final int TELEMETRY_RING_CAPACITY = 4096;
+    private static final float TELEMETRY_MIN_DISTANCE = 0.2f;
+    private static final float TELEMETRY_MIN_YAW = (float) Math.toRadians(10);
+    private static final long TELEMETRY_MIN_INTERVAL_MS = 100;
+    private static final long TELEMETRY_HEARTBEAT_MS = 5000;
+    private static final int TELEMETRY_BATCH_SIZE = 64;
+    private static final long TELEMETRY_FLUSH_MS = 60000;
+    private static final long STALL_WINDOW_MS = 30000;
+    private static final float STALL_RADIUS = 0.3f;
+    private static final int SWEEP_BURST_IN_FLIGHT = 2; // 環拍時前一張還在處理就轉向下一個方向
+    // 所有回呼的二進位事件記錄，超過 8MB 輪替為 .1
+    private static final String EVENT_LOG_FILE = "patrol_events.bin";
+    private static final long EVENT_LOG_MAX_BYTES = 8L * 1024 * 1024;
+    // 各地點各方向要裁切上傳的區域（格式見 RoiTable）；檔案不存在時上傳整張
+    private static final String ROI_FILE = "patrol_roi.csv";
+    private static final int ROI_HEADING_TOLERANCE = 20; // 轉身誤差內視為同一方向
+    // 充電排程：預估走完下一站再回座會低於 20% 才插入回座，充到 90% 再出發
+    private static final int CHARGE_RESERVE_PERCENT = 20;
+    private static final int CHARGE_TARGET_PERCENT = 90;
+    // 電池模型在沒有量測前的預設值
+    private static final double DEFAULT_PERCENT_PER_METER = 0.02;
+    private static final double DEFAULT_PERCENT_PER_SECOND = 0.005;
+    private static final double DEFAULT_METERS_PER_SECOND = 0.3;
+    private static final long DEFAULT_WAYPOINT_MILLIS = 30000;
+    private static final double DEFAULT_CHARGE_PERCENT_PER_SECOND = 0.01;
+    // 多台機器人分工：租約須涵蓋導航保底時間加環拍；同一地點 10 分鐘內只巡一次，30 分鐘沒人巡就任何機器人都可接手
+    private static final long COORD_LEASE_MS = 10L * 60 * 1000;
+    private static final long COORD_SWEEP_WINDOW_MS = 10L * 60 * 1000;
+    private static final long COORD_OVERDUE_MS = 30L * 60 * 1000;
+    private static final long COORD_HEARTBEAT_TIMEOUT_MS = 2L * 60 * 1000;
+    // 依變化調整環拍：沒有變化的地點停留 2 秒；最近三成以上的照片有變化的方向照常拍；最多隔 6 站完整環拍一次
+    private static final long SWEEP_QUIET_DWELL_MS = 2000;
+    private static final double SWEEP_ACTIVE_THRESHOLD = 0.3;
+    private static final int SWEEP_MAX_VISITS_BETWEEN_FULL = 6;
+    // 各地點的優先度（格式見 AdaptiveSweepPolicy.loadPriorities）；檔案不存在時全部為一般
+    private static final String PRIORITY_FILE = "patrol_priority.csv";
     private Robot robot;
     private CameraXHelper cameraXHelper;
-    private List<String> patrolPoints;
-    private int currentPointIndex = 0;
-    private boolean isPatrolling = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper()); // 狀態機的所有事件都在主執行緒處理
+    private final PatrolStateMachine patrol;
+    private final RouteTracker routeTracker = new RouteTracker(); // 記錄地點座標與實際行走距離，用於規劃路線
+    private final PositionTelemetry telemetry = new PositionTelemetry(TELEMETRY_RING_CAPACITY, TELEMETRY_MIN_DISTANCE,
+            TELEMETRY_MIN_YAW, TELEMETRY_MIN_INTERVAL_MS, TELEMETRY_HEARTBEAT_MS, TELEMETRY_BATCH_SIZE, TELEMETRY_FLUSH_MS);
+    private boolean stalled;
+    private float lastX = Float.NaN; // 最新的地圖座標，記錄在照片標記中
+    private float lastY = Float.NaN;
+    private CaptureBurst burst; // 目前地點的環拍，只在主執行緒存取
+    private int burstSweep; // burst 對應的環拍編號
+    private final EventLogWriter eventLog; // 可為 null（記錄檔無法開啟時）
+    private final TemiBatterySource battery = new TemiBatterySource();
+    private final BatteryModel batteryModel = new BatteryModel(DEFAULT_PERCENT_PER_METER, DEFAULT_PERCENT_PER_SECOND,
+            DEFAULT_METERS_PER_SECOND, DEFAULT_WAYPOINT_MILLIS, DEFAULT_CHARGE_PERCENT_PER_SECOND);
+    private final ChargePlanner chargePlanner = new ChargePlanner(battery, batteryModel, routeTracker,
+            CHARGE_RESERVE_PERCENT, CHARGE_TARGET_PERCENT);
+    private PatrolCoordinator coordinator; // 多台機器人分工，未啟用時為 null
+    private final AdaptiveSweepPolicy sweepPolicy = new AdaptiveSweepPolicy(SWEEP_QUIET_DWELL_MS,
+            SWEEP_ACTIVE_THRESHOLD, SWEEP_MAX_VISITS_BETWEEN_FULL);
+    private final ExecutorService locationLoader = Executors.newSingleThreadExecutor(); // getLocations 不在主執行緒呼叫
+    private final LocationRegistry locations; // 地點名稱、座標與成本矩陣的快取
+    private boolean startRequested; // 等待地點載入後開始巡邏，只在主執行緒存取
 
 
-    public PatrolHelper(Context context) {
+    // 與畫面共用同一個 CameraXHelper，所有拍照都經過同一個拍照排程
+    public PatrolHelper(Context context, CameraXHelper cameraXHelper) {
 
         this.robot = Robot.getInstance();
-        this.cameraXHelper = new CameraXHelper(context); // 初始化 CameraXHelper
+        this.cameraXHelper = cameraXHelper;
+        this.locations = new LocationRegistry(() -> robot.getLocations(), locationLoader,
+                routeTracker.getLegCosts(), Clock.SYSTEM);
+        // 地點新增或刪除時重新分段；只有座標改變時不通知
+        this.locations.setListener(snapshot -> mainHandler.post(() -> updateSharedRoute(snapshot.getNames())));
+        this.chargePlanner.setLocations(locations);
+        this.patrol = new PatrolStateMachine(new TemiPatrolRobot(), new HandlerScheduler(mainHandler),
+                Clock.SYSTEM, new PatrolConfig().setBurstInFlight(SWEEP_BURST_IN_FLIGHT));
+        this.patrol.setListener(new PatrolStateMachine.Listener() {
+            @Override
+            public void onStateChanged(PatrolStateMachine.State from, PatrolStateMachine.State to) {
+                Log.d(TAG, "巡邏狀態：" + from + " -> " + to);
+                // 移動中的畫面變化不是事件，不拍告警照片
+                cameraXHelper.setAnalysisPaused(to == PatrolStateMachine.State.NAVIGATING
+                        || to == PatrolStateMachine.State.TURNING);
+                if (coordinator != null) {
+                    coordinator.onStateChanged(to);
+                }
+            }
+
+            @Override
+            public void onWaypointCompleted(String location, long travelMillis, long sweepMillis) {
+                Log.d(TAG, "動作執行完成，繼續巡邏。" + location + " 行進 " + travelMillis + "ms，停留 " + sweepMillis + "ms");
+                batteryModel.onLeg(routeTracker.getLastLegMeters(), travelMillis);
+                batteryModel.onWaypoint(sweepMillis);
+                if (burst != null) {
+                    Log.d(TAG, "環拍統計：" + burst.finish());
+                    burst = null;
+                }
+            }
+
+            @Override
+            public void onLapCompleted(long lap) {
+                Log.d(TAG, "完成一圈：" + routeTracker.onLapCompleted(System.currentTimeMillis()));
+                Log.d(TAG, "最近一小時完成 " + patrol.getNavigationSupervisor().getWaypointsPerHour() + " 個地點，跳過 "
+                        + patrol.getSkippedWaypoints() + " 次");
+                Log.d(TAG, "電池模型：" + batteryModel);
+                Log.d(TAG, "本圈環拍節省 " + sweepPolicy.onLapCompleted() / 1000 + " 秒：" + sweepPolicy.describe());
+                if (eventLog != null) {
+                    eventLog.flush(); // 每圈寫入一次，當機時最多遺失一圈
+                }
+            }
+        });
+        this.eventLog = openEventLog(context);
+        final FrameUploadService uploadService = FrameUploadService.getInstance(context);
+        if (uploadService != null && eventLog != null) {
+            uploadService.setUploadListener((name, bytes, durationNanos, success) ->
+                    eventLog.onUpload(name, bytes, durationNanos / 1000000, success));
+        }
+        if (uploadService != null) {
+            telemetry.setSink((batch, sampleCount, firstTimestampMillis) -> {
+                try {
+                    uploadService.enqueue("telemetry/POS_" + firstTimestampMillis + ".bin", firstTimestampMillis, batch);
+                } catch (IOException e) {
+                    Log.e(TAG, "遙測寫入失敗: " + e.getMessage());
+                }
+            });
+        }
+        // 每圈從快取的地點規劃路線，不呼叫 SDK；地點與已知座標不變時直接使用快取的路線
+        this.patrol.setRouteSource(() -> planRoute(locations.getSnapshot()));
+        // 不再每圈經過充電座，改由電池模型預估需要時才插入
+        this.patrol.setDockPolicy(chargePlanner);
+        // 導航失敗時不再停止巡邏：重試用完的地點暫時跳過，從目前位置重排本圈剩下的地點
+        this.patrol.setReplanner(routeTracker::planRemaining);
+        // 每個地點依各方向最近是否有變化決定停留時間與拍幾個方向，不再一律 10 秒、8 個方向
+        this.patrol.setSweepPolicy(sweepPolicy);
+        cameraXHelper.getChangeDetector().setListener(sweepPolicy::onChangeResult);
+        registerMetrics(MetricsRegistry.getDefault());
+        loadRoiTable(new File(context.getFilesDir(), ROI_FILE));
+        loadPriorities(new File(context.getFilesDir(), PRIORITY_FILE));
+    }
+
+    // 重新讀取各地點的優先度，可在巡邏中呼叫，下一次抵達時生效；讀取失敗時已讀到的行仍然生效
+    public void loadPriorities(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            Log.d(TAG, "地點優先度：" + sweepPolicy.loadPriorities(reader) + " 個");
+        } catch (IOException e) {
+            Log.e(TAG, "地點優先度讀取失敗: " + e.getMessage());
+        }
+    }
+
+    // 操作員直接指定某地點的優先度
+    public void setWaypointPriority(String location, AdaptiveSweepPolicy.Priority priority) {
+        sweepPolicy.setPriority(location, priority);
+    }
+
+    // 重新讀取裁切區域，可在巡邏中呼叫；讀取失敗時維持原設定
+    public void loadRoiTable(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            RoiTable table = RoiTable.parse(reader, ROI_HEADING_TOLERANCE);
+            cameraXHelper.setRoiTable(table);
+            Log.d(TAG, "裁切區域：" + table.size() + " 個");
+        } catch (IOException e) {
+            Log.e(TAG, "裁切區域設定讀取失敗: " + e.getMessage());
+        }
+    }
+
+    // 與同一樓層的其他機器人分工巡邏；須在開始巡邏前呼叫，只能啟用一次
+    public void enableCoordination(CoordinationTransport transport) {
+        if (coordinator != null) {
+            Log.d(TAG, "已啟用多機分工。");
+            return;
+        }
+        coordinator = new PatrolCoordinator(robot.getSerialNumber(), transport, COORD_LEASE_MS,
+                COORD_SWEEP_WINDOW_MS, COORD_OVERDUE_MS, COORD_HEARTBEAT_TIMEOUT_MS);
+        updateSharedRoute(locations.getSnapshot().getNames()); // 還沒載入時，載入完成後由 Listener 分段
+        patrol.setWaypointGate(coordinator);
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.register("coord.acquired", coordinator::getAcquired);
+        registry.register("coord.handed_off", coordinator::getHandedOff); // 由其他機器人負責而跳過
+        registry.register("coord.denied", coordinator::getDenied); // 租約被占用或最近已巡過
+        registry.register("coord.taken_over", coordinator::getTakenOver); // 接手逾期的地點
+        registry.register("coord.completed", coordinator::getCompleted);
+    }
+
+    // 分段用的共用順序必須每台機器人都相同，所以不用各自學到的路線，而是依名稱排序；
+    // 以區域為地點命名的前綴（例如 A1、A2、B1）可讓每台負責的地點集中在一起
+    private void updateSharedRoute(List<String> names) {
+        if (coordinator == null || names == null || names.isEmpty()) {
+            return;
+        }
+        List<String> shared = new ArrayList<>(names);
+        Collections.sort(shared, String.CASE_INSENSITIVE_ORDER);
+        coordinator.setRoute(shared);
+        Log.d(TAG, "多機分工，本機負責：" + coordinator.getAssignedWaypoints());
+    }
+
+    private static EventLogWriter openEventLog(Context context) {
+        try {
+            return EventLogWriter.open(new File(context.getFilesDir(), EVENT_LOG_FILE), Clock.SYSTEM, EVENT_LOG_MAX_BYTES);
+        } catch (IOException e) {
+            Log.e(TAG, "無法開啟事件記錄: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void registerMetrics(MetricsRegistry registry) {
+        registry.register("patrol.travel", patrol.getTravelTime()); // 出發到抵達
+        registry.register("patrol.waypoint", patrol.getWaypointTime()); // 抵達到拍完所有方向（含停留）
+        registry.register("patrol.sweep", patrol.getSweepTime()); // 第一張到最後一張完成
+        registry.register("patrol.laps", patrol::getLapsCompleted);
+        registry.register("patrol.turn_timeouts", patrol::getTurnTimeouts);
+        registry.register("patrol.capture_timeouts", patrol::getCaptureTimeouts);
+        registry.register("patrol.charge", patrol.getChargeTime()); // 抵達充電座到離開
+        registry.register("patrol.dock_visits", patrol::getDockVisits);
+        registry.register("patrol.nav_failures", patrol::getNavigationFailures);
+        registry.register("patrol.nav_timeouts", patrol::getNavigationTimeouts);
+        registry.register("patrol.skipped", patrol::getSkippedWaypoints);
+        registry.register("patrol.blacklisted", patrol.getNavigationSupervisor()::getBlacklistedCount);
+        registry.register("patrol.waypoints_per_hour", patrol.getNavigationSupervisor()::getWaypointsPerHour); // 可用度
+        registry.register("sweep.full", sweepPolicy::getFullSweeps);
+        registry.register("sweep.reduced", sweepPolicy::getReducedSweeps); // 有變化：照常停留，只拍部分方向
+        registry.register("sweep.quiet", sweepPolicy::getQuietSweeps); // 沒有變化：短停留、縮圖
+        registry.register("sweep.skipped_headings", sweepPolicy::getSkippedHeadings);
+        registry.register("sweep.saved_ms", sweepPolicy::getSavedMillis); // 與每站都完整環拍相比
+        registry.register("sweep.lap_saved_ms", sweepPolicy::getLastLapSavedMillis);
+        registry.register("locations.load", locations.getLoadTime()); // 背景執行緒上呼叫 getLocations 的時間
+        registry.register("locations.loads", locations::getLoadCount);
+        registry.register("locations.load_failures", locations::getLoadFailures);
+        registry.register("locations.hits", locations::getHitCount); // 直接由快取回答
+        registry.register("locations.invalidations", locations::getInvalidationCount);
+        registry.register("locations.pushes", locations::getPushCount); // SDK 主動推送的地點更新
+        registry.register("battery.percent", battery::getBatteryPercent);
+        registry.register("telemetry.received", telemetry::getReceivedCount);
+        registry.register("telemetry.accepted", telemetry::getAcceptedCount);
     }
 
     public void initPatrol() {
         robot.addOnRobotReadyListener(this);
         robot.addOnGoToLocationStatusChangedListener(this);
         robot.addOnCurrentPositionChangedListener(this);
+        robot.addOnMovementStatusChangedListener(this);
+        robot.addOnBatteryStatusChangedListener(this);
+        robot.addOnLocationsUpdatedListener(this);
+        battery.update(robot.getBatteryData());
     }
 
+    // 地點已在快取中時立即開始；否則在背景載入，完成後回到主執行緒開始，不阻塞畫面
     public void startPatrolling() {
-        if (!isPatrolling) {
-            patrolPoints = robot.getLocations();
-            if (patrolPoints != null && !patrolPoints.isEmpty()) {
-                isPatrolling = true;
-                currentPointIndex = 0;
-                goToNextPoint();
-                Log.d(TAG, "開始巡邏。");
-            } else {
-                Log.d(TAG, "沒有已保存的地點。");
-            }
-        } else {
+        if (patrol.isPatrolling() || startRequested) {
             Log.d(TAG, "已經在巡邏中。");
+            return;
         }
+        startRequested = true;
+        locations.load(snapshot -> mainHandler.post(() -> startWith(snapshot)));
+    }
+
+    private void startWith(LocationSnapshot snapshot) {
+        if (!startRequested || patrol.isPatrolling()) {
+            return; // 載入期間已停止巡邏
+        }
+        startRequested = false;
+        List<String> patrolPoints = planRoute(snapshot);
+        updateSharedRoute(snapshot.getNames());
+        if (patrol.start(patrolPoints)) {
+            Log.d(TAG, "開始巡邏。");
+        } else {
+            Log.d(TAG, "沒有已保存的地點。");
+        }
+    }
+
+    // 地圖重新載入或地點在其他地方被修改時呼叫；下一圈使用重新載入的地點，並以新地圖的座標重新規劃路線
+    public void invalidateLocations() {
+        mainHandler.post(() -> {
+            routeTracker.resetMap();
+            locations.updatePoses(routeTracker.getPoses()); // 成本矩陣不再使用舊座標
+            locations.invalidate();
+        });
+    }
+
+    public LocationRegistry getLocationRegistry() {
+        return locations;
     }
 
 
 
+    // 停止巡邏，取消等待中的停留與轉身
     public void stopPatrolling() {
-        isPatrolling = false;
+        startRequested = false;
+        patrol.stop();
         Log.d(TAG, "停止巡邏。");
     }
 
     public void destroyPatrol() {
+        startRequested = false;
+        patrol.stop();
+        locationLoader.shutdown();
+        telemetry.flush(); // 送出尚未滿批的位置
+        if (eventLog != null) {
+            try {
+                eventLog.close();
+            } catch (IOException e) {
+                Log.e(TAG, "事件記錄關閉失敗: " + e.getMessage());
+            }
+        }
         robot.removeOnRobotReadyListener(this);
         robot.removeOnGoToLocationStatusChangedListener(this);
         robot.removeOnCurrentPositionChangedListener(this);
+        robot.removeOnMovementStatusChangedListener(this);
+        robot.removeOnBatteryStatusChangedListener(this);
+        robot.removeOnLocationsUpdatedListener(this);
     }
 
-    private void goToNextPoint() {
-        if (patrolPoints != null && !patrolPoints.isEmpty()) {
-            String destination = patrolPoints.get(currentPointIndex);
-            Log.d(TAG, "前往地點：" + destination);
-            //goTo(位置,是否倒著前往,是否繞過障礙物,設置速度等級)
-            robot.goTo(destination, false, null, SpeedLevel.SLOW);
-
+    // 依已知座標排出較短的巡邏順序，不經過充電座；地點還沒載入時回傳 null（狀態機沿用上一圈）
+    private List<String> planRoute(LocationSnapshot snapshot) {
+        if (snapshot.isEmpty()) {
+            return null;
         }
+        List<String> route = routeTracker.planLap(snapshot.getNames(), System.currentTimeMillis());
+        Log.d(TAG, "巡邏路線：" + route + "，目前電量可巡 "
+                + chargePlanner.forecastStops(route, 0, null, battery.getBatteryPercent()) + " 個地點");
+        return route;
+    }
+
+    public PositionTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    public PatrolStateMachine getPatrolStateMachine() {
+        return patrol;
+    }
+
+    // 在主執行緒上重播記錄的機器人回呼，驅動與真實回呼相同的處理流程（會實際指揮機器人）
+    // speed 為 1 時與記錄同速，0 表示盡快送出；拍照與上傳事件只是記錄結果，重播時略過
+    public EventReplayer replayEvents(File log, double speed) throws IOException {
+        EventReplayer replayer = new EventReplayer(EventLogReader.open(log), new HandlerScheduler(mainHandler),
+                Clock.SYSTEM, speed);
+        replayer.start(new PatrolEvents() {
+            @Override
+            public void onGoToStatus(String location, String status, int id, String description) {
+                handleGoToStatus(location, status);
+            }
+
+            @Override
+            public void onPosition(float x, float y, float yaw, int tiltAngle) {
+                handlePosition(x, y, yaw);
+            }
+
+            @Override
+            public void onMovementStatus(String type, String status) {
+                handleMovementStatus(type, status);
+            }
+
+            @Override
+            public void onRobotReady(boolean ready) {
+                handleRobotReady(ready);
+            }
+
+            @Override
+            public void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+            }
+
+            @Override
+            public void onUpload(String name, int bytes, long durationMillis, boolean success) {
+            }
+        }, () -> Log.d(TAG, "事件重播完成：" + log));
+        return replayer;
     }
 
     // 設定 Temi 機器人頭部傾斜角度
@@ -93,70 +445,154 @@ public class PatrolHelper implements
         }
     }
 
+    // 每個回呼先寫入事件記錄，再交給與重播共用的處理方法
     @Override
     public void onRobotReady(boolean isReady) {
+        if (eventLog != null) {
+            eventLog.onRobotReady(isReady);
+        }
+        handleRobotReady(isReady);
+    }
+
+    private void handleRobotReady(boolean isReady) {
         if (isReady) {
             Log.d(TAG, "機器人已準備就緒。");
+            locations.invalidate(); // 未就緒期間地圖可能被換過；還沒用過地點時不會載入
             robot.hideTopBar();
         }
     }
 
     @Override
     public void onGoToLocationStatusChanged(@NotNull String location, String status, int id, @NotNull String desc) {
-        Log.d(TAG, "地點：" + location + ", 狀態：" + status);
+        Log.d(TAG, "地點：" + location + ", 狀態：" + status + ", id：" + id + ", 說明：" + desc);
+        if (eventLog != null) {
+            eventLog.onGoToStatus(location, status, id, desc);
+        }
+        handleGoToStatus(location, status);
+    }
+
+    private void handleGoToStatus(String location, String status) {
         if (status.equalsIgnoreCase("complete")) {
-            // 如果到達的是充電桩，不執行定點動作，但繼續巡邏
-            if ("home base".equalsIgnoreCase(location)) {
-                Log.d(TAG, "機器人已到達充電桩，不執行動作，繼續巡邏至下一個地點。");
-                // 前往下一個地點
-                currentPointIndex = (currentPointIndex + 1) % patrolPoints.size();
-                goToNextPoint();
-                return;  // 跳過後面的動作執行
-            }
-            // 到達地點後暫停
-            Log.d(TAG, "到達 " + location + "，執行定點動作...");
-
-            // 暫停巡邏一段時間或等待執行動作
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                // 轉身並拍照的邏輯
-                new Handler(Looper.getMainLooper()).post(new Runnable() {
-                    int turnCount = 0;//設定轉動次數
-                    @Override
-                    public void run() {
-                        if (turnCount < 8) {
-                            turnAndCapture(45);  // 每次轉 45 度並拍照
-                            turnCount++;
-                            new Handler(Looper.getMainLooper()).postDelayed(this, 1000);  // 每次延遲2秒再繼續
-                        } else {
-                            Log.d(TAG, "動作執行完成，繼續巡邏");
-
-                            if (!patrolPoints.isEmpty()) {
-                                currentPointIndex = (currentPointIndex + 1) % patrolPoints.size();
-                                goToNextPoint();
-                            }
-                        }
-                    }
-                });
-            }, 10000); // 停留10秒，根據需要調整
-        } else if (status.equalsIgnoreCase("abort")) {
-            // 如果導航失敗，停止巡邏
-            isPatrolling = false;
-            Log.d(TAG, "導航中止，停止巡邏。");
+            routeTracker.onArrived(location);
+            locations.updatePoses(routeTracker.getPoses()); // 新的座標與量測距離更新到成本矩陣
+        }
+        patrol.onGoToStatus(location, status);
+    }
+
+    // turnBy 完成（或中止）時繼續下一個方向
+    @Override
+    public void onMovementStatusChanged(@NotNull String type, @NotNull String status) {
+        if (eventLog != null) {
+            eventLog.onMovementStatus(type, status);
+        }
+        handleMovementStatus(type, status);
+    }
+
+    private void handleMovementStatus(String type, String status) {
+        if (OnMovementStatusChangedListener.TYPE_TURN_BY.equals(type)
+                && (OnMovementStatusChangedListener.STATUS_COMPLETE.equals(status)
+                || OnMovementStatusChangedListener.STATUS_ABORT.equals(status))) {
+            patrol.onTurnCompleted();
         }
     }
 
 
 
+    // 地點新增、刪除或換地圖時 SDK 主動推送完整列表，直接取代快取
+    @Override
+    public void onLocationsUpdated(@NotNull List<String> updated) {
+        Log.d(TAG, "地點更新：" + updated.size() + " 個");
+        locations.onLocationsUpdated(updated);
+    }
+
+    // 電池讀數同時更新充電排程讀取的快取與電池模型
+    @Override
+    public void onBatteryStatusChanged(BatteryData batteryData) {
+        battery.update(batteryData);
+        if (batteryData != null) {
+            batteryModel.onReading(System.currentTimeMillis(), batteryData.getBatteryPercentage(),
+                    batteryData.isCharging(), routeTracker.getOdometerMeters());
+        }
+    }
+
+    // 最高頻的回呼：不組字串、不逐筆寫 log，只記錄到遙測緩衝
     @Override
     public void onCurrentPositionChanged(Position position) {
-        float x = position.getX();
-        float y = position.getY();
-        Log.d(TAG, "當前位置：x=" + x + ", y=" + y);
+        if (eventLog != null) {
+            eventLog.onPosition(position.getX(), position.getY(), position.getYaw(), position.getTiltAngle());
+        }
+        handlePosition(position.getX(), position.getY(), position.getYaw());
+    }
+
+    private void handlePosition(float x, float y, float yaw) {
+        long now = System.currentTimeMillis();
+        lastX = x;
+        lastY = y;
+        routeTracker.onPosition(x, y);
+        if (coordinator != null) {
+            coordinator.heartbeat();
+        }
+        if (telemetry.onSample(now, x, y, yaw)) {
+            boolean nowStalled = patrol.getState() == PatrolStateMachine.State.NAVIGATING
+                    && telemetry.isStalled(now, STALL_WINDOW_MS, STALL_RADIUS);
+            if (nowStalled != stalled) {
+                stalled = nowStalled;
+                Log.d(TAG, nowStalled ? "導航中停滯，位置：x=" + x + ", y=" + y : "恢復移動");
+                if (nowStalled) {
+                    patrol.onNavigationStalled(); // 視同導航失敗，退避後重新下達 goTo
+                }
+            }
+        }
     }
 
-    private void turnAndCapture(int degrees) {
-        // 使用turnBy 方法
-        robot.turnBy(degrees, 1.0f);
-        cameraXHelper.capturePhoto();
+    // 狀態機對 Temi 與相機的實際操作
+    private class TemiPatrolRobot implements PatrolRobot {
+        @Override
+        public void goTo(String destination) {
+            Log.d(TAG, "前往地點：" + destination);
+            routeTracker.onLegStarted();
+            //goTo(位置,是否倒著前往,是否繞過障礙物,設置速度等級)
+            robot.goTo(destination, false, null, SpeedLevel.SLOW);
+        }
+
+        @Override
+        public void turnBy(int degrees) {
+            robot.turnBy(degrees, 1.0f);
+        }
+
+        // 每個地點的第一張開始新的環拍，設定檔依這一站的環拍方式；回呼在相機執行緒上，轉回主執行緒交給狀態機
+        @Override
+        public void capturePhoto(final String location, final int sweep, final int shot, int headingDegrees) {
+            if (burst == null || sweep != burstSweep) {
+                if (burst != null) {
+                    burst.finish(); // 上一個地點沒有正常結束（例如中途停止）
+                }
+                burst = cameraXHelper.beginBurst(location, patrol.getCurrentPlan().getProfile());
+                burstSweep = sweep;
+            }
+            burst.capture(headingDegrees, lastX, lastY, new CaptureBurst.Listener() {
+                @Override
+                public void onShutter(int sequence, int heading) {
+                    mainHandler.post(() -> patrol.onShutter(sweep, shot));
+                }
+
+                @Override
+                public void onCaptured(int sequence, int heading) {
+                    if (eventLog != null) {
+                        eventLog.onCapture(location, sequence, heading, true);
+                    }
+                    mainHandler.post(() -> patrol.onCaptureCompleted(sweep, shot));
+                }
+
+                @Override
+                public void onError(int sequence, int heading, Exception e) {
+                    Log.e(TAG, "第 " + sequence + " 張（" + heading + " 度）拍照失敗，繼續下一個方向: " + e.getMessage());
+                    if (eventLog != null) {
+                        eventLog.onCapture(location, sequence, heading, false);
+                    }
+                    mainHandler.post(() -> patrol.onCaptureCompleted(sweep, shot));
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,28 @@
+package com.example.temilib;
+
+import com.robotemi.sdk.BatteryData;
+
+import com.example.temilib.power.BatterySource;
+
+// temi 電池回報的快取；由 PatrolHelper 在電池回呼中更新，ChargePlanner 在主執行緒讀取
+public class TemiBatterySource implements BatterySource {
+    private volatile int percent = -1;
+    private volatile boolean charging;
+
+    public void update(BatteryData data) {
+        if (data != null) {
+            percent = data.getBatteryPercentage();
+            charging = data.isCharging();
+        }
+    }
+
+    @Override
+    public int getBatteryPercent() {
+        return percent;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return charging;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.temilib.coord;
+
+import java.util.List;
+
+// 多台機器人共用的工作佇列：地點租約、巡過的時間與各機器人的心跳
+// 實作須讓所有機器人看到一致的狀態，時間一律以傳輸層（伺服器）的時鐘為準，避免各機器人時鐘不同步
+// 正式環境可接到共用的資料庫交易；LoopbackTransport 在同一程序內模擬
+// PatrolCoordinator 在狀態機執行緒上同步呼叫，實作不可阻塞太久
+public interface CoordinationTransport {
+    // 取得地點租約：沒有其他機器人持有未過期的租約，且最近 sweepWindowMillis 內沒有人巡過才成功；
+    // 自己已持有時延長租約
+    boolean claim(String waypoint, String robotId, long leaseMillis, long sweepWindowMillis);
+
+    // 巡完地點：記錄巡過的時間並釋放租約
+    void complete(String waypoint, String robotId);
+
+    // 放棄租約（例如改去充電或導航失敗），只釋放自己持有的租約
+    void release(String waypoint, String robotId);
+
+    // 距離上次有人巡完此地點多久；從沒巡過時為第一次被詢問起算
+    long getMillisSinceSwept(String waypoint);
+
+    void heartbeat(String robotId, RobotStatus.Availability availability, String location);
+
+    // 所有送過心跳的機器人（含已過期的），由呼叫端依 getUpdatedMillis 判斷是否仍在線
+    List<RobotStatus> getRobots();
+
+    long currentTimeMillis();
+}
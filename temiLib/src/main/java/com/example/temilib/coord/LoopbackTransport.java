@@ -0,0 +1,130 @@
+package com.example.temilib.coord;
+
+import com.example.cameraxlib.util.Clock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 同一程序內的 CoordinationTransport：多個 PatrolCoordinator 共用一個實例，用於測試、模擬與基準測試
+// 另外記錄每個地點巡過的間隔，用來檢查有沒有在同一時段內被巡兩次、以及最久多久沒人巡
+public class LoopbackTransport implements CoordinationTransport {
+    private static class Lease {
+        String robotId;
+        long expiresAtMillis;
+    }
+
+    private final Clock clock;
+    private final Map<String, Lease> leases = new HashMap<>(); // 地點（小寫）→ 租約
+    private final Map<String, Long> sweptAt = new HashMap<>(); // 地點 → 最後巡完的時間
+    private final Map<String, Long> firstSeen = new HashMap<>();
+    private final TreeMap<String, RobotStatus> robots = new TreeMap<>();
+    private long claims;
+    private long denials;
+    private long completions;
+    private long maxSweepGapMillis;
+
+    public LoopbackTransport(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized boolean claim(String waypoint, String robotId, long leaseMillis, long sweepWindowMillis) {
+        String key = key(waypoint);
+        long now = clock.currentTimeMillis();
+        Lease lease = leases.get(key);
+        boolean mine = lease != null && lease.robotId.equals(robotId) && lease.expiresAtMillis > now;
+        if (!mine) {
+            Long swept = sweptAt.get(key);
+            if ((lease != null && lease.expiresAtMillis > now)
+                    || (swept != null && now - swept < sweepWindowMillis)) {
+                denials++;
+                return false;
+            }
+            lease = new Lease();
+            lease.robotId = robotId;
+            leases.put(key, lease);
+            claims++;
+        }
+        lease.expiresAtMillis = now + leaseMillis;
+        return true;
+    }
+
+    @Override
+    public synchronized void complete(String waypoint, String robotId) {
+        String key = key(waypoint);
+        long now = clock.currentTimeMillis();
+        Long previous = sweptAt.get(key);
+        long since = previous != null ? previous : firstSeenMillis(key, now);
+        maxSweepGapMillis = Math.max(maxSweepGapMillis, now - since);
+        sweptAt.put(key, now);
+        completions++;
+        release(waypoint, robotId);
+    }
+
+    @Override
+    public synchronized void release(String waypoint, String robotId) {
+        String key = key(waypoint);
+        Lease lease = leases.get(key);
+        if (lease != null && lease.robotId.equals(robotId)) {
+            leases.remove(key);
+        }
+    }
+
+    @Override
+    public synchronized long getMillisSinceSwept(String waypoint) {
+        String key = key(waypoint);
+        long now = clock.currentTimeMillis();
+        Long swept = sweptAt.get(key);
+        return now - (swept != null ? swept : firstSeenMillis(key, now));
+    }
+
+    private long firstSeenMillis(String key, long now) {
+        Long seen = firstSeen.get(key);
+        if (seen == null) {
+            firstSeen.put(key, now);
+            return now;
+        }
+        return seen;
+    }
+
+    @Override
+    public synchronized void heartbeat(String robotId, RobotStatus.Availability availability, String location) {
+        robots.put(robotId, new RobotStatus(robotId, availability, location, clock.currentTimeMillis()));
+    }
+
+    @Override
+    public synchronized List<RobotStatus> getRobots() {
+        return new ArrayList<>(robots.values());
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return clock.currentTimeMillis();
+    }
+
+    public synchronized long getClaims() {
+        return claims;
+    }
+
+    // 因他人持有租約或最近已巡過而被拒絕的次數
+    public synchronized long getDenials() {
+        return denials;
+    }
+
+    public synchronized long getCompletions() {
+        return completions;
+    }
+
+    // 同一地點兩次巡完之間（或從第一次被詢問到第一次巡完）最長的間隔
+    public synchronized long getMaxSweepGapMillis() {
+        return maxSweepGapMillis;
+    }
+
+    private static String key(String waypoint) {
+        return waypoint.toLowerCase(Locale.ROOT);
+    }
+}
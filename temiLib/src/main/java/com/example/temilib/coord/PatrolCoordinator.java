@@ -0,0 +1,234 @@
+package com.example.temilib.coord;
+
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolStateMachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 多台機器人在同一樓層巡邏時的分工：共用的路線依序切成連續的幾段，每台在線且可巡邏的機器人負責一段
+// （依機器人編號排序），充電中、卡住或心跳過期的機器人不分配，它的地點自動由其他機器人分攤
+// 出發前以租約取得地點，同一地點在 sweepWindowMillis 內只會被巡一次；
+// 超過 overdueMillis 沒人巡的地點任何機器人都可以接手，補上分工改變或機器人失聯時的空檔
+// 所有方法須在狀態機的執行緒呼叫
+public class PatrolCoordinator implements PatrolStateMachine.WaypointGate {
+    private static final long MIN_RETRY_MILLIS = 1000;
+
+    private final String robotId;
+    private final CoordinationTransport transport;
+    private final long leaseMillis;
+    private final long sweepWindowMillis;
+    private final long overdueMillis;
+    private final long heartbeatTimeoutMillis;
+
+    private List<String> route = Collections.emptyList();
+    private final Map<String, Integer> routeIndex = new HashMap<>(); // 地點（小寫）→ 在共用路線中的位置
+    private String held; // 目前持有租約的地點
+    private RobotStatus.Availability availability = RobotStatus.Availability.ACTIVE;
+    private String lastArrived;
+    private long lastHeartbeatMillis = Long.MIN_VALUE;
+
+    private long acquired;
+    private long handedOff; // 由其他機器人負責
+    private long denied; // 租約被他人持有或最近已巡過
+    private long takenOver; // 接手其他機器人負責但逾期的地點
+    private long completed;
+
+    public PatrolCoordinator(String robotId, CoordinationTransport transport, long leaseMillis,
+                             long sweepWindowMillis, long overdueMillis, long heartbeatTimeoutMillis) {
+        if (overdueMillis < sweepWindowMillis) {
+            throw new IllegalArgumentException("overdueMillis 不可小於 sweepWindowMillis");
+        }
+        this.robotId = robotId;
+        this.transport = transport;
+        this.leaseMillis = leaseMillis;
+        this.sweepWindowMillis = sweepWindowMillis;
+        this.overdueMillis = overdueMillis;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+    }
+
+    // 所有機器人共用的地點順序（例如從充電座出發的最近鄰路線），必須每台都相同；充電座不分配
+    public void setRoute(List<String> locations) {
+        List<String> shared = new ArrayList<>();
+        routeIndex.clear();
+        for (String name : locations) {
+            String key = key(name);
+            if (!PatrolConfig.isHomeBase(name) && !routeIndex.containsKey(key)) {
+                routeIndex.put(key, shared.size());
+                shared.add(name);
+            }
+        }
+        route = Collections.unmodifiableList(shared);
+    }
+
+    @Override
+    public boolean tryAcquire(String location) {
+        Integer index = routeIndex.get(key(location));
+        if (index == null) {
+            return true; // 充電座或不在共用路線中的地點
+        }
+        setAvailability(RobotStatus.Availability.ACTIVE);
+        boolean mine = robotId.equals(ownerOf(index, activeRobots()));
+        if (!mine && transport.getMillisSinceSwept(location) < overdueMillis) {
+            handedOff++;
+            return false;
+        }
+        if (!transport.claim(location, robotId, leaseMillis, sweepWindowMillis)) {
+            denied++;
+            return false;
+        }
+        if (!location.equalsIgnoreCase(held)) {
+            acquired++;
+            if (!mine) {
+                takenOver++;
+            }
+        }
+        held = location;
+        return true;
+    }
+
+    @Override
+    public void release(String location) {
+        if (location.equalsIgnoreCase(held)) {
+            held = null;
+        }
+        if (routeIndex.containsKey(key(location))) {
+            transport.release(location, robotId);
+        }
+    }
+
+    @Override
+    public void onCompleted(String location) {
+        lastArrived = location;
+        if (location.equalsIgnoreCase(held)) {
+            held = null;
+        }
+        if (routeIndex.containsKey(key(location))) {
+            transport.complete(location, robotId);
+            completed++;
+        }
+    }
+
+    // 自己負責的地點最早何時離開巡過的時段，或其他地點最早何時逾期
+    @Override
+    public long getRetryDelayMillis() {
+        List<String> active = activeRobots();
+        long earliest = sweepWindowMillis;
+        for (int i = 0; i < route.size(); i++) {
+            long since = transport.getMillisSinceSwept(route.get(i));
+            long wait = robotId.equals(ownerOf(i, active)) ? sweepWindowMillis - since : overdueMillis - since;
+            earliest = Math.min(earliest, Math.max(wait, 0));
+        }
+        return Math.max(MIN_RETRY_MILLIS, earliest);
+    }
+
+    // 狀態機狀態改變時呼叫（由 Listener 轉過來）；導航失敗重試中視為卡住，只是在等地點可巡時仍可分配
+    public void onStateChanged(PatrolStateMachine.State state) {
+        switch (state) {
+            case CHARGING:
+                setAvailability(RobotStatus.Availability.DOCKED);
+                break;
+            case RECOVERING:
+                setAvailability(held != null ? RobotStatus.Availability.STUCK : RobotStatus.Availability.ACTIVE);
+                break;
+            case IDLE:
+                held = null;
+                setAvailability(RobotStatus.Availability.OFFLINE);
+                break;
+            default:
+                setAvailability(RobotStatus.Availability.ACTIVE);
+                break;
+        }
+    }
+
+    // 定期呼叫（例如位置更新時），狀態沒變時每四分之一心跳期限才送一次
+    public void heartbeat() {
+        long now = transport.currentTimeMillis();
+        if (lastHeartbeatMillis == Long.MIN_VALUE || now - lastHeartbeatMillis >= heartbeatTimeoutMillis / 4) {
+            sendHeartbeat(now);
+        }
+    }
+
+    private void setAvailability(RobotStatus.Availability next) {
+        if (next != availability) {
+            availability = next;
+            sendHeartbeat(transport.currentTimeMillis());
+        } else {
+            heartbeat();
+        }
+    }
+
+    private void sendHeartbeat(long now) {
+        lastHeartbeatMillis = now;
+        transport.heartbeat(robotId, availability, lastArrived);
+    }
+
+    // 可分配地點的機器人編號（已排序），一定包含自己
+    private List<String> activeRobots() {
+        long now = transport.currentTimeMillis();
+        List<String> active = new ArrayList<>();
+        for (RobotStatus status : transport.getRobots()) {
+            if (status.getAvailability() == RobotStatus.Availability.ACTIVE
+                    && now - status.getUpdatedMillis() <= heartbeatTimeoutMillis
+                    && !status.getRobotId().equals(robotId)) {
+                active.add(status.getRobotId());
+            }
+        }
+        active.add(robotId);
+        Collections.sort(active);
+        return active;
+    }
+
+    // 路線第 index 個地點由哪台機器人負責：路線依序平均切成 active.size() 段
+    private String ownerOf(int index, List<String> active) {
+        return active.get(index * active.size() / route.size());
+    }
+
+    // 目前分配給自己的地點，依共用路線順序
+    public List<String> getAssignedWaypoints() {
+        List<String> active = activeRobots();
+        List<String> assigned = new ArrayList<>();
+        for (int i = 0; i < route.size(); i++) {
+            if (robotId.equals(ownerOf(i, active))) {
+                assigned.add(route.get(i));
+            }
+        }
+        return assigned;
+    }
+
+    public String getRobotId() {
+        return robotId;
+    }
+
+    public RobotStatus.Availability getAvailability() {
+        return availability;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getHandedOff() {
+        return handedOff;
+    }
+
+    public long getDenied() {
+        return denied;
+    }
+
+    public long getTakenOver() {
+        return takenOver;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    private static String key(String location) {
+        return location.toLowerCase(Locale.ROOT);
+    }
+}
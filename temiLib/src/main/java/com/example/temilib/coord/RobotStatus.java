@@ -0,0 +1,45 @@
+package com.example.temilib.coord;
+
+// 一台機器人在共用工作佇列中的狀態；updatedMillis 為傳輸層收到心跳的時間
+public class RobotStatus {
+    public enum Availability {
+        ACTIVE, // 巡邏中，可分配地點
+        DOCKED, // 充電中
+        STUCK, // 導航失敗重試中
+        OFFLINE // 未巡邏
+    }
+
+    private final String robotId;
+    private final Availability availability;
+    private final String location;
+    private final long updatedMillis;
+
+    public RobotStatus(String robotId, Availability availability, String location, long updatedMillis) {
+        this.robotId = robotId;
+        this.availability = availability;
+        this.location = location;
+        this.updatedMillis = updatedMillis;
+    }
+
+    public String getRobotId() {
+        return robotId;
+    }
+
+    public Availability getAvailability() {
+        return availability;
+    }
+
+    // 最近到達的地點，可為 null
+    public String getLocation() {
+        return location;
+    }
+
+    public long getUpdatedMillis() {
+        return updatedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return robotId + " " + availability + (location != null ? " @" + location : "");
+    }
+}
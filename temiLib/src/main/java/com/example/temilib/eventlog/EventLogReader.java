@@ -0,0 +1,216 @@
+package com.example.temilib.eventlog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// 依序讀取 EventLogWriter 寫出的記錄檔：next() 讀入下一筆事件，dispatch() 把它送給 PatrolEvents
+// 檔尾不完整的記錄（寫到一半當機）視為結束
+public class EventLogReader {
+    private final ByteBuffer data;
+    private final long startEpochMillis;
+    private final List<String> strings = new ArrayList<>();
+    private long timestampNanos; // 相對於檔案時間零點
+    private byte type = -1;
+    private boolean truncated;
+    private long eventCount;
+
+    // 目前這筆事件的內容
+    private String text1;
+    private String text2;
+    private String text3;
+    private int int1;
+    private int int2;
+    private long long1;
+    private float x;
+    private float y;
+    private float yaw;
+    private boolean flag;
+
+    private EventLogReader(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.remaining() < EventLogWriter.HEADER_SIZE || data.getInt() != EventLogWriter.MAGIC) {
+            throw new IOException("不是事件記錄檔");
+        }
+        byte version = data.get();
+        if (version != EventLogWriter.VERSION) {
+            throw new IOException("不支援的事件記錄版本：" + version);
+        }
+        startEpochMillis = data.getLong();
+        strings.add(null); // 編號 0 表示 null
+    }
+
+    // 整個檔案讀進記憶體；單一檔案受 EventLogWriter 的大小上限限制
+    public static EventLogReader open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // 讀到滿為止
+            }
+            data.flip();
+            return new EventLogReader(data);
+        }
+    }
+
+    public static EventLogReader wrap(ByteBuffer data) throws IOException {
+        return new EventLogReader(data.duplicate());
+    }
+
+    // 讀入下一筆事件；沒有更多事件時回傳 false
+    public boolean next() {
+        while (data.hasRemaining()) {
+            int start = data.position();
+            try {
+                byte recordType = data.get();
+                long delta = getVarint();
+                if (recordType == EventLogWriter.TYPE_STRING) {
+                    int id = (int) getVarint();
+                    String value = getString();
+                    while (strings.size() <= id) {
+                        strings.add(null);
+                    }
+                    strings.set(id, value);
+                    continue;
+                }
+                readPayload(recordType);
+                timestampNanos += delta;
+                type = recordType;
+                eventCount++;
+                return true;
+            } catch (RuntimeException e) {
+                // BufferUnderflowException 或無法辨識的內容：從這裡開始的資料不完整
+                data.position(start);
+                truncated = true;
+                break;
+            }
+        }
+        type = -1;
+        return false;
+    }
+
+    private void readPayload(byte recordType) {
+        switch (recordType) {
+            case EventLogWriter.TYPE_GO_TO_STATUS:
+                text1 = stringRef();
+                text2 = stringRef();
+                int1 = (int) unzigzag(getVarint());
+                text3 = stringRef();
+                break;
+            case EventLogWriter.TYPE_POSITION:
+                x = data.getFloat();
+                y = data.getFloat();
+                yaw = data.getFloat();
+                int1 = (int) unzigzag(getVarint());
+                break;
+            case EventLogWriter.TYPE_MOVEMENT:
+                text1 = stringRef();
+                text2 = stringRef();
+                break;
+            case EventLogWriter.TYPE_READY:
+                flag = data.get() != 0;
+                break;
+            case EventLogWriter.TYPE_CAPTURE:
+                text1 = stringRef();
+                int1 = (int) unzigzag(getVarint());
+                int2 = (int) unzigzag(getVarint());
+                flag = data.get() != 0;
+                break;
+            case EventLogWriter.TYPE_UPLOAD:
+                text1 = getString();
+                int1 = (int) getVarint();
+                long1 = getVarint();
+                flag = data.get() != 0;
+                break;
+            default:
+                throw new IllegalStateException("未知的事件類型：" + recordType);
+        }
+    }
+
+    // 把目前這筆事件送給 target
+    public void dispatch(PatrolEvents target) {
+        switch (type) {
+            case EventLogWriter.TYPE_GO_TO_STATUS:
+                target.onGoToStatus(text1, text2, int1, text3);
+                break;
+            case EventLogWriter.TYPE_POSITION:
+                target.onPosition(x, y, yaw, int1);
+                break;
+            case EventLogWriter.TYPE_MOVEMENT:
+                target.onMovementStatus(text1, text2);
+                break;
+            case EventLogWriter.TYPE_READY:
+                target.onRobotReady(flag);
+                break;
+            case EventLogWriter.TYPE_CAPTURE:
+                target.onCapture(text1, int1, int2, flag);
+                break;
+            case EventLogWriter.TYPE_UPLOAD:
+                target.onUpload(text1, int1, long1, flag);
+                break;
+            default:
+                throw new IllegalStateException("沒有目前的事件");
+        }
+    }
+
+    private String stringRef() {
+        int id = (int) getVarint();
+        if (id >= strings.size()) {
+            throw new IllegalStateException("未定義的字串：" + id);
+        }
+        return strings.get(id);
+    }
+
+    private String getString() {
+        int length = (int) getVarint();
+        if (length > EventLogWriter.MAX_STRING_BYTES) {
+            throw new IllegalStateException("字串過長：" + length);
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, EventLogWriter.UTF_8);
+    }
+
+    private long getVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("varint 過長");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // 記錄檔時間零點對應的牆上時間（毫秒）
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    // 目前這筆事件的時間，相對於時間零點（奈秒，單調遞增）
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    // 目前這筆事件的類型（EventLogWriter.TYPE_*），沒有時為 -1
+    public byte getType() {
+        return type;
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    // 檔尾是否有不完整的記錄
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.temilib.eventlog;
+
+import com.example.cameraxlib.util.Clock;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+// 把巡邏事件寫成精簡的二進位記錄檔，供離線分析與 EventReplayer 重播
+// 檔頭：magic, version, 時間零點對應的牆上時間（毫秒）
+// 每筆記錄：type, 與上一筆的時間差（奈秒，varint）, 內容；重複出現的字串（地點、狀態）只寫一次，之後以編號引用
+// 事件先累積在記憶體緩衝，滿了或呼叫 flush 時才寫檔；檔案超過上限時改名為 .1 並重新開始，最多保留兩個檔案
+// 所有方法可在任何執行緒呼叫；寫檔失敗時丟棄該批事件，不影響呼叫端
+public class EventLogWriter implements PatrolEvents, Closeable {
+    static final int MAGIC = 0x5045564C; // "PEVL"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 13;
+    static final byte TYPE_STRING = 0;
+    static final byte TYPE_GO_TO_STATUS = 1;
+    static final byte TYPE_POSITION = 2;
+    static final byte TYPE_MOVEMENT = 3;
+    static final byte TYPE_READY = 4;
+    static final byte TYPE_CAPTURE = 5;
+    static final byte TYPE_UPLOAD = 6;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final int MAX_STRING_BYTES = 1024; // 過長的說明文字截斷，單筆記錄一定放得進緩衝
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int FLUSH_BYTES = 32 * 1024;
+    private static final int RECORD_RESERVE = 4 * (MAX_STRING_BYTES + 16) + 64; // 一筆記錄加上最多三個字串定義
+
+    private final File file;
+    private final Clock clock;
+    private final long maxFileBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final Map<String, Integer> strings = new HashMap<>(); // 目前檔案中已定義的字串
+    private FileChannel channel;
+    private long fileBytes;
+    private long lastNanos;
+    private long eventCount;
+    private long droppedCount;
+    private IOException lastError;
+
+    private EventLogWriter(File file, Clock clock, long maxFileBytes) {
+        this.file = file;
+        this.clock = clock;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    // 開啟新的記錄檔；上一次的記錄改名為 .1 保留
+    public static EventLogWriter open(File file, Clock clock, long maxFileBytes) throws IOException {
+        EventLogWriter writer = new EventLogWriter(file, clock, maxFileBytes);
+        writer.lastNanos = clock.nanoTime();
+        if (file.length() > 0) {
+            writer.rotate();
+        } else {
+            writer.startFile();
+        }
+        return writer;
+    }
+
+    private void startFile() throws IOException {
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.truncate(0);
+        strings.clear();
+        // 時間零點就是上一筆記錄的時間，之後的時間差接續計算
+        long epochMillis = clock.currentTimeMillis() - (clock.nanoTime() - lastNanos) / 1000000;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).put(VERSION).putLong(epochMillis).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileBytes = HEADER_SIZE;
+    }
+
+    private void rotate() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        File previous = new File(file.getPath() + ".1");
+        if (previous.exists() && !previous.delete()) {
+            throw new IOException("無法刪除舊的事件記錄：" + previous);
+        }
+        if (file.exists() && !file.renameTo(previous)) {
+            throw new IOException("無法輪替事件記錄：" + file);
+        }
+        startFile();
+    }
+
+    @Override
+    public synchronized void onGoToStatus(String location, String status, int id, String description) {
+        reserve();
+        int locationId = stringId(location);
+        int statusId = stringId(status);
+        int descriptionId = stringId(description);
+        begin(TYPE_GO_TO_STATUS);
+        putVarint(locationId);
+        putVarint(statusId);
+        putVarint(zigzag(id));
+        putVarint(descriptionId);
+        end();
+    }
+
+    @Override
+    public synchronized void onPosition(float x, float y, float yaw, int tiltAngle) {
+        reserve();
+        begin(TYPE_POSITION);
+        buffer.putFloat(x).putFloat(y).putFloat(yaw);
+        putVarint(zigzag(tiltAngle));
+        end();
+    }
+
+    @Override
+    public synchronized void onMovementStatus(String type, String status) {
+        reserve();
+        int typeId = stringId(type);
+        int statusId = stringId(status);
+        begin(TYPE_MOVEMENT);
+        putVarint(typeId);
+        putVarint(statusId);
+        end();
+    }
+
+    @Override
+    public synchronized void onRobotReady(boolean ready) {
+        reserve();
+        begin(TYPE_READY);
+        buffer.put((byte) (ready ? 1 : 0));
+        end();
+    }
+
+    @Override
+    public synchronized void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+        reserve();
+        int waypointId = stringId(waypoint);
+        begin(TYPE_CAPTURE);
+        putVarint(waypointId);
+        putVarint(zigzag(sequence));
+        putVarint(zigzag(headingDegrees));
+        buffer.put((byte) (success ? 1 : 0));
+        end();
+    }
+
+    // 上傳的名稱幾乎不重複，直接寫入不進字串表
+    @Override
+    public synchronized void onUpload(String name, int bytes, long durationMillis, boolean success) {
+        reserve();
+        byte[] encoded = encode(name);
+        begin(TYPE_UPLOAD);
+        putVarint(encoded.length);
+        buffer.put(encoded);
+        putVarint(bytes);
+        putVarint(Math.max(0, durationMillis));
+        buffer.put((byte) (success ? 1 : 0));
+        end();
+    }
+
+    // 把緩衝中的事件寫入檔案
+    public synchronized void flush() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        if (channel == null) { // 已關閉或輪替失敗
+            droppedCount++;
+            strings.clear();
+            buffer.clear();
+            return;
+        }
+        buffer.flip();
+        try {
+            int written = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, fileBytes + (written - buffer.remaining()));
+            }
+            fileBytes += written;
+            if (fileBytes >= maxFileBytes) {
+                rotate(); // 新檔案自帶字串表，可單獨讀取
+            }
+        } catch (IOException e) {
+            lastError = e;
+            droppedCount++;
+            strings.clear(); // 定義字串的記錄可能一起遺失，之後重新定義
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // 字串表：第一次出現時先寫一筆定義記錄；null 以 0 表示
+    private int stringId(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer id = strings.get(value);
+        if (id != null) {
+            return id;
+        }
+        int next = strings.size() + 1;
+        byte[] encoded = encode(value);
+        buffer.put(TYPE_STRING);
+        putVarint(0);
+        putVarint(next);
+        putVarint(encoded.length);
+        buffer.put(encoded);
+        strings.put(value, next);
+        return next;
+    }
+
+    private static byte[] encode(String value) {
+        byte[] encoded = (value != null ? value : "").getBytes(UTF_8);
+        if (encoded.length <= MAX_STRING_BYTES) {
+            return encoded;
+        }
+        byte[] truncated = new byte[MAX_STRING_BYTES];
+        System.arraycopy(encoded, 0, truncated, 0, MAX_STRING_BYTES);
+        return truncated;
+    }
+
+    private void begin(byte type) {
+        long now = clock.nanoTime();
+        buffer.put(type);
+        putVarint(Math.max(0, now - lastNanos));
+        lastNanos = Math.max(lastNanos, now);
+    }
+
+    private void end() {
+        eventCount++;
+        if (buffer.position() >= FLUSH_BYTES) {
+            flush();
+        }
+    }
+
+    // 空間不夠時先寫檔；寫檔可能輪替檔案並清掉字串表，所以只在一筆記錄（含字串定義）開始之前呼叫
+    private void reserve() {
+        if (buffer.remaining() < RECORD_RESERVE) {
+            flush();
+        }
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    // 因寫檔失敗而丟棄的批次數
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized IOException getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.temilib.eventlog;
+
+import com.example.cameraxlib.util.Clock;
+import com.example.temilib.patrol.Scheduler;
+
+// 把記錄的事件依原本的時間間隔再送一次：speed 為 1 時與記錄時同速，2 時兩倍速，0 表示不等待、盡快送出
+// 事件在 scheduler 的執行緒上送出（正式環境為主執行緒，與真實回呼相同），搭配 ManualScheduler 可在 JVM 上確定性地重現一次巡邏
+public class EventReplayer {
+    private final EventLogReader reader;
+    private final Scheduler scheduler;
+    private final Clock clock;
+    private final double speed;
+    private PatrolEvents target;
+    private Runnable onFinished;
+    private Scheduler.Cancellable pending;
+    private long firstTimestampNanos;
+    private long startedAtMillis;
+    private long replayedCount;
+    private boolean running;
+
+    public EventReplayer(EventLogReader reader, Scheduler scheduler, Clock clock, double speed) {
+        this.reader = reader;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.speed = speed;
+    }
+
+    // 開始重播；全部送完後在 scheduler 上呼叫 onFinished（可為 null）
+    public void start(PatrolEvents target, Runnable onFinished) {
+        if (running) {
+            return;
+        }
+        this.target = target;
+        this.onFinished = onFinished;
+        running = true;
+        if (!reader.next()) {
+            finish();
+            return;
+        }
+        firstTimestampNanos = reader.getTimestampNanos();
+        startedAtMillis = clock.currentTimeMillis();
+        scheduleCurrent();
+    }
+
+    // 以事件在記錄中的相對時間換算成重播時間，避免逐筆累積誤差
+    private void scheduleCurrent() {
+        long delay = 0;
+        if (speed > 0) {
+            long offsetMillis = (long) ((reader.getTimestampNanos() - firstTimestampNanos) / 1000000 / speed);
+            delay = startedAtMillis + offsetMillis - clock.currentTimeMillis();
+        }
+        pending = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!running) {
+                    return;
+                }
+                reader.dispatch(target);
+                replayedCount++;
+                if (reader.next()) {
+                    scheduleCurrent();
+                } else {
+                    finish();
+                }
+            }
+        }, Math.max(0, delay));
+    }
+
+    private void finish() {
+        running = false;
+        pending = null;
+        if (onFinished != null) {
+            onFinished.run();
+        }
+    }
+
+    // 停止重播，尚未送出的事件不再送出
+    public void stop() {
+        running = false;
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    // 不經過 scheduler，在呼叫端執行緒上一次送完剩下的事件，回傳送出的數量（供離線分析與基準測試）
+    public long replayAll(PatrolEvents target) {
+        long count = 0;
+        while (reader.next()) {
+            reader.dispatch(target);
+            count++;
+        }
+        replayedCount += count;
+        return count;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+}
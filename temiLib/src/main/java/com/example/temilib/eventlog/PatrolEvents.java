@@ -0,0 +1,18 @@
+package com.example.temilib.eventlog;
+
+// 巡邏過程中所有外部事件：機器人回呼、拍照與上傳結果
+// EventLogWriter 記錄這些事件，EventReplayer 依記錄的時間順序再送給同樣的介面
+public interface PatrolEvents {
+    void onGoToStatus(String location, String status, int id, String description);
+
+    void onPosition(float x, float y, float yaw, int tiltAngle);
+
+    void onMovementStatus(String type, String status);
+
+    void onRobotReady(boolean ready);
+
+    // sequence 為環拍中的第幾張，heading 為方向（度）
+    void onCapture(String waypoint, int sequence, int headingDegrees, boolean success);
+
+    void onUpload(String name, int bytes, long durationMillis, boolean success);
+}
@@ -0,0 +1,259 @@
+package com.example.temilib.location;
+
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.Clock;
+import com.example.temilib.route.LegCostTable;
+import com.example.temilib.route.Waypoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 地點資料的快取：第一次使用時才在載入執行緒上向 SDK 取得地點，之後直接回傳不可變的快照
+// 地圖改變時 invalidate，SDK 主動推送新地點時 onLocationsUpdated，到達地點後 updatePoses 更新座標與成本矩陣
+// 讀取快照不加鎖也不會呼叫 SDK，路線規劃與充電排程可在任何執行緒使用
+public class LocationRegistry {
+    // 可能阻塞（例如呼叫 SDK），只在載入執行緒上呼叫；失敗時拋出例外或回傳 null
+    public interface LocationSource {
+        List<String> loadLocations();
+    }
+
+    // 取得最新的快照；可能在載入執行緒上呼叫
+    public interface Callback {
+        void onLoaded(LocationSnapshot snapshot);
+    }
+
+    // 地點名稱改變（不含只有座標或距離改變）；可能在載入執行緒上呼叫
+    public interface Listener {
+        void onLocationsChanged(LocationSnapshot snapshot);
+    }
+
+    private final LocationSource source;
+    private final Executor loader;
+    private final LegCostTable legCosts; // 可為 null
+    private final Clock clock;
+    private volatile LocationSnapshot snapshot; // null 表示從未載入
+    private volatile boolean stale = true;
+    private volatile Listener listener;
+    private boolean loading;
+    private long generation; // 每次失效或推送都遞增，較舊的載入結果會被丟棄
+    private long version;
+    private List<String> names = Collections.emptyList();
+    private Map<String, Waypoint> poses = Collections.emptyMap();
+    private final List<Callback> waiting = new ArrayList<>();
+
+    private final LatencyHistogram loadTime = new LatencyHistogram(); // 向 SDK 取得地點所花的時間
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong(); // 直接由快取回答的讀取
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong pushes = new AtomicLong();
+
+    public LocationRegistry(LocationSource source, Executor loader, LegCostTable legCosts, Clock clock) {
+        this.source = source;
+        this.loader = loader;
+        this.legCosts = legCosts;
+        this.clock = clock;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 不阻塞：回傳目前的快照（可能已過期，從未載入時為 EMPTY）；過期或從未載入時在背景重新載入
+    public LocationSnapshot getSnapshot() {
+        LocationSnapshot current = snapshot;
+        if (current != null && !stale) {
+            hits.incrementAndGet();
+            return current;
+        }
+        startLoad();
+        return current != null ? current : LocationSnapshot.EMPTY;
+    }
+
+    // 取得最新的快照：快取有效時立即在呼叫端執行緒回呼，否則載入完成後在載入執行緒回呼
+    // 載入失敗時回呼目前的快照（可能是 EMPTY）
+    public void load(Callback callback) {
+        LocationSnapshot ready = null;
+        synchronized (this) {
+            if (snapshot != null && !stale) {
+                ready = snapshot;
+            } else {
+                waiting.add(callback);
+            }
+        }
+        if (ready != null) {
+            hits.incrementAndGet();
+            callback.onLoaded(ready);
+        } else {
+            startLoad();
+        }
+    }
+
+    // 地圖改變：目前的快照標為過期；已經有人用過時立即在背景重新載入，否則等第一次使用
+    public void invalidate() {
+        boolean reload;
+        synchronized (this) {
+            invalidations.incrementAndGet();
+            generation++;
+            stale = true;
+            reload = snapshot != null || !waiting.isEmpty();
+        }
+        if (reload) {
+            startLoad();
+        }
+    }
+
+    // SDK 主動推送的地點列表，直接取代快取，不必再呼叫 SDK
+    public void onLocationsUpdated(List<String> locations) {
+        if (locations == null) {
+            return;
+        }
+        pushes.incrementAndGet();
+        Publication publication;
+        synchronized (this) {
+            generation++; // 進行中的載入結果比這次推送舊
+            publication = publish(new ArrayList<>(locations), poses);
+        }
+        publication.deliver();
+    }
+
+    // 座標或量測距離改變（例如到達地點後），重建成本矩陣；名稱不變，不通知 Listener
+    public void updatePoses(Map<String, Waypoint> latest) {
+        Publication publication;
+        synchronized (this) {
+            Map<String, Waypoint> copy = new HashMap<>(latest);
+            if (snapshot == null) {
+                poses = copy; // 還沒載入地點，留到載入時使用
+                return;
+            }
+            publication = publish(names, copy);
+        }
+        publication.deliver();
+    }
+
+    private void startLoad() {
+        final long expected;
+        synchronized (this) {
+            if (loading) {
+                return;
+            }
+            loading = true;
+            expected = generation;
+        }
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                runLoad(expected);
+            }
+        });
+    }
+
+    private void runLoad(long expected) {
+        long start = clock.nanoTime();
+        List<String> loaded;
+        try {
+            loaded = source.loadLocations();
+        } catch (RuntimeException e) {
+            loaded = null;
+        }
+        loadTime.recordNanos(clock.nanoTime() - start);
+        loads.incrementAndGet();
+        Publication publication;
+        boolean retry = false;
+        synchronized (this) {
+            loading = false;
+            if (expected != generation) {
+                retry = stale; // 載入期間地圖又改了；若已有推送的新資料則不必重載
+                publication = stale ? null : new Publication(null, false, drainWaiting());
+            } else if (loaded == null) {
+                loadFailures.incrementAndGet();
+                publication = new Publication(snapshot != null ? snapshot : LocationSnapshot.EMPTY, false,
+                        drainWaiting()); // 維持過期狀態，下次讀取再試
+            } else {
+                publication = publish(new ArrayList<>(loaded), poses);
+            }
+        }
+        if (retry) {
+            startLoad();
+        } else if (publication != null) {
+            publication.deliver();
+        }
+    }
+
+    // 須持有鎖；建立新的快照並取出等待中的回呼，交給呼叫端在鎖外通知
+    private Publication publish(List<String> nextNames, Map<String, Waypoint> nextPoses) {
+        boolean changed = snapshot == null || !names.equals(nextNames);
+        names = Collections.unmodifiableList(nextNames);
+        poses = nextPoses;
+        LocationSnapshot next = new LocationSnapshot(++version, names, poses, legCosts);
+        snapshot = next;
+        stale = false;
+        return new Publication(next, changed, drainWaiting());
+    }
+
+    private List<Callback> drainWaiting() {
+        if (waiting.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Callback> drained = new ArrayList<>(waiting);
+        waiting.clear();
+        return drained;
+    }
+
+    // 在鎖外通知的內容
+    private class Publication {
+        final LocationSnapshot result; // null 表示使用最新的快照
+        final boolean namesChanged;
+        final List<Callback> callbacks;
+
+        Publication(LocationSnapshot result, boolean namesChanged, List<Callback> callbacks) {
+            this.result = result;
+            this.namesChanged = namesChanged;
+            this.callbacks = callbacks;
+        }
+
+        void deliver() {
+            LocationSnapshot delivered = result != null ? result : snapshot;
+            Listener current = listener;
+            if (namesChanged && current != null) {
+                current.onLocationsChanged(delivered);
+            }
+            for (Callback callback : callbacks) {
+                callback.onLoaded(delivered);
+            }
+        }
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public LatencyHistogram getLoadTime() {
+        return loadTime;
+    }
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.get();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public long getPushCount() {
+        return pushes.get();
+    }
+}
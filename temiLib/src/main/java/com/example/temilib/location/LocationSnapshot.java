@@ -0,0 +1,152 @@
+package com.example.temilib.location;
+
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.route.LegCostTable;
+import com.example.temilib.route.RoutePlanner;
+import com.example.temilib.route.Waypoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 某一時刻的地點資料：名稱（依 SDK 的順序）、已知座標，以及兩兩之間的行走成本矩陣
+// 建立後不再改變，可在任何執行緒讀取；地點、座標或量測距離改變時由 LocationRegistry 建立新的快照取代
+// 名稱查詢不分大小寫且不配置物件；成本優先使用實際量得的距離，其次為直線距離，都沒有時為 -1
+public class LocationSnapshot implements RoutePlanner.CostFunction {
+    public static final LocationSnapshot EMPTY = new LocationSnapshot(0, Collections.<String>emptyList(),
+            Collections.<String, Waypoint>emptyMap(), null);
+
+    private final long version;
+    private final List<String> names;
+    private final List<String> patrolPoints; // 不含充電座
+    private final String homeBase; // 地圖上的充電座名稱；沒有時為 null
+    private final TreeMap<String, Integer> index = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, Waypoint> poses;
+    private final Waypoint[] poseByIndex;
+    private final double[][] costs;
+
+    // names 與 poses 會被複製；legCosts 可為 null（只用直線距離）
+    LocationSnapshot(long version, List<String> names, Map<String, Waypoint> poses, LegCostTable legCosts) {
+        this.version = version;
+        List<String> all = new ArrayList<>();
+        List<String> points = new ArrayList<>();
+        String home = null;
+        for (String name : names) {
+            if (name == null || index.containsKey(name)) {
+                continue; // SDK 偶爾回傳重複的名稱
+            }
+            index.put(name, all.size());
+            all.add(name);
+            if (PatrolConfig.isHomeBase(name)) {
+                home = name;
+            } else {
+                points.add(name);
+            }
+        }
+        this.names = Collections.unmodifiableList(all);
+        this.patrolPoints = Collections.unmodifiableList(points);
+        this.homeBase = home;
+        TreeMap<String, Waypoint> known = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        poseByIndex = new Waypoint[all.size()];
+        for (int i = 0; i < all.size(); i++) {
+            Waypoint pose = lookup(poses, all.get(i));
+            if (pose != null) {
+                poseByIndex[i] = pose;
+                known.put(all.get(i), pose);
+            }
+        }
+        this.poses = Collections.unmodifiableMap(known);
+        int n = all.size();
+        costs = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double measured = legCosts != null ? legCosts.getMeasured(all.get(i), all.get(j)) : -1;
+                if (measured < 0 && poseByIndex[i] != null && poseByIndex[j] != null) {
+                    measured = poseByIndex[i].distanceTo(poseByIndex[j]);
+                }
+                costs[i][j] = measured;
+                costs[j][i] = measured;
+            }
+        }
+    }
+
+    // RouteTracker 以到達時回報的名稱記錄座標，大小寫可能與 SDK 不同
+    private static Waypoint lookup(Map<String, Waypoint> poses, String name) {
+        Waypoint pose = poses.get(name);
+        if (pose != null) {
+            return pose;
+        }
+        for (Map.Entry<String, Waypoint> entry : poses.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    // 每次內容改變都會遞增，可用來判斷快照是否換過
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<String> getPatrolPoints() {
+        return patrolPoints;
+    }
+
+    public String getHomeBase() {
+        return homeBase;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    public boolean contains(String name) {
+        return name != null && index.containsKey(name);
+    }
+
+    public boolean isHomeBase(String name) {
+        return homeBase != null && homeBase.equalsIgnoreCase(name);
+    }
+
+    // 沒有座標時為 null
+    public Waypoint getPose(String name) {
+        Integer i = name != null ? index.get(name) : null;
+        return i != null ? poseByIndex[i] : null;
+    }
+
+    public Map<String, Waypoint> getPoses() {
+        return poses;
+    }
+
+    // 兩地點間的行走距離（公尺）；同一地點為 0，不在地圖上或距離未知時為 -1
+    public double getCost(String from, String to) {
+        Integer i = from != null ? index.get(from) : null;
+        Integer j = to != null ? index.get(to) : null;
+        if (i == null || j == null) {
+            return -1;
+        }
+        return i.intValue() == j.intValue() ? 0 : costs[i][j];
+    }
+
+    @Override
+    public double cost(Waypoint a, Waypoint b) {
+        double value = getCost(a.getName(), b.getName());
+        return value >= 0 ? value : a.distanceTo(b);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + names.size() + " 個地點，" + poses.size() + " 個有座標";
+    }
+}
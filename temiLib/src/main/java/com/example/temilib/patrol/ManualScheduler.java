@@ -0,0 +1,83 @@
+package com.example.temilib.patrol;
+
+import com.example.cameraxlib.util.ManualClock;
+
+import java.util.PriorityQueue;
+
+// 以假時鐘驅動的排程器，推進時間時依序執行到期的任務，供單元測試與模擬使用
+public class ManualScheduler implements Scheduler {
+    private final ManualClock clock;
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long sequence;
+
+    private static class Task implements Comparable<Task>, Cancellable {
+        final long dueMillis;
+        final long order; // 同時到期時依排入順序執行
+        final Runnable runnable;
+        boolean cancelled;
+
+        Task(long dueMillis, long order, Runnable runnable) {
+            this.dueMillis = dueMillis;
+            this.order = order;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (dueMillis != other.dueMillis) {
+                return dueMillis < other.dueMillis ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    public ManualScheduler(ManualClock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Cancellable schedule(Runnable task, long delayMillis) {
+        Task scheduled = new Task(clock.currentTimeMillis() + Math.max(0, delayMillis), sequence++, task);
+        tasks.add(scheduled);
+        return scheduled;
+    }
+
+    // 推進時間並執行期間內到期的任務（包含執行中新排入的任務）
+    public void advanceMillis(long millis) {
+        long target = clock.currentTimeMillis() + millis;
+        Task next;
+        while ((next = tasks.peek()) != null && next.dueMillis <= target) {
+            tasks.poll();
+            clock.advanceMillis(next.dueMillis - clock.currentTimeMillis());
+            if (!next.cancelled) {
+                next.runnable.run();
+            }
+        }
+        clock.advanceMillis(target - clock.currentTimeMillis());
+    }
+
+    // 執行所有已到期的任務，不推進時間
+    public void runDue() {
+        advanceMillis(0);
+    }
+
+    // 尚未執行且未取消的任務數
+    public int getPendingCount() {
+        int count = 0;
+        for (Task task : tasks) {
+            if (!task.cancelled) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public ManualClock getClock() {
+        return clock;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.temilib.patrol;
+
+import com.example.cameraxlib.util.Clock;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+// 導航失敗的處理策略：每個地點有重試次數上限，重試前以指數退避等待；用完重試次數的地點暫時列入黑名單，
+// 過了黑名單時間才再嘗試。另外以最近一小時完成的地點數作為巡邏的可用度
+// 地點名稱不分大小寫；狀態機在主執行緒呼叫，統計值可從其他執行緒讀取
+public class NavigationSupervisor {
+    private static final long HOUR_MILLIS = 60L * 60 * 1000;
+
+    private final Clock clock;
+    private final PatrolConfig config;
+    private final Map<String, Integer> failures = new HashMap<>(); // 連續失敗次數
+    private final Map<String, Long> blacklistedUntil = new HashMap<>();
+    private final ArrayDeque<Long> completions = new ArrayDeque<>(); // 最近一小時完成地點的時間
+    private long completedWaypoints;
+    private long retries;
+    private long blacklistings;
+
+    public NavigationSupervisor(Clock clock, PatrolConfig config) {
+        this.clock = clock;
+        this.config = config;
+    }
+
+    // 導航失敗（中止、逾時或停滯）；回傳重試前要等待的時間，回傳 -1 表示放棄並已列入黑名單
+    public synchronized long onFailure(String location) {
+        String key = key(location);
+        Integer previous = failures.get(key);
+        int count = previous == null ? 1 : previous + 1;
+        if (count > config.getMaxNavigationRetries()) {
+            failures.remove(key);
+            blacklistedUntil.put(key, clock.currentTimeMillis() + config.getBlacklistMillis());
+            blacklistings++;
+            return -1;
+        }
+        failures.put(key, count);
+        retries++;
+        long backoff = config.getNavigationBackoffMillis() << Math.min(count - 1, 20);
+        return Math.min(backoff, config.getMaxNavigationBackoffMillis());
+    }
+
+    // 成功到達，清除失敗次數
+    public synchronized void onArrived(String location) {
+        failures.remove(key(location));
+    }
+
+    // 一個地點完成環拍
+    public synchronized void onWaypointCompleted() {
+        long now = clock.currentTimeMillis();
+        completedWaypoints++;
+        completions.addLast(now);
+        prune(now);
+    }
+
+    public synchronized boolean isBlacklisted(String location) {
+        Long until = blacklistedUntil.get(key(location));
+        if (until == null) {
+            return false;
+        }
+        if (clock.currentTimeMillis() >= until) {
+            blacklistedUntil.remove(key(location));
+            return false;
+        }
+        return true;
+    }
+
+    // 距離最早解除黑名單還有多久；沒有黑名單時回傳 0
+    public synchronized long getMillisUntilNextRelease() {
+        long now = clock.currentTimeMillis();
+        long earliest = Long.MAX_VALUE;
+        for (Iterator<Long> it = blacklistedUntil.values().iterator(); it.hasNext(); ) {
+            long until = it.next();
+            if (until <= now) {
+                it.remove();
+            } else {
+                earliest = Math.min(earliest, until);
+            }
+        }
+        return earliest == Long.MAX_VALUE ? 0 : earliest - now;
+    }
+
+    public synchronized int getBlacklistedCount() {
+        getMillisUntilNextRelease(); // 順便移除已過期的項目
+        return blacklistedUntil.size();
+    }
+
+    // 最近一小時完成的地點數
+    public synchronized long getWaypointsPerHour() {
+        prune(clock.currentTimeMillis());
+        return completions.size();
+    }
+
+    private void prune(long now) {
+        while (!completions.isEmpty() && completions.peekFirst() <= now - HOUR_MILLIS) {
+            completions.pollFirst();
+        }
+    }
+
+    public synchronized void reset() {
+        failures.clear();
+        blacklistedUntil.clear();
+    }
+
+    public synchronized long getCompletedWaypoints() {
+        return completedWaypoints;
+    }
+
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    public synchronized long getBlacklistings() {
+        return blacklistings;
+    }
+
+    private static String key(String location) {
+        return location.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.temilib.patrol;
+
+// 巡邏參數
+public class PatrolConfig {
+    public static final String HOME_BASE = "home base"; // 充電座的地點名稱
+
+    private long dwellMillis = 10000; // 到達後停留多久才開始拍照
+    private int headings = 8; // 每個地點拍幾個方向
+    private long turnTimeoutMillis = 5000; // 等不到轉身完成事件時的保底時間
+    private long captureTimeoutMillis = 5000; // 等不到拍照完成事件時的保底時間
+    // 環拍時同時進行的拍照張數；1 為逐張拍完再轉身，大於 1 時快門一響就轉身，處理與轉身重疊
+    private int burstInFlight = 1;
+    private long chargePollMillis = 30000; // 充電中多久檢查一次是否充飽
+    private long maxChargeMillis = 3L * 60 * 60 * 1000; // 充電保底時間：超過就繼續巡邏（例如沒有對準充電座）
+    // 導航失敗時：同一地點最多重試幾次，重試前等待 5 秒起、每次加倍、最多 60 秒；用完次數的地點 15 分鐘內跳過
+    private int maxNavigationRetries = 2;
+    private long navigationBackoffMillis = 5000;
+    private long maxNavigationBackoffMillis = 60000;
+    private long blacklistMillis = 15L * 60 * 1000;
+    private long navigationTimeoutMillis = 5L * 60 * 1000; // 出發後遲遲沒有到達也沒有中止時的保底時間
+
+    public long getDwellMillis() {
+        return dwellMillis;
+    }
+
+    public PatrolConfig setDwellMillis(long dwellMillis) {
+        this.dwellMillis = dwellMillis;
+        return this;
+    }
+
+    public int getHeadings() {
+        return headings;
+    }
+
+    public PatrolConfig setHeadings(int headings) {
+        if (headings <= 0) {
+            throw new IllegalArgumentException("headings 必須大於 0");
+        }
+        this.headings = headings;
+        return this;
+    }
+
+    // 相鄰方向的夾角
+    public int getTurnDegrees() {
+        return 360 / headings;
+    }
+
+    public long getTurnTimeoutMillis() {
+        return turnTimeoutMillis;
+    }
+
+    public PatrolConfig setTurnTimeoutMillis(long turnTimeoutMillis) {
+        this.turnTimeoutMillis = turnTimeoutMillis;
+        return this;
+    }
+
+    public long getCaptureTimeoutMillis() {
+        return captureTimeoutMillis;
+    }
+
+    public PatrolConfig setCaptureTimeoutMillis(long captureTimeoutMillis) {
+        this.captureTimeoutMillis = captureTimeoutMillis;
+        return this;
+    }
+
+    public int getBurstInFlight() {
+        return burstInFlight;
+    }
+
+    public PatrolConfig setBurstInFlight(int burstInFlight) {
+        if (burstInFlight <= 0) {
+            throw new IllegalArgumentException("burstInFlight 必須大於 0");
+        }
+        this.burstInFlight = burstInFlight;
+        return this;
+    }
+
+    public boolean isBurst() {
+        return burstInFlight > 1;
+    }
+
+    public long getChargePollMillis() {
+        return chargePollMillis;
+    }
+
+    public PatrolConfig setChargePollMillis(long chargePollMillis) {
+        if (chargePollMillis <= 0) {
+            throw new IllegalArgumentException("chargePollMillis 必須大於 0");
+        }
+        this.chargePollMillis = chargePollMillis;
+        return this;
+    }
+
+    public long getMaxChargeMillis() {
+        return maxChargeMillis;
+    }
+
+    public PatrolConfig setMaxChargeMillis(long maxChargeMillis) {
+        this.maxChargeMillis = maxChargeMillis;
+        return this;
+    }
+
+    public int getMaxNavigationRetries() {
+        return maxNavigationRetries;
+    }
+
+    public PatrolConfig setMaxNavigationRetries(int maxNavigationRetries) {
+        if (maxNavigationRetries < 0) {
+            throw new IllegalArgumentException("maxNavigationRetries 不可小於 0");
+        }
+        this.maxNavigationRetries = maxNavigationRetries;
+        return this;
+    }
+
+    public long getNavigationBackoffMillis() {
+        return navigationBackoffMillis;
+    }
+
+    public PatrolConfig setNavigationBackoffMillis(long navigationBackoffMillis) {
+        this.navigationBackoffMillis = navigationBackoffMillis;
+        return this;
+    }
+
+    public long getMaxNavigationBackoffMillis() {
+        return maxNavigationBackoffMillis;
+    }
+
+    public PatrolConfig setMaxNavigationBackoffMillis(long maxNavigationBackoffMillis) {
+        this.maxNavigationBackoffMillis = maxNavigationBackoffMillis;
+        return this;
+    }
+
+    public long getBlacklistMillis() {
+        return blacklistMillis;
+    }
+
+    public PatrolConfig setBlacklistMillis(long blacklistMillis) {
+        this.blacklistMillis = blacklistMillis;
+        return this;
+    }
+
+    public long getNavigationTimeoutMillis() {
+        return navigationTimeoutMillis;
+    }
+
+    public PatrolConfig setNavigationTimeoutMillis(long navigationTimeoutMillis) {
+        this.navigationTimeoutMillis = navigationTimeoutMillis;
+        return this;
+    }
+
+    public static boolean isHomeBase(String location) {
+        return HOME_BASE.equalsIgnoreCase(location);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.temilib.patrol;
+
+// 巡邏狀態機對機器人的操作；各操作為非同步，完成後由呼叫端回報事件給 PatrolStateMachine
+public interface PatrolRobot {
+    void goTo(String location); // 完成後回報 onGoToStatus
+
+    void turnBy(int degrees); // 完成後回報 onTurnCompleted
+
+    // sweep 為這次環拍的編號，shot 為這個地點的第幾張（從 0 開始）
+    // 曝光開始時回報 onShutter（可省略），影像取得後回報 onCaptureCompleted，兩者都帶回 sweep 與 shot
+    void capturePhoto(String location, int sweep, int shot, int headingDegrees);
+}
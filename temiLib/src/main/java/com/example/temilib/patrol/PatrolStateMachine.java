@@ -0,0 +1,644 @@
+package com.example.temilib.patrol;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.cameraxlib.metrics.LatencyHistogram;
+import com.example.cameraxlib.util.Clock;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+// 巡邏狀態機：導航 → 停留 → (拍照 → 轉身) × N → 下一個地點
+// 每一步都等待完成事件才繼續，只有在事件遲遲不來時才以逾時保底；所有方法須在同一執行緒呼叫
+// 連拍模式（burstInFlight > 1）：快門一響就轉身，不等影像處理完；進行中的張數達到上限時先等一張完成，
+// 拍完最後一個方向後等所有進行中的張數完成才出發
+// 設定 DockPolicy 時，每次出發前詢問是否要先回充電座；充電完成後前往原本要去的地點
+// 導航中止、逾時或停滯時交給 NavigationSupervisor：退避後重試，重試用完就暫時跳過該地點並重排本圈剩下的地點
+// 設定 WaypointGate 時（多台機器人共用地點），出發前先取得地點；由其他機器人負責或最近已巡過的地點直接跳過
+// 設定 SweepPolicy 時，每到一個地點由它決定停留時間、拍哪幾個方向與設定檔；否則所有地點都依 PatrolConfig
+public class PatrolStateMachine {
+    public enum State {
+        IDLE, // 未巡邏
+        NAVIGATING, // 前往地點中
+        DWELLING, // 到達後停留
+        CAPTURING, // 等待拍照完成
+        TURNING, // 等待轉身完成
+        DRAINING, // 連拍模式：等待進行中的拍照完成
+        CHARGING, // 在充電座上等待充電完成
+        RECOVERING // 導航失敗後等待重試，或所有地點都暫時無法到達
+    }
+
+    public interface Listener {
+        void onStateChanged(State from, State to);
+
+        // travelMillis：出發到抵達；sweepMillis：抵達到拍完所有方向（含停留）
+        void onWaypointCompleted(String location, long travelMillis, long sweepMillis);
+
+        void onLapCompleted(long lap);
+    }
+
+    // 每圈開始前提供新的巡邏順序；回傳空列表則沿用上一圈
+    public interface RouteSource {
+        List<String> nextLap();
+    }
+
+    // 決定何時插入回充電座
+    public interface DockPolicy {
+        // 從 from（上一個到達的地點，剛開始巡邏時為 null）出發前往 next 前呼叫；回傳 true 則先回充電座
+        boolean shouldDockBefore(String from, String next);
+
+        // 充電中定期呼叫；回傳 true 則離開充電座繼續巡邏
+        boolean isChargeComplete();
+    }
+
+    // 有地點暫時無法到達時，重新排列本圈剩下的地點；from 為上一個到達的地點（可為 null）
+    public interface Replanner {
+        List<String> replan(String from, List<String> remaining);
+    }
+
+    // 多台機器人共用地點時，決定這一站是否由自己巡
+    public interface WaypointGate {
+        // 出發前往 location 前呼叫（導航重試前也會再呼叫一次）；回傳 false 則跳過
+        boolean tryAcquire(String location);
+
+        // 不去了（改去充電、導航失敗放棄或停止巡邏）
+        void release(String location);
+
+        // 拍完所有方向
+        void onCompleted(String location);
+
+        // 所有地點都被跳過時，多久後再試
+        long getRetryDelayMillis();
+    }
+
+    // 依地點調整環拍
+    public interface SweepPolicy {
+        // 抵達 location 後、開始停留前呼叫；fullPlan 為 PatrolConfig 的完整環拍，回傳 null 則照完整環拍
+        SweepPlan planSweep(String location, SweepPlan fullPlan);
+
+        // 拍完所有方向；waypointMillis 為抵達到拍完（含停留）
+        void onSweepCompleted(String location, SweepPlan plan, long waypointMillis);
+    }
+
+    private static final String STATUS_COMPLETE = "complete";
+    private static final String STATUS_ABORT = "abort";
+
+    private final PatrolRobot robot;
+    private final Scheduler scheduler;
+    private final Clock clock;
+    private final PatrolConfig config;
+    private Listener listener;
+    private RouteSource routeSource;
+    private DockPolicy dockPolicy;
+    private Replanner replanner;
+    private WaypointGate gate;
+    private SweepPolicy sweepPolicy;
+    private final NavigationSupervisor supervisor;
+
+    private List<String> points = Collections.emptyList();
+    private int pointIndex;
+    private int headingIndex;
+    private SweepPlan plan; // 目前地點的環拍方式，抵達時決定
+    private State state = State.IDLE;
+    private Scheduler.Cancellable pendingTimer;
+    private int timerGeneration; // 用來忽略已過期的計時器
+    private long legStartNanos;
+    private long arrivedAtNanos;
+    private long sweepStartNanos;
+    private int sweepId; // 每到一個地點開始環拍就遞增；拍照事件帶著這個編號，上一個地點遲到的事件會被忽略
+    private final BitSet inFlightShots = new BitSet(); // 連拍模式：已送出但還沒完成的張數（依方向編號）
+    private boolean docking; // 正在前往充電座或充電中
+    private String lastArrived;
+    private boolean visitedThisLap; // 繞回第一站時，本圈是否真的到過任何地點
+    private long chargeStartNanos;
+
+    private final LatencyHistogram travelTime = new LatencyHistogram();
+    private final LatencyHistogram waypointTime = new LatencyHistogram(); // 抵達到離開（停留＋拍照）
+    private final LatencyHistogram sweepTime = new LatencyHistogram(); // 第一張送出到最後一張完成（不含停留）
+    private long lapsCompleted;
+    private long turnTimeouts;
+    private long captureTimeouts;
+    private final LatencyHistogram chargeTime = new LatencyHistogram(); // 抵達充電座到離開
+    private long dockVisits;
+    private long chargeTimeouts;
+    private long navigationFailures;
+    private long navigationTimeouts;
+    private long skippedWaypoints;
+    private long handedOffWaypoints;
+
+    public PatrolStateMachine(PatrolRobot robot, Scheduler scheduler, Clock clock, PatrolConfig config) {
+        this.robot = robot;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.config = config;
+        this.supervisor = new NavigationSupervisor(clock, config);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setRouteSource(RouteSource routeSource) {
+        this.routeSource = routeSource;
+    }
+
+    public void setDockPolicy(DockPolicy dockPolicy) {
+        this.dockPolicy = dockPolicy;
+    }
+
+    public void setReplanner(Replanner replanner) {
+        this.replanner = replanner;
+    }
+
+    public void setWaypointGate(WaypointGate gate) {
+        this.gate = gate;
+    }
+
+    public void setSweepPolicy(SweepPolicy sweepPolicy) {
+        this.sweepPolicy = sweepPolicy;
+    }
+
+    // 開始巡邏；已在巡邏中或沒有地點時回傳 false
+    public boolean start(List<String> locations) {
+        if (state != State.IDLE || locations == null || locations.isEmpty()) {
+            return false;
+        }
+        points = Collections.unmodifiableList(new ArrayList<>(locations));
+        pointIndex = 0;
+        lastArrived = null;
+        visitedThisLap = false;
+        supervisor.reset();
+        navigate(true);
+        return true;
+    }
+
+    // 停止巡邏並取消所有等待中的計時器，之後到達的事件都會被忽略
+    public void stop() {
+        cancelTimer();
+        if (gate != null && state != State.IDLE && !docking) {
+            gate.release(getCurrentLocation());
+        }
+        docking = false;
+        setState(State.IDLE);
+    }
+
+    public void onGoToStatus(String location, String status) {
+        if (state != State.NAVIGATING || !getTargetLocation().equalsIgnoreCase(location)) {
+            return;
+        }
+        if (STATUS_COMPLETE.equalsIgnoreCase(status)) {
+            arrivedAtNanos = clock.nanoTime();
+            travelTime.recordNanos(arrivedAtNanos - legStartNanos);
+            cancelTimer();
+            supervisor.onArrived(location);
+            lastArrived = location;
+            if (docking) {
+                startCharging();
+                return;
+            }
+            visitedThisLap = true;
+            if (PatrolConfig.isHomeBase(location)) {
+                advance(); // 充電座不執行定點動作
+                return;
+            }
+            plan = planSweep(location);
+            setState(State.DWELLING);
+            startTimer(new Runnable() {
+                @Override
+                public void run() {
+                    headingIndex = 0;
+                    inFlightShots.clear();
+                    sweepId++;
+                    sweepStartNanos = clock.nanoTime();
+                    capture();
+                }
+            }, plan.getDwellMillis());
+        } else if (STATUS_ABORT.equalsIgnoreCase(status)) {
+            cancelTimer();
+            onNavigationFailed();
+        }
+    }
+
+    // 位置長時間沒有變化（由呼叫端判斷），視同導航失敗
+    public void onNavigationStalled() {
+        if (state == State.NAVIGATING) {
+            cancelTimer();
+            onNavigationFailed();
+        }
+    }
+
+    public void onTurnCompleted() {
+        if (state == State.TURNING) {
+            cancelTimer();
+            afterTurn();
+        }
+    }
+
+    // 曝光開始；只在連拍模式下使用，逐張模式等 onCaptureCompleted
+    // sweep 與 shot 為 PatrolRobot.capturePhoto 收到的編號；不是目前這張的事件（例如逾時後才到）會被忽略
+    public void onShutter(int sweep, int shot) {
+        if (config.isBurst() && state == State.CAPTURING && sweep == sweepId && shot == headingIndex) {
+            cancelTimer();
+            afterCapture();
+        }
+    }
+
+    public void onCaptureCompleted(int sweep, int shot) {
+        if (sweep != sweepId) {
+            return; // 上一個地點逾時放棄的張數
+        }
+        if (!config.isBurst()) {
+            if (state == State.CAPTURING && shot == headingIndex) {
+                cancelTimer();
+                afterCapture();
+            }
+            return;
+        }
+        if (!inFlightShots.get(shot) || (state != State.CAPTURING && state != State.TURNING && state != State.DRAINING)) {
+            return;
+        }
+        inFlightShots.clear(shot);
+        if (state == State.CAPTURING && shot == headingIndex) {
+            cancelTimer(); // 目前這張完成了卻沒收到快門事件，視同快門
+            afterCapture();
+        } else if (state == State.DRAINING) {
+            cancelTimer();
+            afterDrain();
+        }
+    }
+
+    // checkDock 為 false 時不詢問 DockPolicy（剛充完電）；暫時無法到達或由其他機器人負責的地點直接跳過
+    private void navigate(final boolean checkDock) {
+        int skipped = 0;
+        while (true) {
+            if (supervisor.isBlacklisted(getCurrentLocation())) {
+                skippedWaypoints++;
+            } else if (gate != null && !gate.tryAcquire(getCurrentLocation())) {
+                handedOffWaypoints++;
+            } else {
+                break;
+            }
+            if (++skipped > points.size()) {
+                waitForRelease(checkDock);
+                return;
+            }
+            moveToNext();
+        }
+        String next = getCurrentLocation();
+        docking = checkDock && dockPolicy != null && !PatrolConfig.isHomeBase(next)
+                && !supervisor.isBlacklisted(PatrolConfig.HOME_BASE)
+                && dockPolicy.shouldDockBefore(lastArrived, next);
+        if (docking && gate != null) {
+            gate.release(next); // 充電期間讓其他機器人接手
+        }
+        goToTarget();
+    }
+
+    // 送出導航並啟動看門狗：遲遲沒有到達也沒有中止時視同失敗
+    private void goToTarget() {
+        legStartNanos = clock.nanoTime();
+        setState(State.NAVIGATING);
+        robot.goTo(getTargetLocation());
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                navigationTimeouts++;
+                onNavigationFailed();
+            }
+        }, config.getNavigationTimeoutMillis());
+    }
+
+    // 還有重試次數就退避後再去一次；否則跳過該地點，重排本圈剩下的地點後前往下一個
+    private void onNavigationFailed() {
+        navigationFailures++;
+        long backoff = supervisor.onFailure(getTargetLocation());
+        if (backoff >= 0) {
+            setState(State.RECOVERING);
+            startTimer(new Runnable() {
+                @Override
+                public void run() {
+                    if (docking || gate == null || gate.tryAcquire(getCurrentLocation())) {
+                        goToTarget();
+                    } else {
+                        handedOffWaypoints++; // 等待重試期間已由其他機器人接手
+                        advance();
+                    }
+                }
+            }, backoff);
+            return;
+        }
+        if (docking) {
+            docking = false; // 充電座到不了，先繼續巡邏，黑名單解除後再回座
+            navigate(false);
+            return;
+        }
+        if (gate != null) {
+            gate.release(getCurrentLocation());
+        }
+        replanRemaining();
+        navigate(true);
+    }
+
+    // 本圈已走過的地點不動；剩下可到達的地點交給 Replanner 重排，暫時無法到達的移到最後
+    private void replanRemaining() {
+        List<String> reachable = new ArrayList<>();
+        List<String> deferred = new ArrayList<>();
+        for (String name : points.subList(pointIndex, points.size())) {
+            if (supervisor.isBlacklisted(name)) {
+                deferred.add(name);
+            } else {
+                reachable.add(name);
+            }
+        }
+        if (replanner != null && reachable.size() > 1) {
+            List<String> ordered = replanner.replan(lastArrived, reachable);
+            if (ordered != null && ordered.size() == reachable.size()) {
+                reachable = ordered;
+            }
+        }
+        List<String> next = new ArrayList<>(points.subList(0, pointIndex));
+        next.addAll(reachable);
+        next.addAll(deferred);
+        points = Collections.unmodifiableList(next);
+    }
+
+    // 所有地點都在黑名單中或由其他機器人負責：等最早的一個解除或可以接手
+    private void waitForRelease(final boolean checkDock) {
+        setState(State.RECOVERING);
+        long delay = supervisor.getMillisUntilNextRelease();
+        if (gate != null) {
+            long retry = gate.getRetryDelayMillis();
+            delay = delay > 0 ? Math.min(delay, retry) : retry;
+        }
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                navigate(checkDock);
+            }
+        }, Math.max(1, delay));
+    }
+
+    private void startCharging() {
+        dockVisits++;
+        chargeStartNanos = clock.nanoTime();
+        setState(State.CHARGING);
+        pollCharge();
+    }
+
+    private void pollCharge() {
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                if (dockPolicy == null || dockPolicy.isChargeComplete()) {
+                    finishCharging();
+                } else if ((clock.nanoTime() - chargeStartNanos) / 1000000 >= config.getMaxChargeMillis()) {
+                    chargeTimeouts++;
+                    finishCharging();
+                } else {
+                    pollCharge();
+                }
+            }
+        }, config.getChargePollMillis());
+    }
+
+    // 充完電前往被跳過的地點
+    private void finishCharging() {
+        chargeTime.recordNanos(clock.nanoTime() - chargeStartNanos);
+        docking = false;
+        navigate(false);
+    }
+
+    private SweepPlan planSweep(String location) {
+        SweepPlan full = SweepPlan.uniform(config.getDwellMillis(), config.getHeadings(), CaptureProfile.PATROL_SWEEP);
+        SweepPlan planned = sweepPolicy != null ? sweepPolicy.planSweep(location, full) : null;
+        return planned != null ? planned : full;
+    }
+
+    private void capture() {
+        setState(State.CAPTURING);
+        if (config.isBurst()) {
+            inFlightShots.set(headingIndex);
+        }
+        robot.capturePhoto(getCurrentLocation(), sweepId, headingIndex, plan.getHeading(headingIndex));
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                captureTimeouts++;
+                afterCapture();
+            }
+        }, config.getCaptureTimeoutMillis());
+    }
+
+    // 拍完最後一個方向就出發，不再多轉一次回到原方向；連拍模式下先等進行中的張數完成
+    private void afterCapture() {
+        headingIndex++;
+        if (headingIndex >= plan.getHeadingCount()) {
+            if (config.isBurst() && !inFlightShots.isEmpty()) {
+                drain();
+            } else {
+                finishWaypoint();
+            }
+            return;
+        }
+        setState(State.TURNING);
+        robot.turnBy(plan.getTurnDegrees(headingIndex));
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                turnTimeouts++;
+                afterTurn();
+            }
+        }, config.getTurnTimeoutMillis());
+    }
+
+    // 轉身完成；連拍模式下進行中的張數已達上限時先等一張完成
+    private void afterTurn() {
+        if (config.isBurst() && inFlightShots.cardinality() >= config.getBurstInFlight()) {
+            drain();
+        } else {
+            capture();
+        }
+    }
+
+    private void drain() {
+        setState(State.DRAINING);
+        startTimer(new Runnable() {
+            @Override
+            public void run() {
+                captureTimeouts++;
+                inFlightShots.clear(); // 放棄等待，遲到的完成事件會被忽略
+                afterDrain();
+            }
+        }, config.getCaptureTimeoutMillis());
+    }
+
+    private void afterDrain() {
+        if (headingIndex >= plan.getHeadingCount()) {
+            if (inFlightShots.isEmpty()) {
+                finishWaypoint();
+            } else {
+                drain();
+            }
+        } else if (inFlightShots.cardinality() < config.getBurstInFlight()) {
+            capture();
+        } else {
+            drain();
+        }
+    }
+
+    private void finishWaypoint() {
+        long now = clock.nanoTime();
+        waypointTime.recordNanos(now - arrivedAtNanos);
+        supervisor.onWaypointCompleted();
+        if (gate != null) {
+            gate.onCompleted(getCurrentLocation());
+        }
+        sweepTime.recordNanos(now - sweepStartNanos);
+        if (sweepPolicy != null) {
+            sweepPolicy.onSweepCompleted(getCurrentLocation(), plan, (now - arrivedAtNanos) / 1000000);
+        }
+        if (listener != null) {
+            listener.onWaypointCompleted(getCurrentLocation(), (arrivedAtNanos - legStartNanos) / 1000000,
+                    (now - arrivedAtNanos) / 1000000);
+        }
+        advance();
+    }
+
+    private void advance() {
+        moveToNext();
+        navigate(true);
+    }
+
+    // 所有地點都被跳過（黑名單或由其他機器人負責）時繞回第一站不算一圈，也不重新規劃路線
+    private void moveToNext() {
+        pointIndex = (pointIndex + 1) % points.size();
+        if (pointIndex == 0 && visitedThisLap) {
+            visitedThisLap = false;
+            lapsCompleted++;
+            if (listener != null) {
+                listener.onLapCompleted(lapsCompleted);
+            }
+            if (routeSource != null) {
+                List<String> next = routeSource.nextLap();
+                if (next != null && !next.isEmpty()) {
+                    points = Collections.unmodifiableList(new ArrayList<>(next));
+                }
+            }
+        }
+    }
+
+    private void startTimer(final Runnable task, long delayMillis) {
+        cancelTimer();
+        final int generation = timerGeneration;
+        pendingTimer = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == timerGeneration) {
+                    pendingTimer = null;
+                    task.run();
+                }
+            }
+        }, delayMillis);
+    }
+
+    private void cancelTimer() {
+        timerGeneration++;
+        if (pendingTimer != null) {
+            pendingTimer.cancel();
+            pendingTimer = null;
+        }
+    }
+
+    private void setState(State next) {
+        State previous = state;
+        state = next;
+        if (listener != null && previous != next) {
+            listener.onStateChanged(previous, next);
+        }
+    }
+
+    // 目前或最近一個地點的環拍方式；還沒到達過任何地點時為 null
+    public SweepPlan getCurrentPlan() {
+        return plan;
+    }
+
+    // 目前（或最近一次）環拍的編號，與 PatrolRobot.capturePhoto 收到的相同
+    public int getSweepId() {
+        return sweepId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isPatrolling() {
+        return state != State.IDLE;
+    }
+
+    public String getCurrentLocation() {
+        return points.isEmpty() ? "" : points.get(pointIndex);
+    }
+
+    // 目前導航的目的地：回充電座時為充電座，否則與 getCurrentLocation 相同
+    public String getTargetLocation() {
+        return docking ? PatrolConfig.HOME_BASE : getCurrentLocation();
+    }
+
+    public LatencyHistogram getTravelTime() {
+        return travelTime;
+    }
+
+    public LatencyHistogram getWaypointTime() {
+        return waypointTime;
+    }
+
+    public LatencyHistogram getSweepTime() {
+        return sweepTime;
+    }
+
+    public long getLapsCompleted() {
+        return lapsCompleted;
+    }
+
+    public long getTurnTimeouts() {
+        return turnTimeouts;
+    }
+
+    public long getCaptureTimeouts() {
+        return captureTimeouts;
+    }
+
+    public LatencyHistogram getChargeTime() {
+        return chargeTime;
+    }
+
+    public long getDockVisits() {
+        return dockVisits;
+    }
+
+    public long getChargeTimeouts() {
+        return chargeTimeouts;
+    }
+
+    public NavigationSupervisor getNavigationSupervisor() {
+        return supervisor;
+    }
+
+    public long getNavigationFailures() {
+        return navigationFailures;
+    }
+
+    public long getNavigationTimeouts() {
+        return navigationTimeouts;
+    }
+
+    public long getSkippedWaypoints() {
+        return skippedWaypoints;
+    }
+
+    // 因由其他機器人負責或最近已巡過而跳過的次數
+    public long getHandedOffWaypoints() {
+        return handedOffWaypoints;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.temilib.patrol;
+
+// 延遲執行任務的抽象，正式環境用主執行緒 Handler，測試時用 ManualScheduler
+public interface Scheduler {
+    Cancellable schedule(Runnable task, long delayMillis);
+
+    interface Cancellable {
+        void cancel();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.temilib.patrol;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+
+import java.util.Arrays;
+
+// 一個地點的環拍方式：停留多久、拍哪幾個方向、以什麼設定檔上傳
+// 方向為相對於抵達時朝向的角度，由小到大排列且第一個為 0（抵達後不必先轉身），相鄰方向之間依差值轉身
+public class SweepPlan {
+    private final long dwellMillis;
+    private final int[] headings;
+    private final CaptureProfile profile;
+
+    public SweepPlan(long dwellMillis, int[] headings, CaptureProfile profile) {
+        if (headings.length == 0 || headings[0] != 0) {
+            throw new IllegalArgumentException("第一個方向必須為 0");
+        }
+        for (int i = 1; i < headings.length; i++) {
+            if (headings[i] <= headings[i - 1] || headings[i] >= 360) {
+                throw new IllegalArgumentException("方向必須遞增且小於 360：" + Arrays.toString(headings));
+            }
+        }
+        this.dwellMillis = dwellMillis;
+        this.headings = headings.clone();
+        this.profile = profile;
+    }
+
+    // 平均分布的 count 個方向，與 PatrolConfig 的 getTurnDegrees 相同
+    public static SweepPlan uniform(long dwellMillis, int count, CaptureProfile profile) {
+        int[] headings = new int[count];
+        for (int i = 0; i < count; i++) {
+            headings[i] = i * (360 / count);
+        }
+        return new SweepPlan(dwellMillis, headings, profile);
+    }
+
+    public long getDwellMillis() {
+        return dwellMillis;
+    }
+
+    public int getHeadingCount() {
+        return headings.length;
+    }
+
+    public int getHeading(int index) {
+        return headings[index];
+    }
+
+    // 拍完第 index - 1 個方向後要轉的角度
+    public int getTurnDegrees(int index) {
+        return headings[index] - headings[index - 1];
+    }
+
+    public CaptureProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public String toString() {
+        return "dwell=" + dwellMillis + "ms headings=" + Arrays.toString(headings) + " profile=" + profile;
+    }
+}
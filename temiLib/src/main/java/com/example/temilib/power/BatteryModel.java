@@ -0,0 +1,150 @@
+package com.example.temilib.power;
+
+// 由電池讀數與行走軌跡學習耗電：耗電 ≈ 每公尺耗電 × 距離 + 每秒耗電 × 時間
+// 每次讀數下降一格，就以這段期間走的距離與經過的時間作為一筆樣本，用遞迴最小平方法（含遺忘因子）更新兩個係數
+// 另外記錄平均移動速度、每個地點的停留時間與充電速率，供 ChargePlanner 估計時間
+// 所有方法須在同一執行緒呼叫
+public class BatteryModel {
+    private static final double FORGETTING = 0.98; // 舊樣本的權重逐漸降低，適應電池老化與地面變化
+    private static final double INITIAL_COVARIANCE = 1e-2;
+    private static final double SMOOTHING = 0.2; // 速度、停留時間、充電速率的移動平均權重
+
+    private double percentPerMeter;
+    private double percentPerSecond;
+    // 2x2 共變異數矩陣
+    private double p00 = INITIAL_COVARIANCE;
+    private double p01;
+    private double p11 = INITIAL_COVARIANCE;
+
+    private double metersPerSecond;
+    private double waypointMillis;
+    private double chargePercentPerSecond;
+
+    // 目前樣本區間的起點
+    private long windowStartMillis = -1;
+    private int windowStartPercent;
+    private double windowStartOdometer;
+    private boolean lastCharging;
+    private long sampleCount;
+
+    // 預設值在沒有量測前使用
+    public BatteryModel(double defaultPercentPerMeter, double defaultPercentPerSecond, double defaultMetersPerSecond,
+                        long defaultWaypointMillis, double defaultChargePercentPerSecond) {
+        this.percentPerMeter = defaultPercentPerMeter;
+        this.percentPerSecond = defaultPercentPerSecond;
+        this.metersPerSecond = defaultMetersPerSecond;
+        this.waypointMillis = defaultWaypointMillis;
+        this.chargePercentPerSecond = defaultChargePercentPerSecond;
+    }
+
+    // 電池讀數；odometerMeters 為累計行走距離（RouteTracker.getOdometerMeters）
+    public void onReading(long nowMillis, int percent, boolean charging, double odometerMeters) {
+        if (percent < 0) {
+            return;
+        }
+        if (windowStartMillis < 0 || charging != lastCharging) {
+            resetWindow(nowMillis, percent, odometerMeters, charging);
+            return;
+        }
+        double seconds = (nowMillis - windowStartMillis) / 1000.0;
+        if (charging) {
+            if (percent > windowStartPercent && seconds > 0) {
+                double rate = (percent - windowStartPercent) / seconds;
+                chargePercentPerSecond = chargePercentPerSecond * (1 - SMOOTHING) + rate * SMOOTHING;
+                resetWindow(nowMillis, percent, odometerMeters, true);
+            }
+            return;
+        }
+        if (percent < windowStartPercent) {
+            update(odometerMeters - windowStartOdometer, seconds, windowStartPercent - percent);
+            resetWindow(nowMillis, percent, odometerMeters, false);
+        } else if (percent > windowStartPercent) {
+            resetWindow(nowMillis, percent, odometerMeters, false); // 讀數跳動或剛離開充電座
+        }
+    }
+
+    private void resetWindow(long nowMillis, int percent, double odometerMeters, boolean charging) {
+        windowStartMillis = nowMillis;
+        windowStartPercent = percent;
+        windowStartOdometer = odometerMeters;
+        lastCharging = charging;
+    }
+
+    // 遞迴最小平方法更新 [每公尺, 每秒]
+    private void update(double meters, double seconds, double drop) {
+        double px0 = p00 * meters + p01 * seconds;
+        double px1 = p01 * meters + p11 * seconds;
+        double denominator = FORGETTING + meters * px0 + seconds * px1;
+        double k0 = px0 / denominator;
+        double k1 = px1 / denominator;
+        double error = drop - (percentPerMeter * meters + percentPerSecond * seconds);
+        // 不在這裡截斷係數，否則共變異數與係數不一致會來回振盪；只在預估時截斷結果
+        percentPerMeter += k0 * error;
+        percentPerSecond += k1 * error;
+        double n00 = (p00 - k0 * px0) / FORGETTING;
+        double n01 = (p01 - k0 * px1) / FORGETTING;
+        double n11 = (p11 - k1 * px1) / FORGETTING;
+        p00 = n00;
+        p01 = n01;
+        p11 = n11;
+        sampleCount++;
+    }
+
+    // 一段導航完成
+    public void onLeg(double meters, long millis) {
+        if (meters > 0 && millis > 0) {
+            double speed = meters / (millis / 1000.0);
+            metersPerSecond = metersPerSecond * (1 - SMOOTHING) + speed * SMOOTHING;
+        }
+    }
+
+    // 一個地點的停留與環拍完成
+    public void onWaypoint(long millis) {
+        waypointMillis = waypointMillis * (1 - SMOOTHING) + millis * SMOOTHING;
+    }
+
+    // 走 meters 公尺、另外停留 stationaryMillis 的預估耗電（百分比）
+    public double predictPercent(double meters, long stationaryMillis) {
+        double seconds = meters / metersPerSecond + stationaryMillis / 1000.0;
+        return Math.max(0, meters * percentPerMeter + seconds * percentPerSecond);
+    }
+
+    // 從 fromPercent 充到 toPercent 的預估時間
+    public long predictChargeMillis(int fromPercent, int toPercent) {
+        if (toPercent <= fromPercent) {
+            return 0;
+        }
+        return (long) ((toPercent - fromPercent) / chargePercentPerSecond * 1000);
+    }
+
+    public double getPercentPerMeter() {
+        return percentPerMeter;
+    }
+
+    public double getPercentPerSecond() {
+        return percentPerSecond;
+    }
+
+    public double getMetersPerSecond() {
+        return metersPerSecond;
+    }
+
+    public long getWaypointMillis() {
+        return (long) waypointMillis;
+    }
+
+    public double getChargePercentPerSecond() {
+        return chargePercentPerSecond;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US, "%.4f%%/m %.5f%%/s %.2fm/s sweep=%ds charge=%.4f%%/s samples=%d",
+                percentPerMeter, percentPerSecond, metersPerSecond, getWaypointMillis() / 1000,
+                chargePercentPerSecond, sampleCount);
+    }
+}
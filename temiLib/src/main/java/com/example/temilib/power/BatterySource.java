@@ -0,0 +1,9 @@
+package com.example.temilib.power;
+
+// 電池狀態的來源：正式環境讀 temi 的電池回報，測試與模擬使用 SimulatedBattery
+public interface BatterySource {
+    // 0 ~ 100；尚未取得讀數時回傳 -1
+    int getBatteryPercent();
+
+    boolean isCharging();
+}
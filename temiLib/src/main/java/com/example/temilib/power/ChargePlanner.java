@@ -0,0 +1,131 @@
+package com.example.temilib.power;
+
+import com.example.temilib.location.LocationRegistry;
+import com.example.temilib.patrol.PatrolConfig;
+import com.example.temilib.patrol.PatrolStateMachine;
+import com.example.temilib.route.LegCostTable;
+import com.example.temilib.route.RouteTracker;
+import com.example.temilib.route.Waypoint;
+
+import java.util.List;
+import java.util.Map;
+
+// 充電排程：每次出發前預估「走到下一個地點、拍完、再回充電座」的耗電，
+// 扣掉後會低於保留電量才先回座充電，否則繼續巡邏
+// 盡量晚回座（最晚插入），每次充電能巡到的地點最多；充到目標電量後從被跳過的地點繼續
+// 地點或充電座的座標還不知道時，退回以目前電量是否低於保留電量判斷
+public class ChargePlanner implements PatrolStateMachine.DockPolicy {
+    private final BatterySource battery;
+    private final BatteryModel model;
+    private final RouteTracker routeTracker;
+    private final int reservePercent;
+    private final int targetPercent;
+    private volatile LocationRegistry locations; // 可為 null；有設定時優先查快照中預先算好的成本矩陣
+
+    public ChargePlanner(BatterySource battery, BatteryModel model, RouteTracker routeTracker,
+                         int reservePercent, int targetPercent) {
+        if (reservePercent < 0 || targetPercent > 100 || reservePercent >= targetPercent) {
+            throw new IllegalArgumentException("需要 0 <= reservePercent < targetPercent <= 100");
+        }
+        this.battery = battery;
+        this.model = model;
+        this.routeTracker = routeTracker;
+        this.reservePercent = reservePercent;
+        this.targetPercent = targetPercent;
+    }
+
+    public void setLocations(LocationRegistry locations) {
+        this.locations = locations;
+    }
+
+    @Override
+    public boolean shouldDockBefore(String from, String next) {
+        int percent = battery.getBatteryPercent();
+        if (percent < 0) {
+            return false; // 還沒有讀數
+        }
+        if (battery.isCharging() && percent < targetPercent) {
+            return true; // 仍在充電座上且未充飽，例如剛開始巡邏時
+        }
+        double cost = predictStopCost(from, next);
+        if (cost < 0) {
+            return percent <= reservePercent;
+        }
+        return percent - cost < reservePercent;
+    }
+
+    @Override
+    public boolean isChargeComplete() {
+        return battery.getBatteryPercent() >= targetPercent;
+    }
+
+    // 從 from 走到 next、拍完、再回充電座的預估耗電；路段長度未知時回傳 -1
+    public double predictStopCost(String from, String next) {
+        double there = legMeters(from, next);
+        double home = legMeters(next, PatrolConfig.HOME_BASE);
+        if (there < 0 || home < 0) {
+            return -1;
+        }
+        return model.predictPercent(there + home, model.getWaypointMillis());
+    }
+
+    // 以 percent 的電量從 from 出發，依 route 從 startIndex 起（繞回開頭）最多能巡幾個地點才需要回座
+    // 用來預估一次充電的涵蓋範圍；路段長度未知的地點以保留電量判斷
+    public int forecastStops(List<String> route, int startIndex, String from, double percent) {
+        int stops = 0;
+        String current = from;
+        for (int i = 0; i < route.size(); i++) {
+            String next = route.get((startIndex + i) % route.size());
+            if (PatrolConfig.isHomeBase(next)) {
+                continue;
+            }
+            double cost = predictStopCost(current, next);
+            if (cost < 0 ? percent <= reservePercent : percent - cost < reservePercent) {
+                break;
+            }
+            double there = legMeters(current, next);
+            percent -= model.predictPercent(Math.max(0, there), model.getWaypointMillis());
+            current = next;
+            stops++;
+        }
+        return stops;
+    }
+
+    // 實際量得的距離優先，其次為直線距離；from 為 null 時視為從充電座出發
+    private double legMeters(String from, String to) {
+        if (from == null) {
+            from = PatrolConfig.HOME_BASE;
+        }
+        if (from.equalsIgnoreCase(to)) {
+            return 0;
+        }
+        LocationRegistry registry = locations;
+        if (registry != null) {
+            double cached = registry.getSnapshot().getCost(from, to);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+        LegCostTable legCosts = routeTracker.getLegCosts();
+        double measured = legCosts.getMeasured(from, to);
+        if (measured >= 0) {
+            return measured;
+        }
+        Map<String, Waypoint> poses = routeTracker.getPoses();
+        Waypoint a = poses.get(from);
+        Waypoint b = poses.get(to);
+        return a != null && b != null ? a.distanceTo(b) : -1;
+    }
+
+    public BatteryModel getModel() {
+        return model;
+    }
+
+    public int getReservePercent() {
+        return reservePercent;
+    }
+
+    public int getTargetPercent() {
+        return targetPercent;
+    }
+}
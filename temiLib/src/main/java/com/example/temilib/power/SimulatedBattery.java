@@ -0,0 +1,53 @@
+package com.example.temilib.power;
+
+// 模擬電池：移動依距離耗電、時間依待機耗電，停在充電座上時依充電速率回充
+// 電量以小數累積，回報時與真實電池一樣只有整數百分比
+public class SimulatedBattery implements BatterySource {
+    private final double percentPerMeter;
+    private final double percentPerSecond;
+    private final double chargePercentPerSecond;
+    private double level;
+    private boolean charging;
+    private long lastMillis = -1;
+
+    public SimulatedBattery(double initialPercent, double percentPerMeter, double percentPerSecond,
+                            double chargePercentPerSecond) {
+        this.level = initialPercent;
+        this.percentPerMeter = percentPerMeter;
+        this.percentPerSecond = percentPerSecond;
+        this.chargePercentPerSecond = chargePercentPerSecond;
+    }
+
+    // 推進到 nowMillis：充電中依充電速率增加，否則依待機速率減少
+    public synchronized void advanceTo(long nowMillis) {
+        if (lastMillis >= 0 && nowMillis > lastMillis) {
+            double seconds = (nowMillis - lastMillis) / 1000.0;
+            level += charging ? seconds * chargePercentPerSecond : -seconds * percentPerSecond;
+            level = Math.max(0, Math.min(100, level));
+        }
+        lastMillis = nowMillis;
+    }
+
+    public synchronized void onMoved(double meters) {
+        level = Math.max(0, level - meters * percentPerMeter);
+    }
+
+    public synchronized void setCharging(long nowMillis, boolean charging) {
+        advanceTo(nowMillis);
+        this.charging = charging;
+    }
+
+    public synchronized double getLevel() {
+        return level;
+    }
+
+    @Override
+    public synchronized int getBatteryPercent() {
+        return (int) Math.floor(level);
+    }
+
+    @Override
+    public synchronized boolean isCharging() {
+        return charging;
+    }
+}
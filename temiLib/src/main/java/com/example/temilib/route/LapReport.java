@@ -0,0 +1,26 @@
+package com.example.temilib.route;
+
+import java.util.Locale;
+
+// 一圈巡邏的時間與距離，並附上規劃路線與原始順序的估計距離供比較
+public class LapReport {
+    public final long lap;
+    public final long lapMillis;
+    public final double travelledMeters; // 由位置軌跡累積的實際距離
+    public final double plannedMeters; // 本圈規劃路線的估計距離
+    public final double naiveMeters; // 依 getLocations() 原順序的估計距離
+
+    public LapReport(long lap, long lapMillis, double travelledMeters, double plannedMeters, double naiveMeters) {
+        this.lap = lap;
+        this.lapMillis = lapMillis;
+        this.travelledMeters = travelledMeters;
+        this.plannedMeters = plannedMeters;
+        this.naiveMeters = naiveMeters;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "lap=%d time=%.1fs travelled=%.1fm planned=%.1fm naive=%.1fm",
+                lap, lapMillis / 1000.0, travelledMeters, plannedMeters, naiveMeters);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.temilib.route;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// 由實際行走軌跡量得的兩地點間距離；沒有量測值時退回直線距離
+public class LegCostTable implements RoutePlanner.CostFunction {
+    private static final double SMOOTHING = 0.5; // 新量測值的權重
+    private static final double REVISION_RATIO = 0.25; // 距離變化超過這個比例才算改變，一般的量測誤差不觸發重新規劃
+
+    private final Map<String, Double> measured = new HashMap<>();
+    private long revision;
+
+    // 記錄一段實際行走距離，視為雙向相同
+    public synchronized void record(String from, String to, double meters) {
+        String key = key(from, to);
+        Double previous = measured.get(key);
+        double value = previous == null ? meters : previous * (1 - SMOOTHING) + meters * SMOOTHING;
+        measured.put(key, value);
+        if (previous == null || Math.abs(value - previous) > previous * REVISION_RATIO) {
+            revision++;
+        }
+    }
+
+    // 地圖改變時清除所有量測值
+    public synchronized void clear() {
+        if (!measured.isEmpty()) {
+            measured.clear();
+            revision++;
+        }
+    }
+
+    // 新增或大幅改變量測值時遞增，供路線快取判斷是否需要重新規劃
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    // 沒有量測值時回傳 -1
+    public synchronized double getMeasured(String from, String to) {
+        Double value = measured.get(key(from, to));
+        return value == null ? -1 : value;
+    }
+
+    @Override
+    public double cost(Waypoint a, Waypoint b) {
+        double value = getMeasured(a.getName(), b.getName());
+        return value >= 0 ? value : a.distanceTo(b);
+    }
+
+    public synchronized int size() {
+        return measured.size();
+    }
+
+    private static String key(String a, String b) {
+        String first = a.toLowerCase(Locale.ROOT);
+        String second = b.toLowerCase(Locale.ROOT);
+        return first.compareTo(second) <= 0 ? first + "\n" + second : second + "\n" + first;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.temilib.route;
+
+import com.example.temilib.patrol.PatrolConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+// 巡邏路線規劃：最近鄰建立初始環路，再以 2-opt 消除交叉
+// 結果會快取，直到地點集合或已知座標的地點改變才重新計算；距離或座標大幅改變時由呼叫端 invalidate
+public class RoutePlanner {
+    private static final int MAX_TWO_OPT_PASSES = 50;
+
+    public interface CostFunction {
+        double cost(Waypoint a, Waypoint b);
+    }
+
+    private String cachedKey;
+    private List<String> cachedTour;
+
+    // 回傳巡邏順序；充電座不列入（由充電排程決定何時回座），沒有座標的地點依原順序排在最後
+    public synchronized List<String> plan(List<String> locations, Map<String, Waypoint> poses, CostFunction cost) {
+        List<Waypoint> known = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        TreeSet<String> keyParts = new TreeSet<>();
+        for (String name : locations) {
+            if (PatrolConfig.isHomeBase(name)) {
+                continue;
+            }
+            Waypoint pose = poses.get(name);
+            if (pose != null) {
+                known.add(pose);
+                keyParts.add(name + "@");
+            } else {
+                unknown.add(name);
+                keyParts.add(name);
+            }
+        }
+        String key = keyParts.toString();
+        if (key.equals(cachedKey)) {
+            return cachedTour;
+        }
+        List<String> tour = new ArrayList<>();
+        for (int index : optimize(known, cost)) {
+            tour.add(known.get(index).getName());
+        }
+        tour.addAll(unknown);
+        cachedKey = key;
+        cachedTour = Collections.unmodifiableList(tour);
+        return cachedTour;
+    }
+
+    // 清除快取，下次 plan 一定重新計算（例如量測距離或地點座標大幅改變時，見 RouteTracker.planLap）
+    public synchronized void invalidate() {
+        cachedKey = null;
+        cachedTour = null;
+    }
+
+    // 封閉環路的總成本
+    public static double tourCost(List<String> order, Map<String, Waypoint> poses, CostFunction cost) {
+        double total = 0;
+        Waypoint first = null;
+        Waypoint previous = null;
+        for (String name : order) {
+            Waypoint current = poses.get(name);
+            if (current == null) {
+                continue;
+            }
+            if (previous != null) {
+                total += cost.cost(previous, current);
+            } else {
+                first = current;
+            }
+            previous = current;
+        }
+        if (first != null && previous != first) {
+            total += cost.cost(previous, first);
+        }
+        return total;
+    }
+
+    // 從 start 出發依序走完 names 的開放路徑（不回到起點），以最近鄰決定順序；沒有座標的地點依原順序排在最後
+    // 用於巡邏途中有地點無法到達時重排本圈剩下的地點；start 為 null 時保持原順序
+    public static List<String> orderFrom(Waypoint start, List<String> names, Map<String, Waypoint> poses,
+                                         CostFunction cost) {
+        if (start == null) {
+            return new ArrayList<>(names);
+        }
+        List<Waypoint> known = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (String name : names) {
+            Waypoint pose = poses.get(name);
+            if (pose != null) {
+                known.add(pose);
+            } else {
+                unknown.add(name);
+            }
+        }
+        List<String> order = new ArrayList<>();
+        Waypoint current = start;
+        while (!known.isEmpty()) {
+            int best = 0;
+            for (int i = 1; i < known.size(); i++) {
+                if (cost.cost(current, known.get(i)) < cost.cost(current, known.get(best))) {
+                    best = i;
+                }
+            }
+            current = known.remove(best);
+            order.add(current.getName());
+        }
+        order.addAll(unknown);
+        return order;
+    }
+
+    static int[] optimize(List<Waypoint> points, CostFunction cost) {
+        int n = points.size();
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                // 以平均值建立對稱矩陣，2-opt 反轉路段時成本不變
+                double value = (cost.cost(points.get(i), points.get(j)) + cost.cost(points.get(j), points.get(i))) / 2;
+                matrix[i][j] = value;
+                matrix[j][i] = value;
+            }
+        }
+        int[] tour = nearestNeighbour(matrix);
+        twoOpt(tour, matrix);
+        return tour;
+    }
+
+    private static int[] nearestNeighbour(double[][] matrix) {
+        int n = matrix.length;
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        if (n == 0) {
+            return tour;
+        }
+        visited[0] = true; // 從原列表中第一個地點出發，結果才穩定
+        for (int step = 1; step < n; step++) {
+            int from = tour[step - 1];
+            int best = -1;
+            for (int candidate = 0; candidate < n; candidate++) {
+                if (!visited[candidate] && (best < 0 || matrix[from][candidate] < matrix[from][best])) {
+                    best = candidate;
+                }
+            }
+            tour[step] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    private static void twoOpt(int[] tour, double[][] matrix) {
+        int n = tour.length;
+        if (n < 4) {
+            return;
+        }
+        for (int pass = 0; pass < MAX_TWO_OPT_PASSES; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = i + 2; j < n; j++) {
+                    int a = tour[i];
+                    int b = tour[i + 1];
+                    int c = tour[j];
+                    int d = tour[(j + 1) % n];
+                    if (a == d) {
+                        continue;
+                    }
+                    double delta = matrix[a][c] + matrix[b][d] - matrix[a][b] - matrix[c][d];
+                    if (delta < -1e-9) {
+                        reverse(tour, i + 1, j);
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                return;
+            }
+        }
+    }
+
+    private static void reverse(int[] tour, int from, int to) {
+        while (from < to) {
+            int tmp = tour[from];
+            tour[from++] = tour[to];
+            tour[to--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.temilib.route;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 由位置回呼累積每段路的實際距離，並記下到達各地點時的座標，供 RoutePlanner 使用
+// 所有方法須在同一執行緒呼叫
+public class RouteTracker {
+    private static final double POSE_MOVE_METERS = 1.0; // 到達座標偏移超過這個距離才視為地點移動
+    private final RoutePlanner planner = new RoutePlanner();
+    private final LegCostTable legCosts = new LegCostTable();
+    private final Map<String, Waypoint> poses = new HashMap<>();
+    private long poseRevision; // 已知地點的座標移動時遞增
+    private long plannedLegRevision = -1; // 上次規劃時的量測距離版本
+    private long plannedPoseRevision = -1;
+
+    private boolean hasPosition;
+    private float lastX;
+    private float lastY;
+    private String legFrom; // 上一個到達的地點
+    private double legMeters;
+    private double lastLegMeters;
+    private double odometerMeters; // 開機以來的累計行走距離，供電池模型計算每公尺耗電
+    private long lapStartMillis = -1;
+    private double lapMeters;
+    private long laps;
+    private List<String> currentRoute = Collections.emptyList();
+    private List<String> naiveRoute = Collections.emptyList();
+
+    public void onPosition(float x, float y) {
+        if (hasPosition) {
+            double dx = x - lastX;
+            double dy = y - lastY;
+            double step = Math.sqrt(dx * dx + dy * dy);
+            legMeters += step;
+            odometerMeters += step;
+        }
+        lastX = x;
+        lastY = y;
+        hasPosition = true;
+    }
+
+    public void onLegStarted() {
+        legMeters = 0;
+    }
+
+    // 到達地點：記錄座標與本段距離
+    public void onArrived(String location) {
+        if (hasPosition) {
+            Waypoint pose = new Waypoint(location, lastX, lastY);
+            Waypoint previous = poses.put(location, pose);
+            if (previous != null && previous.distanceTo(pose) > POSE_MOVE_METERS) {
+                poseRevision++;
+            }
+        }
+        if (legFrom != null && legMeters > 0 && !legFrom.equalsIgnoreCase(location)) {
+            legCosts.record(legFrom, location, legMeters);
+        }
+        lapMeters += legMeters;
+        lastLegMeters = legMeters;
+        legMeters = 0;
+        legFrom = location;
+    }
+
+    // 規劃下一圈路線並開始計時
+    public List<String> planLap(List<String> locations, long nowMillis) {
+        naiveRoute = locations;
+        long legRevision = legCosts.getRevision();
+        if (legRevision != plannedLegRevision || poseRevision != plannedPoseRevision) {
+            planner.invalidate(); // 地點集合沒變，但距離或座標已大幅改變
+            plannedLegRevision = legRevision;
+            plannedPoseRevision = poseRevision;
+        }
+        currentRoute = planner.plan(locations, poses, legCosts);
+        lapStartMillis = nowMillis;
+        lapMeters = 0;
+        return currentRoute;
+    }
+
+    // 地圖重新載入：舊地圖的座標與量測距離不再適用，下一圈重新學習並重新規劃
+    public void resetMap() {
+        poses.clear();
+        legCosts.clear();
+        planner.invalidate();
+        legFrom = null; // 目前位置與下一個地點之間的距離不屬於任何已知的一段
+        legMeters = 0;
+    }
+
+    // 巡邏途中重排剩下的地點：從目前位置（沒有位置時從 from 的座標）出發
+    public List<String> planRemaining(String from, List<String> remaining) {
+        Waypoint start = hasPosition ? new Waypoint("", lastX, lastY) : (from != null ? poses.get(from) : null);
+        return RoutePlanner.orderFrom(start, remaining, poses, legCosts);
+    }
+
+    // 一圈結束，回傳本圈統計
+    public LapReport onLapCompleted(long nowMillis) {
+        laps++;
+        long elapsed = lapStartMillis < 0 ? 0 : nowMillis - lapStartMillis;
+        return new LapReport(laps, elapsed, lapMeters,
+                RoutePlanner.tourCost(currentRoute, poses, legCosts),
+                RoutePlanner.tourCost(naiveRoute, poses, legCosts));
+    }
+
+    // 最近一次到達時該段的實際距離
+    public double getLastLegMeters() {
+        return lastLegMeters;
+    }
+
+    public double getOdometerMeters() {
+        return odometerMeters;
+    }
+
+    public Map<String, Waypoint> getPoses() {
+        return Collections.unmodifiableMap(poses);
+    }
+
+    public LegCostTable getLegCosts() {
+        return legCosts;
+    }
+}
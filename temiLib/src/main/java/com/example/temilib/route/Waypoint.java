@@ -0,0 +1,32 @@
+package com.example.temilib.route;
+
+// 地點名稱與地圖座標（公尺）
+public class Waypoint {
+    private final String name;
+    private final float x;
+    private final float y;
+
+    public Waypoint(String name, float x, float y) {
+        this.name = name;
+        this.x = x;
+        this.y = y;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public double distanceTo(Waypoint other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.temilib.sweep;
+
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.temilib.patrol.PatrolStateMachine;
+import com.example.temilib.patrol.SweepPlan;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 依各地點各方向最近的去重結果與操作員設定的優先度，決定每一站的停留時間、方向數與設定檔
+// 最近有變化的方向照常拍；其餘方向每站輪流抽查一個，所有方向都沒變化的地點縮短停留並只上傳縮圖
+// 每隔幾站（低優先度隔得更久）仍做一次完整環拍，重新確認所有方向；高優先度的地點永遠完整環拍
+// 以學到的每個方向平均耗時估算完整環拍要多久，與實際時間的差額即為節省的時間，每圈結算一次
+// 判定結果在處理管線的執行緒上回報，其餘在狀態機的執行緒上呼叫，所以全部加鎖
+public class AdaptiveSweepPolicy implements PatrolStateMachine.SweepPolicy {
+    public enum Priority {
+        LOW, // 例如空倉庫：只在有變化時才多看
+        NORMAL,
+        HIGH // 例如出入口：每次都完整環拍
+    }
+
+    private static final double CHANGE_ALPHA = 0.3; // 每個判定結果對變化率的權重
+    private static final double TIMING_ALPHA = 0.2;
+
+    // 一個地點的學習狀態
+    private static class Activity {
+        Priority priority = Priority.NORMAL;
+        double[] changeRate = new double[0]; // 依完整環拍的方向索引；NaN 表示還沒有結果
+        int visitsSinceFull;
+        int stagger; // 第一次完整環拍後從這裡開始計數，路線上相鄰地點的定期完整環拍才不會落在同一圈
+        int probe; // 上次抽查的方向索引
+        SweepPlan fullPlan;
+    }
+
+    private final long quietDwellMillis;
+    private final double activeThreshold;
+    private final int maxVisitsBetweenFull;
+    private final Map<String, Activity> activities = new HashMap<>();
+    private double millisPerHeading = -1; // 扣掉停留後每個方向的平均耗時（轉身＋拍照）
+    private long fullSweeps;
+    private long reducedSweeps; // 有變化的地點：照常停留，只拍部分方向
+    private long quietSweeps; // 沒有變化的地點：縮短停留、只拍抽查方向、只上傳縮圖
+    private long skippedHeadings;
+    private long savedMillis;
+    private long lapSavedMillis;
+    private long lastLapSavedMillis;
+
+    // quietDwellMillis：沒有變化的地點停留多久；activeThreshold：變化率達到多少視為有變化（0 到 1）
+    // maxVisitsBetweenFull：一般優先度最多隔幾站做一次完整環拍，低優先度加倍
+    public AdaptiveSweepPolicy(long quietDwellMillis, double activeThreshold, int maxVisitsBetweenFull) {
+        this.quietDwellMillis = quietDwellMillis;
+        this.activeThreshold = activeThreshold;
+        this.maxVisitsBetweenFull = maxVisitsBetweenFull;
+    }
+
+    public synchronized void setPriority(String location, Priority priority) {
+        activity(location).priority = priority;
+    }
+
+    public synchronized Priority getPriority(String location) {
+        Activity activity = activities.get(key(location));
+        return activity != null ? activity.priority : Priority.NORMAL;
+    }
+
+    // 每行「地點, 優先度」，優先度為 low、normal 或 high；# 之後為註解；回傳設定的地點數
+    public int loadPriorities(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        int count = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 2) {
+                throw new IOException("第 " + lineNumber + " 行欄位數錯誤：" + line);
+            }
+            try {
+                setPriority(fields[0].trim(), Priority.valueOf(fields[1].trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("第 " + lineNumber + " 行優先度錯誤：" + fields[1].trim(), e);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    // ChangeDetector 的判定結果；方向對應到完整環拍中最接近的一個
+    // 第一次拍攝沒有比較基準，不列入變化率，否則每個方向都從「一直在變」開始，要好幾站才降下來
+    public synchronized void onChangeResult(String location, int headingDegrees, boolean changed, boolean first) {
+        Activity activity = activities.get(key(location));
+        if (activity == null || activity.changeRate.length == 0 || first) {
+            return; // 不是巡邏拍的照片，或還沒有比較基準
+        }
+        int count = activity.changeRate.length;
+        int slot = (int) Math.round((((headingDegrees % 360) + 360) % 360) * count / 360.0) % count;
+        double sample = changed ? 1 : 0;
+        double previous = activity.changeRate[slot];
+        activity.changeRate[slot] = Double.isNaN(previous) ? sample : previous + (sample - previous) * CHANGE_ALPHA;
+    }
+
+    @Override
+    public synchronized SweepPlan planSweep(String location, SweepPlan fullPlan) {
+        Activity activity = activity(location);
+        int count = fullPlan.getHeadingCount();
+        if (activity.changeRate.length != count) {
+            activity.changeRate = new double[count]; // 方向數改變時重新學習
+            Arrays.fill(activity.changeRate, Double.NaN);
+        }
+        activity.fullPlan = fullPlan;
+        int maxVisits = activity.priority == Priority.LOW ? maxVisitsBetweenFull * 2 : maxVisitsBetweenFull;
+        boolean unknown = hasUnknown(activity);
+        if (activity.priority == Priority.HIGH || activity.visitsSinceFull >= maxVisits || unknown) {
+            activity.visitsSinceFull = unknown ? activity.stagger : 0;
+            fullSweeps++;
+            return fullPlan;
+        }
+        activity.visitsSinceFull++;
+        double threshold = activity.priority == Priority.LOW ? Math.min(1, activeThreshold * 2) : activeThreshold;
+        boolean[] selected = new boolean[count];
+        selected[0] = true; // 抵達時的朝向不必轉身
+        int active = 0;
+        for (int i = 0; i < count; i++) {
+            if (activity.changeRate[i] >= threshold) {
+                selected[i] = true;
+                active++;
+            }
+        }
+        // 輪流抽查一個沒選到的方向，安靜的方向有變化時幾站內就會被發現
+        for (int step = 1; step <= count; step++) {
+            int candidate = (activity.probe + step) % count;
+            if (!selected[candidate]) {
+                selected[candidate] = true;
+                activity.probe = candidate;
+                break;
+            }
+        }
+        List<Integer> headings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (selected[i]) {
+                headings.add(fullPlan.getHeading(i));
+            }
+        }
+        int[] planned = new int[headings.size()];
+        for (int i = 0; i < planned.length; i++) {
+            planned[i] = headings.get(i);
+        }
+        if (planned.length == count) {
+            activity.visitsSinceFull = 0; // 所有方向都要拍，就是完整環拍，不算節省
+            fullSweeps++;
+            return fullPlan;
+        }
+        skippedHeadings += count - planned.length;
+        if (active > 0) {
+            reducedSweeps++;
+            return new SweepPlan(fullPlan.getDwellMillis(), planned, fullPlan.getProfile());
+        }
+        quietSweeps++;
+        return new SweepPlan(Math.min(quietDwellMillis, fullPlan.getDwellMillis()), planned, CaptureProfile.PERIODIC);
+    }
+
+    @Override
+    public synchronized void onSweepCompleted(String location, SweepPlan plan, long waypointMillis) {
+        double perHeading = Math.max(0, waypointMillis - plan.getDwellMillis()) / (double) plan.getHeadingCount();
+        millisPerHeading = millisPerHeading < 0 ? perHeading
+                : millisPerHeading + (perHeading - millisPerHeading) * TIMING_ALPHA;
+        Activity activity = activities.get(key(location));
+        SweepPlan full = activity != null ? activity.fullPlan : null;
+        if (full == null || plan == full) {
+            return;
+        }
+        long estimated = full.getDwellMillis() + Math.round(full.getHeadingCount() * millisPerHeading);
+        long saved = Math.max(0, estimated - waypointMillis);
+        savedMillis += saved;
+        lapSavedMillis += saved;
+    }
+
+    // 每圈結束時呼叫，回傳這一圈節省的時間
+    public synchronized long onLapCompleted() {
+        lastLapSavedMillis = lapSavedMillis;
+        lapSavedMillis = 0;
+        return lastLapSavedMillis;
+    }
+
+    private static boolean hasUnknown(Activity activity) {
+        for (double rate : activity.changeRate) {
+            if (Double.isNaN(rate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Activity activity(String location) {
+        String key = key(location);
+        Activity activity = activities.get(key);
+        if (activity == null) {
+            activity = new Activity();
+            activity.stagger = activities.size() % Math.max(1, maxVisitsBetweenFull); // 依第一次出現的順序錯開
+            activities.put(key, activity);
+        }
+        return activity;
+    }
+
+    // Temi 的地點名稱不分大小寫
+    private static String key(String location) {
+        return location.toLowerCase(Locale.ROOT);
+    }
+
+    // 某地點某方向（完整環拍中的索引）最近的變化率；沒有結果時為 NaN
+    public synchronized double getChangeRate(String location, int slot) {
+        Activity activity = activities.get(key(location));
+        return activity != null && slot < activity.changeRate.length ? activity.changeRate[slot] : Double.NaN;
+    }
+
+    public synchronized long getFullSweeps() {
+        return fullSweeps;
+    }
+
+    public synchronized long getReducedSweeps() {
+        return reducedSweeps;
+    }
+
+    public synchronized long getQuietSweeps() {
+        return quietSweeps;
+    }
+
+    public synchronized long getSkippedHeadings() {
+        return skippedHeadings;
+    }
+
+    // 開始以來估計節省的總時間
+    public synchronized long getSavedMillis() {
+        return savedMillis;
+    }
+
+    public synchronized long getLastLapSavedMillis() {
+        return lastLapSavedMillis;
+    }
+
+    public synchronized String describe() {
+        return "full=" + fullSweeps + " reduced=" + reducedSweeps + " quiet=" + quietSweeps
+                + " skippedHeadings=" + skippedHeadings + " saved=" + savedMillis / 1000 + "s lastLap="
+                + lastLapSavedMillis / 1000 + "s perHeading=" + Math.round(millisPerHeading) + "ms";
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.temilib.telemetry;
+
+// 以原生陣列實作的位置環形緩衝 (時間, x, y, yaw)，新增樣本不配置物件
+// 索引 0 為最舊的樣本，size()-1 為最新；非執行緒安全，由 PositionTelemetry 加鎖保護
+public class PositionRing {
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] yaws;
+    private int head; // 下一個寫入位置
+    private int size;
+
+    public PositionRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必須大於 0");
+        }
+        timestamps = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        yaws = new float[capacity];
+    }
+
+    public void add(long timestampMillis, float x, float y, float yaw) {
+        timestamps[head] = timestampMillis;
+        xs[head] = x;
+        ys[head] = y;
+        yaws[head] = yaw;
+        head = (head + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int physical(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return (head - size + index + timestamps.length) % timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[physical(index)];
+    }
+
+    public float getX(int index) {
+        return xs[physical(index)];
+    }
+
+    public float getY(int index) {
+        return ys[physical(index)];
+    }
+
+    public float getYaw(int index) {
+        return yaws[physical(index)];
+    }
+
+    // 第一個時間不早於 sinceMillis 的樣本索引，沒有則回傳 size()
+    public int indexAtOrAfter(long sinceMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) { // 時間遞增，可二分搜尋
+            int mid = (low + high) >>> 1;
+            if (getTimestamp(mid) < sinceMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.temilib.telemetry;
+
+import java.nio.ByteBuffer;
+
+// 位置遙測：依距離與時間門檻降採樣，存入環形緩衝供查詢軌跡、速度與停滯，並定期把批次交給 sink
+// 批次格式（ByteBuffer 預設大端序）：
+//   [long 第一筆時間][int 筆數] 之後每筆 [int 與第一筆的時間差 ms][float x][float y][float yaw]
+public class PositionTelemetry {
+    private static final int BATCH_HEADER_BYTES = 8 + 4;
+    private static final int SAMPLE_BYTES = 4 + 4 + 4 + 4;
+
+    private final PositionRing ring;
+    private final float minDistanceMeters; // 移動超過此距離才記錄
+    private final float minYawRadians; // 或轉向超過此角度
+    private final long minIntervalMillis; // 兩筆紀錄的最短間隔
+    private final long heartbeatMillis; // 靜止時也至少每隔這麼久記錄一筆
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final ByteBuffer batch;
+    private TelemetrySink sink;
+
+    private boolean hasAccepted;
+    private long lastTimestamp;
+    private float lastX;
+    private float lastY;
+    private float lastYaw;
+    private int batchCount;
+    private long batchFirstTimestamp;
+    private long received;
+    private long accepted;
+    private long batchesFlushed;
+
+    public PositionTelemetry(int ringCapacity, float minDistanceMeters, float minYawRadians, long minIntervalMillis,
+                             long heartbeatMillis, int batchSize, long flushIntervalMillis) {
+        this.ring = new PositionRing(ringCapacity);
+        this.minDistanceMeters = minDistanceMeters;
+        this.minYawRadians = minYawRadians;
+        this.minIntervalMillis = minIntervalMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batch = ByteBuffer.allocate(BATCH_HEADER_BYTES + batchSize * SAMPLE_BYTES);
+    }
+
+    public synchronized void setSink(TelemetrySink sink) {
+        this.sink = sink;
+    }
+
+    // 新的位置樣本；回傳是否被記錄（未達門檻的樣本直接略過）
+    public synchronized boolean onSample(long timestampMillis, float x, float y, float yaw) {
+        received++;
+        if (hasAccepted) {
+            long elapsed = timestampMillis - lastTimestamp;
+            if (elapsed < minIntervalMillis) {
+                return false;
+            }
+            float dx = x - lastX;
+            float dy = y - lastY;
+            float turned = Math.abs(yaw - lastYaw);
+            if (turned > Math.PI) {
+                turned = (float) (2 * Math.PI - turned); // 跨越 ±π
+            }
+            boolean moved = dx * dx + dy * dy >= minDistanceMeters * minDistanceMeters || turned >= minYawRadians;
+            if (!moved && elapsed < heartbeatMillis) {
+                return false;
+            }
+        }
+        hasAccepted = true;
+        lastTimestamp = timestampMillis;
+        lastX = x;
+        lastY = y;
+        lastYaw = yaw;
+        accepted++;
+        ring.add(timestampMillis, x, y, yaw);
+        appendToBatch(timestampMillis, x, y, yaw);
+        return true;
+    }
+
+    private void appendToBatch(long timestampMillis, float x, float y, float yaw) {
+        if (batchCount == 0) {
+            batch.clear();
+            batch.position(BATCH_HEADER_BYTES);
+            batchFirstTimestamp = timestampMillis;
+        }
+        batch.putInt((int) (timestampMillis - batchFirstTimestamp)).putFloat(x).putFloat(y).putFloat(yaw);
+        batchCount++;
+        if (batchCount >= batchSize || timestampMillis - batchFirstTimestamp >= flushIntervalMillis) {
+            flush();
+        }
+    }
+
+    // 立即送出目前累積的批次
+    public synchronized void flush() {
+        if (batchCount == 0) {
+            return;
+        }
+        batch.putLong(0, batchFirstTimestamp).putInt(8, batchCount);
+        batch.flip();
+        if (sink != null) {
+            sink.write(batch.asReadOnlyBuffer(), batchCount, batchFirstTimestamp);
+        }
+        batchesFlushed++;
+        batchCount = 0;
+    }
+
+    // 最近 windowMillis 內的平均速度（公尺/秒），樣本不足時回傳 0
+    public synchronized float getSpeed(long nowMillis, long windowMillis) {
+        int start = ring.indexAtOrAfter(nowMillis - windowMillis);
+        int end = ring.size() - 1;
+        if (end - start < 1) {
+            return 0;
+        }
+        double meters = 0;
+        for (int i = start + 1; i <= end; i++) {
+            double dx = ring.getX(i) - ring.getX(i - 1);
+            double dy = ring.getY(i) - ring.getY(i - 1);
+            meters += Math.sqrt(dx * dx + dy * dy);
+        }
+        long elapsed = ring.getTimestamp(end) - ring.getTimestamp(start);
+        return elapsed <= 0 ? 0 : (float) (meters * 1000 / elapsed);
+    }
+
+    // 最近 windowMillis 內位移都不超過 radiusMeters 視為停滯；資料未涵蓋整個時間窗時回傳 false
+    public synchronized boolean isStalled(long nowMillis, long windowMillis, float radiusMeters) {
+        if (ring.size() == 0 || ring.getTimestamp(0) > nowMillis - windowMillis) {
+            return false;
+        }
+        // 降採樣會略過靜止的樣本，所以從時間窗前最後一筆開始檢查
+        int start = Math.max(0, ring.indexAtOrAfter(nowMillis - windowMillis) - 1);
+        float anchorX = ring.getX(ring.size() - 1);
+        float anchorY = ring.getY(ring.size() - 1);
+        for (int i = start; i < ring.size(); i++) {
+            float dx = ring.getX(i) - anchorX;
+            float dy = ring.getY(i) - anchorY;
+            if (dx * dx + dy * dy > radiusMeters * radiusMeters) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 將 sinceMillis 之後的軌跡以 x,y 交錯寫入 out，回傳寫入的點數
+    public synchronized int copyTrail(long sinceMillis, float[] out) {
+        int start = ring.indexAtOrAfter(sinceMillis);
+        int count = Math.min(ring.size() - start, out.length / 2);
+        for (int i = 0; i < count; i++) {
+            out[i * 2] = ring.getX(start + i);
+            out[i * 2 + 1] = ring.getY(start + i);
+        }
+        return count;
+    }
+
+    public synchronized int getSampleCount() {
+        return ring.size();
+    }
+
+    public synchronized long getReceivedCount() {
+        return received;
+    }
+
+    public synchronized long getAcceptedCount() {
+        return accepted;
+    }
+
+    public synchronized long getBatchesFlushed() {
+        return batchesFlushed;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.temilib.telemetry;
+
+import java.nio.ByteBuffer;
+
+// 接收壓縮後的位置批次；batch 只在呼叫期間有效，需要保存時請自行複製
+public interface TelemetrySink {
+    void write(ByteBuffer batch, int sampleCount, long firstTimestampMillis);
+}
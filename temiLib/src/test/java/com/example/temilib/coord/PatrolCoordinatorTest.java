@@ -0,0 +1,96 @@
+package com.example.temilib.coord;
+
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.patrol.PatrolStateMachine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PatrolCoordinatorTest {
+    private static final long LEASE = 60000;
+    private static final long WINDOW = 600000;
+    private static final long OVERDUE = 1800000;
+    private static final long HEARTBEAT_TIMEOUT = 120000;
+    private static final List<String> ROUTE = Arrays.asList("home base", "A", "B", "C", "D");
+
+    private ManualClock clock;
+    private LoopbackTransport transport;
+    private PatrolCoordinator first;
+    private PatrolCoordinator second;
+
+    @Before
+    public void setUp() {
+        clock = new ManualClock(0);
+        transport = new LoopbackTransport(clock);
+        first = newCoordinator("robot-1");
+        second = newCoordinator("robot-2");
+        first.heartbeat();
+        second.heartbeat();
+    }
+
+    private PatrolCoordinator newCoordinator(String id) {
+        PatrolCoordinator coordinator = new PatrolCoordinator(id, transport, LEASE, WINDOW, OVERDUE, HEARTBEAT_TIMEOUT);
+        coordinator.setRoute(ROUTE);
+        return coordinator;
+    }
+
+    @Test
+    public void splitsRouteAndSweepsEachWaypointOncePerWindow() {
+        assertEquals(Arrays.asList("A", "B"), first.getAssignedWaypoints());
+        assertEquals(Arrays.asList("C", "D"), second.getAssignedWaypoints());
+        assertTrue(first.tryAcquire("home base")); // 充電座不分配
+        assertFalse(first.tryAcquire("C"));
+        assertTrue(first.tryAcquire("A"));
+        assertTrue(first.tryAcquire("A")); // 重試時延長租約
+
+        first.onCompleted("A");
+        clock.advanceMillis(WINDOW - 5000);
+        first.heartbeat();
+        second.heartbeat();
+        assertFalse(first.tryAcquire("A")); // 同一時段內不再巡
+        assertEquals(5000, first.getRetryDelayMillis()); // 自己負責的地點最早 5 秒後可再巡
+        clock.advanceMillis(5000);
+        assertTrue(first.tryAcquire("A"));
+        assertEquals(1, transport.getCompletions());
+    }
+
+    @Test
+    public void dockedRobotsWaypointsAreRebalanced() {
+        assertTrue(second.tryAcquire("C"));
+        second.onStateChanged(PatrolStateMachine.State.CHARGING);
+        second.release("C");
+
+        assertEquals(Arrays.asList("A", "B", "C", "D"), first.getAssignedWaypoints());
+        assertTrue(first.tryAcquire("C"));
+        assertEquals(0, first.getTakenOver()); // 重新分配後屬於自己，不算接手
+
+        // 回到巡邏後恢復原本的分工
+        second.onStateChanged(PatrolStateMachine.State.NAVIGATING);
+        assertEquals(Arrays.asList("A", "B"), first.getAssignedWaypoints());
+    }
+
+    @Test
+    public void leaseAndOverdueHandOver() {
+        assertTrue(second.tryAcquire("C"));
+        // 導航失敗重試中：視為卡住，C 改由 first 負責，但租約仍在 second 手上
+        second.onStateChanged(PatrolStateMachine.State.RECOVERING);
+        assertEquals(Arrays.asList("A", "B", "C", "D"), first.getAssignedWaypoints());
+        assertFalse(first.tryAcquire("C"));
+        assertEquals(1, first.getDenied());
+        clock.advanceMillis(LEASE);
+        assertTrue(first.tryAcquire("C")); // 租約過期
+
+        // second 在線但一直沒巡 D：逾期後 first 可接手
+        second.onStateChanged(PatrolStateMachine.State.NAVIGATING);
+        assertFalse(first.tryAcquire("D"));
+        clock.advanceMillis(OVERDUE);
+        second.heartbeat();
+        assertTrue(first.tryAcquire("D"));
+        assertEquals(1, first.getTakenOver());
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.temilib.eventlog;
+
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.patrol.ManualScheduler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+    private File directory;
+    private File file;
+
+    // 把事件轉成字串並記下送達時間
+    static class RecordingEvents implements PatrolEvents {
+        final List<String> events = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+        ManualClock clock;
+
+        private void add(String event) {
+            events.add(event);
+            times.add(clock != null ? clock.currentTimeMillis() : 0);
+        }
+
+        @Override
+        public void onGoToStatus(String location, String status, int id, String description) {
+            add("goTo " + location + " " + status + " " + id + " " + description);
+        }
+
+        @Override
+        public void onPosition(float x, float y, float yaw, int tiltAngle) {
+            add("pos " + x + "," + y + "," + yaw + "," + tiltAngle);
+        }
+
+        @Override
+        public void onMovementStatus(String type, String status) {
+            add("move " + type + " " + status);
+        }
+
+        @Override
+        public void onRobotReady(boolean ready) {
+            add("ready " + ready);
+        }
+
+        @Override
+        public void onCapture(String waypoint, int sequence, int headingDegrees, boolean success) {
+            add("capture " + waypoint + "#" + sequence + "@" + headingDegrees + " " + success);
+        }
+
+        @Override
+        public void onUpload(String name, int bytes, long durationMillis, boolean success) {
+            add("upload " + name + " " + bytes + " " + durationMillis + " " + success);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("eventlog").toFile();
+        file = new File(directory, "events.bin");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void roundTripsEveryEventTypeWithTimestamps() throws IOException {
+        ManualClock clock = new ManualClock(1000000);
+        EventLogWriter writer = EventLogWriter.open(file, clock, 1 << 20);
+        writer.onRobotReady(true);
+        clock.advanceMillis(250);
+        writer.onGoToStatus("A", "going", 7, "");
+        writer.onPosition(1.5f, -2f, 0.25f, 20);
+        writer.onMovementStatus("turnBy", "complete");
+        writer.onCapture("A", 2, 270, false);
+        writer.onUpload("IMG_1.jpg", 120000, 800, true);
+        clock.advanceMillis(1000);
+        writer.onGoToStatus("A", "complete", -1, null);
+        writer.close();
+
+        EventLogReader reader = EventLogReader.open(file);
+        assertEquals(1000000, reader.getStartEpochMillis());
+        RecordingEvents events = new RecordingEvents();
+        List<Long> timestamps = new ArrayList<>();
+        while (reader.next()) {
+            timestamps.add(reader.getTimestampNanos() / 1000000);
+            reader.dispatch(events);
+        }
+        assertFalse(reader.isTruncated());
+        assertEquals(7, writer.getEventCount());
+        assertEquals("[ready true, goTo A going 7 , pos 1.5,-2.0,0.25,20, move turnBy complete, capture A#2@270 false, "
+                + "upload IMG_1.jpg 120000 800 true, goTo A complete -1 null]", events.events.toString());
+        assertEquals("[0, 250, 250, 250, 250, 250, 1250]", timestamps.toString());
+    }
+
+    @Test
+    public void repeatedStringsAreWrittenOnceAndTruncatedTailIsIgnored() throws IOException {
+        EventLogWriter writer = EventLogWriter.open(file, new ManualClock(0), 1 << 20);
+        writer.onGoToStatus("走廊盡頭的會議室", "going", 1, "");
+        writer.flush();
+        long first = file.length();
+        writer.onGoToStatus("走廊盡頭的會議室", "going", 1, "");
+        writer.close();
+        assertTrue(file.length() - first < 8); // 只有類型、時間差與三個編號
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1); // 模擬寫到一半當機
+        }
+        EventLogReader reader = EventLogReader.open(file);
+        RecordingEvents events = new RecordingEvents();
+        while (reader.next()) {
+            reader.dispatch(events);
+        }
+        assertEquals(1, events.events.size());
+        assertTrue(reader.isTruncated());
+    }
+
+    @Test
+    public void rotatesAndEachFileStandsAlone() throws IOException {
+        EventLogWriter writer = EventLogWriter.open(file, new ManualClock(0), 64);
+        for (int i = 0; i < 20; i++) {
+            writer.onMovementStatus("turnBy", "going");
+            writer.flush();
+        }
+        writer.close();
+        File previous = new File(file.getPath() + ".1");
+        assertTrue(previous.exists());
+        for (File f : new File[]{file, previous}) {
+            EventLogReader reader = EventLogReader.open(f);
+            RecordingEvents events = new RecordingEvents();
+            while (reader.next()) {
+                reader.dispatch(events);
+            }
+            assertFalse(reader.isTruncated());
+            for (String event : events.events) {
+                assertEquals("move turnBy going", event);
+            }
+        }
+    }
+
+    @Test
+    public void replaysAtRecordedSpeedOnScheduler() throws IOException {
+        ManualClock recordClock = new ManualClock(0);
+        EventLogWriter writer = EventLogWriter.open(file, recordClock, 1 << 20);
+        writer.onRobotReady(true);
+        recordClock.advanceMillis(1000);
+        writer.onGoToStatus("A", "going", 1, "");
+        recordClock.advanceMillis(3000);
+        writer.onGoToStatus("A", "complete", 1, "");
+        writer.close();
+
+        ManualScheduler scheduler = new ManualScheduler(new ManualClock(0));
+        RecordingEvents events = new RecordingEvents();
+        events.clock = scheduler.getClock();
+        final boolean[] finished = new boolean[1];
+        EventReplayer replayer = new EventReplayer(EventLogReader.open(file), scheduler, scheduler.getClock(), 2.0);
+        replayer.start(events, new Runnable() {
+            @Override
+            public void run() {
+                finished[0] = true;
+            }
+        });
+        scheduler.advanceMillis(10000);
+        assertTrue(finished[0]);
+        assertEquals(3, replayer.getReplayedCount());
+        assertEquals("[0, 500, 2000]", events.times.toString()); // 兩倍速
+
+        EventReplayer fast = new EventReplayer(EventLogReader.open(file), scheduler, scheduler.getClock(), 0);
+        assertEquals(3, fast.replayAll(new RecordingEvents()));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.temilib.location;
+
+import com.example.cameraxlib.util.ManualClock;
+import com.example.temilib.route.LegCostTable;
+import com.example.temilib.route.Waypoint;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class LocationRegistryTest {
+    // 記錄被呼叫的次數，回傳目前設定的地點
+    private static class FakeSource implements LocationRegistry.LocationSource {
+        List<String> locations = Arrays.asList("home base", "A", "B");
+        int calls;
+
+        @Override
+        public List<String> loadLocations() {
+            calls++;
+            return locations;
+        }
+    }
+
+    // 排隊的載入工作，由測試決定何時執行
+    private static class QueuedExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private final FakeSource source = new FakeSource();
+    private final QueuedExecutor loader = new QueuedExecutor();
+    private final LegCostTable legCosts = new LegCostTable();
+    private final LocationRegistry registry = new LocationRegistry(source, loader, legCosts, new ManualClock(0));
+
+    @Test
+    public void getSnapshot_loadsLazilyOnceAndServesFromCache() {
+        assertEquals(0, source.calls); // 建立時不呼叫 SDK
+        assertTrue(registry.getSnapshot().isEmpty()); // 不阻塞，先回傳 EMPTY
+        registry.getSnapshot(); // 載入中不重複排程
+        assertEquals(1, loader.tasks.size());
+        loader.runAll();
+
+        LocationSnapshot snapshot = registry.getSnapshot();
+        assertEquals(Arrays.asList("home base", "A", "B"), snapshot.getNames());
+        assertEquals(Arrays.asList("A", "B"), snapshot.getPatrolPoints());
+        registry.getSnapshot();
+        assertEquals(1, source.calls);
+        assertEquals(2, registry.getHitCount());
+        assertTrue(loader.tasks.isEmpty());
+    }
+
+    @Test
+    public void invalidate_reloadsAndNotifiesOnNameChange() {
+        final List<LocationSnapshot> changes = new ArrayList<>();
+        registry.setListener(snapshot -> changes.add(snapshot));
+        registry.invalidate(); // 還沒用過，不載入
+        assertTrue(loader.tasks.isEmpty());
+
+        registry.getSnapshot();
+        loader.runAll();
+        assertEquals(1, changes.size());
+
+        source.locations = Arrays.asList("home base", "A", "B", "C");
+        registry.invalidate();
+        assertTrue(registry.isStale());
+        loader.runAll();
+        assertEquals(2, source.calls);
+        assertEquals(2, changes.size());
+        assertTrue(registry.getSnapshot().contains("C"));
+        assertTrue(changes.get(1).getVersion() > changes.get(0).getVersion());
+    }
+
+    @Test
+    public void push_replacesCacheWithoutLoadingAndDropsOlderLoad() {
+        registry.getSnapshot(); // 排入一次載入，但還沒執行
+        registry.onLocationsUpdated(Arrays.asList("home base", "X"));
+        loader.runAll(); // 較舊的載入結果被丟棄
+
+        LocationSnapshot snapshot = registry.getSnapshot();
+        assertEquals(Arrays.asList("home base", "X"), snapshot.getNames());
+        assertEquals(1, registry.getPushCount());
+        assertFalse(registry.isStale());
+    }
+
+    @Test
+    public void load_callsBackAfterLoadAndImmediatelyWhenCached() {
+        final List<LocationSnapshot> results = new ArrayList<>();
+        registry.load(snapshot -> results.add(snapshot));
+        assertTrue(results.isEmpty());
+        loader.runAll();
+        assertEquals(1, results.size());
+        assertEquals(3, results.get(0).size());
+
+        registry.load(snapshot -> results.add(snapshot));
+        assertEquals(2, results.size()); // 快取有效，直接回呼
+        assertSame(results.get(0), results.get(1));
+        assertEquals(1, source.calls);
+    }
+
+    @Test
+    public void load_failureKeepsStaleAndRetriesOnNextRead() {
+        source.locations = null;
+        final List<LocationSnapshot> results = new ArrayList<>();
+        registry.load(snapshot -> results.add(snapshot));
+        loader.runAll();
+        assertSame(LocationSnapshot.EMPTY, results.get(0));
+        assertEquals(1, registry.getLoadFailures());
+
+        source.locations = Arrays.asList("A");
+        registry.getSnapshot();
+        loader.runAll();
+        assertTrue(registry.getSnapshot().contains("A"));
+    }
+
+    @Test
+    public void updatePoses_buildsCostMatrixCaseInsensitively() {
+        registry.onLocationsUpdated(Arrays.asList("Home Base", "A", "B", "C"));
+        LocationSnapshot before = registry.getSnapshot();
+        assertEquals(-1, before.getCost("A", "B"), 1e-9); // 沒有座標
+        assertEquals(0, before.getCost("A", "a"), 1e-9);
+
+        Map<String, Waypoint> poses = new HashMap<>();
+        poses.put("A", new Waypoint("A", 0, 0));
+        poses.put("B", new Waypoint("B", 3, 4));
+        poses.put("home base", new Waypoint("home base", 0, 10));
+        legCosts.record("A", "home base", 12);
+        registry.updatePoses(poses);
+
+        LocationSnapshot after = registry.getSnapshot();
+        assertNotSame(before, after);
+        assertEquals(5, after.getCost("a", "B"), 1e-6); // 直線距離
+        assertEquals(12, after.getCost("A", "HOME BASE"), 1e-6); // 量測距離優先
+        assertEquals(-1, after.getCost("A", "C"), 1e-9);
+        assertTrue(after.isHomeBase("home base"));
+        assertEquals(Arrays.asList("A", "B", "C"), after.getPatrolPoints());
+        assertEquals(0, source.calls);
+    }
+}
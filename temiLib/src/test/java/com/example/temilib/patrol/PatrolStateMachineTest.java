@@ -0,0 +1,391 @@
+package com.example.temilib.patrol;
+
+import com.example.cameraxlib.util.ManualClock;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PatrolStateMachineTest {
+    private FakeRobot robot;
+    private ManualScheduler scheduler;
+    private PatrolStateMachine patrol;
+
+    // 記錄所有操作的假機器人
+    static class FakeRobot implements PatrolRobot {
+        final List<String> actions = new ArrayList<>();
+        final List<int[]> uncompleted = new ArrayList<>(); // 還沒回報完成的 {sweep, shot}，依送出順序
+        int[] last; // 最近送出的一張
+        int[] lastCompleted;
+
+        @Override
+        public void goTo(String location) {
+            actions.add("goTo " + location);
+        }
+
+        @Override
+        public void turnBy(int degrees) {
+            actions.add("turn " + degrees);
+        }
+
+        @Override
+        public void capturePhoto(String location, int sweep, int shot, int headingDegrees) {
+            actions.add("capture " + location + "@" + headingDegrees);
+            last = new int[]{sweep, shot};
+            uncompleted.add(last);
+        }
+    }
+
+    // 最近送出的那張曝光開始
+    private void shutter() {
+        patrol.onShutter(robot.last[0], robot.last[1]);
+    }
+
+    // 最早送出、還沒完成的那張完成；都完成了則重送上一個完成事件
+    private void complete() {
+        if (!robot.uncompleted.isEmpty()) {
+            robot.lastCompleted = robot.uncompleted.remove(0);
+        }
+        patrol.onCaptureCompleted(robot.lastCompleted[0], robot.lastCompleted[1]);
+    }
+
+    @Before
+    public void setUp() {
+        robot = new FakeRobot();
+        scheduler = new ManualScheduler(new ManualClock(0));
+        PatrolConfig config = new PatrolConfig().setDwellMillis(1000).setHeadings(4);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+    }
+
+    @Test
+    public void sweep_waitsForCompletionEvents() {
+        assertTrue(patrol.start(Arrays.asList("A", "B")));
+        patrol.onGoToStatus("A", "complete");
+        assertEquals(PatrolStateMachine.State.DWELLING, patrol.getState());
+        scheduler.advanceMillis(1000);
+        assertEquals(PatrolStateMachine.State.CAPTURING, patrol.getState());
+
+        for (int i = 0; i < 3; i++) {
+            complete();
+            assertEquals(PatrolStateMachine.State.TURNING, patrol.getState());
+            complete(); // 轉身中重複的拍照事件應被忽略
+            patrol.onTurnCompleted();
+        }
+        complete();
+
+        assertEquals(Arrays.asList("goTo A", "capture A@0", "turn 90", "capture A@90", "turn 90",
+                "capture A@180", "turn 90", "capture A@270", "goTo B"), robot.actions);
+        assertEquals(1000, scheduler.getClock().currentTimeMillis());
+        assertEquals(0, patrol.getTurnTimeouts());
+    }
+
+    @Test
+    public void missingEvents_fallBackToTimeouts() {
+        patrol.start(Arrays.asList("A"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(1000 + 4 * 5000 + 3 * 5000);
+        assertEquals(PatrolStateMachine.State.NAVIGATING, patrol.getState());
+        assertEquals(4, patrol.getCaptureTimeouts());
+        assertEquals(3, patrol.getTurnTimeouts());
+        assertEquals(1, patrol.getLapsCompleted());
+    }
+
+    @Test
+    public void routeSource_replacesOrderAtLapEnd() {
+        patrol.setRouteSource(() -> Arrays.asList("B", "A"));
+        patrol.start(Arrays.asList("home base"));
+        patrol.onGoToStatus("home base", "complete");
+        assertEquals("B", patrol.getCurrentLocation());
+        assertEquals(Arrays.asList("goTo home base", "goTo B"), robot.actions);
+    }
+
+    @Test
+    public void sweepPolicy_setsDwellAndHeadingsPerWaypoint() {
+        final List<String> completed = new ArrayList<>();
+        patrol.setSweepPolicy(new PatrolStateMachine.SweepPolicy() {
+            @Override
+            public SweepPlan planSweep(String location, SweepPlan fullPlan) {
+                assertEquals(4, fullPlan.getHeadingCount());
+                return "A".equals(location) ? new SweepPlan(200, new int[]{0, 270}, fullPlan.getProfile()) : null;
+            }
+
+            @Override
+            public void onSweepCompleted(String location, SweepPlan plan, long waypointMillis) {
+                completed.add(location + " " + plan.getHeadingCount() + " " + waypointMillis);
+            }
+        });
+        patrol.start(Arrays.asList("A", "B"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(200);
+        complete();
+        patrol.onTurnCompleted();
+        complete();
+        patrol.onGoToStatus("B", "complete");
+        scheduler.advanceMillis(999);
+        assertEquals(PatrolStateMachine.State.DWELLING, patrol.getState()); // 沒有指定時照完整環拍
+        scheduler.advanceMillis(1);
+
+        assertEquals(Arrays.asList("goTo A", "capture A@0", "turn 270", "capture A@270", "goTo B", "capture B@0"),
+                robot.actions);
+        assertEquals(Arrays.asList("A 2 200"), completed);
+    }
+
+    @Test
+    public void stop_cancelsPendingSweep() {
+        patrol.start(Arrays.asList("A", "B"));
+        patrol.onGoToStatus("A", "complete");
+        patrol.stop();
+        scheduler.advanceMillis(60000);
+        patrol.onTurnCompleted();
+        patrol.onGoToStatus("A", "complete");
+        assertEquals(PatrolStateMachine.State.IDLE, patrol.getState());
+        assertEquals(Arrays.asList("goTo A"), robot.actions);
+        assertEquals(0, scheduler.getPendingCount());
+    }
+
+    @Test
+    public void homeBase_isPassedWithoutSweep() {
+        patrol.start(Arrays.asList("home base", "A"));
+        patrol.onGoToStatus("Home Base", "complete");
+        assertEquals(Arrays.asList("goTo home base", "goTo A"), robot.actions);
+    }
+
+    @Test
+    public void abort_retriesWithBackoffThenSkipsAndReplans() {
+        patrol.setReplanner((from, remaining) -> Arrays.asList("D", "C"));
+        patrol.start(Arrays.asList("A", "B", "C", "D"));
+        patrol.onGoToStatus("A", "abort");
+        assertEquals(PatrolStateMachine.State.RECOVERING, patrol.getState());
+        scheduler.advanceMillis(5000);
+        patrol.onGoToStatus("A", "abort");
+        scheduler.advanceMillis(9999);
+        assertEquals(PatrolStateMachine.State.RECOVERING, patrol.getState()); // 第二次退避加倍
+        scheduler.advanceMillis(1);
+        patrol.onGoToStatus("A", "abort"); // 重試用完，跳過 A
+
+        assertEquals("B", patrol.getCurrentLocation());
+        assertTrue(patrol.getNavigationSupervisor().isBlacklisted("a"));
+        patrol.onGoToStatus("B", "abort");
+        patrol.onGoToStatus("B", "going"); // 退避中的事件忽略
+        scheduler.advanceMillis(5000);
+        patrol.onGoToStatus("B", "complete");
+        assertEquals(PatrolStateMachine.State.DWELLING, patrol.getState());
+
+        assertEquals(Arrays.asList("goTo A", "goTo A", "goTo A", "goTo B", "goTo B"), robot.actions);
+        assertEquals(4, patrol.getNavigationFailures());
+        assertEquals(3, patrol.getNavigationSupervisor().getRetries());
+        assertEquals(1, patrol.getNavigationSupervisor().getBlacklistings());
+    }
+
+    @Test
+    public void watchdog_skipsUnreachableStopsAndWaitsWhenAllBlacklisted() {
+        PatrolConfig config = new PatrolConfig().setHeadings(1).setDwellMillis(0).setMaxNavigationRetries(0)
+                .setNavigationTimeoutMillis(60000).setBlacklistMillis(600000);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        patrol.start(Arrays.asList("A", "B"));
+        scheduler.advanceMillis(60000); // A 沒有任何回報
+        assertEquals("B", patrol.getTargetLocation());
+        patrol.onGoToStatus("B", "complete");
+        scheduler.advanceMillis(0);
+        complete(); // B 完成，A 仍在黑名單中，直接繞回 B
+        assertEquals(Arrays.asList("goTo A", "goTo B", "capture B@0", "goTo B"), robot.actions);
+        assertEquals(1, patrol.getSkippedWaypoints());
+        assertEquals(1, patrol.getNavigationSupervisor().getWaypointsPerHour());
+
+        scheduler.advanceMillis(60000); // B 也到不了
+        assertEquals(PatrolStateMachine.State.RECOVERING, patrol.getState());
+        assertEquals(2, patrol.getNavigationTimeouts());
+        scheduler.advanceMillis(660000 - 120000); // A 在 60 秒時列入黑名單，660 秒到期
+        assertEquals(PatrolStateMachine.State.NAVIGATING, patrol.getState());
+        assertEquals("A", patrol.getTargetLocation());
+    }
+
+    @Test
+    public void gate_waitingForLeasedStopsDoesNotCountLaps() {
+        PatrolConfig config = new PatrolConfig().setHeadings(1).setDwellMillis(0);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        final List<String> leased = new ArrayList<>(Arrays.asList("A", "B"));
+        final int[] routeRequests = new int[1];
+        patrol.setRouteSource(() -> {
+            routeRequests[0]++;
+            return null;
+        });
+        patrol.setWaypointGate(new PatrolStateMachine.WaypointGate() {
+            @Override
+            public boolean tryAcquire(String location) {
+                return !leased.contains(location);
+            }
+
+            @Override
+            public void release(String location) {
+            }
+
+            @Override
+            public void onCompleted(String location) {
+            }
+
+            @Override
+            public long getRetryDelayMillis() {
+                return 1000;
+            }
+        });
+        patrol.start(Arrays.asList("A", "B"));
+        assertEquals(PatrolStateMachine.State.RECOVERING, patrol.getState());
+        scheduler.advanceMillis(10000); // 其他機器人一直佔著，每秒重試一次
+        assertEquals(0, patrol.getLapsCompleted());
+        assertEquals(0, routeRequests[0]);
+
+        leased.remove("B");
+        scheduler.advanceMillis(1000);
+        patrol.onGoToStatus("B", "complete");
+        scheduler.advanceMillis(0);
+        complete(); // 真的巡過 B，繞回 A 時算一圈
+        assertEquals(1, patrol.getLapsCompleted());
+        assertEquals(1, routeRequests[0]);
+        assertEquals(Arrays.asList("goTo B", "capture B@0", "goTo B"), robot.actions);
+    }
+
+    @Test
+    public void burst_turnsOnShutterAndDrainsBeforeLeaving() {
+        PatrolConfig config = new PatrolConfig().setDwellMillis(1000).setHeadings(4).setBurstInFlight(2);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        patrol.start(Arrays.asList("A", "B"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(1000);
+
+        shutter(); // 第 0 張曝光開始就轉身
+        assertEquals(PatrolStateMachine.State.TURNING, patrol.getState());
+        patrol.onTurnCompleted();
+        shutter(); // 第 1 張
+        patrol.onTurnCompleted();
+        assertEquals(PatrolStateMachine.State.DRAINING, patrol.getState()); // 兩張都還在處理
+        scheduler.advanceMillis(300);
+        complete();
+        assertEquals(PatrolStateMachine.State.CAPTURING, patrol.getState());
+        complete(); // 第 1 張完成，第 2 張還沒曝光
+        assertEquals(PatrolStateMachine.State.CAPTURING, patrol.getState());
+        shutter();
+        patrol.onTurnCompleted();
+        shutter(); // 最後一張
+        assertEquals(PatrolStateMachine.State.DRAINING, patrol.getState());
+        complete();
+        complete();
+
+        assertEquals(PatrolStateMachine.State.NAVIGATING, patrol.getState());
+        assertEquals(Arrays.asList("goTo A", "capture A@0", "turn 90", "capture A@90", "turn 90",
+                "capture A@180", "turn 90", "capture A@270", "goTo B"), robot.actions);
+        assertEquals(300000L, patrol.getSweepTime().snapshot().getMaxMicros());
+        assertEquals(0, patrol.getCaptureTimeouts());
+    }
+
+    @Test
+    public void burst_missingCompletionsTimeOutWhileDraining() {
+        PatrolConfig config = new PatrolConfig().setDwellMillis(0).setHeadings(2).setBurstInFlight(2);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        patrol.start(Arrays.asList("A"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(0);
+        shutter();
+        patrol.onTurnCompleted();
+        complete(); // 第 0 張完成，第 1 張的快門與完成都沒有來
+        scheduler.advanceMillis(5000 + 5000);
+        assertEquals(PatrolStateMachine.State.NAVIGATING, patrol.getState());
+        assertEquals(2, patrol.getCaptureTimeouts());
+        assertEquals(1, patrol.getLapsCompleted());
+    }
+
+    @Test
+    public void burst_ignoresLateCompletionFromPreviousWaypoint() {
+        PatrolConfig config = new PatrolConfig().setDwellMillis(0).setHeadings(2).setBurstInFlight(2);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        patrol.start(Arrays.asList("A", "B"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(0);
+        int[] lateShot = robot.last;
+        shutter();
+        patrol.onTurnCompleted();
+        shutter();
+        scheduler.advanceMillis(5000); // A 的兩張都沒有完成，放棄等待
+        assertEquals("B", patrol.getTargetLocation());
+
+        patrol.onGoToStatus("B", "complete");
+        scheduler.advanceMillis(0);
+        assertEquals(PatrolStateMachine.State.CAPTURING, patrol.getState());
+        patrol.onCaptureCompleted(lateShot[0], lateShot[1]); // A 第 0 張遲到，不能當成 B 這張已曝光
+        patrol.onShutter(lateShot[0], lateShot[1]);
+        assertEquals(PatrolStateMachine.State.CAPTURING, patrol.getState());
+        shutter();
+        assertEquals(PatrolStateMachine.State.TURNING, patrol.getState());
+        assertEquals("turn 180", robot.actions.get(robot.actions.size() - 1));
+    }
+
+    // 依外部旗標決定的回座策略，記錄每次詢問
+    static class FakeDockPolicy implements PatrolStateMachine.DockPolicy {
+        final List<String> asked = new ArrayList<>();
+        boolean dock;
+        boolean charged;
+
+        @Override
+        public boolean shouldDockBefore(String from, String next) {
+            asked.add(from + "->" + next);
+            return dock;
+        }
+
+        @Override
+        public boolean isChargeComplete() {
+            return charged;
+        }
+    }
+
+    @Test
+    public void dockPolicy_insertsHomeBaseAndResumesAtSkippedStop() {
+        PatrolConfig config = new PatrolConfig().setDwellMillis(0).setHeadings(1).setChargePollMillis(1000);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        FakeDockPolicy policy = new FakeDockPolicy();
+        patrol.setDockPolicy(policy);
+        patrol.start(Arrays.asList("A", "B"));
+        patrol.onGoToStatus("A", "complete");
+        scheduler.advanceMillis(0);
+        policy.dock = true;
+        complete(); // A 拍完，前往 B 前電量不足
+        assertEquals("home base", patrol.getTargetLocation());
+        assertEquals("B", patrol.getCurrentLocation());
+        patrol.onGoToStatus("B", "complete"); // 不是目前目的地，忽略
+        patrol.onGoToStatus("home base", "complete");
+        assertEquals(PatrolStateMachine.State.CHARGING, patrol.getState());
+
+        scheduler.advanceMillis(3000);
+        assertEquals(PatrolStateMachine.State.CHARGING, patrol.getState());
+        policy.charged = true;
+        scheduler.advanceMillis(1000);
+        assertEquals(PatrolStateMachine.State.NAVIGATING, patrol.getState());
+        assertEquals("B", patrol.getTargetLocation());
+
+        assertEquals(Arrays.asList("goTo A", "capture A@0", "goTo home base", "goTo B"), robot.actions);
+        assertEquals(Arrays.asList("null->A", "A->B"), policy.asked); // 充完電直接出發，不再詢問
+        assertEquals(1, patrol.getDockVisits());
+        assertEquals(4000000L, patrol.getChargeTime().snapshot().getMaxMicros());
+        assertEquals(0, patrol.getLapsCompleted());
+    }
+
+    @Test
+    public void charging_givesUpAfterMaxChargeTime() {
+        PatrolConfig config = new PatrolConfig().setChargePollMillis(1000).setMaxChargeMillis(5000);
+        patrol = new PatrolStateMachine(robot, scheduler, scheduler.getClock(), config);
+        FakeDockPolicy policy = new FakeDockPolicy();
+        policy.dock = true;
+        patrol.setDockPolicy(policy);
+        patrol.start(Arrays.asList("A"));
+        patrol.onGoToStatus("home base", "complete");
+        scheduler.advanceMillis(5000);
+        assertEquals("A", patrol.getTargetLocation());
+        assertEquals(1, patrol.getChargeTimeouts());
+        patrol.stop();
+        assertEquals(0, scheduler.getPendingCount());
+    }
+}
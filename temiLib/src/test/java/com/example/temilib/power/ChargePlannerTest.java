@@ -0,0 +1,92 @@
+package com.example.temilib.power;
+
+import com.example.temilib.route.RouteTracker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ChargePlannerTest {
+    private RouteTracker routeTracker;
+    private SimulatedBattery battery;
+    private ChargePlanner planner;
+
+    // 走廊上：充電座在原點，A 在 10 公尺，B 在 100 公尺
+    @Before
+    public void setUp() {
+        routeTracker = new RouteTracker();
+        arrive("home base", 0);
+        arrive("A", 10);
+        arrive("B", 100);
+        battery = new SimulatedBattery(30, 1, 0, 0);
+        // 每公尺 0.05%，不計時間耗電
+        BatteryModel model = new BatteryModel(0.05, 0, 1, 0, 0.01);
+        planner = new ChargePlanner(battery, model, routeTracker, 20, 90);
+    }
+
+    private void arrive(String name, float x) {
+        routeTracker.onPosition(x, 0);
+        routeTracker.onArrived(name);
+    }
+
+    @Test
+    public void docksOnlyWhenNextStopAndReturnWouldCrossReserve() {
+        assertFalse(planner.shouldDockBefore(null, "A")); // 10 + 10 公尺 → 1%
+        assertFalse(planner.shouldDockBefore("A", "B")); // 90 + 100 公尺 → 9.5%，剩 20.5%
+        battery.onMoved(1); // 29%
+        assertTrue(planner.shouldDockBefore("A", "B"));
+        assertFalse(planner.shouldDockBefore("B", "A")); // 回程順路，只要 1.5%
+
+        assertEquals(2, planner.forecastStops(Arrays.asList("A", "B"), 0, null, 30));
+        assertEquals(1, planner.forecastStops(Arrays.asList("A", "B"), 0, null, 29));
+        assertFalse(planner.isChargeComplete());
+    }
+
+    @Test
+    public void unknownStopFallsBackToReserveAndChargingWaitsForTarget() {
+        assertFalse(planner.shouldDockBefore("A", "C"));
+        battery.onMoved(10); // 20%
+        assertTrue(planner.shouldDockBefore("A", "C"));
+
+        battery.setCharging(0, true);
+        battery.onMoved(-60); // 80%，仍在充電座上
+        assertTrue(planner.shouldDockBefore(null, "A"));
+        assertFalse(planner.isChargeComplete());
+        battery.onMoved(-10); // 90%
+        assertTrue(planner.isChargeComplete());
+    }
+
+    @Test
+    public void modelLearnsDrainFromReadings() {
+        // 實際每公尺 0.02%、每秒 0.004%，預設值偏差很大
+        BatteryModel model = new BatteryModel(0.2, 0.05, 0.5, 60000, 0.01);
+        SimulatedBattery truth = new SimulatedBattery(100, 0.02, 0.004, 0.05);
+        double odometer = 0;
+        long now = 0;
+        truth.advanceTo(now);
+        for (int step = 0; step < 20000; step++) {
+            now += 1000;
+            double meters = step % 900 < 300 ? 0.5 : 0; // 走五分鐘、停十分鐘
+            truth.advanceTo(now);
+            truth.onMoved(meters);
+            odometer += meters;
+            model.onReading(now, truth.getBatteryPercent(), false, odometer);
+        }
+        assertTrue(model.getSampleCount() > 50);
+        assertEquals(0.02, model.getPercentPerMeter(), 0.005);
+        assertEquals(0.004, model.getPercentPerSecond(), 0.001);
+
+        truth.setCharging(now, true);
+        model.onReading(now, truth.getBatteryPercent(), true, odometer);
+        for (int step = 0; step < 600; step++) {
+            now += 1000;
+            truth.advanceTo(now);
+            model.onReading(now, truth.getBatteryPercent(), true, odometer);
+        }
+        assertEquals(0.05, model.getChargePercentPerSecond(), 0.01);
+        assertEquals(200000, model.predictChargeMillis(80, 90), 40000);
+    }
+}
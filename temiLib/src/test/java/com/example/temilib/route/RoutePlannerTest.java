@@ -0,0 +1,125 @@
+package com.example.temilib.route;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RoutePlannerTest {
+    private static Map<String, Waypoint> poses(Waypoint... points) {
+        Map<String, Waypoint> map = new HashMap<>();
+        for (Waypoint point : points) {
+            map.put(point.getName(), point);
+        }
+        return map;
+    }
+
+    @Test
+    public void plan_shortensZigZagOrder() {
+        // 走廊上四個點，原順序來回折返
+        Map<String, Waypoint> poses = poses(new Waypoint("A", 0, 0), new Waypoint("B", 30, 0),
+                new Waypoint("C", 10, 0), new Waypoint("D", 20, 0), new Waypoint("home base", 100, 0));
+        List<String> naive = Arrays.asList("A", "B", "home base", "C", "D");
+        LegCostTable costs = new LegCostTable();
+
+        List<String> tour = new RoutePlanner().plan(naive, poses, costs);
+        assertEquals(Arrays.asList("A", "C", "D", "B"), tour);
+        assertEquals(60, RoutePlanner.tourCost(tour, poses, costs), 1e-6);
+        assertTrue(RoutePlanner.tourCost(naive, poses, costs) > 60);
+    }
+
+    @Test
+    public void plan_usesMeasuredLegsAndKeepsUnknownLast() {
+        Map<String, Waypoint> poses = poses(new Waypoint("A", 0, 0), new Waypoint("B", 0, 10),
+                new Waypoint("C", 10, 10), new Waypoint("D", 10, 0));
+        LegCostTable costs = new LegCostTable();
+        costs.record("A", "B", 100); // 中間有牆，實際要繞路
+        List<String> tour = new RoutePlanner().plan(Arrays.asList("A", "B", "C", "D", "E"), poses, costs);
+        assertEquals("E", tour.get(4));
+        assertFalse("A 與 B 不應相鄰", Math.abs(tour.indexOf("A") - tour.indexOf("B")) == 1);
+    }
+
+    @Test
+    public void plan_isCachedUntilLocationSetChanges() {
+        RoutePlanner planner = new RoutePlanner();
+        Map<String, Waypoint> poses = poses(new Waypoint("A", 0, 0), new Waypoint("B", 1, 0));
+        List<String> first = planner.plan(Arrays.asList("A", "B"), poses, new LegCostTable());
+        assertSame(first, planner.plan(Arrays.asList("B", "A"), poses, new LegCostTable()));
+        assertNotSame(first, planner.plan(Arrays.asList("A", "B", "C"), poses, new LegCostTable()));
+    }
+
+    @Test
+    public void tracker_replansWhenMeasuredLegGrowsBetweenLaps() {
+        RouteTracker tracker = new RouteTracker();
+        List<String> names = Arrays.asList("A", "B", "C", "D");
+        float[][] square = {{0, 0}, {10, 0}, {10, 10}, {0, 10}};
+        for (int i = 0; i < names.size(); i++) {
+            tracker.onLegStarted();
+            tracker.onPosition(square[i][0], square[i][1]);
+            tracker.onArrived(names.get(i));
+        }
+        List<String> first = tracker.planLap(names, 0);
+        assertEquals(1, Math.abs(first.indexOf("A") - first.indexOf("B")) % 2); // 正方形沿邊走，A 與 B 相鄰
+        assertSame(first, tracker.planLap(names, 1000)); // 沒有新的量測，沿用快取
+
+        tracker.getLegCosts().record("A", "B", 100); // 中間放了東西，實際要繞路
+        List<String> second = tracker.planLap(names, 2000);
+        assertNotSame(first, second);
+        assertEquals(2, Math.abs(second.indexOf("A") - second.indexOf("B")));
+
+        tracker.getLegCosts().record("A", "B", 60); // 小幅變化不重新規劃
+        assertSame(second, tracker.planLap(names, 3000));
+    }
+
+    @Test
+    public void tracker_resetMapForgetsOldCoordinatesAndTour() {
+        RouteTracker tracker = new RouteTracker();
+        List<String> names = Arrays.asList("A", "B", "C", "D");
+        float[][] zigZag = {{0, 0}, {30, 0}, {10, 0}, {20, 0}};
+        for (int i = 0; i < names.size(); i++) {
+            tracker.onLegStarted();
+            tracker.onPosition(zigZag[i][0], zigZag[i][1]);
+            tracker.onArrived(names.get(i));
+        }
+        assertEquals(Arrays.asList("A", "C", "D", "B"), tracker.planLap(names, 0));
+
+        tracker.resetMap(); // 地點名稱相同，但地圖換了
+        assertTrue(tracker.getPoses().isEmpty());
+        assertEquals(0, tracker.getLegCosts().size());
+        assertEquals(names, tracker.planLap(names, 1000)); // 沒有座標，依原順序
+    }
+
+    @Test
+    public void tracker_learnsPosesAndLegDistances() {
+        RouteTracker tracker = new RouteTracker();
+        tracker.planLap(Arrays.asList("A", "B"), 0);
+        tracker.onPosition(0, 0);
+        tracker.onArrived("A");
+        tracker.onLegStarted();
+        tracker.onPosition(3, 0);
+        tracker.onPosition(3, 4);
+        tracker.onArrived("B");
+        assertEquals(7, tracker.getLegCosts().getMeasured("B", "A"), 1e-6);
+        LapReport report = tracker.onLapCompleted(5000);
+        assertEquals(7, report.travelledMeters, 1e-6);
+        assertEquals(5000, report.lapMillis);
+        assertEquals(2, tracker.getPoses().size());
+    }
+
+    @Test
+    public void tracker_replansRemainingFromCurrentPosition() {
+        RouteTracker tracker = new RouteTracker();
+        tracker.onPosition(0, 0);
+        tracker.onArrived("A");
+        tracker.onPosition(20, 0);
+        tracker.onArrived("C");
+        tracker.onPosition(10, 0);
+        tracker.onArrived("B");
+        tracker.onPosition(18, 0); // 往 D 的途中被擋住
+        assertEquals(Arrays.asList("C", "B", "A", "X"), tracker.planRemaining("B", Arrays.asList("A", "X", "B", "C")));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.temilib.sweep;
+
+import com.example.cameraxlib.dedup.ChangeDetector;
+import com.example.cameraxlib.frame.CaptureProfile;
+import com.example.temilib.patrol.SweepPlan;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveSweepPolicyTest {
+    private static final SweepPlan FULL = SweepPlan.uniform(10000, 8, CaptureProfile.PATROL_SWEEP);
+
+    private final ChangeDetector detector = new ChangeDetector();
+    private long changingHash; // 有變化的方向每站換一次畫面
+
+    // 拍完一站：每個方向的畫面交給 ChangeDetector 判定，changedHeadings 中的方向每站都不同
+    private SweepPlan visit(AdaptiveSweepPolicy policy, String location, long millis, int... changedHeadings) {
+        detector.setListener(policy::onChangeResult);
+        changingHash = ~changingHash;
+        SweepPlan plan = policy.planSweep(location, FULL);
+        for (int i = 0; i < plan.getHeadingCount(); i++) {
+            long hash = 0x5555555555555555L;
+            for (int heading : changedHeadings) {
+                if (heading == plan.getHeading(i)) {
+                    hash = changingHash;
+                }
+            }
+            detector.isChanged(location, plan.getHeading(i), hash);
+        }
+        policy.onSweepCompleted(location, plan, millis);
+        return plan;
+    }
+
+    @Test
+    public void quietWaypointShrinksAndProbesEachHeadingInTurn() {
+        AdaptiveSweepPolicy policy = new AdaptiveSweepPolicy(2000, 0.3, 6);
+        assertSame(FULL, visit(policy, "Storeroom", 18000)); // 第一次拍攝沒有比較基準，先完整環拍
+        assertTrue(Double.isNaN(policy.getChangeRate("Storeroom", 0)));
+        assertSame(FULL, visit(policy, "Storeroom", 18000)); // 第一次比較
+        assertEquals(0, policy.getChangeRate("storeroom", 3), 1e-9); // 地點名稱不分大小寫
+        SweepPlan quiet = visit(policy, "Storeroom", 3000); // 比較一次沒有變化就縮減
+        assertEquals(2000, quiet.getDwellMillis());
+        assertEquals(2, quiet.getHeadingCount());
+        assertSame(CaptureProfile.PERIODIC, quiet.getProfile());
+        SweepPlan next = visit(policy, "Storeroom", 3000);
+        assertNotEquals(quiet.getHeading(1), next.getHeading(1)); // 輪流抽查不同方向
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2, visit(policy, "Storeroom", 3000).getHeadingCount());
+        }
+        assertSame(FULL, visit(policy, "Storeroom", 18000)); // 隔 6 站完整環拍一次
+        assertEquals(6, policy.getQuietSweeps());
+        assertEquals(36, policy.getSkippedHeadings());
+        // 完整環拍約 18 秒、縮減後 3 秒；每個方向的耗時是學來的，估計值會隨縮減後的環拍下降一些
+        assertTrue(policy.getSavedMillis() > 6 * 12000 && policy.getSavedMillis() <= 6 * 15000);
+        assertEquals(policy.getSavedMillis(), policy.onLapCompleted());
+        assertEquals(0, policy.onLapCompleted());
+    }
+
+    @Test
+    public void busyHeadingsKeepFullDwellAndProfile() {
+        AdaptiveSweepPolicy policy = new AdaptiveSweepPolicy(2000, 0.3, 6);
+        assertSame(FULL, visit(policy, "Entrance", 18000, 90, 180));
+        assertSame(FULL, visit(policy, "Entrance", 18000, 90, 180));
+        SweepPlan reduced = visit(policy, "Entrance", 12000, 90, 180);
+        assertEquals(10000, reduced.getDwellMillis());
+        assertSame(CaptureProfile.PATROL_SWEEP, reduced.getProfile());
+        assertEquals(4, reduced.getHeadingCount()); // 0、兩個有變化的方向與一個抽查方向
+        assertEquals(0, reduced.getHeading(0));
+        boolean sawDoor = false;
+        for (int i = 0; i < reduced.getHeadingCount(); i++) {
+            sawDoor |= reduced.getHeading(i) == 90;
+        }
+        assertTrue(sawDoor);
+        assertEquals(1, policy.getReducedSweeps());
+        assertEquals(0, policy.getQuietSweeps());
+    }
+
+    @Test
+    public void everyHeadingChangingCountsAsFullSweep() {
+        AdaptiveSweepPolicy policy = new AdaptiveSweepPolicy(2000, 0.3, 6);
+        int[] all = {0, 45, 90, 135, 180, 225, 270, 315};
+        for (int i = 0; i < 4; i++) {
+            assertSame(FULL, visit(policy, "Loading bay", 18000 - i * 100, all));
+        }
+        assertEquals(4, policy.getFullSweeps());
+        assertEquals(0, policy.getReducedSweeps());
+        assertEquals(0, policy.getSkippedHeadings());
+        assertEquals(0, policy.getSavedMillis()); // 實際比估計快只是量測誤差，不算節省
+    }
+    @Test
+    public void highPriorityAlwaysSweepsFully() throws IOException {
+        AdaptiveSweepPolicy policy = new AdaptiveSweepPolicy(2000, 0.3, 6);
+        assertEquals(2, policy.loadPriorities(new StringReader("# 地點, 優先度\nLobby, high\nStore, low # 空倉庫\n")));
+        assertEquals(AdaptiveSweepPolicy.Priority.HIGH, policy.getPriority("lobby"));
+        for (int i = 0; i < 8; i++) {
+            assertSame(FULL, visit(policy, "Lobby", 18000));
+        }
+        assertEquals(0, policy.getSavedMillis());
+        try {
+            policy.loadPriorities(new StringReader("Lobby, urgent\n"));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
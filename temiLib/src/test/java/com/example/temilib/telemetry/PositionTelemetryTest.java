@@ -0,0 +1,68 @@
+package com.example.temilib.telemetry;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PositionTelemetryTest {
+    private static PositionTelemetry newTelemetry() {
+        return new PositionTelemetry(8, 0.5f, 1f, 100, 1000, 3, 60000);
+    }
+
+    @Test
+    public void downsamplesByDistanceAndHeartbeat() {
+        PositionTelemetry telemetry = newTelemetry();
+        assertTrue(telemetry.onSample(0, 0, 0, 0));
+        assertFalse(telemetry.onSample(50, 1, 0, 0)); // 間隔太短
+        assertFalse(telemetry.onSample(200, 0.1f, 0, 0)); // 移動太少
+        assertTrue(telemetry.onSample(300, 1, 0, 0));
+        assertTrue(telemetry.onSample(1400, 1, 0, 0)); // 靜止時的心跳
+        assertEquals(5, telemetry.getReceivedCount());
+        assertEquals(3, telemetry.getAcceptedCount());
+    }
+
+    @Test
+    public void ringKeepsNewestSamplesAndAnswersQueries() {
+        PositionTelemetry telemetry = newTelemetry();
+        for (int i = 0; i < 20; i++) {
+            telemetry.onSample(i * 1000L, i, 0, 0); // 1 m/s
+        }
+        assertEquals(8, telemetry.getSampleCount());
+        assertEquals(1f, telemetry.getSpeed(19000, 5000), 1e-4f);
+        float[] trail = new float[100];
+        assertEquals(3, telemetry.copyTrail(17000, trail));
+        assertEquals(17f, trail[0], 0f);
+        assertFalse(telemetry.isStalled(19000, 5000, 0.3f));
+
+        for (int i = 20; i < 30; i++) {
+            telemetry.onSample(i * 1000L, 19.1f, 0, 0);
+        }
+        assertTrue(telemetry.isStalled(29000, 5000, 0.3f));
+    }
+
+    @Test
+    public void flushesCompactBatches() {
+        final List<Integer> counts = new ArrayList<>();
+        final List<Float> lastX = new ArrayList<>();
+        PositionTelemetry telemetry = newTelemetry();
+        telemetry.setSink((ByteBuffer batch, int sampleCount, long first) -> {
+            counts.add(sampleCount);
+            assertEquals(first, batch.getLong(0));
+            assertEquals(sampleCount, batch.getInt(8));
+            assertEquals(12 + sampleCount * 16, batch.remaining());
+            lastX.add(batch.getFloat(12 + (sampleCount - 1) * 16 + 4));
+        });
+        for (int i = 0; i < 4; i++) {
+            telemetry.onSample(i * 1000L, i, 0, 0);
+        }
+        telemetry.flush();
+        assertEquals(2, counts.size());
+        assertEquals(Integer.valueOf(3), counts.get(0));
+        assertEquals(Integer.valueOf(1), counts.get(1));
+        assertEquals(3f, lastX.get(1), 0f);
+    }
+}